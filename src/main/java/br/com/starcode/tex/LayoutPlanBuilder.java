@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.format.ColumnFormatter;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.format.DataFormatterBinding;
+import br.com.starcode.tex.layout.ColumnSlot;
+import br.com.starcode.tex.layout.Layout;
+import br.com.starcode.tex.layout.LayoutPlan;
+import br.com.starcode.tex.source.ValueSource;
+
+
+/**
+ * Compiles a layout into a {@link LayoutPlan}, resolving value sources and formatters for each column 
+ * and formatting constant columns only once.
+ * Formatters are bound to their columns here and not when layouts are read, because they may be replaced until the export starts.
+ */
+public class LayoutPlanBuilder {
+
+	final static Logger logger = LoggerFactory.getLogger(LayoutPlanBuilder.class);
+	
+	static LayoutPlan buildPlan(Tex tex, Layout layout) {
+		
+		logger.debug("Compiling layout " + layout);
+		
+		List<ColumnDefinition> columnDefinitionList = layout.getColumnDefinitionList();
+		ColumnSlot[] slots = new ColumnSlot[columnDefinitionList.size()];
+		for (int i = 0; i < slots.length; i++) {
+			
+			ColumnDefinition columnDefinition = columnDefinitionList.get(i);
+			DataFormatter formatter = tex.getFormatter(columnDefinition.getType());
+			if (formatter == null) {
+				throw new IllegalArgumentException("Formatter not defined for type '" + columnDefinition.getType() + "' in" + XMLLayoutBuilder.getErrorLocation(layout.getLabel(), i));
+			}
+			ColumnFormatter columnFormatter = DataFormatterBinding.bind(formatter, columnDefinition);
+			
+			if ("column".equals(columnDefinition.getSource())) {
+				
+				//value given by the user for each row
+				slots[i] = new ColumnSlot(i, ColumnSlot.Kind.ROW, columnDefinition, formatter, columnFormatter, null, null, null);
+				
+			} else {
+				
+				//param map should validate if entry exists, other maps not because user could have null columns 
+				if ("param".equals(columnDefinition.getSource()) && !tex.getParamMap().containsKey(columnDefinition.getValue())) {
+					throw new RuntimeException("Entry '" + columnDefinition.getValue() + "' not defined in params map! Check column " + (i + 1) + " from layout '" + layout.getLabel() + "'");
+				}
+				
+				ValueSource valueSource = tex.getValueSourceMap().get(columnDefinition.getSource());
+				if (columnDefinition.isConstant() || columnDefinition.isCounter()) {
+					
+					//format once, counters are updated later by each appender
+					Object value = valueSource.calculateValue(columnDefinition.getValue());
+					String formattedValue;
+					try {
+						formattedValue = columnFormatter.format(value);
+					} catch (ClassCastException e) {
+						throw new RuntimeException("Error formatting column " + (i + 1) + " from layout '" + layout.getLabel() + "'", e);
+					}
+					ColumnSlot.Kind kind = columnDefinition.isCounter() ? ColumnSlot.Kind.COUNTER : ColumnSlot.Kind.CONSTANT;
+					slots[i] = new ColumnSlot(i, kind, columnDefinition, formatter, columnFormatter, valueSource, value, formattedValue);
+					
+				} else {
+					
+					slots[i] = new ColumnSlot(i, ColumnSlot.Kind.SOURCE, columnDefinition, formatter, columnFormatter, valueSource, null, null);
+					
+				}
+				
+			}
+			logger.trace("Slot " + slots[i]);
+			
+		}
+		
+		return new LayoutPlan(layout, slots);
+		
+	}
+	
+}
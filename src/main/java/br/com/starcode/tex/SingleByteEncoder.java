@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Encodes characters for single byte charsets (ISO-8859-1, Cp1252, IBM EBCDIC code pages, ...) 
+ * through a precomputed char to byte table, so text can be written straight into byte arrays without a {@link CharsetEncoder}.
+ * Characters the charset can't represent are encoded with the replacement byte of the charset, 
+ * one byte for each char so fixed width positions are kept.
+ * Instances are immutable and thread safe, use {@link #forCharset(Charset)} to share them.
+ */
+public class SingleByteEncoder {
+
+	final static Logger logger = LoggerFactory.getLogger(SingleByteEncoder.class);
+	
+	private static Map<String, SingleByteEncoder> encoderMap = new ConcurrentHashMap<String, SingleByteEncoder>();
+	
+	private Charset charset;
+	private byte[] table;
+	
+	/**
+	 * Checks if every character of the charset is encoded in a single byte
+	 */
+	public static boolean isSingleByte(Charset charset) {
+		
+		return charset.canEncode() && charset.newEncoder().maxBytesPerChar() == 1.0f;
+		
+	}
+	
+	/**
+	 * Shared encoder for a charset
+	 */
+	public static SingleByteEncoder forCharset(Charset charset) {
+		
+		SingleByteEncoder encoder = encoderMap.get(charset.name());
+		if (encoder == null) {
+			encoder = new SingleByteEncoder(charset);
+			encoderMap.put(charset.name(), encoder);
+		}
+		return encoder;
+		
+	}
+	
+	public SingleByteEncoder(Charset charset) {
+		
+		if (!isSingleByte(charset)) {
+			throw new IllegalArgumentException("Charset " + charset + " is not a single byte charset!");
+		}
+		this.charset = charset;
+		
+		//encode every char once
+		CharsetEncoder encoder = charset.newEncoder();
+		byte replacement = encoder.replacement()[0];
+		table = new byte[Character.MAX_VALUE + 1];
+		CharBuffer in = CharBuffer.allocate(1);
+		ByteBuffer out = ByteBuffer.allocate(4);
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			
+			table[c] = replacement;
+			if (Character.isSurrogate((char) c)) {
+				continue;
+			}
+			in.clear();
+			in.put((char) c);
+			in.flip();
+			out.clear();
+			encoder.reset();
+			CoderResult result = encoder.encode(in, out, true);
+			if (!result.isError() && out.position() == 1) {
+				table[c] = out.get(0);
+			}
+			
+		}
+		logger.debug("Created single byte table for " + charset);
+		
+	}
+	
+	public Charset getCharset() {
+		return charset;
+	}
+	
+	public byte encode(char c) {
+		return table[c];
+	}
+	
+	/**
+	 * Encodes a string to a new byte array
+	 */
+	public byte[] encode(String text) {
+		
+		byte[] bytes = new byte[text.length()];
+		encode(text, 0, text.length(), bytes, 0);
+		return bytes;
+		
+	}
+	
+	/**
+	 * Encodes part of a text into the destination
+	 * @return Position after the last byte written
+	 */
+	public int encode(CharSequence text, int start, int end, byte[] destination, int offset) {
+		
+		byte[] table = this.table;
+		for (int i = start; i < end; i++) {
+			destination[offset++] = table[text.charAt(i)];
+		}
+		return offset;
+		
+	}
+	
+	/**
+	 * Copies binary data (one byte per character) into the destination, without encoding
+	 * @return Position after the last byte written
+	 */
+	public static int copy(CharSequence data, int start, int end, byte[] destination, int offset) {
+		
+		for (int i = start; i < end; i++) {
+			destination[offset++] = (byte) data.charAt(i);
+		}
+		return offset;
+		
+	}
+	
+	/**
+	 * Fills the destination with the encoded character
+	 * @return Position after the last byte written
+	 */
+	public int fill(char c, int count, byte[] destination, int offset) {
+		
+		Arrays.fill(destination, offset, offset + count, table[c]);
+		return offset + count;
+		
+	}
+	
+	/**
+	 * Encodes content aligned inside a column, like {@link Util#writeAligned(Appendable, String, int, int, char, boolean)}
+	 * @return Position after the last byte written
+	 */
+	public int encodeAligned(String data, int width, int visibleWidth, char fillChar, boolean right, byte[] destination, int offset) {
+		return encodeAligned(data, width, visibleWidth, fillChar, right, false, destination, offset);
+	}
+	
+	/**
+	 * Same as {@link #encodeAligned(String, int, int, char, boolean, byte[], int)}, 
+	 * but binary data (one byte per character) is copied without encoding; only the filling is encoded
+	 * @return Position after the last byte written
+	 */
+	public int encodeAligned(String data, int width, int visibleWidth, char fillChar, boolean right, boolean binary, byte[] destination, int offset) {
+		
+		int padding = width - data.length();
+		if (padding < 0) {
+			padding = 0;
+		}
+		if (right) {
+			
+			int fillCount = Math.min(padding, visibleWidth);
+			offset = fill(fillChar, fillCount, destination, offset);
+			int dataCount = Math.min(data.length(), visibleWidth - fillCount);
+			return binary ? copy(data, 0, dataCount, destination, offset) : encode(data, 0, dataCount, destination, offset);
+			
+		} else {
+			
+			int dataCount = Math.min(data.length(), visibleWidth);
+			offset = binary ? copy(data, 0, dataCount, destination, offset) : encode(data, 0, dataCount, destination, offset);
+			return fill(fillChar, Math.min(padding, visibleWidth - dataCount), destination, offset);
+			
+		}
+		
+	}
+
+	@Override
+	public String toString() {
+		return "SingleByteEncoder [charset=" + charset + "]";
+	}
+	
+}
@@ -1,443 +1,1293 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringReader;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
-import org.jdom.Document;
-import org.jdom.Element;
-import org.jdom.JDOMException;
-import org.jdom.input.SAXBuilder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.appender.Appender;
-import br.com.starcode.tex.appender.FileAppender;
-import br.com.starcode.tex.column.ColumnDefinition;
-import br.com.starcode.tex.column.RowDataSet;
-import br.com.starcode.tex.format.BigDecimalFormatter;
-import br.com.starcode.tex.format.DataFormatter;
-import br.com.starcode.tex.format.DateFormatter;
-import br.com.starcode.tex.format.IntegerFormatter;
-import br.com.starcode.tex.format.OnlyDecimalFormatter;
-import br.com.starcode.tex.format.StringFormatter;
-import br.com.starcode.tex.layout.Layout;
-import br.com.starcode.tex.source.FixedValueSource;
-import br.com.starcode.tex.source.MapValueSource;
-import br.com.starcode.tex.source.NullValueSource;
-import br.com.starcode.tex.source.SingleValueSource;
-import br.com.starcode.tex.source.ValueSource;
-import br.com.starcode.tex.structure.RowStructure;
-
-/**
- * Text EXporter main class, for creation mainly of text files.
- */
-public class Tex {
-	
-	final Logger logger = LoggerFactory.getLogger(getClass());
-	
-	private Date beginTimestamp;
-	private Date currentTimestamp;
-	private boolean finished = false;
-	private boolean initiated = false;
-	
-	private Map<String, Object> paramMap;
-	private List<Appender> appenderList;
-	private Map<String, DataFormatter> formatterMap;
-	private Map<String, Layout> layoutMap;
-	private Map<String, ValueSource> valueSourceMap;
-	
-	private TexComponentFactoryImpl componentFactory;
-	
-	/**
-	 * Creates a Text EXporter instance
-	 * @param params Map of static params to all layouts
-	 * @param componentFactory Factory of Tex components, so you can override them 
-	 */
-	public Tex(Map<String, Object> params) {
-	
-		this(params, new TexComponentFactoryImpl());
-		
-	}
-	
-	/**
-	 * Creates a Text EXporter instance
-	 * @param params Map of static params to all layouts
-	 * @param componentFactory Factory of Tex components, so you can override them 
-	 */
-	public Tex(Map<String, Object> params, TexComponentFactoryImpl componentFactory) {
-		
-		this.beginTimestamp = new Date();
-
-		this.paramMap = params;
-		this.appenderList = new ArrayList<Appender>();
-		this.formatterMap = new HashMap<String, DataFormatter>();
-		this.layoutMap = new HashMap<String, Layout>();
-		this.valueSourceMap = new HashMap<String, ValueSource>();
-		
-		//default formatters
-		this.formatterMap.put("String", new StringFormatter());
-		this.formatterMap.put("Integer", new IntegerFormatter());
-		this.formatterMap.put("BigDecimal", new BigDecimalFormatter());
-		this.formatterMap.put("OnlyDecimal", new OnlyDecimalFormatter());
-		this.formatterMap.put("Date", new DateFormatter());
-		
-		//default value sources
-		this.valueSourceMap.put("column", null);
-		this.valueSourceMap.put("fixed", new FixedValueSource());
-		this.valueSourceMap.put("param", new MapValueSource(paramMap));
-		this.valueSourceMap.put("counter", new NullValueSource());
-		this.valueSourceMap.put("timestamp", new SingleValueSource(beginTimestamp));
-		
-		this.componentFactory = componentFactory;
-		
-		logger.debug("Text started successfully!");
-
-	}
-	
-	/**
-	 * Checks if tex can be configured (export process not initiated nor finished)
-	 * @param type Type of blocked configuration only for user information
-	 */
-	protected void checkConfigureState(String type) {
-		
-		if (finished) {
-			throw new RuntimeException("Tex already finished!");
-		} else if (initiated) {
-			throw new RuntimeException("Cannot register a new " + type + " because you already started exporting!");
-		}
-		
-	}
-	
-	/**
-	 * Registers a new formatter for some type. You can replace any default formatter.
-	 * @param columnType Name for new column type or existing one
-	 * @param formatter Instance of formatter
-	 */
-	public Tex registerFormatter(String columnType, DataFormatter formatter) {
-		
-		checkConfigureState("Formatter");
-		formatterMap.put(columnType, formatter);
-		logger.debug("Added formatter " + formatter);
-		return this;
-		
-	}
-	
-	/**
-	 * Registers a new value source, who tex will call when a column name matches this in order to obtain the calculated value of column.
-	 * Note the same instance will be used in every row.
-	 * @param name Name of the value source (tag name in XML). There is two reserved names: 'column' and 'counter'; in the first case tex will use the value source passed by the user for a specific row and in the another case each appender will give the number of the current row.
-	 */
-	public Tex registerValueSource(String name, ValueSource valueSource) {
-		
-		checkConfigureState("Appender");
-		if (name == null) {
-			throw new IllegalArgumentException("Value source name cannot be null!");
-		}
-		if (valueSource == null) {
-			throw new IllegalArgumentException("Value source cannot be null!");
-		}
-		if (name.equals("column")) {
-			throw new IllegalArgumentException("Value source cannot override name 'column'!");
-		}
-		valueSourceMap.put(name, valueSource);
-		logger.debug("Added value source " + valueSource);
-		return this;
-		
-	}
-	
-	/**
-	 * Registers a new appender to output content
-	 * @see Appender
-	 * @param appender Appender
-	 * @throws FalhaExportarArquivoException
-	 */
-	public Appender registerAppender(Appender appender) throws IllegalArgumentException {
-		
-		checkConfigureState("Appender");
-		if (appender == null) {
-			throw new IllegalArgumentException("Appender cannot be null!");
-		}
-		this.appenderList.add(appender);
-		logger.debug("Added appender " + appender);
-		return appender;
-		
-	}
-	
-	/**
-	 * Registers a file appender to output
-	 * @param file Output file
-	 * @param appendIfExists If file already exists, append output to previous content
-	 * @throws IOException If there is some exception reading or writing
-	 */
-	public Appender registerFileAppender(File file, boolean appendIfExists) throws IOException {
-		
-		checkConfigureState("Appender");
-		if (file == null) {
-			throw new IllegalArgumentException("File cannot be null!");
-		}
-		return registerAppender(new FileAppender(file, appendIfExists));
-		
-	}
-	
-	/**
-	 * Registers a new layout
-	 * @param baseClass Base class, looks at package to find the layout file.
-	 * @param relativePath Path to layout, relative to package class. e.g.: "xmlmap/layout.xml".
-	 */
-	public Tex registerLayout(Class<?> baseClass, String relativePath) throws IOException {
-		
-		return registerLayout(baseClass, relativePath, null);
-		
-	}
-	
-	/**
-	 * Registers a new layout
-	 * @param baseClass Base class, looks at package to find the layout file.
-	 * @param relativePath Path to layout, relative to package class (e.g.: "xmlmap/layout.xml"). 
-	 * @param defaultRowStructure Default Row Structure, used when some layout does not define it.
-	 */
-	public Tex registerLayout(Class<?> baseClass, String relativePath, RowStructure defaultRowStructure) throws IOException {
-		
-		checkConfigureState("Layout");
-		
-		if (relativePath == null || relativePath.length() == 0) {
-			throw new IllegalArgumentException("Path cannot be null or empty!");
-		}
-		
-		//calculate absolute path
-		String absolutePath = "/" + baseClass.getPackage().getName().replace('.', '/') + "/" + relativePath;
-		
-		//try read layout file
-		logger.debug("Loading resource at " + absolutePath);
-		InputStream url = baseClass.getResourceAsStream(absolutePath);
-		if (url == null) {
-			throw new FileNotFoundException("Layout file not found: '" + absolutePath + "'!");
-		}
-		
-		//read XML
-		Element layoutRoot;
-		try {
-			
-			logger.debug("Loading xml!");
-			SAXBuilder builder = new SAXBuilder();
-			Document document = builder.build(new StringReader(Util.readContent(url, "UTF-8")));
-			layoutRoot = document.getRootElement();
-			
-		} catch (JDOMException e) {
-
-			logger.error("Can't read xml!", e);
-			throw new RuntimeException(e.getLocalizedMessage(), e);
-			
-		}
-		
-		//get default type for file structure
-		if (defaultRowStructure == null) {
-			defaultRowStructure = XMLLayoutBuilder.getRowStructure(this, layoutRoot, layoutRoot.getName());
-		}
-		
-		//read layout elements
-		@SuppressWarnings("unchecked")
-		List<Element> children = (List<Element>) layoutRoot.getChildren();
-		if (children.isEmpty()) {
-			throw new IllegalArgumentException("File does not contain at least one layout!");
-		}
-		
-		for (Iterator<Element> iterator = children.iterator(); iterator.hasNext();) {
-
-			//read one layout
-			Layout layout = XMLLayoutBuilder.buildLayout(this, iterator.next(), defaultRowStructure);
-			
-			//ckeck if it already exists
-			if (layoutMap.containsKey(layout.getId())) {
-				throw new IllegalArgumentException("Layout '" + layout + "' duplicado!");
-			}
-			
-			//adds to map
-			layoutMap.put(layout.getId(), layout);
-			logger.debug("Added layout " + layout);
-		}
-		
-		return this;
-		
-	}
-	
-	/**
-	 * Ends export process and closes resources (e.g.: file appenders)
-	 */
-	public void close() {
-		
-		if (finished) {
-			throw new RuntimeException("Tex already finished!");
-		}
-		finished = true;
-		for (Iterator<Appender> iterator = appenderList.iterator(); iterator.hasNext();) {
-			
-			Appender appender = iterator.next();
-			appender.close();
-			
-		}
-		currentTimestamp = new Date();
-		logger.debug("Tex finished in " + getElapsedTime() + "ms");
-		
-	}
-	
-	/**
-	 * Duration of export in miliseconds
-	 * @return
-	 */
-	public long getElapsedTime() {
-		if (!finished) {
-			currentTimestamp = new Date();
-		}
-		return currentTimestamp.getTime() - beginTimestamp.getTime();
-	}
-	
-	public List<Appender> getAppenderList() {
-		return appenderList;
-	}
-	
-	public DataFormatter getFormatter(String columnType) {
-		return (DataFormatter) formatterMap.get(columnType);
-	}
-	
-	public Map<String, DataFormatter> getFormatterList() {
-		return formatterMap;
-	}
-	
-	public Map<String, Object> getParamMap() {
-		return paramMap;
-	}
-	
-	public Map<String, ValueSource> getValueSourceMap() {
-		return valueSourceMap;
-	}
-	
-	public TexComponentFactoryImpl getComponentFactory() {
-		return componentFactory;
-	}
-	
-	/**
-	 * Exports one more row to the output through appenders
-	 * @param layoutId Name of layout
-	 * @param valueSource Source of current row data
-	 */
-	public void exportRow(String layoutId, ValueSource rowValueSource) {
-		
-		if (finished) {
-			throw new RuntimeException("Tex already finished!");
-		}
-		initiated = true;
-		
-		Layout layout = layoutMap.get(layoutId);
-		if (layout == null) {
-			throw new RuntimeException("Layout '" + layoutId + " not found!");
-		}
-		
-		logger.debug("Exporting row with layout " + layout);
-		
-		List<ColumnDefinition> columnDefinitionList = layout.getColumnDefinitionList();
-		RowDataSet dataSet = componentFactory.createRowDataSet(layout); 
-		logger.debug("Calculating values");
-		for (int i = 0; i < columnDefinitionList.size(); i++) {
-			
-			ColumnDefinition columnDefinition = columnDefinitionList.get(i);
-			ValueSource valueSource;
-			if ("column".equals(columnDefinition.getSource())) {
-				
-				valueSource = rowValueSource;
-				
-			} else {
-				
-				//param map should validate if entry exists, other maps not because user could have null columns 
-				if ("param".equals(columnDefinition.getSource()) && !paramMap.containsKey(columnDefinition.getValue())) {
-					throw new RuntimeException("Entry '" + columnDefinition.getValue() + "' not defined in params map! Check column " + (i + 1) + " from layout '" + layout.getLabel() + "'");
-				}
-				
-				valueSource = valueSourceMap.get(columnDefinition.getSource());
-				
-			}
-
-			//get real value (except for counters)
-			Object realValue = valueSource.calculateValue(columnDefinition.getValue());
-			
-			//add to dataset
-			try {
-				dataSet.addColumn(realValue, columnDefinition, getFormatter(columnDefinition.getType()));
-			} catch (ClassCastException e) {
-				throw new RuntimeException("Error formatting column " + (i + 1) + " from layout '" + layout.getLabel() + "'", e);
-			}
-			
-		}
-		
-		//call appenders
-		logger.debug("Appending...");
-		for (Iterator<Appender> i = getAppenderList().iterator(); i.hasNext();) {
-			
-			Appender appender = i.next();
-			dataSet.updateCounters(appender.count());
-			appender.append(dataSet, layout.getRowStructure());
-			
-		}
-		logger.debug("Row exported!");
-			
-	}
-	
-	public void exportHeader(ValueSource sm) {
-		exportRow("header", sm);
-	}
-	
-	public void exportFooter(ValueSource sm) {
-		exportRow("footer", sm);
-	}
-	
-	public void exportDetail(ValueSource sm) {
-		exportRow("detail", sm);
-	}
-	
-	public void exportRow(String layoutId, Map<String, Object> valueMap) {
-		exportRow(layoutId, new MapValueSource(valueMap));
-	}
-	
-	public void exportHeader(Map<String, Object> map) {
-		exportRow("header", map);
-	}
-	
-	public void exportFooter(Map<String, Object> map) {
-		exportRow("footer", map);
-	}
-	
-	public void exportDetail(Map<String, Object> map) {
-		exportRow("detail", map);
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.AsyncAppender;
+import br.com.starcode.tex.appender.AtomicAppender;
+import br.com.starcode.tex.appender.AtomicFile;
+import br.com.starcode.tex.appender.BlockAppender;
+import br.com.starcode.tex.appender.ChannelAppender;
+import br.com.starcode.tex.appender.CheckpointAppender;
+import br.com.starcode.tex.appender.FileAppender;
+import br.com.starcode.tex.appender.LineAppender;
+import br.com.starcode.tex.appender.PartitionedAppender;
+import br.com.starcode.tex.appender.XlsAppender;
+import br.com.starcode.tex.checkpoint.Checkpoint;
+import br.com.starcode.tex.checkpoint.CheckpointJournal;
+import br.com.starcode.tex.checkpoint.ResumeTokenProvider;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.format.BigDecimalFormatter;
+import br.com.starcode.tex.format.ColumnFormatter;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.format.DateFormatter;
+import br.com.starcode.tex.format.IntegerFormatter;
+import br.com.starcode.tex.format.OnlyDecimalFormatter;
+import br.com.starcode.tex.format.PackedDecimalFormatter;
+import br.com.starcode.tex.format.StringFormatter;
+import br.com.starcode.tex.format.ZonedDecimalFormatter;
+import br.com.starcode.tex.layout.ColumnSlot;
+import br.com.starcode.tex.layout.Layout;
+import br.com.starcode.tex.layout.LayoutPlan;
+import br.com.starcode.tex.source.ColumnarValueSource;
+import br.com.starcode.tex.source.FixedValueSource;
+import br.com.starcode.tex.source.IndexedValueSource;
+import br.com.starcode.tex.source.MapValueSource;
+import br.com.starcode.tex.source.NullValueSource;
+import br.com.starcode.tex.source.SingleValueSource;
+import br.com.starcode.tex.source.ValueSource;
+import br.com.starcode.tex.structure.RowStructure;
+
+/**
+ * Text EXporter main class, for creation mainly of text files.
+ */
+public class Tex {
+	
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	private Date beginTimestamp;
+	private Date currentTimestamp;
+	private boolean finished = false;
+	private boolean initiated = false;
+	private boolean reuseRowDataSet = false;
+	private int blockSize = DEFAULT_BLOCK_SIZE;
+	private ExecutorService executor;
+	private int pendingBlocks;
+	private boolean shareLines;
+	private File checkpointJournalFile;
+	private int checkpointEveryRows;
+	private int rowsSinceCheckpoint;
+	private String resumeToken;
+	private boolean resumed;
+	private Checkpoint resumedCheckpoint;
+	private CheckpointJournal checkpointJournal;
+	private ResumeTokenProvider resumeTokenProvider;
+	private boolean atomicCommit;
+	
+	private Map<String, Object> paramMap;
+	private List<Appender> appenderList;
+	private Map<String, DataFormatter> formatterMap;
+	private Map<String, Layout> layoutMap;
+	private Map<String, LayoutPlan> layoutPlanMap;
+	private Map<String, ValueSource> valueSourceMap;
+	private MapValueSource rowMapValueSource;
+	
+	private TexComponentFactoryImpl componentFactory;
+	
+	/**
+	 * Creates a Text EXporter instance
+	 * @param params Map of static params to all layouts. Each layout formats its params once, at its first row, 
+	 * so change them afterwards only through {@link #setParam(String, Object)}.
+	 */
+	public Tex(Map<String, Object> params) {
+	
+		this(params, new TexComponentFactoryImpl());
+		
+	}
+	
+	/**
+	 * Creates a Text EXporter instance
+	 * @param params Map of static params to all layouts. Each layout formats its params once, at its first row, 
+	 * so change them afterwards only through {@link #setParam(String, Object)}.
+	 * @param componentFactory Factory of Tex components, so you can override them 
+	 */
+	public Tex(Map<String, Object> params, TexComponentFactoryImpl componentFactory) {
+		
+		this.beginTimestamp = new Date();
+
+		this.paramMap = params;
+		this.appenderList = new ArrayList<Appender>();
+		this.formatterMap = new HashMap<String, DataFormatter>();
+		this.layoutMap = new HashMap<String, Layout>();
+		this.layoutPlanMap = new HashMap<String, LayoutPlan>();
+		this.valueSourceMap = new HashMap<String, ValueSource>();
+		
+		//default formatters
+		this.formatterMap.put("String", new StringFormatter());
+		this.formatterMap.put("Integer", new IntegerFormatter());
+		this.formatterMap.put("BigDecimal", new BigDecimalFormatter());
+		this.formatterMap.put("OnlyDecimal", new OnlyDecimalFormatter());
+		this.formatterMap.put("Date", new DateFormatter());
+		this.formatterMap.put("Zoned", new ZonedDecimalFormatter());
+		this.formatterMap.put("Packed", new PackedDecimalFormatter());
+		
+		//default value sources
+		this.valueSourceMap.put("column", null);
+		this.valueSourceMap.put("fixed", new FixedValueSource());
+		this.valueSourceMap.put("param", new MapValueSource(paramMap));
+		this.valueSourceMap.put("counter", new NullValueSource());
+		this.valueSourceMap.put("timestamp", new SingleValueSource(beginTimestamp));
+		
+		this.componentFactory = componentFactory;
+		
+		logger.debug("Text started successfully!");
+
+	}
+	
+	/**
+	 * Checks if tex can be configured (export process not initiated nor finished)
+	 * @param type Type of blocked configuration only for user information
+	 */
+	protected void checkConfigureState(String type) {
+		
+		if (finished) {
+			throw new RuntimeException("Tex already finished!");
+		} else if (initiated) {
+			throw new RuntimeException("Cannot register a new " + type + " because you already started exporting!");
+		}
+		
+	}
+	
+	/**
+	 * Registers a new formatter for some type. You can replace any default formatter.
+	 * @param columnType Name for new column type or existing one
+	 * @param formatter Instance of formatter
+	 */
+	public Tex registerFormatter(String columnType, DataFormatter formatter) {
+		
+		checkConfigureState("Formatter");
+		formatterMap.put(columnType, formatter);
+		logger.debug("Added formatter " + formatter);
+		return this;
+		
+	}
+	
+	/**
+	 * Registers a new value source, who tex will call when a column name matches this in order to obtain the calculated value of column.
+	 * Note the same instance will be used in every row.
+	 * @param name Name of the value source (tag name in XML). There is two reserved names: 'column' and 'counter'; in the first case tex will use the value source passed by the user for a specific row and in the another case each appender will give the number of the current row.
+	 */
+	public Tex registerValueSource(String name, ValueSource valueSource) {
+		
+		checkConfigureState("Appender");
+		if (name == null) {
+			throw new IllegalArgumentException("Value source name cannot be null!");
+		}
+		if (valueSource == null) {
+			throw new IllegalArgumentException("Value source cannot be null!");
+		}
+		if (name.equals("column")) {
+			throw new IllegalArgumentException("Value source cannot override name 'column'!");
+		}
+		valueSourceMap.put(name, valueSource);
+		logger.debug("Added value source " + valueSource);
+		return this;
+		
+	}
+	
+	/**
+	 * When enabled, each layout keeps a single row data set whose columns are reset in place for every row, 
+	 * so exporting doesn't allocate new data sets and columns. 
+	 * Only enable it if your appenders don't keep references to the data set (or its columns) after append returns.
+	 * @param reuseRowDataSet Reuse data sets
+	 */
+	public Tex setReuseRowDataSet(boolean reuseRowDataSet) {
+		
+		checkConfigureState("Row data set mode");
+		this.reuseRowDataSet = reuseRowDataSet;
+		logger.debug("Reuse row data set: " + reuseRowDataSet);
+		return this;
+		
+	}
+	
+	/**
+	 * Number of rows calculated before they are handed to the appenders by {@link #exportRows(String, Iterable)}.
+	 * With {@link #setReuseRowDataSet(boolean)} enabled, each layout keeps this many data sets.
+	 * @param blockSize Rows per block (default is {@value #DEFAULT_BLOCK_SIZE})
+	 */
+	public Tex setBlockSize(int blockSize) {
+		
+		checkConfigureState("Block size");
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("Block size must be positive!");
+		}
+		this.blockSize = blockSize;
+		logger.debug("Block size: " + blockSize);
+		return this;
+		
+	}
+	
+	/**
+	 * Enables parallel export of rows by {@link #exportRows(String, Iterable)}: blocks of rows (see {@link #setBlockSize(int)}) 
+	 * are calculated and formatted by the executor (e.g. a ForkJoinPool or a fixed thread pool), while the exporting thread 
+	 * hands the calculated blocks to the appenders strictly in the order they were submitted, updating counters for each appender.
+	 * 
+	 * Then formatters and registered value sources must be thread safe (default ones are), 
+	 * and each row must have its own value source instance (except for columnar rows).
+	 * The executor is not shut down by Tex.
+	 * @param executor Executor of the blocks, or null to export sequentially (default)
+	 * @param pendingBlocks Maximum number of blocks submitted and not appended yet, which bounds memory use 
+	 * (e.g. twice the number of threads)
+	 */
+	public Tex setExecutor(ExecutorService executor, int pendingBlocks) {
+		
+		checkConfigureState("Executor");
+		if (executor != null && pendingBlocks <= 0) {
+			throw new IllegalArgumentException("Pending blocks must be positive!");
+		}
+		this.executor = executor;
+		this.pendingBlocks = pendingBlocks;
+		logger.debug("Executor: " + executor + ", pending blocks: " + pendingBlocks);
+		return this;
+		
+	}
+	
+	/**
+	 * Enables checkpoints, so an interrupted export can be resumed (see {@link #resume()}). 
+	 * A checkpoint is written when the export starts and then before exporting more rows, once N rows were exported since the last one. 
+	 * With a resume token provider (see {@link #setResumeTokenProvider(ResumeTokenProvider)}), checkpoints are also written 
+	 * between blocks of rows of {@link #exportRows(String, Iterable)}.
+	 * It records the resume token (see {@link #setResumeToken(String)}) and the rows and length of the file of each 
+	 * {@link CheckpointAppender}, after forcing it to the storage device. Other appenders (e.g. in memory) are not recorded, 
+	 * and appenders writing files that can't be truncated to a checkpoint (asynchronous, partitioned and spreadsheet 
+	 * appenders) are rejected, since their rows would be duplicated on resume.
+	 * The journal is kept after close, so delete it once the export is complete.
+	 * @param journalFile File of the checkpoint journal
+	 * @param everyRows Rows between checkpoints, or zero for checkpoints only by {@link #checkpoint()}
+	 */
+	public Tex setCheckpointJournal(File journalFile, int everyRows) {
+		
+		checkConfigureState("Checkpoint journal");
+		if (journalFile == null) {
+			throw new IllegalArgumentException("Journal file cannot be null!");
+		}
+		if (everyRows < 0) {
+			throw new IllegalArgumentException("Rows cannot be negative!");
+		}
+		for (int i = 0; i < appenderList.size(); i++) {
+			checkCheckpointable(appenderList.get(i));
+		}
+		this.checkpointJournalFile = journalFile;
+		this.checkpointEveryRows = everyRows;
+		logger.debug("Checkpoint journal: " + journalFile + ", every " + everyRows + " rows");
+		return this;
+		
+	}
+	
+	/**
+	 * Resumes an interrupted export: files of the last checkpoint in the journal are truncated to it and 
+	 * its resume token is returned, so the producer can restart the query after the rows already exported. 
+	 * Must be called after {@link #setCheckpointJournal(File, int)} and before registering appenders, 
+	 * which should then append to the files (their row counts continue from the checkpoint). 
+	 * With atomic commit, file and channel appenders registered afterwards continue their temporary files.
+	 * @return Resume token of the checkpoint, or null if there is no checkpoint (the export starts from the beginning)
+	 */
+	public String resume() {
+		
+		checkConfigureState("Resume");
+		if (checkpointJournalFile == null) {
+			throw new RuntimeException("Checkpoint journal not defined!");
+		}
+		if (!appenderList.isEmpty()) {
+			throw new RuntimeException("Resume must be called before registering appenders!");
+		}
+		Checkpoint checkpoint;
+		try {
+			checkpoint = CheckpointJournal.resume(checkpointJournalFile);
+		} catch (IOException e) {
+			throw new RuntimeException("Error resuming from " + checkpointJournalFile, e);
+		}
+		resumed = checkpoint != null;
+		resumedCheckpoint = checkpoint;
+		resumeToken = checkpoint != null ? checkpoint.getToken() : null;
+		return resumeToken;
+		
+	}
+	
+	/**
+	 * Token identifying the rows exported so far (e.g. the key of the last row), recorded by the next checkpoint. 
+	 * Update it after each exported row or batch of rows.
+	 */
+	public Tex setResumeToken(String resumeToken) {
+		this.resumeToken = resumeToken;
+		return this;
+	}
+	
+	public String getResumeToken() {
+		return resumeToken;
+	}
+	
+	/**
+	 * Gives the resume token after each block of rows exported by {@link #exportRows(String, Iterable)}, 
+	 * so checkpoints are written inside the export when due
+	 */
+	public Tex setResumeTokenProvider(ResumeTokenProvider resumeTokenProvider) {
+		this.resumeTokenProvider = resumeTokenProvider;
+		return this;
+	}
+	
+	/**
+	 * Writes a checkpoint now with the current resume token
+	 */
+	public void checkpoint() {
+		
+		if (checkpointJournalFile == null) {
+			throw new RuntimeException("Checkpoint journal not defined!");
+		}
+		List<CheckpointAppender> appenders = new ArrayList<CheckpointAppender>();
+		for (int i = 0; i < appenderList.size(); i++) {
+			if (appenderList.get(i) instanceof CheckpointAppender) {
+				appenders.add((CheckpointAppender) appenderList.get(i));
+			}
+		}
+		try {
+			if (checkpointJournal == null) {
+				checkpointJournal = new CheckpointJournal(checkpointJournalFile, resumed);
+			}
+			checkpointJournal.write(resumeToken, appenders);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing checkpoint to " + checkpointJournalFile, e);
+		}
+		rowsSinceCheckpoint = 0;
+		
+	}
+	
+	/**
+	 * Rejects appenders writing files that can't be truncated to a checkpoint
+	 */
+	protected void checkCheckpointable(Appender appender) {
+		
+		if (appender instanceof AsyncAppender || appender instanceof PartitionedAppender || appender instanceof XlsAppender) {
+			throw new IllegalArgumentException(appender.getClass().getSimpleName() + " can't be truncated to a checkpoint, so its rows would be duplicated on resume!");
+		}
+		
+	}
+	
+	/**
+	 * Makes an appender of a file truncated by {@link #resume()} write the separator of the last row of the checkpoint, 
+	 * if it was pending
+	 */
+	protected void restoreCheckpoint(CheckpointAppender appender) {
+		
+		File file = appender.getFile().getAbsoluteFile();
+		for (Checkpoint.FileState state : resumedCheckpoint.getFiles()) {
+			if (state.getFile().equals(file)) {
+				appender.setSeparatorPending(state.isSeparatorPending());
+				return;
+			}
+		}
+		
+	}
+	
+	/**
+	 * Updates the resume token after a block of rows, from the provider, and writes a checkpoint if due
+	 */
+	protected void checkpointAfterBlock(ValueSource lastRow) {
+		
+		if (resumeTokenProvider == null) {
+			return;
+		}
+		resumeToken = resumeTokenProvider.getResumeToken(lastRow);
+		if (checkpointJournal != null && checkpointEveryRows > 0 && rowsSinceCheckpoint >= checkpointEveryRows) {
+			checkpoint();
+		}
+		
+	}
+	
+	/**
+	 * Makes file and channel appenders registered afterwards write to temporary files in the same directory, 
+	 * which are synced and moved to their names on close, so readers never see partial files (see {@link AtomicFile}). 
+	 * If the export fails, {@link #abort()} discards them.
+	 */
+	public Tex setAtomicCommit(boolean atomicCommit) {
+		
+		checkConfigureState("Atomic commit");
+		this.atomicCommit = atomicCommit;
+		logger.debug("Atomic commit: " + atomicCommit);
+		return this;
+		
+	}
+	
+	/**
+	 * Registers a new appender to output content
+	 * @see Appender
+	 * @param appender Appender
+	 * @throws FalhaExportarArquivoException
+	 */
+	public Appender registerAppender(Appender appender) throws IllegalArgumentException {
+		
+		checkConfigureState("Appender");
+		if (appender == null) {
+			throw new IllegalArgumentException("Appender cannot be null!");
+		}
+		if (checkpointJournalFile != null) {
+			checkCheckpointable(appender);
+		}
+		if (resumedCheckpoint != null && appender instanceof CheckpointAppender) {
+			restoreCheckpoint((CheckpointAppender) appender);
+		}
+		this.appenderList.add(appender);
+		logger.debug("Added appender " + appender);
+		return appender;
+		
+	}
+	
+	/**
+	 * Registers a file appender to output
+	 * @param file Output file
+	 * @param appendIfExists If file already exists, append output to previous content
+	 * @return The appender, so flush policy can be configured
+	 * @throws IOException If there is some exception reading or writing
+	 */
+	public FileAppender registerFileAppender(File file, boolean appendIfExists) throws IOException {
+		
+		return registerFileAppender(file, appendIfExists, FileAppender.DEFAULT_BUFFER_SIZE);
+		
+	}
+	
+	/**
+	 * Registers a file appender to output
+	 * @param file Output file
+	 * @param appendIfExists If file already exists, append output to previous content
+	 * @param bufferSize Size (in characters) of the output buffer
+	 * @return The appender, so flush policy can be configured
+	 * @throws IOException If there is some exception reading or writing
+	 */
+	public FileAppender registerFileAppender(File file, boolean appendIfExists, int bufferSize) throws IOException {
+		
+		checkConfigureState("Appender");
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null!");
+		}
+		FileAppender fileAppender = new FileAppender(file, appendIfExists, bufferSize, atomicCommit, resumed);
+		registerAppender(fileAppender);
+		return fileAppender;
+		
+	}
+	
+	/**
+	 * Registers a file appender that writes through a file channel with an explicit charset
+	 * @param file Output file
+	 * @param appendIfExists If file already exists, append output to previous content
+	 * @param charset Charset of the output file
+	 * @return The appender, so it can be configured (e.g. memory mapped mode)
+	 * @throws IOException If there is some exception reading or writing
+	 */
+	public ChannelAppender registerChannelAppender(File file, boolean appendIfExists, Charset charset) throws IOException {
+		
+		checkConfigureState("Appender");
+		if (file == null) {
+			throw new IllegalArgumentException("File cannot be null!");
+		}
+		ChannelAppender channelAppender = new ChannelAppender(file, appendIfExists, charset, ChannelAppender.DEFAULT_BUFFER_SIZE, atomicCommit, resumed);
+		registerAppender(channelAppender);
+		return channelAppender;
+		
+	}
+	
+	/**
+	 * Registers an appender that writes in its own thread, through a queue of rows
+	 * @param appender Appender called by the writer thread
+	 * @param capacity Maximum number of rows (or blocks of rows) waiting to be written
+	 * @return The asynchronous appender, so overflow policy can be configured
+	 * @see AsyncAppender
+	 */
+	public AsyncAppender registerAsyncAppender(Appender appender, int capacity) {
+		
+		checkConfigureState("Appender");
+		AsyncAppender asyncAppender = new AsyncAppender(appender, capacity);
+		registerAppender(asyncAppender);
+		return asyncAppender;
+		
+	}
+	
+	/**
+	 * Registers a new layout
+	 * @param baseClass Base class, looks at package to find the layout file.
+	 * @param relativePath Path to layout, relative to package class. e.g.: "xmlmap/layout.xml".
+	 */
+	public Tex registerLayout(Class<?> baseClass, String relativePath) throws IOException {
+		
+		return registerLayout(baseClass, relativePath, null);
+		
+	}
+	
+	/**
+	 * Registers a new layout
+	 * @param baseClass Base class, looks at package to find the layout file.
+	 * @param relativePath Path to layout, relative to package class (e.g.: "xmlmap/layout.xml"). 
+	 * @param defaultRowStructure Default Row Structure, used when some layout does not define it.
+	 */
+	public Tex registerLayout(Class<?> baseClass, String relativePath, RowStructure defaultRowStructure) throws IOException {
+		
+		checkConfigureState("Layout");
+		
+		if (relativePath == null || relativePath.length() == 0) {
+			throw new IllegalArgumentException("Path cannot be null or empty!");
+		}
+		
+		//calculate absolute path
+		String absolutePath = "/" + baseClass.getPackage().getName().replace('.', '/') + "/" + relativePath;
+		
+		//try read layout file
+		logger.debug("Loading resource at " + absolutePath);
+		InputStream url = baseClass.getResourceAsStream(absolutePath);
+		if (url == null) {
+			throw new FileNotFoundException("Layout file not found: '" + absolutePath + "'!");
+		}
+		
+		//read XML
+		Element layoutRoot;
+		try {
+			
+			logger.debug("Loading xml!");
+			SAXBuilder builder = new SAXBuilder();
+			Document document = builder.build(new StringReader(Util.readContent(url, "UTF-8")));
+			layoutRoot = document.getRootElement();
+			
+		} catch (JDOMException e) {
+
+			logger.error("Can't read xml!", e);
+			throw new RuntimeException(e.getLocalizedMessage(), e);
+			
+		}
+		
+		//get default type for file structure
+		if (defaultRowStructure == null) {
+			defaultRowStructure = XMLLayoutBuilder.getRowStructure(this, layoutRoot, layoutRoot.getName());
+		}
+		
+		//read layout elements
+		@SuppressWarnings("unchecked")
+		List<Element> children = (List<Element>) layoutRoot.getChildren();
+		if (children.isEmpty()) {
+			throw new IllegalArgumentException("File does not contain at least one layout!");
+		}
+		
+		for (Iterator<Element> iterator = children.iterator(); iterator.hasNext();) {
+
+			//read one layout
+			Layout layout = XMLLayoutBuilder.buildLayout(this, iterator.next(), defaultRowStructure);
+			
+			//ckeck if it already exists
+			if (layoutMap.containsKey(layout.getId())) {
+				throw new IllegalArgumentException("Layout '" + layout + "' duplicado!");
+			}
+			
+			//adds to map
+			layoutMap.put(layout.getId(), layout);
+			logger.debug("Added layout " + layout);
+		}
+		
+		return this;
+		
+	}
+	
+	/**
+	 * Compiles a layout into a plan when its first row is exported, so only layouts actually exported need their params. 
+	 * From the first row of any layout on, formatters, value sources and layouts cannot change anymore.
+	 */
+	protected LayoutPlan compileLayout(Layout layout) {
+		
+		LayoutPlan plan = LayoutPlanBuilder.buildPlan(this, layout);
+		if (reuseRowDataSet) {
+			plan.setReusableRowDataSet(componentFactory.createRowDataSet(layout));
+			plan.setReusableBlock(new RowDataSet[blockSize]);
+		}
+		layoutPlanMap.put(layout.getId(), plan);
+		logger.debug("Compiled layout " + layout.getId());
+		return plan;
+		
+	}
+	
+	/**
+	 * Ends export process and closes resources (e.g.: file appenders)
+	 */
+	public void close() {
+		
+		if (finished) {
+			throw new RuntimeException("Tex already finished!");
+		}
+		finished = true;
+		
+		//every appender is closed (e.g. asynchronous ones drain their queues) even if another one fails, 
+		//but after a failure the output not committed yet is discarded
+		RuntimeException failure = null;
+		for (Iterator<Appender> iterator = appenderList.iterator(); iterator.hasNext();) {
+			
+			Appender appender = iterator.next();
+			try {
+				if (failure != null && appender instanceof AtomicAppender) {
+					((AtomicAppender) appender).abort();
+				} else {
+					appender.close();
+				}
+			} catch (RuntimeException e) {
+				logger.error("Error closing " + appender, e);
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			
+		}
+		if (checkpointJournal != null) {
+			try {
+				checkpointJournal.close();
+			} catch (IOException e) {
+				logger.error("Error closing " + checkpointJournal, e);
+				if (failure == null) {
+					failure = new RuntimeException(e);
+				}
+			}
+		}
+		currentTimestamp = new Date();
+		logger.debug("Tex finished in " + getElapsedTime() + "ms");
+		if (failure != null) {
+			throw failure;
+		}
+		
+	}
+	
+	/**
+	 * Ends a failed export discarding its output: appenders committing atomically remove their temporary files, 
+	 * leaving the final files as they were (see {@link AtomicAppender#abort()}), and other appenders are closed. 
+	 * Exports to be resumed from checkpoints should be closed instead. Does nothing if the export already finished.
+	 */
+	public void abort() {
+		
+		if (finished) {
+			return;
+		}
+		finished = true;
+		
+		for (Iterator<Appender> iterator = appenderList.iterator(); iterator.hasNext();) {
+			
+			Appender appender = iterator.next();
+			try {
+				if (appender instanceof AtomicAppender) {
+					((AtomicAppender) appender).abort();
+				} else {
+					appender.close();
+				}
+			} catch (RuntimeException e) {
+				logger.error("Error aborting " + appender, e);
+			}
+			
+		}
+		if (checkpointJournal != null) {
+			try {
+				checkpointJournal.close();
+			} catch (IOException e) {
+				logger.error("Error closing " + checkpointJournal, e);
+			}
+		}
+		currentTimestamp = new Date();
+		logger.debug("Tex aborted after " + getElapsedTime() + "ms");
+		
+	}
+	
+	/**
+	 * Duration of export in miliseconds
+	 * @return
+	 */
+	public long getElapsedTime() {
+		if (!finished) {
+			currentTimestamp = new Date();
+		}
+		return currentTimestamp.getTime() - beginTimestamp.getTime();
+	}
+	
+	public List<Appender> getAppenderList() {
+		return appenderList;
+	}
+	
+	public DataFormatter getFormatter(String columnType) {
+		return (DataFormatter) formatterMap.get(columnType);
+	}
+	
+	public Map<String, DataFormatter> getFormatterList() {
+		return formatterMap;
+	}
+	
+	/**
+	 * Params of the layouts, which can't be changed through this map once the export started (see {@link #setParam(String, Object)})
+	 */
+	public Map<String, Object> getParamMap() {
+		return initiated ? Collections.unmodifiableMap(paramMap) : paramMap;
+	}
+	
+	/**
+	 * Sets a param, also after the export started: layouts using it are compiled again at their next row, 
+	 * since params are formatted only once
+	 */
+	public Tex setParam(String name, Object value) {
+		
+		if (finished) {
+			throw new RuntimeException("Tex already finished!");
+		}
+		paramMap.put(name, value);
+		for (Iterator<LayoutPlan> iterator = layoutPlanMap.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().usesParam(name)) {
+				iterator.remove();
+			}
+		}
+		logger.debug("Param " + name + " set to " + value);
+		return this;
+		
+	}
+	
+	public Map<String, ValueSource> getValueSourceMap() {
+		return valueSourceMap;
+	}
+	
+	public TexComponentFactoryImpl getComponentFactory() {
+		return componentFactory;
+	}
+	
+	/**
+	 * Compiled plan of a layout, available after its first row was exported
+	 */
+	public LayoutPlan getLayoutPlan(String layoutId) {
+		return layoutPlanMap.get(layoutId);
+	}
+	
+	/**
+	 * Exports one more row to the output through appenders
+	 * @param layoutId Name of layout
+	 * @param valueSource Source of current row data
+	 */
+	public void exportRow(String layoutId, ValueSource rowValueSource) {
+		
+		LayoutPlan plan = prepareExport(layoutId);
+		Layout layout = plan.getLayout();
+		
+		if (logger.isDebugEnabled()) {
+			logger.debug("Exporting row with layout " + layout);
+		}
+		
+		RowDataSet dataSet = plan.getReusableRowDataSet();
+		if (dataSet == null) {
+			dataSet = componentFactory.createRowDataSet(layout);
+		} else {
+			dataSet.clear();
+		}
+		logger.debug("Calculating values");
+		calculateRow(plan, rowValueSource, dataSet);
+		
+		//call appenders
+		logger.debug("Appending...");
+		RowStructure rowStructure = layout.getRowStructure();
+		String line = null;
+		int lineCount = -1;
+		for (int i = 0; i < appenderList.size(); i++) {
+			
+			Appender appender = appenderList.get(i);
+			int count = appender.count();
+			dataSet.updateCounters(count);
+			if (shareLines && appender instanceof LineAppender && ((LineAppender) appender).isLineShared(rowStructure)) {
+				
+				//rendered once, and again only if counters have another value for this appender
+				if (line == null || (plan.hasCounters() && count != lineCount)) {
+					line = rowStructure.createLine(dataSet, appender);
+					lineCount = count;
+				}
+				((LineAppender) appender).appendLine(dataSet, rowStructure, line);
+				
+			} else {
+				
+				appender.append(dataSet, rowStructure);
+				
+			}
+			
+		}
+		rowsSinceCheckpoint++;
+		logger.debug("Row exported!");
+			
+	}
+	
+	/**
+	 * Exports many rows with the same layout. 
+	 * The layout is looked up once and rows are calculated in blocks (see {@link #setBlockSize(int)}), 
+	 * then each block is handed to every appender at once, so a {@link BlockAppender} renders it straight into its buffer.
+	 * If a row fails, the rows before it are still exported.
+	 * @param layoutId Name of layout
+	 * @param rowValueSources Source of each row data (the same instance may be returned again with other values)
+	 */
+	public void exportRows(String layoutId, Iterable<? extends ValueSource> rowValueSources) {
+		
+		LayoutPlan plan = prepareExport(layoutId);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Exporting rows with layout " + plan.getLayout());
+		}
+		if (executor != null) {
+			exportRowsInParallel(plan, rowValueSources.iterator(), null);
+			return;
+		}
+		
+		RowDataSet[] block = plan.getReusableBlock();
+		if (block == null) {
+			block = new RowDataSet[blockSize];
+		}
+		int size = 0;
+		int rows = 0;
+		ValueSource lastRow = null;
+		try {
+			
+			for (ValueSource rowValueSource : rowValueSources) {
+				
+				lastRow = rowValueSource;
+				RowDataSet dataSet = block[size];
+				if (dataSet != null && plan.getReusableBlock() != null) {
+					dataSet.clear();
+				} else {
+					dataSet = componentFactory.createRowDataSet(plan.getLayout());
+					block[size] = dataSet;
+				}
+				calculateRow(plan, rowValueSource, dataSet);
+				size++;
+				if (size == block.length) {
+					size = 0;
+					appendBlock(plan, block, block.length);
+					rows += block.length;
+					checkpointAfterBlock(rowValueSource);
+				}
+				
+			}
+			
+		} catch (RuntimeException e) {
+			
+			appendBlock(plan, block, size);
+			throw e;
+			
+		}
+		appendBlock(plan, block, size);
+		rows += size;
+		if (size > 0) {
+			checkpointAfterBlock(lastRow);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(rows + " rows exported!");
+		}
+		
+	}
+	
+	/**
+	 * Exports many rows with the same layout, given by columns instead of rows
+	 * @param layoutId Name of layout
+	 * @param columns Values of each column name, in arrays or lists of the same length (see {@link ColumnarValueSource})
+	 */
+	public void exportRows(String layoutId, Map<String, ?> columns) {
+		
+		ColumnarValueSource columnarValueSource = new ColumnarValueSource(columns);
+		if (executor == null) {
+			exportRows(layoutId, columnarValueSource.rows());
+		} else {
+			exportRowsInParallel(prepareExport(layoutId), null, columnarValueSource);
+		}
+		
+	}
+	
+	/**
+	 * Submits blocks of rows to the executor and appends the calculated ones in the order they were submitted.
+	 * Rows come from the iterator or, if it's null, from the columnar value source (each block reads a copy of it).
+	 * If a row fails, the rows before it are still exported and blocks after it are cancelled.
+	 */
+	protected void exportRowsInParallel(LayoutPlan plan, Iterator<? extends ValueSource> rowValueSources, ColumnarValueSource columnarValueSource) {
+		
+		Deque<Future<RowBlock>> pending = new ArrayDeque<Future<RowBlock>>();
+		Deque<RowBlock> freeBlocks = new ArrayDeque<RowBlock>();
+		int nextRow = 0;
+		int rows = 0;
+		RuntimeException sourceError = null;
+		try {
+			
+			while (true) {
+				
+				RowBlock block = freeBlocks.isEmpty() ? new RowBlock(blockSize) : freeBlocks.pop();
+				block.size = 0;
+				block.error = null;
+				if (rowValueSources != null) {
+					block.rowCount = 0;
+					try {
+						while (block.rowCount < blockSize && rowValueSources.hasNext()) {
+							ValueSource rowValueSource = rowValueSources.next();
+							block.rowValueSources[block.rowCount++] = rowValueSource;
+						}
+					} catch (RuntimeException e) {
+						//rows read before the failure are still exported, as in a sequential export
+						sourceError = e;
+					}
+				} else {
+					block.columnarValueSource = columnarValueSource.copy();
+					block.firstRow = nextRow;
+					block.rowCount = Math.min(blockSize, columnarValueSource.getRowCount() - nextRow);
+					nextRow += block.rowCount;
+				}
+				if (block.rowCount == 0) {
+					break;
+				}
+				
+				pending.add(executor.submit(new BlockTask(plan, block)));
+				if (sourceError != null) {
+					break;
+				}
+				if (pending.size() >= pendingBlocks) {
+					rows += appendNextBlock(plan, pending, freeBlocks);
+				}
+				
+			}
+			while (!pending.isEmpty()) {
+				rows += appendNextBlock(plan, pending, freeBlocks);
+			}
+			if (sourceError != null) {
+				throw sourceError;
+			}
+			
+		} finally {
+			
+			//only after a failure
+			for (Future<RowBlock> future : pending) {
+				future.cancel(true);
+			}
+			
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(rows + " rows exported in parallel!");
+		}
+		
+	}
+	
+	/**
+	 * Waits for the oldest submitted block and appends it, rethrowing the error of the row that stopped it
+	 * @return Number of rows appended
+	 */
+	protected int appendNextBlock(LayoutPlan plan, Deque<Future<RowBlock>> pending, Deque<RowBlock> freeBlocks) {
+		
+		RowBlock block;
+		try {
+			block = pending.poll().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for rows!", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		
+		appendBlock(plan, block.rows, block.size);
+		if (block.error != null) {
+			throw block.error;
+		}
+		if (block.size > 0) {
+			if (block.columnarValueSource != null) {
+				block.columnarValueSource.setRow(block.firstRow + block.size - 1);
+				checkpointAfterBlock(block.columnarValueSource);
+			} else {
+				checkpointAfterBlock(block.rowValueSources[block.size - 1]);
+			}
+		}
+		Arrays.fill(block.rowValueSources, null);
+		block.columnarValueSource = null;
+		freeBlocks.push(block);
+		return block.size;
+		
+	}
+	
+	/**
+	 * Checks the export state, compiling the layout at its first row
+	 * @return Plan of the layout
+	 */
+	protected LayoutPlan prepareExport(String layoutId) {
+		
+		if (finished) {
+			throw new RuntimeException("Tex already finished!");
+		}
+		if (!initiated) {
+			shareLines = countLineAppenders() > 1;
+			initiated = true;
+		}
+		
+		LayoutPlan plan = layoutPlanMap.get(layoutId);
+		if (plan == null) {
+			Layout layout = layoutMap.get(layoutId);
+			if (layout == null) {
+				throw new RuntimeException("Layout '" + layoutId + " not found!");
+			}
+			plan = compileLayout(layout);
+		}
+		
+		//checkpoints are taken between calls, when the resume token matches the rows exported
+		if (checkpointJournalFile != null && (checkpointJournal == null 
+				|| (checkpointEveryRows > 0 && rowsSinceCheckpoint >= checkpointEveryRows))) {
+			checkpoint();
+		}
+		return plan;
+		
+	}
+	
+	/**
+	 * Number of appenders accepting rendered lines. With more than one, each row is rendered once and the line is shared.
+	 */
+	protected int countLineAppenders() {
+		
+		int count = 0;
+		for (int i = 0; i < appenderList.size(); i++) {
+			if (appenderList.get(i) instanceof LineAppender) {
+				count++;
+			}
+		}
+		return count;
+		
+	}
+	
+	/**
+	 * Calculates and formats the columns of a row into an empty data set
+	 */
+	protected void calculateRow(LayoutPlan plan, ValueSource rowValueSource, RowDataSet dataSet) {
+		
+		ColumnSlot[] slots = plan.getSlots();
+		IndexedValueSource indexedRowSource = rowValueSource instanceof IndexedValueSource ? (IndexedValueSource) rowValueSource : null;
+		int[] rowSourceSlots = indexedRowSource != null ? plan.getRowSourceSlots(indexedRowSource) : null;
+		Object value;
+		for (int i = 0; i < slots.length; i++) {
+			
+			ColumnSlot slot = slots[i];
+			try {
+				
+				switch (slot.getKind()) {
+				case ROW:
+					if (indexedRowSource != null) {
+						addColumn(dataSet, slot, indexedRowSource, rowSourceSlots[i]);
+					} else {
+						value = rowValueSource.calculateValue(slot.getDefinition().getValue());
+						dataSet.addColumn(value, slot.getColumnFormatter().format(value), slot.getDefinition(), slot.getFormatter());
+					}
+					break;
+				case SOURCE:
+					if (slot.getSourceSlot() >= 0) {
+						addColumn(dataSet, slot, (IndexedValueSource) slot.getValueSource(), slot.getSourceSlot());
+					} else {
+						value = slot.getValueSource().calculateValue(slot.getDefinition().getValue());
+						dataSet.addColumn(value, slot.getColumnFormatter().format(value), slot.getDefinition(), slot.getFormatter());
+					}
+					break;
+				default:
+					//constants and counters were already formatted
+					dataSet.addColumn(slot.getConstantValue(), slot.getConstantFormattedValue(), slot.getDefinition(), slot.getFormatter());
+				}
+				
+			} catch (ClassCastException e) {
+				throw new RuntimeException("Error formatting column " + (i + 1) + " from layout '" + plan.getLayout().getLabel() + "'", e);
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Hands the first rows of the block to every appender, updating counters row by row for appenders that can't append blocks. 
+	 * When an appender fails on a row, the rows it appended before that one are still handed to the next appenders, 
+	 * then the exception is thrown.
+	 */
+	protected void appendBlock(LayoutPlan plan, RowDataSet[] block, int size) {
+		
+		if (size == 0) {
+			return;
+		}
+		RowStructure rowStructure = plan.getLayout().getRowStructure();
+		RuntimeException failure = null;
+		for (int i = 0; i < appenderList.size() && size > 0; i++) {
+			
+			Appender appender = appenderList.get(i);
+			int countBefore = appender.count();
+			int j = 0;
+			try {
+				if (appender instanceof BlockAppender) {
+					((BlockAppender) appender).appendBlock(block, size, rowStructure);
+				} else {
+					for (j = 0; j < size; j++) {
+						block[j].updateCounters(appender.count());
+						appender.append(block[j], rowStructure);
+					}
+				}
+			} catch (RuntimeException e) {
+				if (failure == null) {
+					failure = e;
+				}
+				size = appender instanceof BlockAppender ? Math.max(0, Math.min(size, appender.count() - countBefore)) : j;
+			}
+			
+		}
+		rowsSinceCheckpoint += size;
+		if (failure != null) {
+			throw failure;
+		}
+		
+	}
+	
+	/**
+	 * Reads the value from its slot, formatting int and long values without boxing
+	 */
+	protected void addColumn(RowDataSet dataSet, ColumnSlot slot, IndexedValueSource source, int sourceSlot) {
+		
+		ColumnFormatter columnFormatter = slot.getColumnFormatter();
+		switch (source.getSlotType(sourceSlot)) {
+		case INT:
+			int intValue = source.getInt(sourceSlot);
+			dataSet.addIntColumn(intValue, columnFormatter.formatInt(intValue), slot.getDefinition(), slot.getFormatter());
+			break;
+		case LONG:
+			long longValue = source.getLong(sourceSlot);
+			dataSet.addLongColumn(longValue, columnFormatter.formatLong(longValue), slot.getDefinition(), slot.getFormatter());
+			break;
+		default:
+			Object value = source.getObject(sourceSlot);
+			dataSet.addColumn(value, columnFormatter.format(value), slot.getDefinition(), slot.getFormatter());
+		}
+		
+	}
+	
+	public void exportHeader(ValueSource sm) {
+		exportRow("header", sm);
+	}
+	
+	public void exportFooter(ValueSource sm) {
+		exportRow("footer", sm);
+	}
+	
+	public void exportDetail(ValueSource sm) {
+		exportRow("detail", sm);
+	}
+	
+	public void exportRow(String layoutId, Map<String, Object> valueMap) {
+		if (rowMapValueSource == null) {
+			rowMapValueSource = new MapValueSource(valueMap);
+		} else {
+			rowMapValueSource.setMap(valueMap);
+		}
+		exportRow(layoutId, rowMapValueSource);
+	}
+	
+	public void exportHeader(Map<String, Object> map) {
+		exportRow("header", map);
+	}
+	
+	public void exportFooter(Map<String, Object> map) {
+		exportRow("footer", map);
+	}
+	
+	public void exportDetail(Map<String, Object> map) {
+		exportRow("detail", map);
+	}
+	
+	/**
+	 * Rows of a block to be calculated by a {@link BlockTask}: value sources (or a columnar range) and their data sets
+	 */
+	protected static class RowBlock {
+		
+		final ValueSource[] rowValueSources;
+		final RowDataSet[] rows;
+		ColumnarValueSource columnarValueSource;
+		int firstRow;
+		int rowCount;
+		
+		//filled by the task
+		int size;
+		RuntimeException error;
+		
+		RowBlock(int blockSize) {
+			rowValueSources = new ValueSource[blockSize];
+			rows = new RowDataSet[blockSize];
+		}
+		
+	}
+	
+	/**
+	 * Calculates the rows of a block, stopping at the first failure
+	 */
+	protected class BlockTask implements Callable<RowBlock> {
+		
+		private final LayoutPlan plan;
+		private final RowBlock block;
+		
+		public BlockTask(LayoutPlan plan, RowBlock block) {
+			this.plan = plan;
+			this.block = block;
+		}
+		
+		public RowBlock call() {
+			
+			try {
+				
+				for (int i = 0; i < block.rowCount; i++) {
+					
+					ValueSource rowValueSource;
+					if (block.columnarValueSource != null) {
+						block.columnarValueSource.setRow(block.firstRow + i);
+						rowValueSource = block.columnarValueSource;
+					} else {
+						rowValueSource = block.rowValueSources[i];
+					}
+					RowDataSet dataSet = block.rows[i];
+					if (dataSet != null && plan.getReusableBlock() != null) {
+						dataSet.clear();
+					} else {
+						dataSet = componentFactory.createRowDataSet(plan.getLayout());
+						block.rows[i] = dataSet;
+					}
+					calculateRow(plan, rowValueSource, dataSet);
+					block.size++;
+					
+				}
+				
+			} catch (RuntimeException e) {
+				block.error = e;
+			}
+			return block;
+			
+		}
+		
+	}
+	
+}
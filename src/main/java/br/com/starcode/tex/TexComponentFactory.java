@@ -1,59 +1,61 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex;
-
-import java.util.List;
-
-import br.com.starcode.tex.column.Column;
-import br.com.starcode.tex.column.ColumnDefinition;
-import br.com.starcode.tex.column.RowDataSet;
-import br.com.starcode.tex.format.DataFormatter;
-import br.com.starcode.tex.layout.Layout;
-import br.com.starcode.tex.structure.PositionalRowStructure;
-import br.com.starcode.tex.structure.RowStructure;
-import br.com.starcode.tex.structure.SeparatorRowStructure;
-
-public interface TexComponentFactory {
-	
-	Layout createLayout(String id, String label, int layoutWidth, RowStructure rowStructure, List<ColumnDefinition> columnDefinitionList);
-	
-	Column createColumn(Object data, ColumnDefinition columnDefinition, DataFormatter formatter);
-
-	ColumnDefinition createColumnDefinition(
-			String type,
-			String source,
-			int position, 
-			String value, 
-			String format, 
-			String alignment, 
-			int width, 
-			String fillChar,
-			String decimalSeparator,
-			String groupingSeparator);
-	
-	RowDataSet createRowDataSet(Layout layout);
-	
-	PositionalRowStructure createPositionalRowStructure();
-	
-	SeparatorRowStructure createSeparatorRowStructure(String separator); 
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.util.List;
+
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.layout.Layout;
+import br.com.starcode.tex.structure.PositionalRowStructure;
+import br.com.starcode.tex.structure.RowStructure;
+import br.com.starcode.tex.structure.SeparatorRowStructure;
+
+public interface TexComponentFactory {
+	
+	Layout createLayout(String id, String label, int layoutWidth, RowStructure rowStructure, List<ColumnDefinition> columnDefinitionList);
+	
+	Column createColumn(Object data, ColumnDefinition columnDefinition, DataFormatter formatter);
+	
+	Column createColumn(Object data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter);
+
+	ColumnDefinition createColumnDefinition(
+			String type,
+			String source,
+			int position, 
+			String value, 
+			String format, 
+			String alignment, 
+			int width, 
+			String fillChar,
+			String decimalSeparator,
+			String groupingSeparator);
+	
+	RowDataSet createRowDataSet(Layout layout);
+	
+	PositionalRowStructure createPositionalRowStructure();
+	
+	SeparatorRowStructure createSeparatorRowStructure(String separator); 
+	
+}
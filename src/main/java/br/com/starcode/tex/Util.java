@@ -1,234 +1,443 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.NumberFormat;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.column.ColumnDefinition;
-
-public class Util {
-	
-	final static Logger logger = LoggerFactory.getLogger(Util.class);
-	
-	//TODO benchmark to verify if threadlocal is faster then cloning
-	private static ThreadLocal<NumberFormat> baseNumberFormat = new ThreadLocal<NumberFormat>();
-	private static ThreadLocal<Map<ColumnDefinition, NumberFormat>> numberFormatMapThread = new ThreadLocal<Map<ColumnDefinition, NumberFormat>>();
-
-	public static NumberFormat getNumberFormat(ColumnDefinition columnDefinition) {
-		
-		//check and create a base number format to clone from
-		if (baseNumberFormat.get() == null) {
-			synchronized (baseNumberFormat) {
-				baseNumberFormat.set(NumberFormat.getInstance());
-				logger.debug("Created new base number format");
-			}
-		}
-		
-		//check and create map
-		Map<ColumnDefinition, NumberFormat> numberFormatMap = numberFormatMapThread.get();
-		if (numberFormatMap == null) {
-			numberFormatMap = new HashMap<ColumnDefinition, NumberFormat>();
-			numberFormatMapThread.set(numberFormatMap);
-		}
-		
-		//check and clone specific number format
-		NumberFormat numberFormat = numberFormatMap.get(columnDefinition);
-		if (numberFormat == null) {
-			numberFormat = (NumberFormat) baseNumberFormat.get().clone();
-			logger.debug("Number format cloned for " + columnDefinition);
-			numberFormatMap.put(columnDefinition, numberFormat);
-		}
-		
-		String format = columnDefinition.getFormat();
-		if (numberFormat instanceof DecimalFormat && !(format == null || format.trim().length() == 0)) {
-			
-			DecimalFormat decimalFormat = (DecimalFormat) numberFormat;
-			
-			//change grouping and decimal separator if was defined 
-			if (columnDefinition.getGroupingSeparator() != null || columnDefinition.getDecimalSeparator() != null) {
-				
-				DecimalFormatSymbols formatSymbols = new DecimalFormatSymbols();
-				if (columnDefinition.getGroupingSeparator() != null) {
-					formatSymbols.setGroupingSeparator(columnDefinition.getGroupingSeparator().charAt(0)); 
-				}
-				if (columnDefinition.getDecimalSeparator() != null) {
-					formatSymbols.setDecimalSeparator(columnDefinition.getDecimalSeparator().charAt(0)); 
-				}
-				decimalFormat.setDecimalFormatSymbols(formatSymbols);
-				
-			}
-			decimalFormat.applyPattern(format);
-			
-		}
-		
-		return numberFormat;
-		
-	}
-	public static String alignContent(String data, ColumnDefinition columnDefinition) {
-		
-		if (data.length() < columnDefinition.getWidth()) {
-			
-			return fill(
-					data, 
-					columnDefinition.getWidth(), 
-					columnDefinition.getFillChar().charAt(0), 
-					columnDefinition.getAlignment().equalsIgnoreCase("right"));
-			
-		}
-		return data;
-		
-	}
-	
-	public static String fill(String text, int size, char character, boolean left) {
-
-		if (text == null) {
-
-			text = "";
-
-		}
-
-		if (text.length() >= size) {
-
-			return text;
-
-		} else {
-
-			StringBuffer strBuffer = new StringBuffer();
-			if (!left) {
-
-				strBuffer.append(text);
-
-			}
-			for (int i = 0; i < size - text.length(); i++) {
-
-				strBuffer.append(character);
-
-			}
-			if (left) {
-
-				strBuffer.append(text);
-
-			}
-			return strBuffer.toString();
-
-		}
-
-	}
-	
-	public static String readContent(InputStream arquivo, String encoding) throws IOException {
-		
-		logger.debug("Reading content from stream with encoding " + encoding);
-		StringBuffer corpo = new StringBuffer();
-		InputStreamReader freader = encoding == null ? 
-				new InputStreamReader(arquivo) : 
-				new InputStreamReader(arquivo, encoding);
-		BufferedReader in = null;
-
-		try {
-			
-			in = new BufferedReader(freader);
-			char[] buf = new char[1048576];
-			while (in.ready()) {
-				
-				int qtd = in.read(buf);
-				corpo.append(buf, 0, qtd);
-							
-			}
-			
-		} finally {
-			
-			logger.debug("Closing stream");
-			if (freader != null) {
-				freader.close();
-			}
-			if (in != null) {
-				in.close();
-			}
-			
-		}
-		
-		return corpo.toString();
-		
-	}
-	
-	public static Field findField(Object object, String fieldName) {
-		
-		Class<?> currentClass = object.getClass();
-		logger.debug("Finding field " + fieldName + " in class " + currentClass.getSimpleName());
-		while (currentClass != null) {
-			
-			try {
-				Field f = currentClass.getDeclaredField(fieldName);
-				logger.debug("Found!");
-				return f;
-			} catch (NoSuchFieldException e) {
-				//nothing, will try parent class
-			} catch (SecurityException e) {
-				throw new RuntimeException(e);
-			}
-			
-			currentClass = currentClass.getSuperclass();
-			logger.debug("Trying superclass " + currentClass.getSimpleName());
-			
-		}
-		return null;
-		
-	}
-	
-	public static Method findMethod(Object object, String methodName) {
-		
-		Class<?> currentClass = object.getClass();
-		logger.debug("Finding method " + methodName + " in class " + currentClass.getSimpleName());
-		while (currentClass != null) {
-			
-			try {
-				Method m = currentClass.getDeclaredMethod(methodName);
-				logger.debug("Found!");
-				return m;
-			} catch (NoSuchMethodException e) {
-				//nothing, will try parent class
-			} catch (SecurityException e) {
-				throw new RuntimeException(e);
-			}
-			
-			currentClass = currentClass.getSuperclass();
-			logger.debug("Trying superclass " + currentClass.getSimpleName());
-			
-		} 
-		return null;
-		
-	}
-
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.CharBuffer;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.column.Alignment;
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.format.BinaryFormatter;
+
+public class Util {
+	
+	final static Logger logger = LoggerFactory.getLogger(Util.class);
+	
+	/**
+	 * Number formats are not thread-safe, so each thread keeps its own, configured once per column
+	 */
+	private static ThreadLocal<Map<ColumnDefinition, NumberFormat>> numberFormatMapThread = new ThreadLocal<Map<ColumnDefinition, NumberFormat>>();
+
+	public static NumberFormat getNumberFormat(ColumnDefinition columnDefinition) {
+		
+		//check and create map
+		Map<ColumnDefinition, NumberFormat> numberFormatMap = numberFormatMapThread.get();
+		if (numberFormatMap == null) {
+			numberFormatMap = new HashMap<ColumnDefinition, NumberFormat>();
+			numberFormatMapThread.set(numberFormatMap);
+		}
+		
+		//check and create specific number format
+		NumberFormat numberFormat = numberFormatMap.get(columnDefinition);
+		if (numberFormat == null) {
+			numberFormat = createNumberFormat(columnDefinition);
+			numberFormatMap.put(columnDefinition, numberFormat);
+		}
+		return numberFormat;
+		
+	}
+	
+	/**
+	 * Creates a new number format for the column, with its pattern and separators already applied
+	 */
+	public static NumberFormat createNumberFormat(ColumnDefinition columnDefinition) {
+		
+		NumberFormat numberFormat = NumberFormat.getInstance();
+		String format = columnDefinition.getFormat();
+		if (numberFormat instanceof DecimalFormat && !(format == null || format.trim().length() == 0)) {
+			
+			DecimalFormat decimalFormat = (DecimalFormat) numberFormat;
+			
+			//change grouping and decimal separator if was defined 
+			if (columnDefinition.getGroupingSeparator() != null || columnDefinition.getDecimalSeparator() != null) {
+				
+				DecimalFormatSymbols formatSymbols = new DecimalFormatSymbols();
+				if (columnDefinition.getGroupingSeparator() != null) {
+					formatSymbols.setGroupingSeparator(columnDefinition.getGroupingSeparator().charAt(0)); 
+				}
+				if (columnDefinition.getDecimalSeparator() != null) {
+					formatSymbols.setDecimalSeparator(columnDefinition.getDecimalSeparator().charAt(0)); 
+				}
+				decimalFormat.setDecimalFormatSymbols(formatSymbols);
+				
+			}
+			decimalFormat.applyPattern(format);
+			
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Number format created for " + columnDefinition);
+		}
+		return numberFormat;
+		
+	}
+	//runs of filling characters, one for each char, growing to the biggest width requested
+	private static String[] asciiFillRuns = new String[128];
+	private static Map<Character, String> fillRunMap = new ConcurrentHashMap<Character, String>();
+	
+	/**
+	 * Returns a string with at least <code>width</code> filling characters, shared between calls. 
+	 * Use it to write padding without creating new objects.
+	 */
+	public static String getFillRun(char fillChar, int width) {
+		
+		String run = fillChar < asciiFillRuns.length ? asciiFillRuns[fillChar] : fillRunMap.get(fillChar);
+		if (run == null || run.length() < width) {
+			
+			char[] chars = new char[Math.max(width, run == null ? 64 : run.length() * 2)];
+			Arrays.fill(chars, fillChar);
+			run = new String(chars);
+			if (fillChar < asciiFillRuns.length) {
+				asciiFillRuns[fillChar] = run;
+			} else {
+				fillRunMap.put(fillChar, run);
+			}
+			
+		}
+		return run;
+		
+	}
+	
+	public static String alignContent(String data, ColumnDefinition columnDefinition) {
+		
+		if (data.length() < columnDefinition.getWidth()) {
+			
+			return fill(
+					data, 
+					columnDefinition.getWidth(), 
+					columnDefinition.getFill(), 
+					columnDefinition.getAlignmentType() == Alignment.RIGHT);
+			
+		}
+		return data;
+		
+	}
+	
+	public static String fill(String text, int size, char character, boolean left) {
+
+		if (text == null) {
+
+			text = "";
+
+		}
+
+		if (text.length() >= size) {
+
+			return text;
+
+		} else {
+
+			StringBuilder sb = new StringBuilder(size);
+			if (!left) {
+
+				sb.append(text);
+
+			}
+			sb.append(getFillRun(character, size), 0, size - text.length());
+			if (left) {
+
+				sb.append(text);
+
+			}
+			return sb.toString();
+
+		}
+
+	}
+	
+	/**
+	 * Writes content aligned inside a column, as {@link #alignContent(String, ColumnDefinition)} would return, 
+	 * but directly to the output and only the first <code>visibleWidth</code> characters.
+	 */
+	public static void writeAligned(Appendable output, String data, ColumnDefinition columnDefinition, int visibleWidth) throws IOException {
+		
+		writeAligned(
+				output, 
+				data, 
+				columnDefinition.getWidth(), 
+				visibleWidth, 
+				columnDefinition.getFill(), 
+				columnDefinition.getAlignmentType() == Alignment.RIGHT);
+		
+	}
+	
+	/**
+	 * Writes content aligned inside a column, as {@link #alignContent(String, ColumnDefinition)} would return, 
+	 * but directly to the output and only the first <code>visibleWidth</code> characters.
+	 */
+	public static void writeAligned(Appendable output, String data, int width, int visibleWidth, char fillChar, boolean right) throws IOException {
+		
+		int padding = width - data.length();
+		if (padding < 0) {
+			padding = 0;
+		}
+		if (right) {
+			
+			int fillCount = Math.min(padding, visibleWidth);
+			write(output, getFillRun(fillChar, fillCount), 0, fillCount);
+			write(output, data, 0, Math.min(data.length(), visibleWidth - fillCount));
+			
+		} else {
+			
+			int dataCount = Math.min(data.length(), visibleWidth);
+			write(output, data, 0, dataCount);
+			int fillCount = Math.min(padding, visibleWidth - dataCount);
+			write(output, getFillRun(fillChar, fillCount), 0, fillCount);
+			
+		}
+		
+	}
+	
+	/**
+	 * Writes content aligned inside a column directly into a char array, only the first <code>visibleWidth</code> characters.
+	 * @return Position after the last character written
+	 */
+	public static int writeAligned(String data, ColumnDefinition columnDefinition, int visibleWidth, char[] destination, int offset) {
+		
+		return writeAligned(
+				data, 
+				columnDefinition.getWidth(), 
+				visibleWidth, 
+				columnDefinition.getFill(), 
+				columnDefinition.getAlignmentType() == Alignment.RIGHT, 
+				destination, 
+				offset);
+		
+	}
+	
+	/**
+	 * Writes content aligned inside a column directly into a char array, only the first <code>visibleWidth</code> characters.
+	 * @return Position after the last character written
+	 */
+	public static int writeAligned(String data, int width, int visibleWidth, char fillChar, boolean right, char[] destination, int offset) {
+		
+		int padding = width - data.length();
+		if (padding < 0) {
+			padding = 0;
+		}
+		if (right) {
+			
+			int fillCount = Math.min(padding, visibleWidth);
+			Arrays.fill(destination, offset, offset + fillCount, fillChar);
+			offset += fillCount;
+			int dataCount = Math.min(data.length(), visibleWidth - fillCount);
+			data.getChars(0, dataCount, destination, offset);
+			return offset + dataCount;
+			
+		} else {
+			
+			int dataCount = Math.min(data.length(), visibleWidth);
+			data.getChars(0, dataCount, destination, offset);
+			offset += dataCount;
+			int fillCount = Math.min(padding, visibleWidth - dataCount);
+			Arrays.fill(destination, offset, offset + fillCount, fillChar);
+			return offset + fillCount;
+			
+		}
+		
+	}
+	
+	/**
+	 * Writes part of a char array to the output, using bulk operations of known implementations
+	 */
+	public static void write(Appendable output, char[] data, int start, int end) throws IOException {
+		
+		if (output instanceof Writer) {
+			((Writer) output).write(data, start, end - start);
+		} else if (output instanceof StringBuilder) {
+			((StringBuilder) output).append(data, start, end - start);
+		} else if (output instanceof StringBuffer) {
+			((StringBuffer) output).append(data, start, end - start);
+		} else if (output instanceof CharBuffer) {
+			((CharBuffer) output).put(data, start, end - start);
+		} else {
+			output.append(CharBuffer.wrap(data, start, end - start));
+		}
+		
+	}
+	
+	/**
+	 * Checks that the column can be written as characters: 
+	 * data of a {@link BinaryFormatter} is only kept intact by byte outputs (see {@link br.com.starcode.tex.structure.ByteRowStructure})
+	 */
+	public static void checkCharacterColumn(RowDataSet rowDataSet, int index, Column column) {
+		
+		if (column.getFormatter() instanceof BinaryFormatter) {
+			throw new RuntimeException("Column " + (index + 1) + " of layout '" + rowDataSet.getLayout().getLabel() + "' has a binary formatter (" + column.getFormatter().getClass().getSimpleName() + ") and can only be written by a byte output, like ChannelAppender with single byte encoding!");
+		}
+		
+	}
+	
+	/**
+	 * Copies the columns (formatted data included) to a new data set, e.g. to keep a row after its data set is reused
+	 */
+	public static RowDataSet copyRowDataSet(RowDataSet rowDataSet, TexComponentFactory componentFactory) {
+		
+		RowDataSet copy = componentFactory.createRowDataSet(rowDataSet.getLayout());
+		List<Column> columns = rowDataSet.getDataSet();
+		for (int i = 0; i < columns.size(); i++) {
+			Column column = columns.get(i);
+			copy.addColumn(column.getData(), column.getFormattedData(), column.getDefinition(), column.getFormatter());
+		}
+		return copy;
+		
+	}
+	
+	/**
+	 * Writes part of a string, avoiding the substring that {@link Writer#append(CharSequence, int, int)} creates
+	 */
+	public static void write(Appendable output, String data, int start, int end) throws IOException {
+		
+		if (start >= end) {
+			return;
+		}
+		if (output instanceof Writer) {
+			((Writer) output).write(data, start, end - start);
+		} else {
+			output.append(data, start, end);
+		}
+		
+	}
+	
+	public static String readContent(InputStream arquivo, String encoding) throws IOException {
+		
+		logger.debug("Reading content from stream with encoding " + encoding);
+		StringBuffer corpo = new StringBuffer();
+		InputStreamReader freader = encoding == null ? 
+				new InputStreamReader(arquivo) : 
+				new InputStreamReader(arquivo, encoding);
+		BufferedReader in = null;
+
+		try {
+			
+			in = new BufferedReader(freader);
+			char[] buf = new char[1048576];
+			while (in.ready()) {
+				
+				int qtd = in.read(buf);
+				corpo.append(buf, 0, qtd);
+							
+			}
+			
+		} finally {
+			
+			logger.debug("Closing stream");
+			if (freader != null) {
+				freader.close();
+			}
+			if (in != null) {
+				in.close();
+			}
+			
+		}
+		
+		return corpo.toString();
+		
+	}
+	
+	public static Field findField(Object object, String fieldName) {
+		return findField(object.getClass(), fieldName);
+	}
+	
+	/**
+	 * Finds a field declared by the class or its superclasses, whatever its visibility
+	 * @return The field or null if it does not exist
+	 */
+	public static Field findField(Class<?> type, String fieldName) {
+		
+		Class<?> currentClass = type;
+		logger.debug("Finding field " + fieldName + " in class " + currentClass.getSimpleName());
+		while (currentClass != null) {
+			
+			try {
+				Field f = currentClass.getDeclaredField(fieldName);
+				logger.debug("Found!");
+				return f;
+			} catch (NoSuchFieldException e) {
+				//nothing, will try parent class
+			} catch (SecurityException e) {
+				throw new RuntimeException(e);
+			}
+			
+			currentClass = currentClass.getSuperclass();
+			if (currentClass != null) {
+				logger.debug("Trying superclass " + currentClass.getSimpleName());
+			}
+			
+		}
+		return null;
+		
+	}
+	
+	public static Method findMethod(Object object, String methodName) {
+		return findMethod(object.getClass(), methodName);
+	}
+	
+	/**
+	 * Finds a method without parameters declared by the class or its superclasses, whatever its visibility
+	 * @return The method or null if it does not exist
+	 */
+	public static Method findMethod(Class<?> type, String methodName) {
+		
+		Class<?> currentClass = type;
+		logger.debug("Finding method " + methodName + " in class " + currentClass.getSimpleName());
+		while (currentClass != null) {
+			
+			try {
+				Method m = currentClass.getDeclaredMethod(methodName);
+				logger.debug("Found!");
+				return m;
+			} catch (NoSuchMethodException e) {
+				//nothing, will try parent class
+			} catch (SecurityException e) {
+				throw new RuntimeException(e);
+			}
+			
+			currentClass = currentClass.getSuperclass();
+			if (currentClass != null) {
+				logger.debug("Trying superclass " + currentClass.getSimpleName());
+			}
+			
+		} 
+		return null;
+		
+	}
+
+}
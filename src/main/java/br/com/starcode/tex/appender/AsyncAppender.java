@@ -0,0 +1,368 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.TexComponentFactory;
+import br.com.starcode.tex.TexComponentFactoryImpl;
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.RowStructure;
+
+/**
+ * Hands rows to another appender running in a dedicated writer thread, so a slow output (e.g. a file on a network share)
+ * doesn't stall the thread exporting rows. 
+ * Rows are copied (with their counters) into a bounded queue; when it's full, the exporting thread waits or fails 
+ * according to the {@link OverflowPolicy}.
+ * 
+ * A failure of the writer is thrown by the next append or by {@link #close()}, which waits for the queued rows 
+ * to be written and closes the wrapped appender. Rows must be appended by a single thread.
+ */
+public class AsyncAppender implements BlockAppender, AtomicAppender {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	/**
+	 * What to do when the queue is full
+	 */
+	public enum OverflowPolicy {
+		
+		/**
+		 * Waits until there is room in the queue (default)
+		 */
+		BLOCK,
+		
+		/**
+		 * Waits until there is room in the queue, failing after a timeout
+		 */
+		TIMEOUT,
+		
+		/**
+		 * Fails right away
+		 */
+		FAIL
+		
+	}
+	
+	private static final QueuedRows CLOSE = new QueuedRows(null, 0, null);
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	protected Appender appender;
+	protected BlockingQueue<QueuedRows> queue;
+	protected Thread writer;
+	protected TexComponentFactory componentFactory;
+	protected OverflowPolicy overflowPolicy;
+	protected long timeout;
+	protected int rowCount;
+	protected boolean closed;
+	protected volatile Throwable failure;
+	
+	public AsyncAppender(Appender appender) {
+		
+		this(appender, DEFAULT_CAPACITY);
+		
+	}
+	
+	/**
+	 * @param appender Appender called by the writer thread
+	 * @param capacity Maximum number of rows (or blocks of rows) waiting to be written
+	 */
+	public AsyncAppender(Appender appender, int capacity) {
+		
+		if (appender == null) {
+			throw new IllegalArgumentException("Appender cannot be null!");
+		}
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive!");
+		}
+		this.appender = appender;
+		this.queue = new ArrayBlockingQueue<QueuedRows>(capacity);
+		this.componentFactory = new TexComponentFactoryImpl();
+		this.overflowPolicy = OverflowPolicy.BLOCK;
+		this.rowCount = appender.count();
+		
+		this.writer = new Thread(new Runnable() {
+			public void run() {
+				write();
+			}
+		}, "tex-async-" + appender.getClass().getSimpleName());
+		writer.setDaemon(true);
+		writer.start();
+		logger.debug("Instantiated: " + this);
+		
+	}
+	
+	/**
+	 * @param overflowPolicy Policy when the queue is full
+	 * @param timeout Maximum time waiting (in milliseconds) for {@link OverflowPolicy#TIMEOUT}
+	 */
+	public AsyncAppender setOverflowPolicy(OverflowPolicy overflowPolicy, long timeout) {
+		if (overflowPolicy == null) {
+			throw new IllegalArgumentException("Overflow policy cannot be null!");
+		}
+		if (overflowPolicy == OverflowPolicy.TIMEOUT && timeout <= 0) {
+			throw new IllegalArgumentException("Timeout must be positive!");
+		}
+		this.overflowPolicy = overflowPolicy;
+		this.timeout = timeout;
+		return this;
+	}
+	
+	/**
+	 * Factory of the data sets holding copies of the rows
+	 */
+	public AsyncAppender setComponentFactory(TexComponentFactory componentFactory) {
+		this.componentFactory = componentFactory;
+		return this;
+	}
+	
+	public void append(RowDataSet data, RowStructure rowStructure) {
+		
+		checkState();
+		enqueue(new QueuedRows(new RowDataSet[] { copy(data) }, 1, rowStructure));
+		rowCount++;
+		
+	}
+	
+	/**
+	 * Queues the whole block as a single entry, updating counters of each row with the count of rows accepted so far
+	 */
+	public void appendBlock(RowDataSet[] rows, int size, RowStructure rowStructure) {
+		
+		checkState();
+		RowDataSet[] copies = new RowDataSet[size];
+		for (int i = 0; i < size; i++) {
+			rows[i].updateCounters(rowCount + i);
+			copies[i] = copy(rows[i]);
+		}
+		enqueue(new QueuedRows(copies, size, rowStructure));
+		rowCount += size;
+		
+	}
+	
+	/**
+	 * Copies the row, since the exporter may reuse its data set (and updates its counters for each appender)
+	 */
+	protected RowDataSet copy(RowDataSet data) {
+		return Util.copyRowDataSet(data, componentFactory);
+	}
+	
+	protected void enqueue(QueuedRows rows) {
+		
+		try {
+			
+			switch (overflowPolicy) {
+			case BLOCK:
+				queue.put(rows);
+				break;
+			case TIMEOUT:
+				if (!queue.offer(rows, timeout, TimeUnit.MILLISECONDS)) {
+					throw new RuntimeException("Queue of " + appender + " still full after " + timeout + "ms!");
+				}
+				break;
+			default:
+				if (!queue.offer(rows)) {
+					throw new RuntimeException("Queue of " + appender + " is full!");
+				}
+			}
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the queue of " + appender + "!", e);
+			
+		}
+		
+	}
+	
+	protected void checkState() {
+		
+		if (closed) {
+			throw new IllegalStateException("Appender already closed!");
+		}
+		if (failure != null) {
+			throw new RuntimeException("Asynchronous appender failed: " + appender, failure);
+		}
+		
+	}
+	
+	/**
+	 * Loop of the writer thread. After a failure, queued rows are discarded until the appender is closed.
+	 */
+	protected void write() {
+		
+		while (true) {
+			
+			QueuedRows rows;
+			try {
+				rows = queue.take();
+			} catch (InterruptedException e) {
+				if (failure == null) {
+					failure = e;
+				}
+				continue;
+			}
+			if (rows == CLOSE) {
+				break;
+			}
+			if (failure != null) {
+				continue;
+			}
+			
+			try {
+				
+				if (appender instanceof BlockAppender && rows.size > 1) {
+					((BlockAppender) appender).appendBlock(rows.rows, rows.size, rows.rowStructure);
+				} else {
+					//counters were updated with the count of this appender, which is the same of the wrapped one
+					for (int i = 0; i < rows.size; i++) {
+						appender.append(rows.rows[i], rows.rowStructure);
+					}
+				}
+				
+			} catch (Throwable e) {
+				
+				logger.error("Error writing to " + appender, e);
+				failure = e;
+				
+			}
+			
+		}
+		logger.debug("Writer finished");
+		
+	}
+	
+	/**
+	 * Waits for queued rows to be written and closes the wrapped appender
+	 */
+	public void close() {
+		
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			
+			//the writer always consumes the queue, so there will be room for the marker
+			queue.put(CLOSE);
+			writer.join();
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for " + appender + "!", e);
+			
+		}
+		if (failure != null && appender instanceof AtomicAppender) {
+			((AtomicAppender) appender).abort();
+		} else {
+			appender.close();
+		}
+		if (failure != null) {
+			throw new RuntimeException("Asynchronous appender failed: " + appender, failure);
+		}
+		
+	}
+	
+	/**
+	 * When the wrapped appender commits atomically, discards queued rows, waits for the writer and aborts it. 
+	 * Otherwise its output would be kept anyway, so queued rows are written and it is closed (see {@link #close()}).
+	 */
+	public void abort() {
+		
+		if (!isAtomicCommit()) {
+			close();
+			return;
+		}
+		if (closed) {
+			return;
+		}
+		closed = true;
+		queue.clear();
+		try {
+			
+			queue.put(CLOSE);
+			writer.join();
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for " + appender + "!", e);
+			
+		}
+		((AtomicAppender) appender).abort();
+		
+	}
+	
+	public boolean isAtomicCommit() {
+		return appender instanceof AtomicAppender && ((AtomicAppender) appender).isAtomicCommit();
+	}
+
+	/**
+	 * Number of rows accepted so far (written or not)
+	 */
+	public int count() {
+		return rowCount;
+	}
+
+	/**
+	 * Result of the wrapped appender, complete only after {@link #close()}
+	 */
+	public Object result() {
+		return appender.result();
+	}
+	
+	public Appender getAppender() {
+		return appender;
+	}
+	
+	@Override
+	public String toString() {
+		return "AsyncAppender [appender=" + appender + ", capacity=" + (queue.size() + queue.remainingCapacity()) 
+				+ ", overflowPolicy=" + overflowPolicy + ", rowCount=" + rowCount + "]";
+	}
+	
+	/**
+	 * Rows waiting in the queue
+	 */
+	protected static class QueuedRows {
+		
+		final RowDataSet[] rows;
+		final int size;
+		final RowStructure rowStructure;
+		
+		QueuedRows(RowDataSet[] rows, int size, RowStructure rowStructure) {
+			this.rows = rows;
+			this.size = size;
+			this.rowStructure = rowStructure;
+		}
+		
+	}
+	
+}
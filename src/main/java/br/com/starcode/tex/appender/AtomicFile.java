@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Output file committed atomically: content is written to a temporary file in the same directory, 
+ * which is forced to the storage device and then moved to the final name, so readers (e.g. pollers of the directory) 
+ * never see a partial file.
+ * 
+ * Appending starts from a copy of the final file. An existing temporary file is left by an interrupted output, 
+ * so it is discarded, except when resuming from a checkpoint (see {@link br.com.starcode.tex.Tex#resume()}), 
+ * which truncated it back to the checkpoint to be continued.
+ */
+public class AtomicFile {
+	
+	public static final String TEMP_SUFFIX = ".tmp";
+	
+	static final Logger logger = LoggerFactory.getLogger(AtomicFile.class);
+	
+	private final File file;
+	private final File tempFile;
+	
+	public AtomicFile(File file) {
+		this.file = file.getAbsoluteFile();
+		this.tempFile = new File(this.file.getParentFile(), file.getName() + TEMP_SUFFIX);
+	}
+	
+	/**
+	 * Prepares the temporary file to be written, discarding an existing one
+	 * @param append If the output continues previous content
+	 * @return The temporary file
+	 */
+	public File begin(boolean append) throws IOException {
+		
+		return begin(append, false);
+		
+	}
+	
+	/**
+	 * Prepares the temporary file to be written
+	 * @param append If the output continues previous content
+	 * @param resume If an existing temporary file is continued, as it was resumed from a checkpoint
+	 * @return The temporary file
+	 */
+	public File begin(boolean append, boolean resume) throws IOException {
+		
+		File dir = tempFile.getParentFile();
+		if (!dir.exists()) {
+			dir.mkdirs();
+		}
+		if (append && resume && tempFile.exists()) {
+			
+			logger.debug("Resuming " + tempFile);
+			return tempFile;
+			
+		}
+		if (tempFile.exists()) {
+			logger.debug("Discarding interrupted output " + tempFile);
+			abort();
+		}
+		if (append && file.exists()) {
+			
+			Files.copy(file.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			File metadataFile = RowCounter.getMetadataFile(file);
+			if (metadataFile.exists()) {
+				Files.copy(metadataFile.toPath(), RowCounter.getMetadataFile(tempFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			logger.debug("Copied " + file + " to " + tempFile);
+			
+		}
+		return tempFile;
+		
+	}
+	
+	/**
+	 * Forces the temporary file (already closed) to the storage device and moves it over the final file, 
+	 * then forces the directory so the move survives a crash
+	 */
+	public void commit() throws IOException {
+		
+		force(tempFile, StandardOpenOption.WRITE);
+		RowCounter.deleteMetadata(file);
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			logger.warn("Atomic move not supported, replacing " + file);
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		try {
+			force(file.getParentFile(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			//some systems can't open directories
+			logger.debug("Directory not synced: " + e.getMessage());
+		}
+		logger.debug("Committed " + file);
+		
+	}
+	
+	/**
+	 * Removes the temporary file (already closed), keeping the final file as it was
+	 */
+	public void abort() {
+		
+		if (tempFile.exists() && !tempFile.delete()) {
+			logger.warn("Cannot delete " + tempFile);
+		}
+		RowCounter.getMetadataFile(tempFile).delete();
+		logger.debug("Discarded " + tempFile);
+		
+	}
+	
+	private static void force(File file, StandardOpenOption option) throws IOException {
+		
+		FileChannel channel = FileChannel.open(file.toPath(), option);
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+		
+	}
+	
+	/**
+	 * Final file
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	public File getTempFile() {
+		return tempFile;
+	}
+	
+	@Override
+	public String toString() {
+		return "AtomicFile [file=" + file + ", tempFile=" + tempFile + "]";
+	}
+	
+}
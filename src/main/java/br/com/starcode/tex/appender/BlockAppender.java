@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+/**
+ * Appender that takes a block of rows at once, e.g. rendering all of them into its buffer 
+ * and checking flush criteria once per block.
+ * Unlike {@link #append(RowDataSet, RowStructure)}, the appender updates the counters of each row with its own count.
+ */
+public interface BlockAppender extends Appender {
+
+	/**
+	 * Appends the first rows of the block, in order. 
+	 * When a row fails, the rows before it are still appended and counted before the exception is thrown.
+	 * @param rows Data sets of the rows
+	 * @param size Number of rows to append
+	 */
+	void appendBlock(RowDataSet[] rows, int size, RowStructure rowStructure);
+	
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.IOException;
+
+
+/**
+ * Appender that exposes its output buffer, so a row structure can write the row directly into it
+ * (see {@link br.com.starcode.tex.structure.RowStructure#writeLine}).
+ * Every row must be written between a call to {@link #beginRow()} and a call to {@link #endRow()}.
+ */
+public interface BufferedAppender extends Appender {
+
+	/**
+	 * Prepares a new row (e.g. writing the line separator of the previous one)
+	 * @return Output where the row should be written
+	 */
+	Appendable beginRow() throws IOException;
+	
+	/**
+	 * Finishes the row written after {@link #beginRow()}
+	 */
+	void endRow() throws IOException;
+	
+}
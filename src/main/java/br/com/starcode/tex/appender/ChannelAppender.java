@@ -0,0 +1,687 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.SingleByteEncoder;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.ByteRowStructure;
+import br.com.starcode.tex.structure.RowStructure;
+
+/**
+ * Writes rows to a file through a {@link FileChannel}, encoding them with an explicit charset 
+ * (e.g. ISO-8859-1 or Cp037 for mainframes) into a reusable direct buffer.
+ * For big files whose final size is known up front (fixed width layouts) it can write to a memory mapped region instead 
+ * (see {@link #setMappedSize(long)}).
+ * When the charset is single byte and the row structure is a {@link ByteRowStructure} (e.g. positional), 
+ * rows are encoded straight into bytes through a {@link SingleByteEncoder} table, without the charset encoder.
+ * As in {@link FileAppender}, the row count can be saved in a metadata file for later appends (see {@link #setRowCountMetadata(boolean)}) 
+ * and the output can be committed atomically on close.
+ */
+public class ChannelAppender implements BufferedAppender, BlockAppender, SizedAppender, LineAppender, CheckpointAppender, AtomicAppender {
+
+	public static final int DEFAULT_BUFFER_SIZE = 65536;
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	protected File file;
+	protected AtomicFile atomicFile;
+	protected Charset charset;
+	protected RandomAccessFile randomAccessFile;
+	protected FileChannel channel;
+	protected CharsetEncoder encoder;
+	protected SingleByteEncoder singleByteEncoder;
+	protected byte[] rowBytes;
+	protected byte[] lineSeparatorBytes;
+	protected ByteBuffer byteBuffer;
+	protected MappedByteBuffer mappedBuffer;
+	protected long mappedSize;
+	protected long position;
+	protected long startPosition;
+	
+	protected StringBuilder rowBuffer;
+	protected char[] rowChars;
+	protected CharBuffer rowCharBuffer;
+	
+	protected int rowCount;
+	protected String lineSeparator;
+	protected boolean separatorLastLine;
+	protected boolean firstLine;
+	protected boolean rowCountMetadata;
+	
+	public ChannelAppender(File file, boolean appendIfExists, Charset charset) throws IOException {
+		
+		this(file, appendIfExists, charset, DEFAULT_BUFFER_SIZE);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in bytes) of the direct output buffer
+	 */
+	public ChannelAppender(File file, boolean appendIfExists, Charset charset, int bufferSize) throws IOException {
+		
+		this(file, appendIfExists, charset, bufferSize, false);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in bytes) of the direct output buffer
+	 * @param atomicCommit Write to a temporary file, moved to the file on close (see {@link AtomicFile})
+	 */
+	public ChannelAppender(File file, boolean appendIfExists, Charset charset, int bufferSize, boolean atomicCommit) throws IOException {
+		
+		this(file, appendIfExists, charset, bufferSize, atomicCommit, false);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in bytes) of the direct output buffer
+	 * @param atomicCommit Write to a temporary file, moved to the file on close (see {@link AtomicFile})
+	 * @param resume Continue the temporary file of an export resumed from a checkpoint, instead of copying the file again
+	 */
+	public ChannelAppender(File file, boolean appendIfExists, Charset charset, int bufferSize, boolean atomicCommit, boolean resume) throws IOException {
+		
+		if (charset == null) {
+			throw new IllegalArgumentException("Charset cannot be null!");
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive!");
+		}
+		
+		//rows (and previous content) go to the temporary file
+		if (atomicCommit) {
+			this.atomicFile = new AtomicFile(file);
+			file = atomicFile.begin(appendIfExists, resume);
+		}
+		
+		this.file = file;
+		this.charset = charset;
+		this.lineSeparator = "" + (char) 13 + (char) 10;
+		this.separatorLastLine = true;
+		this.firstLine = true;
+		
+		//same behavior of java.io writers for characters the charset can't represent
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		if (SingleByteEncoder.isSingleByte(charset)) {
+			this.singleByteEncoder = SingleByteEncoder.forCharset(charset);
+			this.rowBytes = new byte[256];
+			this.lineSeparatorBytes = singleByteEncoder.encode(lineSeparator);
+		}
+		
+		//recover number of lines, it append is true
+		if (appendIfExists && file.exists()) {
+			
+			int rows = RowCounter.readMetadata(file);
+			this.rowCount = rows >= 0 ? rows : getExistingRowCount(file);
+			
+		} else {
+			
+			this.rowCount = 0;
+			
+		}
+		
+		//make sure directory exists
+		File dir = file.getParentFile();
+		if (dir != null && !dir.exists()) {
+			
+			dir.mkdirs();
+			
+		}
+		
+		//metadata will be outdated as soon as the file is written
+		RowCounter.deleteMetadata(file);
+		
+		this.randomAccessFile = new RandomAccessFile(file, "rw");
+		this.channel = randomAccessFile.getChannel();
+		if (appendIfExists) {
+			this.position = channel.size();
+		} else {
+			channel.truncate(0);
+			this.position = 0;
+		}
+		channel.position(position);
+		this.startPosition = position;
+		
+		this.byteBuffer = ByteBuffer.allocateDirect(bufferSize);
+		this.rowBuffer = new StringBuilder(256);
+		this.rowChars = new char[256];
+		this.rowCharBuffer = CharBuffer.wrap(rowChars);
+		
+		logger.debug("Instantiated: " + this);
+		
+	}
+	
+	public ChannelAppender setLineSeparator(String lineSeparator) {
+		this.lineSeparator = lineSeparator;
+		if (singleByteEncoder != null) {
+			this.lineSeparatorBytes = singleByteEncoder.encode(lineSeparator);
+		}
+		return this;
+	}
+	
+	/**
+	 * Enables or disables (e.g. to compare results) the single byte path, which is enabled by default for single byte charsets
+	 */
+	public ChannelAppender setSingleByteEncoding(boolean enabled) {
+		if (enabled && !SingleByteEncoder.isSingleByte(charset)) {
+			throw new IllegalArgumentException("Charset " + charset + " is not a single byte charset!");
+		}
+		this.singleByteEncoder = enabled ? SingleByteEncoder.forCharset(charset) : null;
+		if (enabled) {
+			this.rowBytes = new byte[256];
+			this.lineSeparatorBytes = singleByteEncoder.encode(lineSeparator);
+		}
+		return this;
+	}
+	
+	public ChannelAppender setSeparatorLastLine(boolean separatorLastLine) {
+		this.separatorLastLine = separatorLastLine;
+		return this;
+	}
+	
+	/**
+	 * Saves the row count in a metadata file on close, so appending to the file later does not need to count its rows 
+	 * (see {@link RowCounter#writeMetadata(File, int)})
+	 */
+	public ChannelAppender setRowCountMetadata(boolean rowCountMetadata) {
+		this.rowCountMetadata = rowCountMetadata;
+		return this;
+	}
+	
+	/**
+	 * Writes to a memory mapped region of the file instead of a direct buffer. 
+	 * Use it when the size of the output is known up front, e.g. number of rows times the width of a fixed width layout. 
+	 * If the output gets bigger, a new region with the same size is mapped. The file is truncated to the real size on close. 
+	 * Must be called before the first row.
+	 * @param mappedSize Expected size (in bytes) of the output
+	 */
+	public ChannelAppender setMappedSize(long mappedSize) throws IOException {
+		
+		if (!firstLine) {
+			throw new IllegalStateException("Mapped mode must be defined before appending rows!");
+		}
+		if (mappedSize <= 0) {
+			throw new IllegalArgumentException("Mapped size must be positive!");
+		}
+		this.mappedSize = mappedSize;
+		mapRegion();
+		return this;
+		
+	}
+	
+	public void append(RowDataSet data, RowStructure rowStructure) {
+		
+		try {
+			
+			if (singleByteEncoder != null && rowStructure instanceof ByteRowStructure) {
+				appendBytes(data, (ByteRowStructure) rowStructure);
+			} else {
+				rowStructure.writeLine(data, this, beginRow());
+				endRow();
+			}
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	/**
+	 * In the single byte path the row is encoded by the row structure as usual, since binary columns can't be encoded from the line
+	 */
+	public boolean isLineShared(RowStructure rowStructure) {
+		return singleByteEncoder == null || !(rowStructure instanceof ByteRowStructure);
+	}
+	
+	public void appendLine(RowDataSet data, RowStructure rowStructure, String line) {
+		
+		if (!isLineShared(rowStructure)) {
+			append(data, rowStructure);
+			return;
+		}
+		try {
+			
+			beginRow().append(line);
+			endRow();
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	/**
+	 * Renders all rows into the row buffer (or bytes, in the single byte path) and encodes them at once. 
+	 * If a row fails, the rows rendered before it are still written.
+	 */
+	public void appendBlock(RowDataSet[] rows, int size, RowStructure rowStructure) {
+		
+		try {
+			
+			if (singleByteEncoder != null && rowStructure instanceof ByteRowStructure) {
+				
+				int length = 0;
+				boolean rowsFirstLine = firstLine;
+				try {
+					for (int i = 0; i < size; i++) {
+						rowsFirstLine = firstLine;
+						rows[i].updateCounters(rowCount);
+						length = writeBytes(rows[i], (ByteRowStructure) rowStructure, length);
+						rowCount++;
+					}
+				} catch (RuntimeException e) {
+					firstLine = rowsFirstLine;
+					put(rowBytes, 0, length);
+					throw e;
+				}
+				put(rowBytes, 0, length);
+				
+			} else {
+				
+				rowBuffer.setLength(0);
+				int length = 0;
+				boolean rowsFirstLine = firstLine;
+				try {
+					for (int i = 0; i < size; i++) {
+						rowsFirstLine = firstLine;
+						rows[i].updateCounters(rowCount);
+						if (firstLine) {
+							firstLine = false;
+						} else {
+							rowBuffer.append(lineSeparator);
+						}
+						rowStructure.writeLine(rows[i], this, rowBuffer);
+						rowCount++;
+						length = rowBuffer.length();
+					}
+				} catch (RuntimeException e) {
+					firstLine = rowsFirstLine;
+					rowBuffer.setLength(length);
+					encode(rowBuffer);
+					throw e;
+				}
+				encode(rowBuffer);
+				
+			}
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	public Appendable beginRow() throws IOException {
+		
+		rowBuffer.setLength(0);
+		if (firstLine) {
+			firstLine = false;
+		} else {
+			rowBuffer.append(lineSeparator);
+		}
+		return rowBuffer;
+		
+	}
+	
+	public void endRow() throws IOException {
+		
+		encode(rowBuffer);
+		rowCount++;
+		
+	}
+	
+	/**
+	 * Writes a row already encoded by the row structure
+	 */
+	protected void appendBytes(RowDataSet data, ByteRowStructure rowStructure) throws IOException {
+		
+		int length = writeBytes(data, rowStructure, 0);
+		put(rowBytes, 0, length);
+		rowCount++;
+		
+	}
+	
+	/**
+	 * Encodes the row (and the line separator before it) into the row bytes, after the given length
+	 * @return New length of the row bytes
+	 */
+	protected int writeBytes(RowDataSet data, ByteRowStructure rowStructure, int length) throws IOException {
+		
+		int capacity = length + lineSeparatorBytes.length + rowStructure.getLineLength(data);
+		if (capacity > rowBytes.length) {
+			rowBytes = Arrays.copyOf(rowBytes, Math.max(capacity, rowBytes.length * 2));
+		}
+		if (firstLine) {
+			firstLine = false;
+		} else {
+			System.arraycopy(lineSeparatorBytes, 0, rowBytes, length, lineSeparatorBytes.length);
+			length += lineSeparatorBytes.length;
+		}
+		return rowStructure.writeLine(data, this, rowBytes, length, singleByteEncoder);
+		
+	}
+	
+	/**
+	 * Copies bytes to the output buffer, writing the buffer to the channel whenever it's full
+	 */
+	protected void put(byte[] bytes, int offset, int length) throws IOException {
+		
+		while (length > 0) {
+			
+			ByteBuffer buffer = currentBuffer();
+			if (!buffer.hasRemaining()) {
+				drain();
+				continue;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.put(bytes, offset, count);
+			offset += count;
+			length -= count;
+			
+		}
+		
+	}
+	
+	/**
+	 * Encodes content into the output buffer, writing the buffer to the channel whenever it's full
+	 */
+	protected void encode(CharSequence content) throws IOException {
+		
+		int length = content.length();
+		if (length > rowChars.length) {
+			rowChars = new char[Math.max(length, rowChars.length * 2)];
+			rowCharBuffer = CharBuffer.wrap(rowChars);
+		}
+		if (content instanceof StringBuilder) {
+			((StringBuilder) content).getChars(0, length, rowChars, 0);
+		} else {
+			content.toString().getChars(0, length, rowChars, 0);
+		}
+		rowCharBuffer.clear();
+		rowCharBuffer.limit(length);
+		
+		while (true) {
+			
+			CoderResult result = encoder.encode(rowCharBuffer, currentBuffer(), false);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+			
+		}
+		
+	}
+	
+	protected ByteBuffer currentBuffer() {
+		return mappedBuffer != null ? mappedBuffer : byteBuffer;
+	}
+	
+	/**
+	 * Writes buffered bytes to the channel (or maps next region in mapped mode)
+	 */
+	protected void drain() throws IOException {
+		
+		if (mappedBuffer != null) {
+			
+			position += mappedBuffer.position();
+			mapRegion();
+			
+		} else {
+			
+			byteBuffer.flip();
+			while (byteBuffer.hasRemaining()) {
+				position += channel.write(byteBuffer);
+			}
+			byteBuffer.clear();
+			
+		}
+		
+	}
+	
+	protected void mapRegion() throws IOException {
+		
+		logger.debug("Mapping " + mappedSize + " bytes at position " + position);
+		mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, position, mappedSize);
+		
+	}
+	
+	/**
+	 * Writes buffered content to the file
+	 */
+	public void flush() throws IOException {
+		
+		if (mappedBuffer == null) {
+			drain();
+		}
+		
+	}
+	
+	/**
+	 * Writes buffered content and forces the file to be written to the storage device
+	 */
+	public void sync() throws IOException {
+		
+		flush();
+		if (mappedBuffer != null) {
+			mappedBuffer.force();
+		}
+		channel.force(false);
+		
+	}
+	
+	/**
+	 * Writes the buffer and forces the file to the storage device. 
+	 * The separator of the last row is still written before the next one, so the output is the same as without checkpoints.
+	 */
+	public long checkpoint() throws IOException {
+		
+		long length;
+		if (mappedBuffer != null) {
+			mappedBuffer.force();
+			length = position + mappedBuffer.position();
+		} else {
+			drain();
+			length = position;
+		}
+		channel.force(false);
+		return length;
+		
+	}
+	
+	public boolean isSeparatorPending() {
+		return !firstLine;
+	}
+	
+	public void setSeparatorPending(boolean separatorPending) {
+		this.firstLine = !separatorPending;
+	}
+	
+	public void close() {
+		
+		try {
+			
+			if (separatorLastLine && !firstLine) {
+				encode(lineSeparator);
+			}
+			
+			//flush encoder state
+			rowCharBuffer.clear();
+			rowCharBuffer.limit(0);
+			while (encoder.encode(rowCharBuffer, currentBuffer(), true).isOverflow()) {
+				drain();
+			}
+			while (encoder.flush(currentBuffer()).isOverflow()) {
+				drain();
+			}
+			
+			if (mappedBuffer != null) {
+				
+				position += mappedBuffer.position();
+				mappedBuffer.force();
+				mappedBuffer = null;
+				channel.truncate(position);
+				
+			} else {
+				
+				drain();
+				
+			}
+			channel.close();
+			randomAccessFile.close();
+			if (atomicFile != null) {
+				atomicFile.commit();
+			}
+			if (rowCountMetadata) {
+				RowCounter.writeMetadata(getOutputFile(), rowCount);
+			}
+			
+		} catch (Exception e) {
+			
+			if (atomicFile != null) {
+				atomicFile.abort();
+			}
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	public boolean isAtomicCommit() {
+		return atomicFile != null;
+	}
+	
+	public int count() {
+		return rowCount;
+	}
+	
+	/**
+	 * File being written, which is the temporary file with atomic commit
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Final file of the output
+	 */
+	public File getOutputFile() {
+		return atomicFile != null ? atomicFile.getFile() : file;
+	}
+	
+	/**
+	 * With atomic commit, closes the file without writing buffered rows and removes the temporary file. 
+	 * Otherwise closes the appender as usual, so buffered rows are written and a mapped file is truncated.
+	 */
+	public void abort() {
+		
+		if (atomicFile == null) {
+			close();
+			return;
+		}
+		mappedBuffer = null;
+		try {
+			channel.close();
+			randomAccessFile.close();
+		} catch (IOException e) {
+			logger.warn("Error closing " + file, e);
+		}
+		if (atomicFile != null) {
+			atomicFile.abort();
+		}
+		
+	}
+	
+	/**
+	 * Bytes written by this appender (not counting previous content of the file)
+	 */
+	public long getSize() {
+		return position + currentBuffer().position() - startPosition;
+	}
+	
+	/**
+	 * Counts the lines of an existing file like {@link java.io.BufferedReader#readLine()} does, 
+	 * so the count doesn't depend on the line separator set after the appender is created
+	 */
+	protected int getExistingRowCount(File file) throws IOException {
+		
+		//bulk byte scanning needs line separators encoded as single bytes
+		if (Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' })) {
+			return RowCounter.countLines(file);
+		}
+		
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+		try {
+			int i = 0;
+			while (bufferedReader.readLine() != null) {
+				i++;
+			}
+			return i;
+		} finally {
+			bufferedReader.close();
+		}
+		
+	}
+	
+	public Object result() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelAppender [file=" + file + ", charset=" + charset 
+				+ ", singleByte=" + (singleByteEncoder != null) + ", rowCount=" + rowCount + ", mappedSize=" + mappedSize 
+				+ ", lineSeparator=" + lineSeparator + ", separatorLastLine=" + separatorLastLine + "]";
+	}
+
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.File;
+import java.io.IOException;
+
+import br.com.starcode.tex.checkpoint.CheckpointJournal;
+
+/**
+ * Appender writing to a file that can be truncated back to a checkpoint, so an interrupted export can be resumed 
+ * (see {@link CheckpointJournal})
+ */
+public interface CheckpointAppender extends Appender {
+
+	/**
+	 * Writes buffered rows and forces them to the storage device. 
+	 * The separator of the last row is not written yet (see {@link #isSeparatorPending()}).
+	 * @return Length of the file, which then holds exactly {@link #count()} rows
+	 */
+	long checkpoint() throws IOException;
+	
+	/**
+	 * If the last row written still lacks its line separator, which is written before the next row
+	 */
+	boolean isSeparatorPending();
+	
+	/**
+	 * Restores the state of a checkpoint, before any row is written to a file truncated back to it
+	 */
+	void setSeparatorPending(boolean separatorPending);
+	
+	File getFile();
+	
+}
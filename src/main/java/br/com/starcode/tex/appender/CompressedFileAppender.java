@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.File;
+import java.io.IOException;
+
+import br.com.starcode.tex.compress.CompressionCodec;
+import br.com.starcode.tex.compress.GzipCodec;
+import br.com.starcode.tex.compress.ParallelGzipCodec;
+
+/**
+ * Writes rows to a file compressed as they are appended (e.g. by {@link GzipCodec}, 
+ * or by {@link ParallelGzipCodec} to use many threads), so the compressed file is written in one pass.
+ * 
+ * Since the compressed file is only complete after close, output is flushed only when the buffer is full by default. 
+ * Sizes (see {@link #getSize()}) are not compressed. When appending, the new content is added as another 
+ * compressed member (valid for gzip). Checkpoints also finish the current member, so the file can be truncated 
+ * to them (see {@link #checkpoint()}).
+ */
+public class CompressedFileAppender extends FileAppender {
+
+	protected CompressionCodec codec;
+	
+	public CompressedFileAppender(File file, boolean appendIfExists, CompressionCodec codec) throws IOException {
+		
+		this(file, appendIfExists, DEFAULT_BUFFER_SIZE, codec);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the buffer before compression
+	 */
+	public CompressedFileAppender(File file, boolean appendIfExists, int bufferSize, CompressionCodec codec) throws IOException {
+		
+		this(file, appendIfExists, bufferSize, codec, false);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the buffer before compression
+	 * @param atomicCommit Write to a temporary file, moved to the file on close
+	 */
+	public CompressedFileAppender(File file, boolean appendIfExists, int bufferSize, CompressionCodec codec, boolean atomicCommit) throws IOException {
+		
+		this(file, appendIfExists, bufferSize, codec, atomicCommit, false);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the buffer before compression
+	 * @param atomicCommit Write to a temporary file, moved to the file on close
+	 * @param resume Continue the temporary file of an export resumed from a checkpoint, instead of copying the file again
+	 */
+	public CompressedFileAppender(File file, boolean appendIfExists, int bufferSize, CompressionCodec codec, boolean atomicCommit, boolean resume) throws IOException {
+		
+		super(file, appendIfExists, bufferSize, checkCodec(codec), atomicCommit, resume);
+		this.codec = codec;
+		setFlushOnCloseOnly();
+		
+	}
+	
+	private static CompressionCodec checkCodec(CompressionCodec codec) {
+		if (codec == null) {
+			throw new IllegalArgumentException("Codec cannot be null!");
+		}
+		return codec;
+	}
+	
+	public CompressionCodec getCodec() {
+		return codec;
+	}
+	
+}
@@ -1,158 +1,590 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.appender;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.column.RowDataSet;
-import br.com.starcode.tex.structure.RowStructure;
-
-public class FileAppender implements Appender {
-
-	final Logger logger = LoggerFactory.getLogger(getClass());
-	
-	protected BufferedWriter bufferedWriter;
-	protected int rowCount;
-	protected String lineSeparator;
-	protected boolean separatorLastLine;
-	protected boolean firstLine;
-
-	public FileAppender(File file, boolean appendIfExists) throws IOException {
-		
-		File dir = file.getParentFile();
-
-		///recover number of lines, it append is true
-		if (appendIfExists && file.exists()) {
-			
-			this.rowCount = getExistingRowCount(file);
-			
-		} else {
-			
-			this.rowCount = 0;
-			
-		}
-		
-		//make sure directory exists
-		if (!dir.exists()) {
-			
-			dir.mkdirs();
-			
-		}
-
-		//output buffer
-		this.bufferedWriter = new BufferedWriter(new FileWriter(file, appendIfExists));
-		
-		this.lineSeparator = "" + (char) 13 + (char) 10;
-		this.separatorLastLine = true;
-		this.firstLine = true;
-		
-	}
-	
-	public FileAppender setLineSeparator(String lineSeparator) {
-		this.lineSeparator = lineSeparator;
-		return this;
-	}
-	
-	public FileAppender setSeparatorLastLine(boolean separatorLastLine) {
-		this.separatorLastLine = separatorLastLine;
-		return this;
-	}
-	
-	public void append(RowDataSet data, RowStructure rowStructure) {
-		
-		try {
-			
-			if (firstLine) {
-				firstLine = false;
-			} else {
-				bufferedWriter.write(lineSeparator);
-			}
-			bufferedWriter.write(rowStructure.createLine(data, this));
-			bufferedWriter.flush();
-			rowCount++;
-			
-		} catch (Exception e) {
-			
-			e.printStackTrace();
-			throw new RuntimeException(e);
-			
-		}
-		
-	}
-
-	public void close() {
-		
-		try {
-			
-			if (separatorLastLine) {
-				bufferedWriter.write(lineSeparator);
-			}
-			bufferedWriter.flush();
-			bufferedWriter.close();
-		} catch (Exception e) {
-			
-			e.printStackTrace();
-			throw new RuntimeException(e);
-			
-		}
-		
-	}
-
-	public int count() {
-		return rowCount;
-	}
-
-	private int getExistingRowCount(File file) throws IOException {
-		
-		FileReader fileReader = new FileReader(file);
-		BufferedReader bufferedReader = new BufferedReader(fileReader);
-		int i = 0;
-		while(bufferedReader.readLine() != null) {
-			i ++;
-		}
-		fileReader.close();
-		bufferedReader.close();
-		return i;
-		
-	}
-
-	public Object result() {
-		return null;
-	}
-
-	@Override
-	public String toString() {
-		return "FileAppender [rowCount="
-				+ rowCount + ", lineSeparator=" + lineSeparator
-				+ ", separatorLastLine=" + separatorLastLine + ", firstLine="
-				+ firstLine + "]";
-	}
-
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.compress.CompressionCodec;
+import br.com.starcode.tex.compress.MemberOutputStream;
+import br.com.starcode.tex.structure.RowStructure;
+
+/**
+ * Writes rows to a text file. 
+ * By default the output is flushed after every row, but it can be flushed every N rows, every N characters, 
+ * on a time interval or only on close (see {@link #setFlushEveryRows(int)}, {@link #setFlushEveryChars(long)}, 
+ * {@link #setFlushInterval(long)} and {@link #setFlushOnCloseOnly()}). 
+ * For durability checkpoints the file can also be synced to disk every N rows (see {@link #setSyncEveryRows(int)}).
+ * When appending, existing rows are counted by {@link RowCounter}, which trusts the metadata saved on close 
+ * if enabled (see {@link #setRowCountMetadata(boolean)}).
+ * With atomic commit, rows are written to a temporary file which replaces the file only on close (see {@link AtomicFile}).
+ */
+public class FileAppender implements BufferedAppender, BlockAppender, SizedAppender, LineAppender, CheckpointAppender, AtomicAppender {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	protected File file;
+	protected AtomicFile atomicFile;
+	protected FileOutputStream outputStream;
+	protected MemberOutputStream compressedOutput;
+	protected BufferedWriter bufferedWriter;
+	protected CountingWriter countingWriter;
+	protected int rowCount;
+	protected String lineSeparator;
+	protected boolean separatorLastLine;
+	protected boolean firstLine;
+	protected boolean lineEnded;
+	
+	protected int flushEveryRows;
+	protected long flushEveryChars;
+	protected long flushInterval;
+	protected int syncEveryRows;
+	protected boolean rowCountMetadata;
+	
+	protected int rowsSinceFlush;
+	protected long charsAtLastFlush;
+	protected long lastFlushTime;
+	protected int rowsSinceSync;
+
+	public FileAppender(File file, boolean appendIfExists) throws IOException {
+		
+		this(file, appendIfExists, DEFAULT_BUFFER_SIZE);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the output buffer
+	 */
+	public FileAppender(File file, boolean appendIfExists, int bufferSize) throws IOException {
+		
+		this(file, appendIfExists, bufferSize, false);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the output buffer
+	 * @param atomicCommit Write to a temporary file, moved to the file on close
+	 */
+	public FileAppender(File file, boolean appendIfExists, int bufferSize, boolean atomicCommit) throws IOException {
+		
+		this(file, appendIfExists, bufferSize, atomicCommit, false);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the output buffer
+	 * @param atomicCommit Write to a temporary file, moved to the file on close
+	 * @param resume Continue the temporary file of an export resumed from a checkpoint, instead of copying the file again
+	 */
+	public FileAppender(File file, boolean appendIfExists, int bufferSize, boolean atomicCommit, boolean resume) throws IOException {
+		
+		this(file, appendIfExists, bufferSize, null, atomicCommit, resume);
+		
+	}
+	
+	/**
+	 * @param bufferSize Size (in characters) of the output buffer
+	 * @param codec Codec compressing the output (see {@link CompressedFileAppender}), or null for plain text
+	 * @param atomicCommit Write to a temporary file, moved to the file on close
+	 * @param resume Continue the temporary file of an export resumed from a checkpoint, instead of copying the file again
+	 */
+	protected FileAppender(File file, boolean appendIfExists, int bufferSize, CompressionCodec codec, boolean atomicCommit, boolean resume) throws IOException {
+		
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive!");
+		}
+		
+		//rows (and previous content) go to the temporary file
+		if (atomicCommit) {
+			this.atomicFile = new AtomicFile(file);
+			file = atomicFile.begin(appendIfExists, resume);
+		}
+		
+		File dir = file.getParentFile();
+
+		///recover number of lines, it append is true
+		if (appendIfExists && file.exists()) {
+			
+			int rows = RowCounter.readMetadata(file);
+			this.rowCount = rows >= 0 ? rows : getExistingRowCount(file, codec);
+			
+		} else {
+			
+			this.rowCount = 0;
+			
+		}
+		
+		//make sure directory exists
+		if (dir != null && !dir.exists()) {
+			
+			dir.mkdirs();
+			
+		}
+
+		//metadata will be outdated as soon as the file is written
+		RowCounter.deleteMetadata(file);
+
+		//output buffer
+		this.file = file;
+		this.outputStream = new FileOutputStream(file, appendIfExists);
+		OutputStream output = outputStream;
+		if (codec != null) {
+			compressedOutput = new MemberOutputStream(outputStream, codec);
+			output = compressedOutput;
+		}
+		this.bufferedWriter = new BufferedWriter(new OutputStreamWriter(output), bufferSize);
+		this.countingWriter = new CountingWriter(bufferedWriter);
+		
+		this.lineSeparator = "" + (char) 13 + (char) 10;
+		this.separatorLastLine = true;
+		this.firstLine = true;
+		
+		this.flushEveryRows = 1;
+		this.lastFlushTime = System.currentTimeMillis();
+		
+	}
+	
+	public FileAppender setLineSeparator(String lineSeparator) {
+		this.lineSeparator = lineSeparator;
+		return this;
+	}
+	
+	public FileAppender setSeparatorLastLine(boolean separatorLastLine) {
+		this.separatorLastLine = separatorLastLine;
+		return this;
+	}
+	
+	/**
+	 * Saves the row count in a metadata file on close, so appending to the file later does not need to count its rows 
+	 * (see {@link RowCounter#writeMetadata(File, int)})
+	 */
+	public FileAppender setRowCountMetadata(boolean rowCountMetadata) {
+		this.rowCountMetadata = rowCountMetadata;
+		return this;
+	}
+	
+	/**
+	 * Flushes output every N rows (default is 1, every row). Zero disables this criterion.
+	 */
+	public FileAppender setFlushEveryRows(int flushEveryRows) {
+		if (flushEveryRows < 0) {
+			throw new IllegalArgumentException("Rows cannot be negative!");
+		}
+		this.flushEveryRows = flushEveryRows;
+		return this;
+	}
+	
+	/**
+	 * Flushes output when at least N characters were written since last flush (same as bytes for single byte charsets). 
+	 * Zero disables this criterion.
+	 */
+	public FileAppender setFlushEveryChars(long flushEveryChars) {
+		if (flushEveryChars < 0) {
+			throw new IllegalArgumentException("Characters cannot be negative!");
+		}
+		this.flushEveryChars = flushEveryChars;
+		return this;
+	}
+	
+	/**
+	 * Flushes output when a row is appended and at least N milliseconds have passed since last flush. 
+	 * Zero disables this criterion.
+	 */
+	public FileAppender setFlushInterval(long flushInterval) {
+		if (flushInterval < 0) {
+			throw new IllegalArgumentException("Interval cannot be negative!");
+		}
+		this.flushInterval = flushInterval;
+		return this;
+	}
+	
+	/**
+	 * Output is flushed only when the buffer is full and on close.
+	 */
+	public FileAppender setFlushOnCloseOnly() {
+		this.flushEveryRows = 0;
+		this.flushEveryChars = 0;
+		this.flushInterval = 0;
+		return this;
+	}
+	
+	/**
+	 * Flushes and syncs the file with the storage device every N rows and on close. Zero (default) disables sync.
+	 */
+	public FileAppender setSyncEveryRows(int syncEveryRows) {
+		if (syncEveryRows < 0) {
+			throw new IllegalArgumentException("Rows cannot be negative!");
+		}
+		this.syncEveryRows = syncEveryRows;
+		return this;
+	}
+	
+	public void append(RowDataSet data, RowStructure rowStructure) {
+		
+		try {
+			
+			rowStructure.writeLine(data, this, beginRow());
+			endRow();
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+
+	public boolean isLineShared(RowStructure rowStructure) {
+		return true;
+	}
+
+	public void appendLine(RowDataSet data, RowStructure rowStructure, String line) {
+		
+		try {
+			
+			beginRow().append(line);
+			endRow();
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	/**
+	 * Writes all rows to the buffer, then checks flush and sync criteria once
+	 */
+	public void appendBlock(RowDataSet[] rows, int size, RowStructure rowStructure) {
+		
+		try {
+			
+			for (int i = 0; i < size; i++) {
+				rows[i].updateCounters(rowCount);
+				rowStructure.writeLine(rows[i], this, beginRow());
+				countRow();
+			}
+			checkFlush();
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+
+	public Appendable beginRow() throws IOException {
+		
+		lineEnded = false;
+		if (firstLine) {
+			firstLine = false;
+		} else {
+			countingWriter.write(lineSeparator);
+		}
+		return countingWriter;
+		
+	}
+	
+	public void endRow() throws IOException {
+		
+		countRow();
+		checkFlush();
+		
+	}
+	
+	protected void countRow() {
+		
+		rowCount++;
+		rowsSinceFlush++;
+		if (syncEveryRows > 0) {
+			rowsSinceSync++;
+		}
+		
+	}
+	
+	/**
+	 * Flushes or syncs the output if any criterion was reached
+	 */
+	protected void checkFlush() throws IOException {
+		
+		if (syncEveryRows > 0 && rowsSinceSync >= syncEveryRows) {
+			
+			sync();
+			
+		} else if ((flushEveryRows > 0 && rowsSinceFlush >= flushEveryRows) 
+				|| (flushEveryChars > 0 && countingWriter.getCount() - charsAtLastFlush >= flushEveryChars)
+				|| (flushInterval > 0 && System.currentTimeMillis() - lastFlushTime >= flushInterval)) {
+			
+			flush();
+			
+		}
+		
+	}
+	
+	/**
+	 * Writes buffered content to the file
+	 */
+	public void flush() throws IOException {
+		
+		bufferedWriter.flush();
+		rowsSinceFlush = 0;
+		charsAtLastFlush = countingWriter.getCount();
+		if (flushInterval > 0) {
+			lastFlushTime = System.currentTimeMillis();
+		}
+		
+	}
+	
+	/**
+	 * Writes buffered content and forces the file to be written to the storage device
+	 */
+	public void sync() throws IOException {
+		
+		flush();
+		outputStream.getFD().sync();
+		rowsSinceSync = 0;
+		logger.debug("File synced");
+		
+	}
+
+	/**
+	 * Syncs the file. The separator of the last row is still written before the next one, so the output is 
+	 * the same as without checkpoints. A compressed file gets its current member finished, so it can be truncated at the checkpoint.
+	 */
+	public long checkpoint() throws IOException {
+		
+		if (compressedOutput != null) {
+			flush();
+			compressedOutput.finishMember();
+		}
+		sync();
+		return outputStream.getChannel().size();
+		
+	}
+
+	public boolean isSeparatorPending() {
+		return !firstLine;
+	}
+	
+	public void setSeparatorPending(boolean separatorPending) {
+		this.firstLine = !separatorPending;
+	}
+
+	public void close() {
+		
+		try {
+			
+			if (separatorLastLine && !lineEnded) {
+				countingWriter.write(lineSeparator);
+			}
+			if (syncEveryRows > 0) {
+				sync();
+			} else {
+				flush();
+			}
+			bufferedWriter.close();
+			if (atomicFile != null) {
+				atomicFile.commit();
+			}
+			if (rowCountMetadata) {
+				RowCounter.writeMetadata(getOutputFile(), rowCount);
+			}
+		} catch (Exception e) {
+			
+			if (atomicFile != null) {
+				atomicFile.abort();
+			}
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	/**
+	 * With atomic commit, closes the file and removes the temporary file. Otherwise closes the appender as usual.
+	 */
+	public void abort() {
+		
+		if (atomicFile == null) {
+			close();
+			return;
+		}
+		try {
+			bufferedWriter.close();
+		} catch (IOException e) {
+			logger.warn("Error closing " + file, e);
+		}
+		if (atomicFile != null) {
+			atomicFile.abort();
+		}
+		
+	}
+
+	public boolean isAtomicCommit() {
+		return atomicFile != null;
+	}
+
+	public int count() {
+		return rowCount;
+	}
+	
+	/**
+	 * File being written, which is the temporary file with atomic commit
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Final file of the output
+	 */
+	public File getOutputFile() {
+		return atomicFile != null ? atomicFile.getFile() : file;
+	}
+	
+	/**
+	 * Characters written by this appender (not counting previous content of the file)
+	 */
+	public long getSize() {
+		return countingWriter.getCount();
+	}
+
+	private int getExistingRowCount(File file, CompressionCodec codec) throws IOException {
+		
+		//bulk byte scanning needs line separators encoded as single bytes
+		if (Arrays.equals("\r\n".getBytes(), new byte[] { '\r', '\n' })) {
+			
+			if (codec == null) {
+				return RowCounter.countLines(file);
+			}
+			InputStream input = codec.decompress(new FileInputStream(file));
+			try {
+				return RowCounter.countLines(input);
+			} finally {
+				input.close();
+			}
+			
+		}
+		
+		InputStream input = new FileInputStream(file);
+		BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(codec != null ? codec.decompress(input) : input));
+		try {
+			int i = 0;
+			while(bufferedReader.readLine() != null) {
+				i ++;
+			}
+			return i;
+		} finally {
+			bufferedReader.close();
+		}
+		
+	}
+
+	public Object result() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "FileAppender [rowCount="
+				+ rowCount + ", lineSeparator=" + lineSeparator
+				+ ", separatorLastLine=" + separatorLastLine + ", firstLine="
+				+ firstLine + ", flushEveryRows=" + flushEveryRows 
+				+ ", flushEveryChars=" + flushEveryChars + ", flushInterval=" 
+				+ flushInterval + ", syncEveryRows=" + syncEveryRows + "]";
+	}
+	
+	/**
+	 * Counts characters written to the buffer, used by flush policy
+	 */
+	protected static class CountingWriter extends Writer {
+		
+		private Writer writer;
+		private long count;
+		
+		public CountingWriter(Writer writer) {
+			this.writer = writer;
+		}
+		
+		@Override
+		public void write(int c) throws IOException {
+			writer.write(c);
+			count++;
+		}
+		
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			writer.write(cbuf, off, len);
+			count += len;
+		}
+		
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			writer.write(str, off, len);
+			count += len;
+		}
+		
+		@Override
+		public Writer append(char c) throws IOException {
+			write(c);
+			return this;
+		}
+		
+		@Override
+		public void flush() throws IOException {
+			writer.flush();
+		}
+		
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+		
+		public long getCount() {
+			return count;
+		}
+		
+	}
+
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+/**
+ * Appender that accepts a line already rendered by {@link RowStructure#createLine(RowDataSet, Appender)}, 
+ * so a row is rendered once and shared by many appenders.
+ */
+public interface LineAppender extends Appender {
+
+	/**
+	 * Appends the row as the given line. The appender may still render the row itself 
+	 * (e.g. to encode it straight into bytes), so the data set and row structure are given too.
+	 * @param line Rendered row, without line separator
+	 */
+	void appendLine(RowDataSet data, RowStructure rowStructure, String line);
+	
+	/**
+	 * Whether rows of the row structure are appended from the shared line. 
+	 * If not, the appender renders them itself and the line is not created for it.
+	 */
+	boolean isLineShared(RowStructure rowStructure);
+	
+}
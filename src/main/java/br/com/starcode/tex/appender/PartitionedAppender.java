@@ -0,0 +1,588 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.TexComponentFactory;
+import br.com.starcode.tex.TexComponentFactoryImpl;
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.RowStructure;
+
+/**
+ * Splits one export into many outputs (parts), so a single pass produces all of them. 
+ * A new part is opened when the current one reaches a number of rows ({@link #setMaxRows(int)}) or a size 
+ * ({@link #setMaxSize(long)}), or for each value of a key column ({@link #setKeyColumn(String)}).
+ * 
+ * Rows of the header layout are kept and written at the beginning of every part. 
+ * Rows of the footer layout are written to every part not closed yet, which are then closed. 
+ * Counter columns are numbered within each part. 
+ * Parts that reached their limits are closed right away when there is no footer layout, or when the factory can reopen them 
+ * to write the footer rows (see {@link ReopenablePartFactory}, as parts created by a file name pattern). 
+ * Otherwise parts stay open until a footer row or {@link #close()}.
+ * With many keys, the number of open parts can be limited (see {@link #setMaxOpenParts(int)}).
+ * With atomic commit, each part becomes visible only when it is closed (see {@link #setAtomicCommit(boolean)}).
+ */
+public class PartitionedAppender implements AtomicAppender {
+
+	/**
+	 * Creates the output of each part
+	 */
+	public interface PartFactory {
+		
+		/**
+		 * @param number Sequential number of the part, from 1
+		 * @param key Value of the key column, or null if there is no key column
+		 */
+		Appender createPart(int number, String key) throws IOException;
+		
+	}
+	
+	/**
+	 * Creates parts that can be opened again to append footer rows, so full parts don't have to stay open
+	 */
+	public interface ReopenablePartFactory extends PartFactory {
+		
+		/**
+		 * Opens a part created before and closed, appending to it
+		 */
+		Appender reopenPart(int number, String key) throws IOException;
+		
+	}
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	protected PartFactory partFactory;
+	protected TexComponentFactory componentFactory;
+	protected int maxRows;
+	protected long maxSize;
+	protected String keyColumn;
+	protected int maxOpenParts;
+	protected String headerLayoutId;
+	protected String footerLayoutId;
+	
+	protected List<RowDataSet> headerRows;
+	protected List<RowStructure> headerStructures;
+	protected Map<String, Part> currentParts;
+	protected List<Part> openParts;
+	protected List<Part> closedParts;
+	protected List<Appender> parts;
+	protected Part lastPart;
+	protected int rowCount;
+	
+	public PartitionedAppender(PartFactory partFactory) {
+		
+		if (partFactory == null) {
+			throw new IllegalArgumentException("Part factory cannot be null!");
+		}
+		this.partFactory = partFactory;
+		this.componentFactory = new TexComponentFactoryImpl();
+		this.headerLayoutId = "header";
+		this.footerLayoutId = "footer";
+		this.headerRows = new ArrayList<RowDataSet>();
+		this.headerStructures = new ArrayList<RowStructure>();
+		this.currentParts = new LinkedHashMap<String, Part>();
+		this.openParts = new ArrayList<Part>();
+		this.closedParts = new ArrayList<Part>();
+		this.parts = new ArrayList<Appender>();
+		logger.debug("Instantiated: " + getClass().getSimpleName());
+		
+	}
+	
+	/**
+	 * Writes each part to a new file (see {@link FileAppender}) in the directory
+	 * @param fileNamePattern Name of the files, a {@link MessageFormat} pattern where {0} is the part number (without grouping separators) 
+	 * and {1} the key (e.g. "export-{1}-{0,number,000}.txt"). Characters of the key not allowed in file names are replaced by '_'.
+	 */
+	public PartitionedAppender(File directory, String fileNamePattern) {
+		
+		this(new FilePartFactory(directory, fileNamePattern));
+		
+	}
+	
+	/**
+	 * Writes each part created by a file name pattern to a temporary file, moved to its name when the part is closed 
+	 * (see {@link AtomicFile})
+	 */
+	public PartitionedAppender setAtomicCommit(boolean atomicCommit) {
+		if (!(partFactory instanceof FilePartFactory)) {
+			throw new IllegalStateException("Atomic commit is only defined for parts created by a file name pattern!");
+		}
+		((FilePartFactory) partFactory).atomicCommit = atomicCommit;
+		return this;
+	}
+	
+	/**
+	 * Opens a new part after N detail rows (header and footer rows are not counted). Zero (default) disables this criterion.
+	 */
+	public PartitionedAppender setMaxRows(int maxRows) {
+		if (maxRows < 0) {
+			throw new IllegalArgumentException("Rows cannot be negative!");
+		}
+		this.maxRows = maxRows;
+		return this;
+	}
+	
+	/**
+	 * Opens a new part when the next detail row (estimated by the size of the previous one) would make 
+	 * the current part bigger than N (see {@link SizedAppender#getSize()}). Header and footer rows are not taken into account.
+	 * Parts must be {@link SizedAppender}s. Zero (default) disables this criterion.
+	 */
+	public PartitionedAppender setMaxSize(long maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Size cannot be negative!");
+		}
+		this.maxSize = maxSize;
+		return this;
+	}
+	
+	/**
+	 * Each value of the column goes to its own parts. Rows without the column (e.g. other layouts) go to the last used part.
+	 * @param keyColumn Value of the column in the layout (e.g. the map key or the bean property)
+	 */
+	public PartitionedAppender setKeyColumn(String keyColumn) {
+		this.keyColumn = keyColumn;
+		return this;
+	}
+	
+	/**
+	 * Keeps at most N parts open, closing the least recently used one when another part is needed, 
+	 * so exports with many keys don't run out of file handles. A part closed this way is reopened, appending to it, 
+	 * when a row of its key comes again, so rows sorted by key avoid reopening parts. Header rows exported after it was closed 
+	 * are not written to it. Requires a factory that can reopen parts (see {@link ReopenablePartFactory}). 
+	 * With atomic commit, parts closed this way become visible before they are complete. Zero (default) disables the limit.
+	 */
+	public PartitionedAppender setMaxOpenParts(int maxOpenParts) {
+		if (maxOpenParts < 0) {
+			throw new IllegalArgumentException("Open parts cannot be negative!");
+		}
+		if (maxOpenParts > 0 && !(partFactory instanceof ReopenablePartFactory)) {
+			throw new IllegalStateException("Open parts can only be limited if the factory can reopen parts!");
+		}
+		this.maxOpenParts = maxOpenParts;
+		return this;
+	}
+	
+	/**
+	 * Id of the layout whose rows are repeated at the beginning of every part (default is "header"), or null for none
+	 */
+	public PartitionedAppender setHeaderLayoutId(String headerLayoutId) {
+		this.headerLayoutId = headerLayoutId;
+		return this;
+	}
+	
+	/**
+	 * Id of the layout whose rows are written to every open part (default is "footer"), or null for none
+	 */
+	public PartitionedAppender setFooterLayoutId(String footerLayoutId) {
+		this.footerLayoutId = footerLayoutId;
+		return this;
+	}
+	
+	/**
+	 * Factory of the data sets holding copies of header rows
+	 */
+	public PartitionedAppender setComponentFactory(TexComponentFactory componentFactory) {
+		this.componentFactory = componentFactory;
+		return this;
+	}
+	
+	public void append(RowDataSet data, RowStructure rowStructure) {
+		
+		try {
+			
+			String layoutId = data.getLayout().getId();
+			if (layoutId.equals(headerLayoutId)) {
+				
+				headerRows.add(Util.copyRowDataSet(data, componentFactory));
+				headerStructures.add(rowStructure);
+				for (int i = 0; i < openParts.size(); i++) {
+					appendToPart(openParts.get(i), data, rowStructure);
+				}
+				
+			} else if (layoutId.equals(footerLayoutId)) {
+				
+				if (openParts.isEmpty() && closedParts.isEmpty()) {
+					openPart(null);
+				}
+				
+				//full and suspended parts are reopened one at a time, after the open ones are closed
+				List<Part> closed = new ArrayList<Part>(closedParts);
+				for (Part part : currentParts.values()) {
+					if (part.appender == null) {
+						closed.add(part);
+					}
+				}
+				for (int i = 0; i < openParts.size(); i++) {
+					appendToPart(openParts.get(i), data, rowStructure);
+				}
+				closeParts();
+				for (int i = 0; i < closed.size(); i++) {
+					Part part = reopenPart(closed.get(i));
+					appendToPart(part, data, rowStructure);
+					closePart(part);
+				}
+				
+			} else {
+				
+				Part part = selectPart(data);
+				long size = maxSize > 0 ? ((SizedAppender) part.appender).getSize() : 0;
+				appendToPart(part, data, rowStructure);
+				part.detailRows++;
+				if (maxSize > 0) {
+					part.lastRowSize = ((SizedAppender) part.appender).getSize() - size;
+				}
+				
+			}
+			rowCount++;
+			
+		} catch (IOException e) {
+			
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	/**
+	 * Part of a detail row, opening a new one if there is none for its key or if the current one is full
+	 */
+	protected Part selectPart(RowDataSet data) throws IOException {
+		
+		String key = lastPart != null ? lastPart.key : null;
+		if (keyColumn != null) {
+			List<Column> columns = data.getDataSet();
+			for (int i = 0; i < columns.size(); i++) {
+				if (keyColumn.equals(columns.get(i).getDefinition().getValue())) {
+					key = columns.get(i).getFormattedData();
+					break;
+				}
+			}
+		}
+		
+		Part part = currentParts.get(key);
+		if (part != null && isFull(part)) {
+			
+			currentParts.remove(key);
+			if (footerLayoutId == null) {
+				closePart(part);
+			} else if (partFactory instanceof ReopenablePartFactory) {
+				closePart(part);
+				closedParts.add(part);
+			}
+			part = null;
+			
+		}
+		if (part == null) {
+			part = openPart(key);
+		} else if (part.appender == null) {
+			resumePart(part);
+		} else if (maxOpenParts > 0 && part != lastPart) {
+			//most recently used parts at the end
+			openParts.remove(part);
+			openParts.add(part);
+		}
+		lastPart = part;
+		return part;
+		
+	}
+	
+	protected boolean isFull(Part part) {
+		
+		if (maxRows > 0 && part.detailRows >= maxRows) {
+			return true;
+		}
+		return maxSize > 0 && part.detailRows > 0 && getSize(part) + part.lastRowSize > maxSize;
+		
+	}
+	
+	/**
+	 * Size of the part, including what was written before it was suspended
+	 */
+	protected long getSize(Part part) {
+		
+		long size = part.suspendedSize;
+		if (part.appender != null) {
+			size += ((SizedAppender) part.appender).getSize();
+		}
+		return size;
+		
+	}
+	
+	protected Part openPart(String key) throws IOException {
+		
+		limitOpenParts();
+		Appender appender = partFactory.createPart(parts.size() + 1, key);
+		if (maxSize > 0 && !(appender instanceof SizedAppender)) {
+			throw new IllegalStateException("Parts must be sized appenders to be split by size!");
+		}
+		Part part = new Part(appender, parts.size() + 1, key);
+		parts.add(appender);
+		openParts.add(part);
+		currentParts.put(key, part);
+		logger.debug("Opened part " + parts.size() + " for key " + key);
+		
+		for (int i = 0; i < headerRows.size(); i++) {
+			appendToPart(part, headerRows.get(i), headerStructures.get(i));
+		}
+		return part;
+		
+	}
+	
+	/**
+	 * Closes the least recently used parts until another one can be opened (see {@link #setMaxOpenParts(int)})
+	 */
+	protected void limitOpenParts() {
+		
+		while (maxOpenParts > 0 && openParts.size() >= maxOpenParts) {
+			suspendPart(openParts.get(0));
+		}
+		
+	}
+	
+	/**
+	 * Closes a part that is not full, keeping its state to reopen it when needed
+	 */
+	protected void suspendPart(Part part) {
+		
+		if (maxSize > 0) {
+			part.suspendedSize = getSize(part);
+		}
+		closePart(part);
+		part.appender = null;
+		logger.debug("Suspended part " + part.number + " for key " + part.key);
+		
+	}
+	
+	/**
+	 * Opens a suspended part again, to continue writing its rows
+	 */
+	protected void resumePart(Part part) throws IOException {
+		
+		limitOpenParts();
+		part.appender = ((ReopenablePartFactory) partFactory).reopenPart(part.number, part.key);
+		parts.set(part.number - 1, part.appender);
+		openParts.add(part);
+		logger.debug("Resumed part " + part.number + " for key " + part.key);
+		
+	}
+	
+	/**
+	 * Opens a full part again, to write footer rows
+	 */
+	protected Part reopenPart(Part part) throws IOException {
+		
+		Appender appender = ((ReopenablePartFactory) partFactory).reopenPart(part.number, part.key);
+		parts.set(part.number - 1, appender);
+		Part reopened = new Part(appender, part.number, part.key);
+		openParts.add(reopened);
+		logger.debug("Reopened part " + part.number + " for key " + part.key);
+		return reopened;
+		
+	}
+	
+	/**
+	 * Appends to the part, numbering counters within it
+	 */
+	protected void appendToPart(Part part, RowDataSet data, RowStructure rowStructure) {
+		
+		data.updateCounters(part.appender.count());
+		part.appender.append(data, rowStructure);
+		
+	}
+	
+	protected void closePart(Part part) {
+		
+		if (part.appender == null) {
+			return;
+		}
+		part.appender.close();
+		openParts.remove(part);
+		
+	}
+	
+	protected void closeParts() {
+		
+		while (!openParts.isEmpty()) {
+			closePart(openParts.get(0));
+		}
+		closedParts.clear();
+		currentParts.clear();
+		lastPart = null;
+		
+	}
+	
+	/**
+	 * Closes the open parts. If no part was opened, an empty one (with header rows) is created.
+	 */
+	public void close() {
+		
+		try {
+			
+			if (parts.isEmpty()) {
+				openPart(null);
+			}
+			closeParts();
+			
+		} catch (IOException e) {
+			
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+
+	/**
+	 * Aborts the open parts (see {@link AtomicAppender#abort()}) or closes them, if they can't be aborted. 
+	 * Parts already closed are kept.
+	 */
+	public void abort() {
+		
+		for (Part part : openParts) {
+			if (part.appender instanceof AtomicAppender) {
+				((AtomicAppender) part.appender).abort();
+			} else {
+				part.appender.close();
+			}
+		}
+		openParts.clear();
+		closedParts.clear();
+		currentParts.clear();
+		lastPart = null;
+		
+	}
+
+	/**
+	 * Whether parts are created by a file name pattern with atomic commit (see {@link #setAtomicCommit(boolean)}). 
+	 * Parts closed before an abort are kept anyway.
+	 */
+	public boolean isAtomicCommit() {
+		return partFactory instanceof FilePartFactory && ((FilePartFactory) partFactory).atomicCommit;
+	}
+
+	/**
+	 * Total of rows appended to all parts, header and footer rows included once
+	 */
+	public int count() {
+		return rowCount;
+	}
+
+	/**
+	 * List of the appenders of all parts
+	 */
+	public Object result() {
+		return parts;
+	}
+	
+	public int getPartCount() {
+		return parts.size();
+	}
+	
+	/**
+	 * Files of the parts, when created by a file name pattern
+	 */
+	public List<File> getFiles() {
+		return partFactory instanceof FilePartFactory ? ((FilePartFactory) partFactory).files : new ArrayList<File>();
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionedAppender [parts=" + parts.size() + ", openParts=" + openParts.size() + ", maxRows=" + maxRows 
+				+ ", maxSize=" + maxSize + ", keyColumn=" + keyColumn + ", maxOpenParts=" + maxOpenParts + ", rowCount=" + rowCount + "]";
+	}
+	
+	/**
+	 * Output of a part (null while suspended) and the state used to decide when it's full
+	 */
+	protected static class Part {
+		
+		Appender appender;
+		final int number;
+		final String key;
+		int detailRows;
+		long lastRowSize;
+		long suspendedSize;
+		
+		Part(Appender appender, int number, String key) {
+			this.appender = appender;
+			this.number = number;
+			this.key = key;
+		}
+		
+	}
+	
+	/**
+	 * Creates a {@link FileAppender} for each part. 
+	 * A plain {0} in the pattern is the part number without grouping separators.
+	 */
+	protected static class FilePartFactory implements ReopenablePartFactory {
+		
+		private final File directory;
+		private final MessageFormat fileNameFormat;
+		private final List<File> files = new ArrayList<File>();
+		private boolean atomicCommit;
+		
+		FilePartFactory(File directory, String fileNamePattern) {
+			if (fileNamePattern == null) {
+				throw new IllegalArgumentException("File name pattern cannot be null!");
+			}
+			this.directory = directory;
+			this.fileNameFormat = new MessageFormat(fileNamePattern);
+			Format[] formats = fileNameFormat.getFormatsByArgumentIndex();
+			if (formats.length > 0 && formats[0] == null) {
+				NumberFormat numberFormat = NumberFormat.getIntegerInstance();
+				numberFormat.setGroupingUsed(false);
+				fileNameFormat.setFormatByArgumentIndex(0, numberFormat);
+			}
+		}
+		
+		public Appender createPart(int number, String key) throws IOException {
+			
+			String safeKey = key == null ? "" : key.replaceAll("[^\\w.-]", "_");
+			File file = new File(directory, fileNameFormat.format(new Object[] { number, safeKey }));
+			files.add(file);
+			return new FileAppender(file, false, FileAppender.DEFAULT_BUFFER_SIZE, atomicCommit);
+			
+		}
+		
+		public Appender reopenPart(int number, String key) throws IOException {
+			
+			return new FileAppender(files.get(number - 1), true, FileAppender.DEFAULT_BUFFER_SIZE, atomicCommit);
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Counts rows of existing files, so appenders can continue counting when appending.
+ * 
+ * Lines are counted like {@link java.io.BufferedReader#readLine()} does (separated by "\n", "\r" or "\r\n", plus a last line 
+ * without separator), but bytes are scanned in bulk, eight at a time, from a memory mapped view of the file. 
+ * This works for charsets where line separators are single bytes not used by other characters (ASCII, ISO-8859-*, UTF-8, ...).
+ * 
+ * To avoid scanning at all, appenders can save the row count in a small metadata file beside the output file 
+ * (see {@link #writeMetadata(File, int)}), which is used while the length and the last bytes of the file still match.
+ */
+public class RowCounter {
+	
+	public static final String METADATA_SUFFIX = ".rows";
+	
+	static final Logger logger = LoggerFactory.getLogger(RowCounter.class);
+	
+	//size of each mapped region of the file
+	private static final long REGION_SIZE = 256L * 1024 * 1024;
+	//bytes at the end of the file checked against the metadata
+	private static final int TAIL_SIZE = 4096;
+	
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long LF_BYTES = 0x0A0A0A0A0A0A0A0AL;
+	private static final long CR_BYTES = 0x0D0D0D0D0D0D0D0DL;
+	private static final long LAST_BYTE = 0x8000000000000000L;
+	
+	private long lines;
+	private boolean lastCR;
+	private boolean pendingContent;
+	
+	/**
+	 * Counts lines of a file
+	 */
+	public static int countLines(File file) throws IOException {
+		
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			
+			FileChannel channel = input.getChannel();
+			long size = channel.size();
+			RowCounter counter = new RowCounter();
+			for (long position = 0; position < size; position += REGION_SIZE) {
+				counter.scan(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(REGION_SIZE, size - position)));
+			}
+			return counter.getCount();
+			
+		} finally {
+			
+			input.close();
+			
+		}
+		
+	}
+	
+	/**
+	 * Counts lines of a stream (e.g. a decompressed file), without closing it
+	 */
+	public static int countLines(InputStream input) throws IOException {
+		
+		byte[] bytes = new byte[FileAppender.DEFAULT_BUFFER_SIZE * 8];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		RowCounter counter = new RowCounter();
+		int read;
+		while ((read = input.read(bytes)) >= 0) {
+			buffer.clear();
+			buffer.limit(read);
+			counter.scan(buffer);
+		}
+		return counter.getCount();
+		
+	}
+	
+	/**
+	 * Counts the separators of the buffer, from its position to its limit
+	 */
+	protected void scan(ByteBuffer buffer) {
+		
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.remaining() >= 8) {
+			
+			long word = buffer.getLong();
+			long lf = matchBytes(word ^ LF_BYTES);
+			long cr = matchBytes(word ^ CR_BYTES);
+			if ((lf | cr) != 0) {
+				
+				//"\r\n" counts once, also when split between words
+				int crlf = Long.bitCount((cr << 8) & lf);
+				if (lastCR && (lf & 0x80) != 0) {
+					crlf++;
+				}
+				lines += Long.bitCount(lf) + Long.bitCount(cr) - crlf;
+				
+			}
+			lastCR = (cr & LAST_BYTE) != 0;
+			pendingContent = ((lf | cr) & LAST_BYTE) == 0;
+			
+		}
+		while (buffer.hasRemaining()) {
+			
+			byte b = buffer.get();
+			if (b == '\n') {
+				if (!lastCR) {
+					lines++;
+				}
+				lastCR = false;
+				pendingContent = false;
+			} else if (b == '\r') {
+				lines++;
+				lastCR = true;
+				pendingContent = false;
+			} else {
+				lastCR = false;
+				pendingContent = true;
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Returns a mask with the high bit set on each byte that is zero
+	 */
+	private static long matchBytes(long word) {
+		long low = (word & LOW_BITS) + LOW_BITS;
+		return ~(low | word | LOW_BITS);
+	}
+	
+	protected int getCount() {
+		long count = pendingContent ? lines + 1 : lines;
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Too many rows: " + count);
+		}
+		return (int) count;
+	}
+	
+	public static File getMetadataFile(File file) {
+		return new File(file.getPath() + METADATA_SUFFIX);
+	}
+	
+	/**
+	 * Returns the row count saved in the metadata file, or -1 if there is none or it doesn't match the file anymore
+	 */
+	public static int readMetadata(File file) {
+		
+		File metadataFile = getMetadataFile(file);
+		if (!metadataFile.exists()) {
+			return -1;
+		}
+		try {
+			
+			Properties metadata = new Properties();
+			InputStream input = new FileInputStream(metadataFile);
+			try {
+				metadata.load(input);
+			} finally {
+				input.close();
+			}
+			long length = Long.parseLong(metadata.getProperty("length"));
+			long checksum = Long.parseLong(metadata.getProperty("checksum"));
+			if (length != file.length() || checksum != getTailChecksum(file)) {
+				logger.debug("Metadata of " + file + " is outdated");
+				return -1;
+			}
+			return Integer.parseInt(metadata.getProperty("rows"));
+			
+		} catch (Exception e) {
+			
+			logger.warn("Invalid metadata file " + metadataFile + ": " + e.getMessage());
+			return -1;
+			
+		}
+		
+	}
+	
+	/**
+	 * Saves the row count of a complete file with its length and the checksum of its last bytes
+	 */
+	public static void writeMetadata(File file, int rows) throws IOException {
+		
+		Properties metadata = new Properties();
+		metadata.setProperty("rows", Integer.toString(rows));
+		metadata.setProperty("length", Long.toString(file.length()));
+		metadata.setProperty("checksum", Long.toString(getTailChecksum(file)));
+		OutputStream output = new FileOutputStream(getMetadataFile(file));
+		try {
+			metadata.store(output, "Rows of " + file.getName());
+		} finally {
+			output.close();
+		}
+		
+	}
+	
+	/**
+	 * Removes the metadata file, before the file is changed
+	 */
+	public static void deleteMetadata(File file) throws IOException {
+		
+		File metadataFile = getMetadataFile(file);
+		if (metadataFile.exists() && !metadataFile.delete()) {
+			throw new IOException("Cannot delete " + metadataFile);
+		}
+		
+	}
+	
+	private static long getTailChecksum(File file) throws IOException {
+		
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			
+			long length = input.length();
+			byte[] tail = new byte[(int) Math.min(TAIL_SIZE, length)];
+			input.seek(length - tail.length);
+			input.readFully(tail);
+			CRC32 crc = new CRC32();
+			crc.update(tail);
+			return crc.getValue();
+			
+		} finally {
+			
+			input.close();
+			
+		}
+		
+	}
+	
+}
@@ -1,147 +1,716 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.appender;
-
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.column.RowDataSet;
-import br.com.starcode.tex.structure.RowStructure;
-
-public class XlsAppender implements Appender {
-
-	final Logger logger = LoggerFactory.getLogger(getClass());
-	
-	private List<String[]> arrayList;
-	private File outputFile;
-	private boolean append;
-	private int rowCount;
-
-	public XlsAppender(File outputFile, boolean append) throws IOException {
-		
-		///if appending, check previous row count for corret counting of lines
-		if (append && outputFile.exists()) {
-			
-			this.rowCount = getSeqArquivo(outputFile);
-			
-		} else {
-			
-			this.rowCount = 0;
-			
-		}
-		
-		//make sure output directory exists
-		if (!outputFile.getParentFile().exists()) {
-			
-			outputFile.getParentFile().mkdirs();
-			
-		}
-
-		this.outputFile = outputFile;
-		this.append = append;
-		
-		arrayList = new ArrayList<String[]>();
-		
-	}
-
-	public void append(RowDataSet data, RowStructure rowStructure) {
-		
-		try {
-			
-			String[] columns = new String[data.getDataSet().size()];
-			for (int i = 0; i < columns.length; i++) {
-				columns[i] = data.getColumn(i).getFormattedData();
-			}
-			arrayList.add(columns);
-			
-		} catch (Exception e) {
-			
-			e.printStackTrace();
-			throw new RuntimeException(e);
-			
-		}
-		
-	}
-
-	public void close() {
-		
-		try {
-			
-			String[][] arquivoExportadoXls = (String[][]) arrayList.toArray();
-			if (append && outputFile.exists()) {
-				appendArquivoXls(outputFile, arquivoExportadoXls);
-			} else {
-				//TODO
-				//ManipulaArquivos.criaArquivoXls(arquivoDestino.getAbsolutePath(), "Plan1", arquivoExportadoXls);
-			}
-			
-		} catch (Exception e) {
-			
-			e.printStackTrace();
-			throw new RuntimeException(e);
-			
-		}
-		
-	}
-
-	public int count() {
-		return rowCount;
-	}
-
-	private int getSeqArquivo(File arquivoDestino) throws IOException {
-		
-		//TODO
-		//String[][] arquivo = ManipulaArquivos.leArquivoXls(arquivoDestino.getAbsolutePath(), 0, 0, 50);
-		//return arquivo.length;
-		return 0;
-		
-	}
-	
-	private void appendArquivoXls(File arquivoDestino, String[][] registros) throws IOException {
-		
-		/*
-		TODO
-	    String[][] arquivo = ManipulaArquivos.leArquivoXls(arquivoDestino.getAbsolutePath(), 0, 0, registros[0].length);
-		
-		String[][] arquivoNovo = new String[arquivo.length + registros.length][registros[0].length];
-		System.arraycopy(arquivo, 0, arquivoNovo, 0, arquivo.length);
-		System.arraycopy(registros, 0, arquivoNovo, arquivo.length, registros.length);
-		
-		ManipulaArquivos.criaArquivoXls(arquivoDestino.getAbsolutePath(), "Plan1", arquivoNovo);
-		*/
-	}
-
-	public Object result() {
-		return null;
-	}
-
-	@Override
-	public String toString() {
-		return "XlsAppender [outputFile=" + outputFile + ", append=" + append + ", rowCount=" + rowCount + "]";
-	}
-
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.appender;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.RowStructure;
+
+/**
+ * Writes rows to a spreadsheet file (XLSX), one cell per column. 
+ * Rows are streamed into the worksheet entry of the zip as they are appended, so memory does not grow with the number of rows. 
+ * The file is written to a temporary file beside the output file, which replaces it atomically on close (see {@link AtomicFile}).
+ * 
+ * Numbers, booleans and dates (see {@link Column#getData()}) are written as typed cells, other values as their formatted text 
+ * (see {@link #setTypedCells(boolean)}). 
+ * Text is written inline by default. Shared strings (see {@link #setSharedStrings(boolean)}) make files with repeated values 
+ * smaller; they are spooled to a temporary file and only the most recent values are kept in memory to find repetitions.
+ * 
+ * When appending, rows of the first worksheet of the existing file are copied before the new ones. 
+ * Styles are not copied, so appending is meant for files written by this appender.
+ * A worksheet holds at most {@value #MAX_ROWS} rows; appending more fails instead of writing a file spreadsheets can't open.
+ */
+public class XlsAppender implements AtomicAppender {
+
+	public static final int DEFAULT_SHARED_STRINGS_CACHE_SIZE = 4096;
+	
+	/**
+	 * Rows of a worksheet
+	 */
+	public static final int MAX_ROWS = 1048576;
+	
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+	private static final String SHARED_STRINGS_ENTRY = "xl/sharedStrings.xml";
+	
+	//cell styles, see writeStyles()
+	private static final int STYLE_DATE = 1;
+	private static final int STYLE_DATE_TIME = 2;
+	
+	//days from 1899-12-30 (day zero of spreadsheets) to 1970-01-01
+	private static final long EPOCH_SERIAL = 25569;
+	private static final long MILLIS_PER_DAY = 86400000L;
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	private File outputFile;
+	private AtomicFile atomicFile;
+	private File tempFile;
+	private boolean append;
+	private int rowCount;
+	private int lastRowNumber;
+	
+	private String sheetName;
+	private boolean typedCells;
+	private boolean sharedStrings;
+	private int sharedStringsCacheSize;
+	
+	private ZipOutputStream zip;
+	private Writer sheetWriter;
+	private String[] columnNames;
+	private TimeZone timeZone;
+	
+	//shared strings
+	private File sharedStringsFile;
+	private Writer sharedStringsWriter;
+	private int sharedStringsCount;
+	private int sharedStringsReferences;
+	private Map<String, Integer> sharedStringsCache;
+	
+	private boolean closed;
+
+	public XlsAppender(File outputFile, boolean append) throws IOException {
+		
+		//make sure output directory exists
+		File dir = outputFile.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.exists()) {
+			
+			dir.mkdirs();
+			
+		}
+
+		this.outputFile = outputFile;
+		this.append = append;
+		this.atomicFile = new AtomicFile(outputFile);
+		this.tempFile = atomicFile.begin(false);
+		
+		this.sheetName = "Plan1";
+		this.typedCells = true;
+		this.sharedStringsCacheSize = DEFAULT_SHARED_STRINGS_CACHE_SIZE;
+		this.columnNames = new String[0];
+		this.timeZone = TimeZone.getDefault();
+		
+		this.zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), FileAppender.DEFAULT_BUFFER_SIZE));
+		try {
+			
+			zip.putNextEntry(new ZipEntry(SHEET_ENTRY));
+			this.sheetWriter = new BufferedWriter(new OutputStreamWriter(zip, UTF8), FileAppender.DEFAULT_BUFFER_SIZE);
+			sheetWriter.write(XML_HEADER);
+			sheetWriter.write("<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>\n");
+			
+			///if appending, copy previous rows for corret counting of lines
+			if (append && outputFile.exists()) {
+				
+				copyExistingRows(outputFile);
+				
+			}
+			
+		} catch (IOException e) {
+			
+			discard();
+			throw e;
+			
+		}
+		logger.debug("Streaming spreadsheet to " + tempFile + ", previous rows = " + rowCount);
+		
+	}
+	
+	/**
+	 * Name of the worksheet (default "Plan1")
+	 */
+	public XlsAppender setSheetName(String sheetName) {
+		if (sheetName == null || sheetName.length() == 0) {
+			throw new IllegalArgumentException("Sheet name cannot be empty!");
+		}
+		this.sheetName = sheetName;
+		return this;
+	}
+	
+	/**
+	 * If true (default), numbers, booleans and dates are written as typed cells instead of their formatted text
+	 */
+	public XlsAppender setTypedCells(boolean typedCells) {
+		this.typedCells = typedCells;
+		return this;
+	}
+	
+	/**
+	 * If true, text cells reference a shared strings table instead of holding their text inline (default false)
+	 */
+	public XlsAppender setSharedStrings(boolean sharedStrings) {
+		this.sharedStrings = sharedStrings;
+		return this;
+	}
+	
+	/**
+	 * How many distinct recent values are kept to find repeated shared strings.
+	 * Values not found are added again to the table, so this only limits memory, not correctness.
+	 */
+	public XlsAppender setSharedStringsCacheSize(int sharedStringsCacheSize) {
+		if (sharedStringsCacheSize < 0) {
+			throw new IllegalArgumentException("Cache size cannot be negative!");
+		}
+		this.sharedStringsCacheSize = sharedStringsCacheSize;
+		return this;
+	}
+	
+	/**
+	 * Compression level of the zip entries, from 0 (none) to 9 (best), default is the zip default
+	 */
+	public XlsAppender setCompressionLevel(int level) {
+		zip.setLevel(level);
+		return this;
+	}
+	
+	/**
+	 * Time zone used to convert dates to spreadsheet date cells (default is the system time zone)
+	 */
+	public XlsAppender setTimeZone(TimeZone timeZone) {
+		this.timeZone = timeZone;
+		return this;
+	}
+
+	public void append(RowDataSet data, RowStructure rowStructure) {
+		
+		List<Column> columns = data.getDataSet();
+		for (int i = 0; i < columns.size(); i++) {
+			if (!isTypedCell(columns.get(i))) {
+				Util.checkCharacterColumn(data, i, columns.get(i));
+			}
+		}
+		
+		if (lastRowNumber >= MAX_ROWS) {
+			throw new IllegalStateException("Spreadsheet " + outputFile + " is full: a worksheet holds at most " + MAX_ROWS + " rows!");
+		}
+		
+		try {
+			
+			String rowNumber = Integer.toString(++lastRowNumber);
+			sheetWriter.write("<row r=\"");
+			sheetWriter.write(rowNumber);
+			sheetWriter.write("\">");
+			for (int i = 0; i < columns.size(); i++) {
+				writeCell(getColumnName(i) + rowNumber, columns.get(i));
+			}
+			sheetWriter.write("</row>\n");
+			rowCount++;
+			
+		} catch (Exception e) {
+			
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		}
+		
+	}
+	
+	private void writeCell(String ref, Column column) throws IOException {
+		
+		Object data = typedCells ? column.getData() : null;
+		if (data instanceof Number && isFinite((Number) data)) {
+			
+			sheetWriter.write("<c r=\"");
+			sheetWriter.write(ref);
+			sheetWriter.write("\"><v>");
+			sheetWriter.write(data instanceof BigDecimal ? ((BigDecimal) data).toPlainString() : data.toString());
+			sheetWriter.write("</v></c>");
+			
+		} else if (data instanceof Boolean) {
+			
+			sheetWriter.write("<c r=\"");
+			sheetWriter.write(ref);
+			sheetWriter.write("\" t=\"b\"><v>");
+			sheetWriter.write((Boolean) data ? "1" : "0");
+			sheetWriter.write("</v></c>");
+			
+		} else if (data instanceof Date) {
+			
+			long time = ((Date) data).getTime();
+			long localTime = time + timeZone.getOffset(time);
+			//positive remainder, also for dates before 1970
+			boolean hasTime = (localTime % MILLIS_PER_DAY + MILLIS_PER_DAY) % MILLIS_PER_DAY != 0;
+			sheetWriter.write("<c r=\"");
+			sheetWriter.write(ref);
+			sheetWriter.write("\" s=\"");
+			sheetWriter.write(Integer.toString(hasTime ? STYLE_DATE_TIME : STYLE_DATE));
+			sheetWriter.write("\"><v>");
+			if (hasTime) {
+				sheetWriter.write(Double.toString((double) localTime / MILLIS_PER_DAY + EPOCH_SERIAL));
+			} else {
+				sheetWriter.write(Long.toString(localTime / MILLIS_PER_DAY + EPOCH_SERIAL));
+			}
+			sheetWriter.write("</v></c>");
+			
+		} else {
+			
+			String text = column.getFormattedData();
+			if (text == null || text.length() == 0) {
+				return;
+			}
+			sheetWriter.write("<c r=\"");
+			sheetWriter.write(ref);
+			if (sharedStrings) {
+				sheetWriter.write("\" t=\"s\"><v>");
+				sheetWriter.write(Integer.toString(getSharedString(text)));
+				sheetWriter.write("</v></c>");
+			} else {
+				sheetWriter.write("\" t=\"inlineStr\"><is>");
+				writeText(sheetWriter, text);
+				sheetWriter.write("</is></c>");
+			}
+			
+		}
+		
+	}
+	
+	private boolean isTypedCell(Column column) {
+		Object data = typedCells ? column.getData() : null;
+		return data instanceof Number && isFinite((Number) data) || data instanceof Boolean || data instanceof Date;
+	}
+	
+	private static boolean isFinite(Number number) {
+		if (number instanceof Double || number instanceof Float) {
+			double value = number.doubleValue();
+			return !Double.isNaN(value) && !Double.isInfinite(value);
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the index of the text in the shared strings table, adding it if not found among recent values
+	 */
+	private int getSharedString(String text) throws IOException {
+		
+		sharedStringsReferences++;
+		if (sharedStringsCache == null) {
+			final int cacheSize = sharedStringsCacheSize;
+			sharedStringsCache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+					return size() > cacheSize;
+				}
+			};
+		}
+		Integer index = sharedStringsCache.get(text);
+		if (index == null) {
+			Writer writer = getSharedStringsWriter();
+			writer.write("<si>");
+			writeText(writer, text);
+			writer.write("</si>\n");
+			index = sharedStringsCount++;
+			if (sharedStringsCacheSize > 0) {
+				sharedStringsCache.put(text, index);
+			}
+		}
+		return index;
+		
+	}
+	
+	private Writer getSharedStringsWriter() throws IOException {
+		
+		if (sharedStringsWriter == null) {
+			sharedStringsFile = new File(tempFile.getPath() + ".strings");
+			sharedStringsWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(sharedStringsFile), UTF8), FileAppender.DEFAULT_BUFFER_SIZE);
+		}
+		return sharedStringsWriter;
+		
+	}
+	
+	/**
+	 * Writes a text element, escaping XML and removing characters not allowed in XML
+	 */
+	private static void writeText(Writer writer, String text) throws IOException {
+		
+		if (text.charAt(0) == ' ' || text.charAt(text.length() - 1) == ' ') {
+			writer.write("<t xml:space=\"preserve\">");
+		} else {
+			writer.write("<t>");
+		}
+		int start = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			String replacement;
+			if (c == '<') {
+				replacement = "&lt;";
+			} else if (c == '>') {
+				replacement = "&gt;";
+			} else if (c == '&') {
+				replacement = "&amp;";
+			} else if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFE || c == 0xFFFF) {
+				replacement = "";
+			} else {
+				continue;
+			}
+			writer.write(text, start, i - start);
+			writer.write(replacement);
+			start = i + 1;
+		}
+		writer.write(text, start, text.length() - start);
+		writer.write("</t>");
+		
+	}
+	
+	/**
+	 * Returns the column letters of the cell references (A, B, ..., Z, AA, ...)
+	 */
+	private String getColumnName(int col) {
+		
+		if (col >= columnNames.length) {
+			String[] names = new String[Math.max(col + 1, columnNames.length * 2)];
+			for (int i = 0; i < names.length; i++) {
+				StringBuilder name = new StringBuilder();
+				for (int n = i + 1; n > 0; n = (n - 1) / 26) {
+					name.insert(0, (char) ('A' + (n - 1) % 26));
+				}
+				names[i] = name.toString();
+			}
+			columnNames = names;
+		}
+		return columnNames[col];
+		
+	}
+
+	public void close() {
+		
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			
+			sheetWriter.write("</sheetData></worksheet>");
+			sheetWriter.flush();
+			zip.closeEntry();
+			
+			boolean hasSharedStrings = sharedStringsWriter != null;
+			if (hasSharedStrings) {
+				writeSharedStrings();
+			}
+			writeEntry("[Content_Types].xml", "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+					+ "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+					+ "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+					+ "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+					+ "<Override PartName=\"/" + SHEET_ENTRY + "\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+					+ "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+					+ (hasSharedStrings ? "<Override PartName=\"/" + SHARED_STRINGS_ENTRY + "\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>" : "")
+					+ "</Types>");
+			writeEntry("_rels/.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+					+ "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+					+ "</Relationships>");
+			writeEntry("xl/workbook.xml", "<workbook xmlns=\"" + MAIN_NS + "\" xmlns:r=\"" + REL_NS + "\"><sheets>"
+					+ "<sheet name=\"" + escapeAttribute(sheetName) + "\" sheetId=\"1\" r:id=\"rId1\"/>"
+					+ "</sheets></workbook>");
+			writeEntry("xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+					+ "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+					+ "<Relationship Id=\"rId2\" Type=\"" + REL_NS + "/styles\" Target=\"styles.xml\"/>"
+					+ (hasSharedStrings ? "<Relationship Id=\"rId3\" Type=\"" + REL_NS + "/sharedStrings\" Target=\"sharedStrings.xml\"/>" : "")
+					+ "</Relationships>");
+			writeStyles();
+			zip.close();
+			
+			atomicFile.commit();
+			logger.debug("Spreadsheet " + outputFile + " written with " + rowCount + " rows");
+			
+		} catch (Exception e) {
+			
+			discard();
+			e.printStackTrace();
+			throw new RuntimeException(e);
+			
+		} finally {
+			
+			if (sharedStringsFile != null) {
+				sharedStringsFile.delete();
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Styles: 0 is the default, 1 is a date and 2 is a date with time
+	 */
+	private void writeStyles() throws IOException {
+		writeEntry("xl/styles.xml", "<styleSheet xmlns=\"" + MAIN_NS + "\">"
+				+ "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"yyyy\\-mm\\-dd\\ hh:mm:ss\"/></numFmts>"
+				+ "<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+				+ "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+				+ "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+				+ "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+				+ "<cellXfs count=\"3\">"
+				+ "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+				+ "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+				+ "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+				+ "</cellXfs>"
+				+ "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+				+ "</styleSheet>");
+	}
+	
+	private void writeSharedStrings() throws IOException {
+		
+		sharedStringsWriter.close();
+		zip.putNextEntry(new ZipEntry(SHARED_STRINGS_ENTRY));
+		Writer writer = new OutputStreamWriter(zip, UTF8);
+		writer.write(XML_HEADER);
+		writer.write("<sst xmlns=\"" + MAIN_NS + "\" count=\"" + sharedStringsReferences + "\" uniqueCount=\"" + sharedStringsCount + "\">\n");
+		writer.flush();
+		Files.copy(sharedStringsFile.toPath(), zip);
+		writer.write("</sst>");
+		writer.flush();
+		zip.closeEntry();
+		
+	}
+	
+	private void writeEntry(String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write((XML_HEADER + content).getBytes(UTF8));
+		zip.closeEntry();
+	}
+	
+	private static String escapeAttribute(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace("\"", "&quot;");
+	}
+	
+	/**
+	 * Closes and removes temporary files, keeping the original output file
+	 */
+	public void abort() {
+		
+		if (!closed) {
+			discard();
+		}
+		
+	}
+	
+	/**
+	 * Closes and removes temporary files after a failure, keeping the original output file
+	 */
+	private void discard() {
+		
+		closed = true;
+		try {
+			zip.close();
+		} catch (IOException e) {
+			logger.warn("Error closing " + tempFile, e);
+		}
+		try {
+			if (sharedStringsWriter != null) {
+				sharedStringsWriter.close();
+			}
+		} catch (IOException e) {
+			logger.warn("Error closing " + sharedStringsFile, e);
+		}
+		atomicFile.abort();
+		if (sharedStringsFile != null) {
+			sharedStringsFile.delete();
+		}
+		
+	}
+
+	/**
+	 * Always true, the spreadsheet is only complete on close
+	 */
+	public boolean isAtomicCommit() {
+		return true;
+	}
+
+	public int count() {
+		return rowCount;
+	}
+
+	/**
+	 * Copies rows (and their shared strings) of the existing file to the new file, counting them
+	 */
+	private void copyExistingRows(File file) throws IOException {
+		
+		ZipFile existing = new ZipFile(file);
+		try {
+			
+			ZipEntry strings = existing.getEntry(SHARED_STRINGS_ENTRY);
+			if (strings != null) {
+				XmlCopier copier = new XmlCopier(new BufferedReader(new InputStreamReader(existing.getInputStream(strings), UTF8)));
+				copier.copyContent("sst", "si", getSharedStringsWriter());
+				sharedStringsCount = copier.items;
+				sharedStringsReferences = copier.items;
+			}
+			
+			ZipEntry sheet = existing.getEntry(SHEET_ENTRY);
+			if (sheet == null) {
+				throw new IOException("Worksheet not found in " + file);
+			}
+			XmlCopier copier = new XmlCopier(new BufferedReader(new InputStreamReader(existing.getInputStream(sheet), UTF8)));
+			copier.copyContent("sheetData", "row", sheetWriter);
+			sheetWriter.write("\n");
+			rowCount = copier.items;
+			lastRowNumber = Math.max(copier.items, copier.lastRowNumber);
+			
+		} finally {
+			
+			existing.close();
+			
+		}
+		
+	}
+	
+	/**
+	 * Streams the content of an element of an XML entry, counting the item elements inside it. 
+	 * Elements are matched by local name, so prefixed namespaces are accepted.
+	 */
+	private static class XmlCopier {
+		
+		Reader reader;
+		int items;
+		int lastRowNumber;
+		StringBuilder tag = new StringBuilder();
+		
+		XmlCopier(Reader reader) {
+			this.reader = reader;
+		}
+		
+		void copyContent(String container, String item, Writer writer) throws IOException {
+			
+			//skip to container
+			while (true) {
+				if (!readTag(null)) {
+					throw new IOException("Element " + container + " not found!");
+				}
+				if (container.equals(getTagName())) {
+					if (tag.charAt(tag.length() - 2) == '/') {
+						return;
+					}
+					break;
+				}
+			}
+			
+			//copy up to the end of container
+			while (true) {
+				if (!readTag(writer)) {
+					throw new IOException("End of element " + container + " not found!");
+				}
+				if (tag.charAt(1) == '/' && container.equals(getTagName())) {
+					return;
+				}
+				if (tag.charAt(1) != '/' && item.equals(getTagName())) {
+					items++;
+					String r = getAttribute("r");
+					if (r != null) {
+						lastRowNumber = Integer.parseInt(r);
+					}
+				}
+				writer.write(tag.toString());
+			}
+			
+		}
+		
+		/**
+		 * Reads the next start or end tag, copying the text before it
+		 */
+		boolean readTag(Writer textWriter) throws IOException {
+			
+			int c;
+			while ((c = reader.read()) != '<') {
+				if (c < 0) {
+					return false;
+				}
+				if (textWriter != null) {
+					textWriter.write(c);
+				}
+			}
+			tag.setLength(0);
+			tag.append('<');
+			while ((c = reader.read()) != '>') {
+				if (c < 0) {
+					return false;
+				}
+				tag.append((char) c);
+			}
+			tag.append('>');
+			return true;
+			
+		}
+		
+		String getTagName() {
+			
+			int start = tag.charAt(1) == '/' ? 2 : 1;
+			int end = start;
+			while (end < tag.length() && " \t\r\n/>".indexOf(tag.charAt(end)) < 0) {
+				end++;
+			}
+			String name = tag.substring(start, end);
+			return name.substring(name.indexOf(':') + 1);
+			
+		}
+		
+		String getAttribute(String name) {
+			
+			int i = tag.indexOf(" " + name + "=\"");
+			if (i < 0) {
+				return null;
+			}
+			i += name.length() + 3;
+			return tag.substring(i, tag.indexOf("\"", i));
+			
+		}
+		
+	}
+
+	public Object result() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "XlsAppender [outputFile=" + outputFile + ", append=" + append + ", rowCount=" + rowCount + "]";
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.checkpoint;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * State of an export at a checkpoint: the resume token given by the caller and, for each output file, 
+ * its rows, length and whether the separator of its last row is pending
+ */
+public class Checkpoint {
+	
+	private final String token;
+	private final List<FileState> files;
+	
+	public Checkpoint(String token, List<FileState> files) {
+		this.token = token;
+		this.files = Collections.unmodifiableList(files);
+	}
+	
+	/**
+	 * Token identifying the rows exported up to this checkpoint (e.g. the last key read), may be null
+	 */
+	public String getToken() {
+		return token;
+	}
+	
+	public List<FileState> getFiles() {
+		return files;
+	}
+	
+	@Override
+	public String toString() {
+		return "Checkpoint [token=" + token + ", files=" + files + "]";
+	}
+	
+	public static class FileState {
+		
+		private final File file;
+		private final int rows;
+		private final long length;
+		private final boolean separatorPending;
+		
+		public FileState(File file, int rows, long length, boolean separatorPending) {
+			this.file = file;
+			this.rows = rows;
+			this.length = length;
+			this.separatorPending = separatorPending;
+		}
+		
+		public File getFile() {
+			return file;
+		}
+		
+		public int getRows() {
+			return rows;
+		}
+		
+		public long getLength() {
+			return length;
+		}
+		
+		/**
+		 * If the last row was written without its line separator, so appending to the file must write it first
+		 */
+		public boolean isSeparatorPending() {
+			return separatorPending;
+		}
+		
+		@Override
+		public String toString() {
+			return "FileState [file=" + file + ", rows=" + rows + ", length=" + length + ", separatorPending=" + separatorPending + "]";
+		}
+		
+	}
+	
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.checkpoint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.appender.CheckpointAppender;
+import br.com.starcode.tex.appender.RowCounter;
+
+/**
+ * Journal of export checkpoints, so an interrupted export can be resumed from the last one instead of from zero.
+ * 
+ * Each checkpoint forces the output files to the storage device (see {@link CheckpointAppender#checkpoint()}) and 
+ * then appends one line with the resume token, the rows, the length and the pending separator flag of each file, and a checksum, 
+ * so a line partially written by a crash is ignored. 
+ * {@link #resume(File)} truncates the files back to the last complete checkpoint and returns it.
+ */
+public class CheckpointJournal {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String SEPARATOR = "\t";
+	private static final String NULL_TOKEN = "-";
+	
+	static final Logger logger = LoggerFactory.getLogger(CheckpointJournal.class);
+	
+	private File journalFile;
+	private FileOutputStream outputStream;
+	private int checkpoints;
+	
+	/**
+	 * Opens the journal
+	 * @param append Keep previous checkpoints (when resuming), otherwise the journal starts empty
+	 */
+	public CheckpointJournal(File journalFile, boolean append) throws IOException {
+		
+		File dir = journalFile.getParentFile();
+		if (dir != null && !dir.exists()) {
+			dir.mkdirs();
+		}
+		this.journalFile = journalFile;
+		this.outputStream = new FileOutputStream(journalFile, append);
+		
+		//a crash may have left the last line without its end
+		if (append && journalFile.length() > 0 && !endsWithNewLine(journalFile)) {
+			outputStream.write('\n');
+		}
+		
+	}
+	
+	/**
+	 * Checkpoints each appender and records their state
+	 * @param token Resume token identifying the rows exported so far, may be null
+	 */
+	public Checkpoint write(String token, List<? extends CheckpointAppender> appenders) throws IOException {
+		
+		List<Checkpoint.FileState> files = new ArrayList<Checkpoint.FileState>(appenders.size());
+		StringBuilder line = new StringBuilder();
+		line.append(token == null ? NULL_TOKEN : "+" + URLEncoder.encode(token, "UTF-8"));
+		line.append(SEPARATOR).append(appenders.size());
+		for (CheckpointAppender appender : appenders) {
+			
+			long length = appender.checkpoint();
+			File file = appender.getFile().getAbsoluteFile();
+			boolean separatorPending = appender.isSeparatorPending();
+			files.add(new Checkpoint.FileState(file, appender.count(), length, separatorPending));
+			line.append(SEPARATOR).append(URLEncoder.encode(file.getPath(), "UTF-8"));
+			line.append(SEPARATOR).append(appender.count());
+			line.append(SEPARATOR).append(length);
+			line.append(SEPARATOR).append(separatorPending ? 1 : 0);
+			
+		}
+		String checksum = checksum(line);
+		line.append(SEPARATOR).append(checksum);
+		line.append('\n');
+		
+		outputStream.write(line.toString().getBytes(UTF8));
+		outputStream.getFD().sync();
+		checkpoints++;
+		Checkpoint checkpoint = new Checkpoint(token, files);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Checkpoint " + checkpoints + " written: " + checkpoint);
+		}
+		return checkpoint;
+		
+	}
+	
+	public void close() throws IOException {
+		outputStream.close();
+	}
+	
+	public File getJournalFile() {
+		return journalFile;
+	}
+	
+	/**
+	 * Reads the last complete checkpoint of the journal
+	 * @return The checkpoint, or null if the journal doesn't exist or has none
+	 */
+	public static Checkpoint readLast(File journalFile) throws IOException {
+		
+		long[] end = new long[1];
+		return readLast(journalFile, end);
+		
+	}
+	
+	/**
+	 * Truncates each file of the last checkpoint to its length and removes incomplete lines after it from the journal. 
+	 * The row count of each file is saved as its metadata (see {@link RowCounter}), so appenders opened on it 
+	 * continue counting from the checkpoint.
+	 * @return The checkpoint, with the token to restart the export from, or null if there is none (nothing is changed)
+	 */
+	public static Checkpoint resume(File journalFile) throws IOException {
+		
+		long[] end = new long[1];
+		Checkpoint checkpoint = readLast(journalFile, end);
+		if (checkpoint == null) {
+			return null;
+		}
+		
+		for (Checkpoint.FileState state : checkpoint.getFiles()) {
+			
+			File file = state.getFile();
+			long length = file.exists() ? file.length() : 0;
+			if (length < state.getLength()) {
+				throw new IOException("File " + file + " has " + length + " bytes, less than the " + state.getLength() + " bytes of the checkpoint!");
+			}
+			truncate(file, state.getLength());
+			RowCounter.writeMetadata(file, state.getRows());
+			
+		}
+		truncate(journalFile, end[0]);
+		logger.info("Resuming from " + checkpoint);
+		return checkpoint;
+		
+	}
+	
+	private static Checkpoint readLast(File journalFile, long[] end) throws IOException {
+		
+		if (!journalFile.exists()) {
+			return null;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), UTF8));
+		try {
+			
+			Checkpoint last = null;
+			long position = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				
+				position += line.getBytes(UTF8).length + 1;
+				Checkpoint checkpoint = parse(line);
+				if (checkpoint == null) {
+					logger.warn("Ignoring incomplete checkpoint in " + journalFile);
+					break;
+				}
+				last = checkpoint;
+				end[0] = Math.min(position, journalFile.length());
+				
+			}
+			return last;
+			
+		} finally {
+			
+			reader.close();
+			
+		}
+		
+	}
+	
+	/**
+	 * Parses a line of the journal, returning null if it is incomplete
+	 */
+	private static Checkpoint parse(String line) {
+		
+		int checksumStart = line.lastIndexOf(SEPARATOR);
+		if (checksumStart < 0 || !line.substring(checksumStart + 1).equals(checksum(line.substring(0, checksumStart)))) {
+			return null;
+		}
+		try {
+			
+			String[] fields = line.substring(0, checksumStart).split(SEPARATOR);
+			String token = fields[0].equals(NULL_TOKEN) ? null : URLDecoder.decode(fields[0].substring(1), "UTF-8");
+			int count = Integer.parseInt(fields[1]);
+			List<Checkpoint.FileState> files = new ArrayList<Checkpoint.FileState>(count);
+			for (int i = 0; i < count; i++) {
+				files.add(new Checkpoint.FileState(
+						new File(URLDecoder.decode(fields[2 + i * 4], "UTF-8")), 
+						Integer.parseInt(fields[3 + i * 4]), 
+						Long.parseLong(fields[4 + i * 4]), 
+						"1".equals(fields[5 + i * 4])));
+			}
+			return new Checkpoint(token, files);
+			
+		} catch (Exception e) {
+			
+			return null;
+			
+		}
+		
+	}
+	
+	private static String checksum(CharSequence content) {
+		CRC32 crc = new CRC32();
+		crc.update(content.toString().getBytes(UTF8));
+		return Long.toHexString(crc.getValue());
+	}
+	
+	private static boolean endsWithNewLine(File file) throws IOException {
+		
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			randomAccessFile.seek(randomAccessFile.length() - 1);
+			return randomAccessFile.read() == '\n';
+		} finally {
+			randomAccessFile.close();
+		}
+		
+	}
+	
+	private static void truncate(File file, long length) throws IOException {
+		
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(length);
+			randomAccessFile.getFD().sync();
+		} finally {
+			randomAccessFile.close();
+		}
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "CheckpointJournal [journalFile=" + journalFile + ", checkpoints=" + checkpoints + "]";
+	}
+	
+}
@@ -1,38 +1,61 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.column;
-
-
-/**
- * Represents a "column" of export layout.
- */
-public interface Column {
-	
-	void setData(Object data);
-	
-	Object getData();
-	
-	String getFormattedData();
-	
-	ColumnDefinition getDefinition();
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.column;
+
+import br.com.starcode.tex.format.DataFormatter;
+
+/**
+ * Represents a "column" of export layout.
+ */
+public interface Column {
+	
+	void setData(Object data);
+	
+	/**
+	 * Sets data that was already formatted (e.g. constant columns), so the formatter is not called again
+	 */
+	void setData(Object data, String formattedData);
+	
+	/**
+	 * Sets an int value already formatted. It is only boxed if {@link #getData()} is called.
+	 */
+	void setIntData(int data, String formattedData);
+	
+	/**
+	 * Sets a long value already formatted. It is only boxed if {@link #getData()} is called.
+	 */
+	void setLongData(long data, String formattedData);
+	
+	/**
+	 * Binds the column to a (possibly new) definition and clears its data, so the same instance can be reused for another row
+	 */
+	void reset(ColumnDefinition columnDefinition, DataFormatter formatter);
+	
+	Object getData();
+	
+	String getFormattedData();
+	
+	ColumnDefinition getDefinition();
+	
+	DataFormatter getFormatter();
+	
+}
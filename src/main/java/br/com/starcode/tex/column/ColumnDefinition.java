@@ -1,54 +1,69 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.column;
-
-
-/**
- * Attributes of a column, including some formatting options.
- * 
- * TODO some attributes are not for every column, put these in a "additional properties" map. It will allow users creating their own columns with their own attributes.
- */
-public interface ColumnDefinition {
-
-	String getType();
-	
-	String getSource();
-	
-	int getPosition();
-	
-	String getValue();
-	
-	String getFormat();
-	
-	boolean isCounter();
-	
-	String getAlignment();
-	
-	int getWidth();
-	
-	String getFillChar();
-	
-	String getDecimalSeparator();
-	
-	String getGroupingSeparator();
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.column;
+
+
+/**
+ * Attributes of a column, including some formatting options.
+ * 
+ * TODO some attributes are not for every column, put these in a "additional properties" map. It will allow users creating their own columns with their own attributes.
+ */
+public interface ColumnDefinition {
+
+	String getType();
+	
+	String getSource();
+	
+	int getPosition();
+	
+	String getValue();
+	
+	String getFormat();
+	
+	boolean isCounter();
+	
+	/**
+	 * Constant columns (fixed and param) have the same value for every row, so they can be formatted only once.
+	 */
+	boolean isConstant();
+	
+	String getAlignment();
+	
+	/**
+	 * Alignment already parsed, so it isn't compared as text for every row
+	 */
+	Alignment getAlignmentType();
+	
+	int getWidth();
+	
+	String getFillChar();
+	
+	/**
+	 * Filling character as char (default is space)
+	 */
+	char getFill();
+	
+	String getDecimalSeparator();
+	
+	String getGroupingSeparator();
+	
+}
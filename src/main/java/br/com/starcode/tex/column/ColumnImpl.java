@@ -1,64 +1,116 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.column;
-
-import br.com.starcode.tex.format.DataFormatter;
-
-
-public class ColumnImpl implements Column {
-
-	private Object data;
-	private String formattedData;
-	private ColumnDefinition columnDefinition;
-	private DataFormatter formatter;
-	
-	public ColumnImpl(Object data, ColumnDefinition columnDefinition, DataFormatter formatter) {
-		this.columnDefinition = columnDefinition;
-		this.formatter = formatter;
-		setData(data);
-	}
-	
-	public void setData(Object data) {
-		this.data = data;
-		this.formattedData = formatter.format(data, columnDefinition);
-	}
-	
-	public Object getData() {
-		return data;
-	}
-	
-	public String getFormattedData() {
-		return formattedData;
-	}
-	
-	public ColumnDefinition getDefinition() {
-		return columnDefinition;
-	}
-
-	@Override
-	public String toString() {
-		return "ColumnImpl [data=" + data + ", formattedData=" + formattedData
-				+ ", columnDefinition=" + columnDefinition + ", formatter="
-				+ formatter + "]";
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.column;
+
+import br.com.starcode.tex.format.DataFormatter;
+
+
+public class ColumnImpl implements Column {
+
+	private static final int OBJECT = 0;
+	private static final int INT = 1;
+	private static final int LONG = 2;
+	
+	private Object data;
+	private long primitiveData;
+	private int dataType;
+	private String formattedData;
+	private ColumnDefinition columnDefinition;
+	private DataFormatter formatter;
+	
+	public ColumnImpl(Object data, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		this.columnDefinition = columnDefinition;
+		this.formatter = formatter;
+		setData(data);
+	}
+	
+	public ColumnImpl(Object data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		this.columnDefinition = columnDefinition;
+		this.formatter = formatter;
+		setData(data, formattedData);
+	}
+	
+	public void setData(Object data) {
+		this.data = data;
+		this.dataType = OBJECT;
+		this.formattedData = formatter.format(data, columnDefinition);
+	}
+	
+	public void setData(Object data, String formattedData) {
+		this.data = data;
+		this.dataType = OBJECT;
+		this.formattedData = formattedData;
+	}
+	
+	public void setIntData(int data, String formattedData) {
+		this.data = null;
+		this.primitiveData = data;
+		this.dataType = INT;
+		this.formattedData = formattedData;
+	}
+	
+	public void setLongData(long data, String formattedData) {
+		this.data = null;
+		this.primitiveData = data;
+		this.dataType = LONG;
+		this.formattedData = formattedData;
+	}
+	
+	public void reset(ColumnDefinition columnDefinition, DataFormatter formatter) {
+		this.columnDefinition = columnDefinition;
+		this.formatter = formatter;
+		this.data = null;
+		this.dataType = OBJECT;
+		this.formattedData = null;
+	}
+	
+	public Object getData() {
+		if (dataType == INT) {
+			data = Integer.valueOf((int) primitiveData);
+			dataType = OBJECT;
+		} else if (dataType == LONG) {
+			data = Long.valueOf(primitiveData);
+			dataType = OBJECT;
+		}
+		return data;
+	}
+	
+	public String getFormattedData() {
+		return formattedData;
+	}
+	
+	public ColumnDefinition getDefinition() {
+		return columnDefinition;
+	}
+	
+	public DataFormatter getFormatter() {
+		return formatter;
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnImpl [data=" + getData() + ", formattedData=" + formattedData
+				+ ", columnDefinition=" + columnDefinition + ", formatter="
+				+ formatter + "]";
+	}
+	
+}
@@ -1,45 +1,66 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.column;
-
-import java.util.List;
-
-import br.com.starcode.tex.format.DataFormatter;
-import br.com.starcode.tex.layout.Layout;
-
-
-/**
- * Contains data of a single row for exporting purposes
- */
-public interface RowDataSet {
-
-	void addColumn(Object data, ColumnDefinition columnDefinition, DataFormatter formatter);
-	
-	Column getColumn(int col);
-	
-	List<Column> getDataSet();
-	
-	Layout getLayout();
-	
-	void updateCounters(int currentRow);
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.column;
+
+import java.util.List;
+
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.layout.Layout;
+
+
+/**
+ * Contains data of a single row for exporting purposes
+ */
+public interface RowDataSet {
+
+	void addColumn(Object data, ColumnDefinition columnDefinition, DataFormatter formatter);
+	
+	/**
+	 * Adds a column whose value was already formatted 
+	 */
+	void addColumn(Object data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter);
+	
+	/**
+	 * Adds a column with an int value already formatted, see {@link Column#setIntData(int, String)}
+	 */
+	void addIntColumn(int data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter);
+	
+	/**
+	 * Adds a column with a long value already formatted, see {@link Column#setLongData(long, String)}
+	 */
+	void addLongColumn(long data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter);
+	
+	Column getColumn(int col);
+	
+	List<Column> getDataSet();
+	
+	Layout getLayout();
+	
+	void updateCounters(int currentRow);
+	
+	/**
+	 * Removes all columns so the data set can be filled with a new row. 
+	 * Implementations should keep column instances and reset them in place when columns are added again.
+	 */
+	void clear();
+	
+}
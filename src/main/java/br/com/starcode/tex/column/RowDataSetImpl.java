@@ -1,83 +1,153 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.column;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import br.com.starcode.tex.TexComponentFactory;
-import br.com.starcode.tex.format.DataFormatter;
-import br.com.starcode.tex.layout.Layout;
-
-
-public class RowDataSetImpl implements RowDataSet {
-
-	protected List<Column> columns;
-	protected List<Column> counterColumns;
-	protected Layout layout;
-	protected TexComponentFactory componentFactory;
-	
-	public RowDataSetImpl(Layout layout, TexComponentFactory componentFactory) {
-		columns = new ArrayList<Column>();
-		counterColumns = new ArrayList<Column>();
-		this.layout = layout;
-		this.componentFactory = componentFactory;
-	}
-	
-	@Override
-	public void addColumn(Object data, ColumnDefinition columnDefinition, DataFormatter formatter) {
-		Column column = componentFactory.createColumn(data, columnDefinition, formatter);
-		columns.add(column);
-		if (columnDefinition.isCounter()) {
-			counterColumns.add(column);
-		}
-	}
-
-	public Column getColumn(int col) {
-		return columns.get(col);
-	}
-
-	@Override
-	public List<Column> getDataSet() {
-		return columns;
-	}
-	
-	@Override
-	public Layout getLayout() {
-		return layout;
-	}
-
-	@Override
-	public void updateCounters(int currentRow) {
-		for (Column column : counterColumns) {
-			column.setData(currentRow);
-		}
-	}
-
-	@Override
-	public String toString() {
-		return "RowDataSetImpl [columns=" + columns + ", counterColumns="
-				+ counterColumns + ", layout=" + layout + ", componentFactory="
-				+ componentFactory + "]";
-	}
-
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.column;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import br.com.starcode.tex.TexComponentFactory;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.layout.Layout;
+
+
+public class RowDataSetImpl implements RowDataSet {
+
+	protected List<Column> columns;
+	protected List<Column> counterColumns;
+	protected int size;
+	protected int counterRow = -1;
+	protected Layout layout;
+	protected TexComponentFactory componentFactory;
+	
+	public RowDataSetImpl(Layout layout, TexComponentFactory componentFactory) {
+		columns = new ArrayList<Column>();
+		counterColumns = new ArrayList<Column>();
+		this.layout = layout;
+		this.componentFactory = componentFactory;
+	}
+	
+	@Override
+	public void addColumn(Object data, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		if (size < columns.size()) {
+			Column column = columns.get(size);
+			column.reset(columnDefinition, formatter);
+			column.setData(data);
+			addColumn(column);
+		} else {
+			addColumn(componentFactory.createColumn(data, columnDefinition, formatter));
+		}
+	}
+	
+	@Override
+	public void addColumn(Object data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		if (size < columns.size()) {
+			Column column = columns.get(size);
+			column.reset(columnDefinition, formatter);
+			column.setData(data, formattedData);
+			addColumn(column);
+		} else {
+			addColumn(componentFactory.createColumn(data, formattedData, columnDefinition, formatter));
+		}
+	}
+	
+	@Override
+	public void addIntColumn(int data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		Column column = nextColumn(formattedData, columnDefinition, formatter);
+		column.setIntData(data, formattedData);
+		addColumn(column);
+	}
+	
+	@Override
+	public void addLongColumn(long data, String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		Column column = nextColumn(formattedData, columnDefinition, formatter);
+		column.setLongData(data, formattedData);
+		addColumn(column);
+	}
+	
+	/**
+	 * Column instance to be filled next: a reused one or a new one
+	 */
+	protected Column nextColumn(String formattedData, ColumnDefinition columnDefinition, DataFormatter formatter) {
+		if (size < columns.size()) {
+			Column column = columns.get(size);
+			column.reset(columnDefinition, formatter);
+			return column;
+		}
+		return componentFactory.createColumn(null, formattedData, columnDefinition, formatter);
+	}
+	
+	protected void addColumn(Column column) {
+		if (size == columns.size()) {
+			columns.add(column);
+		}
+		size++;
+		if (column.getDefinition().isCounter()) {
+			counterColumns.add(column);
+			counterRow = -1;
+		}
+	}
+
+	public Column getColumn(int col) {
+		if (col >= size) {
+			throw new IndexOutOfBoundsException("Column " + col + " not filled, data set has " + size + " columns");
+		}
+		return columns.get(col);
+	}
+
+	@Override
+	public List<Column> getDataSet() {
+		//after clear, column instances are kept for reuse
+		return size == columns.size() ? columns : columns.subList(0, size);
+	}
+	
+	@Override
+	public Layout getLayout() {
+		return layout;
+	}
+
+	@Override
+	public void updateCounters(int currentRow) {
+		//counters are only formatted again if the row number changed (e.g. appenders with different counts)
+		if (currentRow == counterRow) {
+			return;
+		}
+		for (int i = 0; i < counterColumns.size(); i++) {
+			counterColumns.get(i).setData(currentRow);
+		}
+		counterRow = currentRow;
+	}
+	
+	@Override
+	public void clear() {
+		size = 0;
+		counterColumns.clear();
+		counterRow = -1;
+	}
+
+	@Override
+	public String toString() {
+		return "RowDataSetImpl [columns=" + getDataSet() + ", counterColumns="
+				+ counterColumns + ", layout=" + layout + ", componentFactory="
+				+ componentFactory + "]";
+	}
+
+}
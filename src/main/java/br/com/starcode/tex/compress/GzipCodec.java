@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip format through java.util.zip, compressing in the writing thread
+ */
+public class GzipCodec implements CompressionCodec {
+
+	public static final int DEFAULT_BUFFER_SIZE = 65536;
+	
+	private final int level;
+	
+	public GzipCodec() {
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * @param level Compression level, from 0 (none) to 9 (best), or -1 for the default one
+	 */
+	public GzipCodec(int level) {
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.level = level;
+	}
+	
+	public OutputStream compress(OutputStream output) throws IOException {
+		return createOutputStream(output, DEFAULT_BUFFER_SIZE, level);
+	}
+	
+	public InputStream decompress(InputStream input) throws IOException {
+		//also reads many members, like the output of ParallelGzipCodec
+		return new GZIPInputStream(input, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Gzip stream with the given compression level
+	 */
+	static GZIPOutputStream createOutputStream(OutputStream output, int bufferSize, final int level) throws IOException {
+		
+		return new GZIPOutputStream(output, bufferSize) {
+			{
+				def.setLevel(level);
+			}
+		};
+		
+	}
+	
+	public int getLevel() {
+		return level;
+	}
+
+	@Override
+	public String toString() {
+		return "GzipCodec [level=" + level + "]";
+	}
+	
+}
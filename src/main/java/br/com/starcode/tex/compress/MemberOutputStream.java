@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.compress;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compressed output written as consecutive members (like gzip members), so the data written so far can be completed, 
+ * e.g. at a checkpoint, and the output continued by a new member. 
+ * The codec must read consecutive members as one content (see {@link CompressionCodec#decompress(java.io.InputStream)}).
+ */
+public class MemberOutputStream extends OutputStream {
+
+	private final OutputStream output;
+	private final CompressionCodec codec;
+	private OutputStream member;
+	
+	public MemberOutputStream(OutputStream output, CompressionCodec codec) throws IOException {
+		
+		this.output = output;
+		this.codec = codec;
+		this.member = startMember();
+		
+	}
+	
+	/**
+	 * Finishes the current member, so the output holds complete compressed data. 
+	 * The next member starts only when more data is written, since its header would already be written to the output.
+	 */
+	public void finishMember() throws IOException {
+		
+		if (member != null) {
+			member.close();
+			member = null;
+		}
+		
+	}
+	
+	/**
+	 * Compressed stream of a member, whose close does not close the output
+	 */
+	private OutputStream startMember() throws IOException {
+		
+		return codec.compress(new FilterOutputStream(output) {
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+			
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+			
+		});
+		
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		if (member == null) {
+			member = startMember();
+		}
+		member.write(b);
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return;
+		}
+		if (member == null) {
+			member = startMember();
+		}
+		member.write(b, off, len);
+	}
+	
+	@Override
+	public void flush() throws IOException {
+		if (member != null) {
+			member.flush();
+		}
+		output.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		
+		try {
+			finishMember();
+		} finally {
+			output.close();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Gzip format compressed by many threads: content is split in blocks, each compressed by the executor 
+ * into a gzip member, and members are written in order. 
+ * The result is a valid multi-member gzip file (read by gunzip and {@link GZIPInputStream}), 
+ * slightly bigger than a single member one.
+ */
+public class ParallelGzipCodec implements CompressionCodec {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+	
+	private final ExecutorService executor;
+	private final int blockSize;
+	private final int pendingBlocks;
+	private final int level;
+	
+	/**
+	 * Blocks of {@value #DEFAULT_BLOCK_SIZE} bytes, up to two blocks per processor being compressed
+	 */
+	public ParallelGzipCodec(ExecutorService executor) {
+		this(executor, DEFAULT_BLOCK_SIZE, 2 * Runtime.getRuntime().availableProcessors(), Deflater.DEFAULT_COMPRESSION);
+	}
+	
+	/**
+	 * @param executor Executor compressing the blocks, which is not shut down
+	 * @param blockSize Size (in bytes) of the content of each member
+	 * @param pendingBlocks Maximum number of blocks submitted and not written yet, which bounds memory use
+	 * @param level Compression level, from 0 (none) to 9 (best), or -1 for the default one
+	 */
+	public ParallelGzipCodec(ExecutorService executor, int blockSize, int pendingBlocks, int level) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Executor cannot be null!");
+		}
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("Block size must be positive!");
+		}
+		if (pendingBlocks <= 0) {
+			throw new IllegalArgumentException("Pending blocks must be positive!");
+		}
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.executor = executor;
+		this.blockSize = blockSize;
+		this.pendingBlocks = pendingBlocks;
+		this.level = level;
+	}
+	
+	public OutputStream compress(OutputStream output) throws IOException {
+		return new ParallelGzipOutputStream(output, executor, blockSize, pendingBlocks, level);
+	}
+	
+	public InputStream decompress(InputStream input) throws IOException {
+		return new GZIPInputStream(input, GzipCodec.DEFAULT_BUFFER_SIZE);
+	}
+	
+	@Override
+	public String toString() {
+		return "ParallelGzipCodec [blockSize=" + blockSize + ", pendingBlocks=" + pendingBlocks + ", level=" + level + "]";
+	}
+	
+}
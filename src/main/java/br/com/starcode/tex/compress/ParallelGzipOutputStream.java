@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream of {@link ParallelGzipCodec}. 
+ * {@link #flush()} writes the members already compressed, but doesn't cut the current block, 
+ * so frequent flushes don't hurt compression.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	private final OutputStream output;
+	private final ExecutorService executor;
+	private final int pendingBlocks;
+	private final int level;
+	private final Deque<Future<byte[]>> pending;
+	private byte[] block;
+	private int count;
+	private boolean written;
+	private boolean closed;
+	
+	public ParallelGzipOutputStream(OutputStream output, ExecutorService executor, int blockSize, int pendingBlocks, int level) {
+		this.output = output;
+		this.executor = executor;
+		this.pendingBlocks = pendingBlocks;
+		this.level = level;
+		this.pending = new ArrayDeque<Future<byte[]>>();
+		this.block = new byte[blockSize];
+	}
+	
+	@Override
+	public void write(int b) throws IOException {
+		
+		if (count == block.length) {
+			submitBlock();
+		}
+		block[count++] = (byte) b;
+		
+	}
+	
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		
+		while (length > 0) {
+			
+			if (count == block.length) {
+				submitBlock();
+			}
+			int n = Math.min(length, block.length - count);
+			System.arraycopy(bytes, offset, block, count, n);
+			count += n;
+			offset += n;
+			length -= n;
+			
+		}
+		
+	}
+	
+	/**
+	 * Hands the current block to the executor, writing the oldest members while too many are pending
+	 */
+	protected void submitBlock() throws IOException {
+		
+		checkOpen();
+		final byte[] content = count == block.length ? block : Arrays.copyOf(block, count);
+		pending.add(executor.submit(new Callable<byte[]>() {
+			public byte[] call() throws IOException {
+				return compressMember(content);
+			}
+		}));
+		written = true;
+		block = new byte[block.length];
+		count = 0;
+		while (pending.size() >= pendingBlocks) {
+			writeNext();
+		}
+		
+	}
+	
+	/**
+	 * Compresses content into a complete gzip member
+	 */
+	protected byte[] compressMember(byte[] content) throws IOException {
+		
+		ByteArrayOutputStream member = new ByteArrayOutputStream(content.length / 2 + 64);
+		GZIPOutputStream gzip = GzipCodec.createOutputStream(member, GzipCodec.DEFAULT_BUFFER_SIZE, level);
+		gzip.write(content);
+		gzip.close();
+		return member.toByteArray();
+		
+	}
+	
+	/**
+	 * Waits for the oldest member and writes it
+	 */
+	protected void writeNext() throws IOException {
+		
+		try {
+			
+			output.write(pending.poll().get());
+			
+		} catch (InterruptedException e) {
+			
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while compressing!", e);
+			
+		} catch (ExecutionException e) {
+			
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+			
+		}
+		
+	}
+	
+	/**
+	 * Writes the members already compressed, without waiting for the others
+	 */
+	@Override
+	public void flush() throws IOException {
+		
+		while (!pending.isEmpty() && pending.peek().isDone()) {
+			writeNext();
+		}
+		output.flush();
+		
+	}
+	
+	/**
+	 * Compresses the last block, writes every member and closes the output
+	 */
+	@Override
+	public void close() throws IOException {
+		
+		if (closed) {
+			return;
+		}
+		try {
+			
+			//an empty content still needs one member to be a valid gzip file
+			if (count > 0 || !written) {
+				submitBlock();
+			}
+			while (!pending.isEmpty()) {
+				writeNext();
+			}
+			
+		} finally {
+			
+			closed = true;
+			for (Future<byte[]> future : pending) {
+				future.cancel(true);
+			}
+			output.close();
+			
+		}
+		
+	}
+	
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed!");
+		}
+	}
+	
+}
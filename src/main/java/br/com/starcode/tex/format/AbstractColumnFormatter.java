@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Base for column formatters. Typed methods box the value and call {@link #format(Object)}, 
+ * so subclasses override only the types they handle directly.
+ */
+public abstract class AbstractColumnFormatter implements ColumnFormatter {
+
+	protected final ColumnDefinition columnDefinition;
+	protected final DataFormatter formatter;
+	
+	public AbstractColumnFormatter(ColumnDefinition columnDefinition, DataFormatter formatter) {
+		this.columnDefinition = columnDefinition;
+		this.formatter = formatter;
+	}
+	
+	public ColumnDefinition getDefinition() {
+		return columnDefinition;
+	}
+	
+	public String formatInt(int value) {
+		return format(Integer.valueOf(value));
+	}
+	
+	public String formatLong(long value) {
+		return format(Long.valueOf(value));
+	}
+	
+	public String formatDecimal(BigDecimal value) {
+		return format((Object) value);
+	}
+	
+	public String formatDate(Date value) {
+		return format((Object) value);
+	}
+	
+	public String formatString(String value) {
+		return format((Object) value);
+	}
+	
+	protected ClassCastException incompatible(Object data) {
+		return new ClassCastException("Value type (" + data.getClass().getName() + ") is not compatible with formatter (" + formatter.getClass().getName() + ")!");
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [formatter=" + formatter + ", columnDefinition=" + columnDefinition + "]";
+	}
+	
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Base for number formatters, keeping the compiled {@link NumberPattern} of each column.
+ */
+public abstract class AbstractNumberFormatter extends AbstractFormatter {
+
+	private final ConcurrentMap<ColumnDefinition, NumberPattern> patternCache = new ConcurrentHashMap<ColumnDefinition, NumberPattern>();
+	
+	public AbstractNumberFormatter(Class<?> dataType) {
+		super(dataType);
+	}
+	
+	/**
+	 * Returns the compiled pattern for the column, compiling it at the first use
+	 */
+	protected NumberPattern getNumberPattern(ColumnDefinition columnDefinition) {
+		
+		NumberPattern pattern = patternCache.get(columnDefinition);
+		if (pattern == null) {
+			pattern = new NumberPattern(columnDefinition);
+			NumberPattern existing = patternCache.putIfAbsent(columnDefinition, pattern);
+			if (existing != null) {
+				pattern = existing;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Compiled " + pattern);
+			}
+		}
+		return pattern;
+		
+	}
+	
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Base for mainframe numeric formats, whose digits and implied decimal point come from a COBOL {@link Picture} 
+ * in the column format (e.g. "S9(7)V99"). Values are rounded HALF_EVEN to the picture scale.
+ * 
+ * Accepts BigDecimal and any other Number. Integer types are converted with long arithmetic only,
+ * and BigDecimal values are rescaled only when their scale differs from the picture.
+ */
+public abstract class AbstractPictureFormatter extends AbstractFormatter {
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+	
+	private final ConcurrentMap<ColumnDefinition, Picture> pictureCache = new ConcurrentHashMap<ColumnDefinition, Picture>();
+	
+	public AbstractPictureFormatter() {
+		super(Number.class);
+	}
+	
+	public String format(Object data, ColumnDefinition columnDefinition) {
+		
+		checkType(data, columnDefinition);
+		if (logger.isTraceEnabled()) {
+			logger.trace("Formatting " + data + " with picture " + columnDefinition.getFormat());
+		}
+		if (data == null) {
+			return null;
+		}
+		Picture picture = getPicture(columnDefinition);
+		char[] digits = new char[picture.getDigits()];
+		boolean negative = toDigits((Number) data, picture, digits);
+		return format(digits, negative, picture);
+		
+	}
+	
+	@Override
+	public ColumnFormatter bind(ColumnDefinition columnDefinition) {
+		
+		if (!isFormatDeclaredBy(AbstractPictureFormatter.class)) {
+			return super.bind(columnDefinition);
+		}
+		final Picture picture = getPicture(columnDefinition);
+		return new AbstractColumnFormatter(columnDefinition, this) {
+			
+			public String format(Object data) {
+				if (data instanceof Number) {
+					char[] digits = new char[picture.getDigits()];
+					boolean negative = toDigits((Number) data, picture, digits);
+					return AbstractPictureFormatter.this.format(digits, negative, picture);
+				} else if (data == null) {
+					return null;
+				}
+				throw incompatible(data);
+			}
+			
+			@Override
+			public String formatInt(int value) {
+				return formatLong(value);
+			}
+			
+			@Override
+			public String formatLong(long value) {
+				char[] digits = new char[picture.getDigits()];
+				boolean negative = toDigits(value, picture, digits);
+				return AbstractPictureFormatter.this.format(digits, negative, picture);
+			}
+			
+		};
+		
+	}
+	
+	/**
+	 * Renders the digits (one per char, from '0' to '9', most significant first) of a value with the picture 
+	 */
+	protected abstract String format(char[] digits, boolean negative, Picture picture);
+	
+	/**
+	 * Picture of a column without format, based on its width
+	 */
+	protected abstract Picture getDefaultPicture(ColumnDefinition columnDefinition);
+	
+	/**
+	 * Returns the picture of the column format, parsing it at the first use
+	 */
+	protected Picture getPicture(ColumnDefinition columnDefinition) {
+		
+		Picture picture = pictureCache.get(columnDefinition);
+		if (picture == null) {
+			String format = columnDefinition.getFormat();
+			if (format == null || format.trim().length() == 0) {
+				picture = getDefaultPicture(columnDefinition);
+			} else {
+				picture = Picture.parse(format);
+			}
+			pictureCache.putIfAbsent(columnDefinition, picture);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Parsed " + picture + " for " + columnDefinition);
+			}
+		}
+		return picture;
+		
+	}
+	
+	/**
+	 * Writes the digits of the value scaled by the picture, zero padded at left
+	 * @return True if the value is negative
+	 */
+	protected boolean toDigits(Number value, Picture picture, char[] digits) {
+		
+		if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return toDigits(value.longValue(), picture, digits);
+		}
+		
+		BigDecimal decimal;
+		if (value instanceof BigDecimal) {
+			decimal = (BigDecimal) value;
+		} else if (value instanceof BigInteger) {
+			decimal = new BigDecimal((BigInteger) value);
+		} else {
+			decimal = BigDecimal.valueOf(value.doubleValue());
+		}
+		if (decimal.scale() != picture.getScale()) {
+			decimal = decimal.setScale(picture.getScale(), RoundingMode.HALF_EVEN);
+		}
+		BigInteger unscaled = decimal.unscaledValue();
+		if (unscaled.bitLength() < 63) {
+			return toDigits(unscaled.longValue(), value, picture, digits);
+		}
+		
+		String text = unscaled.abs().toString();
+		if (text.length() > digits.length) {
+			throw overflow(value, picture);
+		}
+		int padding = digits.length - text.length();
+		for (int i = 0; i < padding; i++) {
+			digits[i] = '0';
+		}
+		text.getChars(0, text.length(), digits, padding);
+		return checkSign(unscaled.signum() < 0, value, picture);
+		
+	}
+	
+	/**
+	 * Same as {@link #toDigits(Number, Picture, char[])} for integer values, using only long arithmetic when possible
+	 */
+	protected boolean toDigits(long value, Picture picture, char[] digits) {
+		
+		int integerDigits = picture.getDigits() - picture.getScale();
+		if (integerDigits < POWERS_OF_TEN.length && (value >= POWERS_OF_TEN[integerDigits] || value <= -POWERS_OF_TEN[integerDigits])) {
+			throw overflow(value, picture);
+		}
+		if (picture.getDigits() < POWERS_OF_TEN.length) {
+			//fits in a long after scaling
+			return toDigits(value * POWERS_OF_TEN[picture.getScale()], value, picture, digits);
+		}
+		return toDigits(BigDecimal.valueOf(value), picture, digits);
+		
+	}
+	
+	private boolean toDigits(long unscaled, Number value, Picture picture, char[] digits) {
+		
+		boolean negative = unscaled < 0;
+		int i = digits.length;
+		//negative remainders avoid overflow with Long.MIN_VALUE
+		long n = negative ? unscaled : -unscaled;
+		while (n != 0) {
+			if (i == 0) {
+				throw overflow(value, picture);
+			}
+			digits[--i] = (char) ('0' - (n % 10));
+			n /= 10;
+		}
+		while (i > 0) {
+			digits[--i] = '0';
+		}
+		return checkSign(negative, value, picture);
+		
+	}
+	
+	private boolean checkSign(boolean negative, Number value, Picture picture) {
+		
+		if (negative && !picture.isSigned()) {
+			throw new IllegalArgumentException("Negative value " + value + " for unsigned picture (" + picture + ")!");
+		}
+		return negative;
+		
+	}
+	
+	private IllegalArgumentException overflow(Number value, Picture picture) {
+		return new IllegalArgumentException("Value " + value + " does not fit in picture (" + picture + ")!");
+	}
+	
+}
@@ -1,45 +1,71 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.format;
-
-import java.math.BigDecimal;
-
-import br.com.starcode.tex.Util;
-import br.com.starcode.tex.column.ColumnDefinition;
-
-
-public class BigDecimalFormatter extends AbstractFormatter {
-
-	public BigDecimalFormatter() {
-		super(BigDecimal.class);
-	}
-
-	public String format(Object data, ColumnDefinition columnDefinition) {
-		
-		checkType(data, columnDefinition);
-		BigDecimal b = (BigDecimal) data;
-		logger.trace("Formatting " + b + " with format " + columnDefinition.getFormat());
-		return b == null ? null : Util.getNumberFormat(columnDefinition).format(b);
-		
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.math.BigDecimal;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+public class BigDecimalFormatter extends AbstractNumberFormatter {
+
+	public BigDecimalFormatter() {
+		super(BigDecimal.class);
+	}
+
+	public String format(Object data, ColumnDefinition columnDefinition) {
+		
+		checkType(data, columnDefinition);
+		BigDecimal b = (BigDecimal) data;
+		if (logger.isTraceEnabled()) {
+			logger.trace("Formatting " + b + " with format " + columnDefinition.getFormat());
+		}
+		return b == null ? null : getNumberPattern(columnDefinition).format(b);
+		
+	}
+	
+	@Override
+	public ColumnFormatter bind(ColumnDefinition columnDefinition) {
+		
+		if (!isFormatDeclaredBy(BigDecimalFormatter.class)) {
+			return super.bind(columnDefinition);
+		}
+		final NumberPattern pattern = getNumberPattern(columnDefinition);
+		return new AbstractColumnFormatter(columnDefinition, this) {
+			
+			public String format(Object data) {
+				if (data instanceof BigDecimal || data == null) {
+					return formatDecimal((BigDecimal) data);
+				}
+				throw incompatible(data);
+			}
+			
+			@Override
+			public String formatDecimal(BigDecimal value) {
+				return value == null ? null : pattern.format(value);
+			}
+			
+		};
+		
+	}
+	
+}
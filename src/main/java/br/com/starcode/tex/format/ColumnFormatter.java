@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Formatter bound to a single column, with everything that depends on the column definition 
+ * (patterns, pictures and so on) already resolved.
+ * 
+ * Typed methods avoid boxing and type checks for values whose type is known. 
+ * A value type not supported by the column results in a ClassCastException, as in {@link DataFormatter}.
+ */
+public interface ColumnFormatter {
+
+	ColumnDefinition getDefinition();
+	
+	String format(Object data);
+	
+	String formatInt(int value);
+	
+	String formatLong(long value);
+	
+	String formatDecimal(BigDecimal value);
+	
+	String formatDate(Date value);
+	
+	String formatString(String value);
+	
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Binds any {@link DataFormatter} to a column, calling it with the column definition for each value
+ */
+public class DataFormatterBinding extends AbstractColumnFormatter {
+
+	public DataFormatterBinding(ColumnDefinition columnDefinition, DataFormatter formatter) {
+		super(columnDefinition, formatter);
+	}
+	
+	public String format(Object data) {
+		return formatter.format(data, columnDefinition);
+	}
+	
+	/**
+	 * Binds the formatter to the column, using its own binding when it is a {@link TypedFormatter}
+	 */
+	public static ColumnFormatter bind(DataFormatter formatter, ColumnDefinition columnDefinition) {
+		
+		if (formatter instanceof TypedFormatter) {
+			return ((TypedFormatter) formatter).bind(columnDefinition);
+		}
+		return new DataFormatterBinding(columnDefinition, formatter);
+		
+	}
+	
+}
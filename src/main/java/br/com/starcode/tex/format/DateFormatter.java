@@ -1,49 +1,227 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.format;
-
-import java.text.SimpleDateFormat;
-import java.util.Date;
-
-import br.com.starcode.tex.column.ColumnDefinition;
-
-
-public class DateFormatter extends AbstractFormatter {
-
-	public DateFormatter() {
-		super(Date.class);
-	}
-
-	public String format(Object data, ColumnDefinition columnDefinition) {
-		
-		checkType(data, columnDefinition);
-		Date d = (Date) data;
-		String format = columnDefinition.getFormat();
-		logger.trace("Formatting " + d + " with format " + format);
-		if (format == null || format.trim().length() == 0) {
-			format = "yyyyMMdd";
-		}
-		return d == null ? null : new SimpleDateFormat(format).format(d);
-		
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Formats dates using the column format (default is "yyyyMMdd").
+ * 
+ * Formats are compiled once and cached by format string, so there is no SimpleDateFormat creation per cell.
+ * Common numeric patterns are rendered without SimpleDateFormat at all (see {@link DatePattern}).
+ * 
+ * Accepted values are {@link Date}, {@link Calendar} and, when running on Java 8 or later, 
+ * java.time.LocalDate, java.time.LocalDateTime and java.time.Instant. 
+ * The java.time types are read through method handles, resolved once, because this library still compiles for Java 7.
+ */
+public class DateFormatter extends AbstractFormatter {
+
+	public static final String DEFAULT_FORMAT = "yyyyMMdd";
+	
+	private final ConcurrentMap<String, DatePattern> patternCache = new ConcurrentHashMap<String, DatePattern>();
+	
+	private static final ThreadLocal<Calendar> calendar = new ThreadLocal<Calendar>() {
+		@Override
+		protected Calendar initialValue() {
+			return Calendar.getInstance();
+		}
+	};
+	
+	public DateFormatter() {
+		super(Date.class);
+	}
+
+	public String format(Object data, ColumnDefinition columnDefinition) {
+		
+		checkType(data, columnDefinition);
+		String format = columnDefinition.getFormat();
+		if (logger.isTraceEnabled()) {
+			logger.trace("Formatting " + data + " with format " + format);
+		}
+		if (data == null) {
+			return null;
+		}
+		DatePattern pattern = getPattern(format);
+		Calendar c = toCalendar(data);
+		return pattern.format(c);
+		
+	}
+	
+	@Override
+	public ColumnFormatter bind(ColumnDefinition columnDefinition) {
+		
+		if (!isFormatDeclaredBy(DateFormatter.class)) {
+			return super.bind(columnDefinition);
+		}
+		final DatePattern pattern = getPattern(columnDefinition.getFormat());
+		return new AbstractColumnFormatter(columnDefinition, this) {
+			
+			public String format(Object data) {
+				if (data == null) {
+					return null;
+				}
+				checkType(data, columnDefinition);
+				return pattern.format(toCalendar(data));
+			}
+			
+			@Override
+			public String formatDate(Date value) {
+				return value == null ? null : pattern.format(toCalendar(value));
+			}
+			
+		};
+		
+	}
+	
+	/**
+	 * Returns the compiled pattern for a column format, compiling it at the first use
+	 */
+	protected DatePattern getPattern(String format) {
+		
+		if (format == null || format.trim().length() == 0) {
+			format = DEFAULT_FORMAT;
+		}
+		DatePattern pattern = patternCache.get(format);
+		if (pattern == null) {
+			pattern = new DatePattern(format);
+			DatePattern existing = patternCache.putIfAbsent(format, pattern);
+			if (existing != null) {
+				pattern = existing;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Compiled " + pattern);
+			}
+		}
+		return pattern;
+		
+	}
+	
+	/**
+	 * Sets the value into the calendar of the current thread
+	 */
+	protected Calendar toCalendar(Object data) {
+		
+		Calendar c = calendar.get();
+		if (data instanceof Date) {
+			c.setTime((Date) data);
+		} else if (data instanceof Calendar) {
+			c.setTimeInMillis(((Calendar) data).getTimeInMillis());
+		} else {
+			MethodHandle[] accessors = TemporalAccessors.handles.get(data.getClass());
+			try {
+				if (accessors.length == 1) {
+					//Instant
+					c.setTimeInMillis((long) accessors[0].invokeExact(data));
+				} else {
+					c.clear();
+					c.set(
+						(int) accessors[0].invokeExact(data), 
+						(int) accessors[1].invokeExact(data) - 1, 
+						(int) accessors[2].invokeExact(data));
+					if (accessors.length > 3) {
+						//LocalDateTime
+						c.set(Calendar.HOUR_OF_DAY, (int) accessors[3].invokeExact(data));
+						c.set(Calendar.MINUTE, (int) accessors[4].invokeExact(data));
+						c.set(Calendar.SECOND, (int) accessors[5].invokeExact(data));
+						c.set(Calendar.MILLISECOND, (int) accessors[6].invokeExact(data) / 1000000);
+					}
+				}
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalArgumentException("Could not read date value " + data, e);
+			}
+		}
+		return c;
+		
+	}
+	
+	@Override
+	protected void checkType(Object data, ColumnDefinition columnDefinition) {
+		
+		if (data != null && !(data instanceof Date) && !(data instanceof Calendar) && !isTemporal(data.getClass())) {
+			
+			throw new ClassCastException("Value type (" + data.getClass().getName() + ") is not compatible with formatter (" + getClass().getName() + ")!");
+			
+		}
+		
+	}
+	
+	private static boolean isTemporal(Class<?> type) {
+		return TemporalAccessors.handles.containsKey(type);
+	}
+	
+	/**
+	 * Accessors of the java.time classes, resolved at the first java.time value. 
+	 * Each handle takes the value as an Object and returns an int (a long for Instant), so calls are exact and don't box.
+	 */
+	private static final class TemporalAccessors {
+		
+		static final Map<Class<?>, MethodHandle[]> handles = resolveAll();
+		
+		private static Map<Class<?>, MethodHandle[]> resolveAll() {
+			
+			Map<Class<?>, MethodHandle[]> handles = new HashMap<Class<?>, MethodHandle[]>();
+			resolve(handles, "java.time.Instant", long.class, "toEpochMilli");
+			resolve(handles, "java.time.LocalDate", int.class, "getYear", "getMonthValue", "getDayOfMonth");
+			resolve(handles, "java.time.LocalDateTime", int.class, "getYear", "getMonthValue", "getDayOfMonth", "getHour", "getMinute", "getSecond", "getNano");
+			return handles;
+			
+		}
+		
+		private static void resolve(Map<Class<?>, MethodHandle[]> handles, String className, Class<?> returnType, String... names) {
+			
+			Class<?> type;
+			try {
+				type = Class.forName(className);
+			} catch (ClassNotFoundException e) {
+				//before Java 8
+				return;
+			}
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodType exactType = MethodType.methodType(returnType, Object.class);
+			MethodHandle[] accessors = new MethodHandle[names.length];
+			try {
+				for (int i = 0; i < names.length; i++) {
+					accessors[i] = lookup.findVirtual(type, names[i], MethodType.methodType(returnType)).asType(exactType);
+				}
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Could not resolve accessors of " + className, e);
+			}
+			handles.put(type, accessors);
+			
+		}
+		
+	}
+	
+}
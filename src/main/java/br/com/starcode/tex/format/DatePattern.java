@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A date format compiled once per format string.
+ * 
+ * Patterns made only of numeric fields (y, M, d, H, m, s, S) and literals, like "yyyyMMdd" or "dd/MM/yyyy HH:mm",
+ * are rendered straight from calendar fields. Any other pattern is delegated to a SimpleDateFormat cached per thread,
+ * since SimpleDateFormat is not thread-safe.
+ * 
+ * Instances are immutable and can be shared between threads.
+ */
+class DatePattern {
+
+	private static final char LITERAL = 0;
+	
+	private final String pattern;
+	
+	/**
+	 * Field letters (or LITERAL) and their repetition count; null if the pattern has no fast path 
+	 */
+	private final char[] fields;
+	private final int[] counts;
+	private final String[] literals;
+	private final int length;
+	
+	private final ThreadLocal<SimpleDateFormat> simpleDateFormat;
+	
+	DatePattern(final String pattern) {
+		
+		this.pattern = pattern;
+		
+		//validates the pattern right away, as SimpleDateFormat would do
+		new SimpleDateFormat(pattern);
+		this.simpleDateFormat = new ThreadLocal<SimpleDateFormat>() {
+			@Override
+			protected SimpleDateFormat initialValue() {
+				return new SimpleDateFormat(pattern);
+			}
+		};
+		
+		List<Character> fieldList = new ArrayList<Character>();
+		List<Integer> countList = new ArrayList<Integer>();
+		List<String> literalList = new ArrayList<String>();
+		int estimatedLength = 0;
+		boolean numeric = true;
+		int i = 0;
+		while (i < pattern.length() && numeric) {
+			char c = pattern.charAt(i);
+			if (c == '\'') {
+				//quoted text; two single quotes stand for one quote
+				StringBuilder literal = new StringBuilder();
+				if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+					literal.append('\'');
+					i += 2;
+				} else {
+					i++;
+					while (i < pattern.length()) {
+						if (pattern.charAt(i) == '\'') {
+							if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+								literal.append('\'');
+								i += 2;
+							} else {
+								i++;
+								break;
+							}
+						} else {
+							literal.append(pattern.charAt(i++));
+						}
+					}
+				}
+				fieldList.add(LITERAL);
+				countList.add(0);
+				literalList.add(literal.toString());
+				estimatedLength += literal.length();
+			} else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+				int count = 1;
+				while (i + count < pattern.length() && pattern.charAt(i + count) == c) {
+					count++;
+				}
+				if (c == 'y' || (c == 'M' && count <= 2) || c == 'd' || c == 'H' || c == 'm' || c == 's' || c == 'S') {
+					fieldList.add(c);
+					countList.add(count);
+					literalList.add(null);
+					estimatedLength += Math.max(count, 4);
+				} else {
+					numeric = false;
+				}
+				i += count;
+			} else {
+				fieldList.add(LITERAL);
+				countList.add(0);
+				literalList.add(String.valueOf(c));
+				estimatedLength++;
+				i++;
+			}
+		}
+		
+		if (numeric) {
+			this.fields = new char[fieldList.size()];
+			this.counts = new int[fieldList.size()];
+			this.literals = literalList.toArray(new String[literalList.size()]);
+			for (int f = 0; f < fields.length; f++) {
+				this.fields[f] = fieldList.get(f);
+				this.counts[f] = countList.get(f);
+			}
+		} else {
+			this.fields = null;
+			this.counts = null;
+			this.literals = null;
+		}
+		this.length = estimatedLength;
+		
+	}
+	
+	public String getPattern() {
+		return pattern;
+	}
+	
+	/**
+	 * True if the pattern is rendered without SimpleDateFormat
+	 */
+	public boolean isFastPath() {
+		return fields != null;
+	}
+	
+	/**
+	 * Formats a date whose fields were already set in the calendar.
+	 * The calendar must use the default time zone, the same SimpleDateFormat uses.
+	 */
+	public String format(Calendar calendar) {
+		
+		if (fields == null) {
+			return format(calendar.getTime());
+		}
+		StringBuilder sb = new StringBuilder(length);
+		for (int f = 0; f < fields.length; f++) {
+			int count = counts[f];
+			switch (fields[f]) {
+				case LITERAL:
+					sb.append(literals[f]);
+					break;
+				case 'y':
+					int year = calendar.get(Calendar.YEAR);
+					if (count == 2) {
+						appendPadded(sb, year % 100, 2);
+					} else {
+						appendPadded(sb, year, count);
+					}
+					break;
+				case 'M':
+					appendPadded(sb, calendar.get(Calendar.MONTH) + 1, count);
+					break;
+				case 'd':
+					appendPadded(sb, calendar.get(Calendar.DAY_OF_MONTH), count);
+					break;
+				case 'H':
+					appendPadded(sb, calendar.get(Calendar.HOUR_OF_DAY), count);
+					break;
+				case 'm':
+					appendPadded(sb, calendar.get(Calendar.MINUTE), count);
+					break;
+				case 's':
+					appendPadded(sb, calendar.get(Calendar.SECOND), count);
+					break;
+				case 'S':
+					appendPadded(sb, calendar.get(Calendar.MILLISECOND), count);
+					break;
+			}
+		}
+		return sb.toString();
+		
+	}
+	
+	public String format(Date date) {
+		return simpleDateFormat.get().format(date);
+	}
+	
+	private static void appendPadded(StringBuilder sb, int value, int width) {
+		
+		int digits = 1;
+		for (int v = value; v >= 10; v /= 10) {
+			digits++;
+		}
+		for (int i = digits; i < width; i++) {
+			sb.append('0');
+		}
+		sb.append(value);
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "DatePattern [pattern=" + pattern + ", fastPath=" + isFastPath() + "]";
+	}
+	
+}
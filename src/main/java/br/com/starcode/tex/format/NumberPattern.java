@@ -0,0 +1,264 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.column.ColumnDefinition;
+
+/**
+ * Number format of a column, compiled once.
+ * 
+ * The column pattern is applied to a DecimalFormat a single time, and the resulting settings (integer and fraction 
+ * digits, grouping, separators and minus sign) are used to render numbers directly into a char buffer. 
+ * Rounding is HALF_EVEN, as in DecimalFormat.
+ * 
+ * Patterns with prefixes, suffixes, percent, exponent and so on are considered exotic and are formatted by
+ * the DecimalFormat of the current thread (see {@link Util#getNumberFormat(ColumnDefinition)}).
+ * 
+ * Instances are immutable and can be shared between threads.
+ */
+public class NumberPattern {
+	
+	private final ColumnDefinition columnDefinition;
+	private final boolean fastPath;
+	
+	private final int minimumIntegerDigits;
+	private final int minimumFractionDigits;
+	private final int maximumFractionDigits;
+	private final int groupingSize;
+	
+	private final char zeroDigit;
+	private final char groupingSeparator;
+	private final char decimalSeparator;
+	private final char minusSign;
+	
+	public NumberPattern(ColumnDefinition columnDefinition) {
+		
+		this.columnDefinition = columnDefinition;
+		NumberFormat numberFormat = Util.createNumberFormat(columnDefinition);
+		
+		boolean simple = false;
+		if (numberFormat instanceof DecimalFormat) {
+			DecimalFormat decimalFormat = (DecimalFormat) numberFormat;
+			DecimalFormatSymbols symbols = decimalFormat.getDecimalFormatSymbols();
+			simple = decimalFormat.getPositivePrefix().isEmpty()
+					&& decimalFormat.getPositiveSuffix().isEmpty()
+					&& decimalFormat.getNegativePrefix().equals(String.valueOf(symbols.getMinusSign()))
+					&& decimalFormat.getNegativeSuffix().isEmpty()
+					&& decimalFormat.getMultiplier() == 1
+					&& decimalFormat.getRoundingMode() == RoundingMode.HALF_EVEN
+					&& decimalFormat.getMaximumIntegerDigits() == Integer.MAX_VALUE
+					&& !decimalFormat.isDecimalSeparatorAlwaysShown()
+					&& decimalFormat.toPattern().indexOf('E') < 0;
+			this.minimumIntegerDigits = decimalFormat.getMinimumIntegerDigits();
+			this.minimumFractionDigits = decimalFormat.getMinimumFractionDigits();
+			this.maximumFractionDigits = decimalFormat.getMaximumFractionDigits();
+			this.groupingSize = decimalFormat.isGroupingUsed() ? decimalFormat.getGroupingSize() : 0;
+			this.zeroDigit = symbols.getZeroDigit();
+			this.groupingSeparator = symbols.getGroupingSeparator();
+			this.decimalSeparator = symbols.getDecimalSeparator();
+			this.minusSign = symbols.getMinusSign();
+		} else {
+			this.minimumIntegerDigits = 0;
+			this.minimumFractionDigits = 0;
+			this.maximumFractionDigits = 0;
+			this.groupingSize = 0;
+			this.zeroDigit = '0';
+			this.groupingSeparator = ',';
+			this.decimalSeparator = '.';
+			this.minusSign = '-';
+		}
+		this.fastPath = simple;
+		
+	}
+	
+	/**
+	 * True if numbers are rendered without DecimalFormat
+	 */
+	public boolean isFastPath() {
+		return fastPath;
+	}
+	
+	public String format(BigDecimal value) {
+		
+		if (!fastPath) {
+			return Util.getNumberFormat(columnDefinition).format(value);
+		}
+		return format(value, false);
+		
+	}
+	
+	/**
+	 * Formats only the decimal part of the value, that is, what the pattern prints after the decimal separator
+	 */
+	public String formatFraction(BigDecimal value) {
+		
+		if (!fastPath) {
+			FieldPosition fieldPosition = new FieldPosition(NumberFormat.FRACTION_FIELD);
+			StringBuffer sb = new StringBuffer();
+			Util.getNumberFormat(columnDefinition).format(value, sb, fieldPosition);
+			return sb.substring(fieldPosition.getBeginIndex());
+		}
+		return format(value, true);
+		
+	}
+	
+	private String format(BigDecimal value, boolean fractionOnly) {
+		
+		BigDecimal rounded = value.scale() > maximumFractionDigits ? value.setScale(maximumFractionDigits, RoundingMode.HALF_EVEN) : value;
+		String digits = rounded.unscaledValue().abs().toString();
+		int scale = rounded.scale();
+		
+		//split the unscaled digits at the decimal point
+		int integerEnd;
+		int leadingFractionZeros;
+		if (scale <= 0) {
+			integerEnd = digits.length();
+			leadingFractionZeros = 0;
+		} else if (digits.length() > scale) {
+			integerEnd = digits.length() - scale;
+			leadingFractionZeros = 0;
+		} else {
+			integerEnd = 0;
+			leadingFractionZeros = scale - digits.length();
+		}
+		int trailingIntegerZeros = scale < 0 ? -scale : 0;
+		if (rounded.signum() == 0) {
+			//a zero integer part has no significant digits
+			integerEnd = 0;
+			trailingIntegerZeros = 0;
+		}
+		
+		//drop optional trailing zeros of the fraction
+		int fractionEnd = digits.length();
+		int fractionLength = Math.max(scale, 0);
+		while (fractionLength > minimumFractionDigits && fractionEnd > integerEnd && digits.charAt(fractionEnd - 1) == '0') {
+			fractionEnd--;
+			fractionLength--;
+		}
+		if (fractionLength > minimumFractionDigits && fractionEnd == integerEnd) {
+			//only the leading zeros left, which are dropped as well
+			fractionLength = minimumFractionDigits;
+			leadingFractionZeros = Math.min(leadingFractionZeros, fractionLength);
+		}
+		fractionLength = Math.max(fractionLength, minimumFractionDigits);
+		
+		return render(value.signum() < 0, digits, integerEnd, trailingIntegerZeros, leadingFractionZeros, fractionEnd, fractionLength, fractionOnly);
+		
+	}
+	
+	public String format(long value) {
+		
+		if (!fastPath) {
+			return Util.getNumberFormat(columnDefinition).format(value);
+		}
+		
+		String digits = Long.toString(value);
+		int start = value < 0 ? 1 : 0;
+		if (start > 0) {
+			digits = digits.substring(start);
+		}
+		int integerEnd = value == 0 ? 0 : digits.length();
+		return render(value < 0, digits, integerEnd, 0, 0, integerEnd, minimumFractionDigits, false);
+		
+	}
+	
+	/**
+	 * Writes sign, integer part (padded and grouped) and fraction part.
+	 * Integer digits are digits[0, integerEnd) followed by trailingIntegerZeros zeros, 
+	 * fraction digits are leadingFractionZeros zeros followed by digits[integerEnd, fractionEnd), 
+	 * padded with zeros up to fractionLength.
+	 * When fractionOnly, only the fraction digits are written.
+	 */
+	private String render(boolean negative, String digits, int integerEnd, int trailingIntegerZeros, 
+			int leadingFractionZeros, int fractionEnd, int fractionLength, boolean fractionOnly) {
+		
+		if (fractionOnly) {
+			char[] buffer = new char[fractionLength];
+			renderFraction(digits, integerEnd, leadingFractionZeros, fractionEnd, fractionLength, buffer, 0);
+			return new String(buffer);
+		}
+		
+		int integerDigits = integerEnd + trailingIntegerZeros;
+		int integerLength = Math.max(integerDigits, minimumIntegerDigits);
+		if (integerLength == 0 && fractionLength == 0) {
+			//nothing to show, prints a zero
+			integerLength = 1;
+		}
+		int groupings = groupingSize > 0 && integerLength > 0 ? (integerLength - 1) / groupingSize : 0;
+		
+		char[] buffer = new char[(negative ? 1 : 0) + integerLength + groupings + (fractionLength > 0 ? 1 + fractionLength : 0)];
+		int p = 0;
+		if (negative) {
+			buffer[p++] = minusSign;
+		}
+		
+		//integer part, from the most significant position
+		int zeroOffset = zeroDigit - '0';
+		for (int position = integerLength - 1; position >= 0; position--) {
+			int index = integerDigits - 1 - position;
+			buffer[p++] = index >= 0 && index < integerEnd ? (char) (digits.charAt(index) + zeroOffset) : zeroDigit;
+			if (groupingSize > 0 && position > 0 && position % groupingSize == 0) {
+				buffer[p++] = groupingSeparator;
+			}
+		}
+		
+		//fraction part
+		if (fractionLength > 0) {
+			buffer[p++] = decimalSeparator;
+			p = renderFraction(digits, integerEnd, leadingFractionZeros, fractionEnd, fractionLength, buffer, p);
+		}
+		
+		return new String(buffer, 0, p);
+		
+	}
+	
+	private int renderFraction(String digits, int integerEnd, int leadingFractionZeros, int fractionEnd, int fractionLength, char[] buffer, int p) {
+		
+		int zeroOffset = zeroDigit - '0';
+		int written = 0;
+		for (int i = 0; i < leadingFractionZeros && written < fractionLength; i++, written++) {
+			buffer[p++] = zeroDigit;
+		}
+		for (int i = integerEnd; i < fractionEnd && written < fractionLength; i++, written++) {
+			buffer[p++] = (char) (digits.charAt(i) + zeroOffset);
+		}
+		for (; written < fractionLength; written++) {
+			buffer[p++] = zeroDigit;
+		}
+		return p;
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "NumberPattern [format=" + columnDefinition.getFormat() + ", fastPath=" + fastPath + "]";
+	}
+	
+}
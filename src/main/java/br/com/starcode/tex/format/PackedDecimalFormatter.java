@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Packed decimal (COBOL COMP-3): two digits per byte and the sign in the last half byte 
+ * (C for positive, D for negative and F for unsigned pictures), so a picture of n digits takes n / 2 + 1 bytes.
+ * 
+ * The column format is the picture (e.g. "S9(7)V99"). Without format, the number is signed, 
+ * has no fraction and has as many digits as fit in the column width.
+ * 
+ * The formatted data is binary (see {@link BinaryFormatter}).
+ */
+public class PackedDecimalFormatter extends AbstractPictureFormatter implements BinaryFormatter {
+
+	@Override
+	protected String format(char[] digits, boolean negative, Picture picture) {
+		
+		int length = digits.length / 2 + 1;
+		char[] bytes = new char[length];
+		int sign = picture.isSigned() ? (negative ? 0xD : 0xC) : 0xF;
+		
+		//fills from the sign half byte backwards
+		int d = digits.length - 1;
+		for (int i = length - 1; i >= 0; i--) {
+			int low = i == length - 1 ? sign : digit(digits, d--);
+			int high = digit(digits, d--);
+			bytes[i] = (char) ((high << 4) | low);
+		}
+		return new String(bytes);
+		
+	}
+	
+	private static int digit(char[] digits, int index) {
+		return index < 0 ? 0 : digits[index] - '0';
+	}
+	
+	@Override
+	protected Picture getDefaultPicture(ColumnDefinition columnDefinition) {
+		return new Picture(Math.min(columnDefinition.getWidth() * 2 - 1, Picture.MAX_DIGITS), 0, true);
+	}
+	
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+/**
+ * Numeric COBOL picture, like "S9(7)V99": an optional sign (S), the digits (9 or 9(n)) 
+ * and an optional implied decimal point (V) followed by the fraction digits.
+ * 
+ * Instances are immutable.
+ */
+public class Picture {
+
+	/**
+	 * Digits of packed or zoned numbers are limited by COBOL to 31
+	 */
+	public static final int MAX_DIGITS = 31;
+	
+	private final int digits;
+	private final int scale;
+	private final boolean signed;
+	
+	public Picture(int digits, int scale, boolean signed) {
+		
+		if (digits < 1 || digits > MAX_DIGITS) {
+			throw new IllegalArgumentException("Picture must have between 1 and " + MAX_DIGITS + " digits, but has " + digits + "!");
+		}
+		if (scale < 0 || scale > digits) {
+			throw new IllegalArgumentException("Invalid picture scale " + scale + " for " + digits + " digits!");
+		}
+		this.digits = digits;
+		this.scale = scale;
+		this.signed = signed;
+		
+	}
+	
+	/**
+	 * Parses a picture like "S9(7)V99", "999V9" or "S9(5)"
+	 */
+	public static Picture parse(String picture) {
+		
+		String p = picture.trim().toUpperCase();
+		if (p.startsWith("PIC ")) {
+			p = p.substring(4).trim();
+		}
+		int i = 0;
+		boolean signed = false;
+		if (p.length() > 0 && p.charAt(0) == 'S') {
+			signed = true;
+			i++;
+		}
+		int integerDigits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		while (i < p.length()) {
+			char c = p.charAt(i);
+			if (c == 'V' && !fraction) {
+				fraction = true;
+				i++;
+			} else if (c == '9') {
+				int count = 1;
+				i++;
+				if (i < p.length() && p.charAt(i) == '(') {
+					int end = p.indexOf(')', i);
+					if (end < 0) {
+						throw new IllegalArgumentException("Unclosed repetition in picture '" + picture + "'!");
+					}
+					try {
+						count = Integer.parseInt(p.substring(i + 1, end).trim());
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("Invalid repetition in picture '" + picture + "'!", e);
+					}
+					i = end + 1;
+				}
+				if (fraction) {
+					fractionDigits += count;
+				} else {
+					integerDigits += count;
+				}
+			} else {
+				throw new IllegalArgumentException("Unexpected character '" + c + "' in picture '" + picture + "'!");
+			}
+		}
+		return new Picture(integerDigits + fractionDigits, fractionDigits, signed);
+		
+	}
+	
+	public int getDigits() {
+		return digits;
+	}
+	
+	/**
+	 * Digits after the implied decimal point
+	 */
+	public int getScale() {
+		return scale;
+	}
+	
+	public boolean isSigned() {
+		return signed;
+	}
+
+	@Override
+	public String toString() {
+		return "Picture [digits=" + digits + ", scale=" + scale + ", signed=" + signed + "]";
+	}
+	
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.format;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+
+
+/**
+ * Zoned decimal (COBOL DISPLAY numeric): one digit per character. 
+ * Signed pictures overpunch the sign in the last digit ('{' and 'A' to 'I' for positive, 
+ * '}' and 'J' to 'R' for negative), which is the ASCII form and, encoded in EBCDIC, gives the C and D zones.
+ * 
+ * The column format is the picture (e.g. "S9(7)V99"). Without format, the number is signed, 
+ * has no fraction and has as many digits as the column width.
+ */
+public class ZonedDecimalFormatter extends AbstractPictureFormatter {
+
+	private static final char[] POSITIVE_OVERPUNCH = "{ABCDEFGHI".toCharArray();
+	private static final char[] NEGATIVE_OVERPUNCH = "}JKLMNOPQR".toCharArray();
+	
+	@Override
+	protected String format(char[] digits, boolean negative, Picture picture) {
+		
+		if (picture.isSigned()) {
+			int last = digits.length - 1;
+			int digit = digits[last] - '0';
+			digits[last] = negative ? NEGATIVE_OVERPUNCH[digit] : POSITIVE_OVERPUNCH[digit];
+		}
+		return new String(digits);
+		
+	}
+	
+	@Override
+	protected Picture getDefaultPicture(ColumnDefinition columnDefinition) {
+		return new Picture(columnDefinition.getWidth(), 0, true);
+	}
+	
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.layout;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.format.ColumnFormatter;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.source.IndexedValueSource;
+import br.com.starcode.tex.source.ValueSource;
+
+
+/**
+ * A single column of a {@link LayoutPlan}, with everything needed to calculate its value already resolved.
+ */
+public class ColumnSlot {
+
+	/**
+	 * How the slot obtains its value
+	 */
+	public enum Kind {
+		
+		/** Value comes from the row value source passed to export */
+		ROW,
+		
+		/** Value is the same for every row and was formatted when the plan was built */
+		CONSTANT,
+		
+		/** Value is given by each appender (number of the current row) */
+		COUNTER,
+		
+		/** Value comes from a registered value source */
+		SOURCE
+		
+	}
+	
+	private int index;
+	private Kind kind;
+	private ColumnDefinition definition;
+	private DataFormatter formatter;
+	private ColumnFormatter columnFormatter;
+	private ValueSource valueSource;
+	private int sourceSlot;
+	private Object constantValue;
+	private String constantFormattedValue;
+	
+	public ColumnSlot(int index, Kind kind, ColumnDefinition definition, DataFormatter formatter, ColumnFormatter columnFormatter, ValueSource valueSource, Object constantValue, String constantFormattedValue) {
+		this.index = index;
+		this.kind = kind;
+		this.definition = definition;
+		this.formatter = formatter;
+		this.columnFormatter = columnFormatter;
+		this.valueSource = valueSource;
+		this.sourceSlot = kind == Kind.SOURCE && valueSource instanceof IndexedValueSource ? 
+				((IndexedValueSource) valueSource).resolveSlot(definition.getValue()) : -1;
+		this.constantValue = constantValue;
+		this.constantFormattedValue = constantFormattedValue;
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+	
+	public Kind getKind() {
+		return kind;
+	}
+	
+	public ColumnDefinition getDefinition() {
+		return definition;
+	}
+	
+	public DataFormatter getFormatter() {
+		return formatter;
+	}
+	
+	/**
+	 * Formatter already bound to the column definition
+	 */
+	public ColumnFormatter getColumnFormatter() {
+		return columnFormatter;
+	}
+	
+	/**
+	 * Value source bound to this slot, null for {@link Kind#ROW} slots
+	 */
+	public ValueSource getValueSource() {
+		return valueSource;
+	}
+	
+	/**
+	 * Slot of the value in an {@link IndexedValueSource} bound to this slot, otherwise -1
+	 */
+	public int getSourceSlot() {
+		return sourceSlot;
+	}
+	
+	public Object getConstantValue() {
+		return constantValue;
+	}
+	
+	public String getConstantFormattedValue() {
+		return constantFormattedValue;
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnSlot [index=" + index + ", kind=" + kind + ", definition=" + definition + "]";
+	}
+	
+}
@@ -1,70 +1,70 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.layout;
-
-import java.util.List;
-
-import br.com.starcode.tex.column.ColumnDefinition;
-import br.com.starcode.tex.structure.RowStructure;
-
-
-public class LayoutImpl implements Layout {
-
-	private String id;
-	private String label;
-	private RowStructure rowStructure;
-	private List<ColumnDefinition> columnDefinitionList;
-	private int layoutWidth;
-	
-	public LayoutImpl(String id, String label, int layoutWidth, RowStructure rowStructure, List<ColumnDefinition> columnDefinitionList) {
-		this.id = id;
-		this.label = label;
-		this.layoutWidth = layoutWidth;
-		this.rowStructure = rowStructure;
-		this.columnDefinitionList = columnDefinitionList;
-	}
-	
-	public String getId() {
-		return id;
-	}
-	
-	public int getLayoutWidth() {
-		return layoutWidth;
-	}
-	
-	public String getLabel() {
-		return label;
-	}
-	
-	public List<ColumnDefinition> getColumnDefinitionList() {
-		return columnDefinitionList;
-	}
-	
-	public RowStructure getRowStructure() {
-		return rowStructure;
-	}
-	
-	public String toString() {
-		return label;
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.layout;
+
+import java.util.List;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+public class LayoutImpl implements Layout {
+
+	private String id;
+	private String label;
+	private RowStructure rowStructure;
+	private List<ColumnDefinition> columnDefinitionList;
+	private int layoutWidth;
+	
+	public LayoutImpl(String id, String label, int layoutWidth, RowStructure rowStructure, List<ColumnDefinition> columnDefinitionList) {
+		this.id = id;
+		this.label = label;
+		this.layoutWidth = layoutWidth;
+		this.rowStructure = rowStructure;
+		this.columnDefinitionList = columnDefinitionList;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public int getLayoutWidth() {
+		return layoutWidth;
+	}
+	
+	public String getLabel() {
+		return label;
+	}
+	
+	public List<ColumnDefinition> getColumnDefinitionList() {
+		return columnDefinitionList;
+	}
+	
+	public RowStructure getRowStructure() {
+		return rowStructure;
+	}
+	
+	public String toString() {
+		return label;
+	}
+	
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.layout;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.source.IndexedValueSource;
+
+/**
+ * Compiled form of a {@link Layout}: an immutable sequence of column slots with value sources and formatters already bound,
+ * so exporting a row only needs to walk the slots.
+ */
+public class LayoutPlan {
+
+	private Layout layout;
+	private ColumnSlot[] slots;
+	private boolean hasCounters;
+	private RowDataSet reusableRowDataSet;
+	private RowDataSet[] reusableBlock;
+	private volatile SourceBinding rowSourceBinding;
+	
+	public LayoutPlan(Layout layout, ColumnSlot[] slots) {
+		this.layout = layout;
+		this.slots = slots;
+		for (int i = 0; i < slots.length; i++) {
+			if (slots[i].getKind() == ColumnSlot.Kind.COUNTER) {
+				hasCounters = true;
+			}
+		}
+	}
+	
+	public Layout getLayout() {
+		return layout;
+	}
+	
+	public ColumnSlot[] getSlots() {
+		return slots;
+	}
+	
+	public int getSlotCount() {
+		return slots.length;
+	}
+	
+	public boolean hasCounters() {
+		return hasCounters;
+	}
+	
+	/**
+	 * Data set owned by this layout that is cleared and filled again for every row, or null if each row gets a new one
+	 */
+	public RowDataSet getReusableRowDataSet() {
+		return reusableRowDataSet;
+	}
+	
+	public void setReusableRowDataSet(RowDataSet reusableRowDataSet) {
+		this.reusableRowDataSet = reusableRowDataSet;
+	}
+	
+	/**
+	 * Data sets owned by this layout for exporting rows in blocks (created as needed and cleared for every block), 
+	 * or null if each row gets a new one
+	 */
+	public RowDataSet[] getReusableBlock() {
+		return reusableBlock;
+	}
+	
+	public void setReusableBlock(RowDataSet[] reusableBlock) {
+		this.reusableBlock = reusableBlock;
+	}
+
+	/**
+	 * If a column of the layout is the param, formatted when the plan was built
+	 */
+	public boolean usesParam(String name) {
+		
+		for (int i = 0; i < slots.length; i++) {
+			ColumnDefinition definition = slots[i].getDefinition();
+			if ("param".equals(definition.getSource()) && name.equals(definition.getValue())) {
+				return true;
+			}
+		}
+		return false;
+		
+	}
+	
+	/**
+	 * Slots of the row value source for each {@link ColumnSlot.Kind#ROW} column (-1 for other columns).
+	 * They are resolved again only when a value source with another slot key is given (see {@link IndexedValueSource#getSlotKey()}).
+	 */
+	public int[] getRowSourceSlots(IndexedValueSource source) {
+		
+		SourceBinding binding = rowSourceBinding;
+		Object slotKey = source.getSlotKey();
+		if (binding == null || binding.slotKey != slotKey) {
+			int[] sourceSlots = new int[slots.length];
+			for (int i = 0; i < slots.length; i++) {
+				sourceSlots[i] = slots[i].getKind() == ColumnSlot.Kind.ROW ? source.resolveSlot(slots[i].getDefinition().getValue()) : -1;
+			}
+			binding = new SourceBinding(slotKey, sourceSlots);
+			rowSourceBinding = binding;
+		}
+		return binding.slots;
+		
+	}
+
+	@Override
+	public String toString() {
+		return "LayoutPlan [layout=" + layout + ", slots=" + slots.length + "]";
+	}
+	
+	private static class SourceBinding {
+		
+		final Object slotKey;
+		final int[] slots;
+		
+		SourceBinding(Object slotKey, int[] slots) {
+			this.slotKey = slotKey;
+			this.slots = slots;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.source;
+
+
+/**
+ * Base for indexed value sources holding objects: every slot is {@link SlotType#OBJECT} 
+ * and primitive getters unbox the value, which must be a Number.
+ */
+public abstract class AbstractIndexedValueSource implements IndexedValueSource {
+
+	@Override
+	public Object calculateValue(String columnValue) {
+		return getObject(resolveSlot(columnValue));
+	}
+	
+	/**
+	 * Slots of this instance only, unless overridden
+	 */
+	public Object getSlotKey() {
+		return this;
+	}
+	
+	public SlotType getSlotType(int slot) {
+		return SlotType.OBJECT;
+	}
+	
+	public int getInt(int slot) {
+		return ((Number) getObject(slot)).intValue();
+	}
+	
+	public long getLong(int slot) {
+		return ((Number) getObject(slot)).longValue();
+	}
+	
+	public double getDouble(int slot) {
+		return ((Number) getObject(slot)).doubleValue();
+	}
+	
+}
@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.source;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import br.com.starcode.tex.Util;
+
+/**
+ * Reads a property of java beans of a class through method handles, bound once per class and property.
+ * 
+ * The property may be a field (including private ones) or an accessor method ("get" or, for booleans, "is"),
+ * and may be a nested path like "address.city", where a null intermediate value results in null.
+ * The rest of a nested path is resolved from the runtime class of the intermediate value, not from its declared type, 
+ * so it may name properties of subclasses or of values declared as interfaces or Object.
+ * 
+ * Accessors are cached by class and shared by every {@link JavaBeanValueSource}. 
+ * Instances are immutable, except for the accessor of the rest of the path, kept for the last intermediate class.
+ */
+public class BeanAccessor {
+
+	private static final MethodType OBJECT_GETTER = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType INT_GETTER = MethodType.methodType(int.class, Object.class);
+	private static final MethodType LONG_GETTER = MethodType.methodType(long.class, Object.class);
+	private static final MethodType DOUBLE_GETTER = MethodType.methodType(double.class, Object.class);
+	
+	private static final ClassValue<ConcurrentMap<String, BeanAccessor>> accessorCache = new ClassValue<ConcurrentMap<String, BeanAccessor>>() {
+		@Override
+		protected ConcurrentMap<String, BeanAccessor> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<String, BeanAccessor>();
+		}
+	};
+	
+	private final Class<?> beanClass;
+	private final String path;
+	private final boolean useAccessorMethods;
+	private final MethodHandle getter;
+	private final MethodHandle primitiveGetter;
+	private final SlotType type;
+	
+	/**
+	 * Path after the first property, null if not nested
+	 */
+	private final String nestedPath;
+	
+	/**
+	 * Accessor of the nested path for the class of the last intermediate value
+	 */
+	private volatile BeanAccessor nestedAccessor;
+	
+	private BeanAccessor(Class<?> beanClass, String path, boolean useAccessorMethods) {
+		
+		this.beanClass = beanClass;
+		this.path = path;
+		this.useAccessorMethods = useAccessorMethods;
+		int dot = path.indexOf('.');
+		nestedPath = dot < 0 ? null : path.substring(dot + 1);
+		MethodHandle handle = findGetter(beanClass, dot < 0 ? path : path.substring(0, dot), useAccessorMethods);
+		getter = handle.asType(OBJECT_GETTER);
+		
+		//primitives are read without boxing only from the bean itself, since nested values may be null
+		Class<?> valueType = handle.type().returnType();
+		if (nestedPath == null && valueType == int.class) {
+			type = SlotType.INT;
+			primitiveGetter = handle.asType(INT_GETTER);
+		} else if (nestedPath == null && valueType == long.class) {
+			type = SlotType.LONG;
+			primitiveGetter = handle.asType(LONG_GETTER);
+		} else if (nestedPath == null && valueType == double.class) {
+			type = SlotType.DOUBLE;
+			primitiveGetter = handle.asType(DOUBLE_GETTER);
+		} else {
+			type = SlotType.OBJECT;
+			primitiveGetter = null;
+		}
+		
+	}
+	
+	/**
+	 * Returns the accessor of the property for the bean class, creating it at the first use
+	 * @param useAccessorMethods True for accessor methods, false for fields
+	 */
+	public static BeanAccessor forProperty(Class<?> beanClass, String path, boolean useAccessorMethods) {
+		
+		ConcurrentMap<String, BeanAccessor> classAccessors = accessorCache.get(beanClass);
+		String key = useAccessorMethods ? path : "#" + path;
+		BeanAccessor accessor = classAccessors.get(key);
+		if (accessor == null) {
+			accessor = new BeanAccessor(beanClass, path, useAccessorMethods);
+			BeanAccessor existing = classAccessors.putIfAbsent(key, accessor);
+			if (existing != null) {
+				accessor = existing;
+			}
+		}
+		return accessor;
+		
+	}
+	
+	public String getPath() {
+		return path;
+	}
+	
+	/**
+	 * Type of the value; primitive types are only reported for properties of the bean itself (not nested)
+	 */
+	public SlotType getType() {
+		return type;
+	}
+	
+	public Object get(Object bean) {
+		
+		Object value;
+		try {
+			value = (Object) getter.invokeExact(bean);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+		if (nestedPath == null || value == null) {
+			return value;
+		}
+		
+		//the same class usually comes row after row
+		BeanAccessor nested = nestedAccessor;
+		if (nested == null || nested.beanClass != value.getClass()) {
+			nested = forProperty(value.getClass(), nestedPath, useAccessorMethods);
+			nestedAccessor = nested;
+		}
+		return nested.get(value);
+		
+	}
+	
+	public int getInt(Object bean) {
+		
+		if (type != SlotType.INT) {
+			return ((Number) get(bean)).intValue();
+		}
+		try {
+			return (int) primitiveGetter.invokeExact(bean);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+		
+	}
+	
+	public long getLong(Object bean) {
+		
+		if (type != SlotType.LONG) {
+			return ((Number) get(bean)).longValue();
+		}
+		try {
+			return (long) primitiveGetter.invokeExact(bean);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+		
+	}
+	
+	public double getDouble(Object bean) {
+		
+		if (type != SlotType.DOUBLE) {
+			return ((Number) get(bean)).doubleValue();
+		}
+		try {
+			return (double) primitiveGetter.invokeExact(bean);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new RuntimeException(e);
+		}
+		
+	}
+	
+	private static MethodHandle findGetter(Class<?> type, String property, boolean useAccessorMethods) {
+		
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			
+			if (useAccessorMethods) {
+				
+				String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+				Method method = Util.findMethod(type, "get" + capitalized);
+				if (method == null) {
+					method = Util.findMethod(type, "is" + capitalized);
+					if (method != null && method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) {
+						method = null;
+					}
+				}
+				if (method == null) {
+					throw new RuntimeException("Java Bean does not have a method called 'get" + capitalized + "()'!");
+				}
+				//non-public methods and public methods of non-public classes
+				method.setAccessible(true);
+				return lookup.unreflect(method);
+				
+			} else {
+				
+				Field field = Util.findField(type, property);
+				if (field == null) {
+					throw new RuntimeException("Java Bean does not have a field called '" + property + "'!");
+				}
+				field.setAccessible(true);
+				return lookup.unreflectGetter(field);
+				
+			}
+			
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "BeanAccessor [path=" + path + ", type=" + type + "]";
+	}
+	
+}
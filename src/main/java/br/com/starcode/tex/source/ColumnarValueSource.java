@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.source;
+
+import java.lang.reflect.Array;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Returns values of many rows given by column: each column name is a key of the map, whose value is an array 
+ * (of objects or primitives) or a list with the value of every row. All columns must have the same number of rows.
+ * The current row is chosen by {@link #setRow(int)}, so one instance serves the whole batch (see {@link #rows()}).
+ * Values of int[], long[] and double[] columns are read without boxing; missing columns return null, like {@link MapValueSource}.
+ * 
+ * Slots are resolved for every column up front and never change, so copies (see {@link #copy()}) 
+ * can read different rows of the same columns in other threads.
+ */
+public class ColumnarValueSource implements IndexedValueSource {
+
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	protected Map<String, ?> columns;
+	protected int rowCount;
+	protected int row;
+	
+	//slots, the last one for missing columns
+	protected Map<String, Integer> slotIndex;
+	protected Object[] slotColumns;
+	protected SlotType[] slotTypes;
+	
+	public ColumnarValueSource(Map<String, ?> columns) {
+		
+		if (columns == null) {
+			throw new IllegalArgumentException("Columns cannot be null!");
+		}
+		this.columns = columns;
+		this.rowCount = -1;
+		this.slotIndex = new HashMap<String, Integer>(columns.size() * 2);
+		this.slotColumns = new Object[columns.size() + 1];
+		this.slotTypes = new SlotType[columns.size() + 1];
+		for (Map.Entry<String, ?> entry : columns.entrySet()) {
+			
+			Object column = entry.getValue();
+			int length = length(entry.getKey(), column);
+			if (rowCount < 0) {
+				rowCount = length;
+			} else if (length != rowCount) {
+				throw new IllegalArgumentException("Column '" + entry.getKey() + "' has " + length + " rows, but others have " + rowCount + "!");
+			}
+			
+			int slot = slotIndex.size();
+			slotIndex.put(entry.getKey(), slot);
+			slotColumns[slot] = column;
+			if (column instanceof int[]) {
+				slotTypes[slot] = SlotType.INT;
+			} else if (column instanceof long[]) {
+				slotTypes[slot] = SlotType.LONG;
+			} else if (column instanceof double[]) {
+				slotTypes[slot] = SlotType.DOUBLE;
+			} else {
+				slotTypes[slot] = SlotType.OBJECT;
+			}
+			
+		}
+		slotTypes[slotIndex.size()] = SlotType.OBJECT;
+		if (rowCount < 0) {
+			rowCount = 0;
+		}
+		logger.debug(getClass().getSimpleName() + " instantiated with " + columns.size() + " columns and " + rowCount + " rows");
+		
+	}
+	
+	protected ColumnarValueSource(ColumnarValueSource source) {
+		
+		this.columns = source.columns;
+		this.rowCount = source.rowCount;
+		this.slotIndex = source.slotIndex;
+		this.slotColumns = source.slotColumns;
+		this.slotTypes = source.slotTypes;
+		
+	}
+	
+	private static int length(String name, Object column) {
+		
+		if (column instanceof List) {
+			return ((List<?>) column).size();
+		} else if (column != null && column.getClass().isArray()) {
+			return Array.getLength(column);
+		}
+		throw new IllegalArgumentException("Column '" + name + "' must be an array or a list!");
+		
+	}
+	
+	public int getRowCount() {
+		return rowCount;
+	}
+	
+	public int getRow() {
+		return row;
+	}
+	
+	/**
+	 * Moves to another row
+	 * @param row Index of the row, from zero
+	 */
+	public void setRow(int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IllegalArgumentException("Row " + row + " out of range (0 to " + (rowCount - 1) + ")!");
+		}
+		this.row = row;
+	}
+	
+	/**
+	 * Returns a new instance over the same columns, with its own current row (the first one)
+	 */
+	public ColumnarValueSource copy() {
+		return new ColumnarValueSource(this);
+	}
+	
+	/**
+	 * Iterates over the rows, returning this same instance positioned at each row
+	 */
+	public Iterable<ColumnarValueSource> rows() {
+		
+		return new Iterable<ColumnarValueSource>() {
+			public Iterator<ColumnarValueSource> iterator() {
+				return new Iterator<ColumnarValueSource>() {
+					
+					int next = 0;
+					
+					public boolean hasNext() {
+						return next < rowCount;
+					}
+					
+					public ColumnarValueSource next() {
+						if (next >= rowCount) {
+							throw new NoSuchElementException();
+						}
+						setRow(next++);
+						return ColumnarValueSource.this;
+					}
+					
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+					
+				};
+			}
+		};
+		
+	}
+	
+	@Override
+	public Object calculateValue(String columnValue) {
+		return getObject(resolveSlot(columnValue));
+	}
+	
+	public int resolveSlot(String columnValue) {
+		
+		Integer slot = slotIndex.get(columnValue);
+		return slot == null ? slotIndex.size() : slot;
+		
+	}
+	
+	/**
+	 * Slots are shared by copies
+	 */
+	public Object getSlotKey() {
+		return slotIndex;
+	}
+	
+	public SlotType getSlotType(int slot) {
+		return slotTypes[slot];
+	}
+	
+	public Object getObject(int slot) {
+		
+		Object column = slotColumns[slot];
+		if (column instanceof Object[]) {
+			return ((Object[]) column)[row];
+		} else if (column instanceof List) {
+			return ((List<?>) column).get(row);
+		} else if (column == null) {
+			return null;
+		}
+		return Array.get(column, row);
+		
+	}
+	
+	public int getInt(int slot) {
+		
+		if (slotTypes[slot] == SlotType.INT) {
+			return ((int[]) slotColumns[slot])[row];
+		}
+		return ((Number) getObject(slot)).intValue();
+		
+	}
+	
+	public long getLong(int slot) {
+		
+		if (slotTypes[slot] == SlotType.LONG) {
+			return ((long[]) slotColumns[slot])[row];
+		}
+		return ((Number) getObject(slot)).longValue();
+		
+	}
+	
+	public double getDouble(int slot) {
+		
+		if (slotTypes[slot] == SlotType.DOUBLE) {
+			return ((double[]) slotColumns[slot])[row];
+		}
+		return ((Number) getObject(slot)).doubleValue();
+		
+	}
+
+	@Override
+	public String toString() {
+		return "ColumnarValueSource [columns=" + columns.keySet() + ", rowCount=" + rowCount + ", row=" + row + "]";
+	}
+	
+}
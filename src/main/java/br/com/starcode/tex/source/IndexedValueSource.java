@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.source;
+
+
+/**
+ * Value source whose column names are resolved to integer slots once per layout, 
+ * so each value is read by index instead of by name, and primitive values are read without boxing.
+ * 
+ * Slots stay valid while the source returns the same slot key (e.g. when its map or bean is replaced for the next row), 
+ * and are valid as well for other sources returning that key (see {@link #getSlotKey()}).
+ */
+public interface IndexedValueSource extends ValueSource {
+
+	/**
+	 * Resolves a column value (e.g. a map key or a bean property) to a slot
+	 */
+	int resolveSlot(String columnValue);
+	
+	/**
+	 * Identifies the slots of this source: sources returning the same object resolve each column value to the same slot, 
+	 * so slots resolved for one of them are reused by the others (e.g. new sources created for each row)
+	 */
+	Object getSlotKey();
+	
+	/**
+	 * Type of the current value in the slot, telling which getter avoids boxing
+	 */
+	SlotType getSlotType(int slot);
+	
+	Object getObject(int slot);
+	
+	int getInt(int slot);
+	
+	long getLong(int slot);
+	
+	double getDouble(int slot);
+	
+}
@@ -1,152 +1,180 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.source;
-
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.Util;
-
-/**
- * This class uses fields (including if they're private) or accessor methods (only if public) to get java bean values.
- * To export many beans, this instance should be reused for best performance. 
- * @param <T> Bean type
- */
-public class JavaBeanValueSource<T> implements ValueSource {
-	
-	final Logger logger = LoggerFactory.getLogger(getClass());
-	
-	protected Object javaBean;
-	protected boolean useAccessorMethods;
-	protected Map<String, Field> fieldMap;
-	protected Map<String, Method> methodMap;
-	
-	public JavaBeanValueSource(T javaBean, boolean useAccessorMethods) {
-		
-		if (javaBean == null) {
-			throw new IllegalArgumentException("Java Bean cannot be null!");
-		}
-		this.javaBean = javaBean;
-		this.useAccessorMethods = useAccessorMethods;
-
-		if (useAccessorMethods) {
-			
-			methodMap = new HashMap<String, Method>();
-			
-		} else {
-			
-			fieldMap = new HashMap<String, Field>();
-			
-		}
-		logger.debug(getClass().getSimpleName() + " instantiated for bean of type " + javaBean.getClass().getSimpleName() + ", useAccessorMethods = " + useAccessorMethods);
-		
-	}
-	
-	@Override
-	public Object calculateValue(String columnValue) {
-		
-		if (useAccessorMethods) {
-			
-			String accessorName = "get" + columnValue.substring(0, 1).toUpperCase() + columnValue.substring(1);
-			Method method = findMethod(accessorName);
-			if (method == null) {
-				throw new RuntimeException("Java Bean does not have a method called '" + accessorName + "()'!");
-			}
-			try {
-				logger.trace("Invoking accessor method...");
-				return method.invoke(javaBean, (Object[]) null);
-			} catch (IllegalAccessException e) {
-				throw new RuntimeException(e);
-			} catch (IllegalArgumentException e) {
-				throw new RuntimeException(e);
-			} catch (InvocationTargetException e) {
-				throw new RuntimeException(e.getTargetException());
-			}
-			
-		} else {
-			
-			Field field = findField(columnValue);
-			if (field == null) {
-				throw new RuntimeException("Java Bean does not have a field called '" + columnValue + "'!");
-			}
-			try {
-				logger.trace("Reading field value...");
-				return field.get(javaBean);
-			} catch (IllegalArgumentException e) {
-				throw new RuntimeException(e);
-			} catch (IllegalAccessException e) {
-				throw new RuntimeException(e);
-			}
-			
-		}
-		
-	}
-	
-	protected Field findField(String fieldName) {
-		
-		Field field = fieldMap.get(fieldName);
-		if (field == null) {
-			
-			field = Util.findField(javaBean, fieldName);
-			fieldMap.put(field.getName(), field);
-			
-		}
-		return field;
-		
-	}
-	
-	protected Method findMethod(String methodName) {
-		
-		Method method = methodMap.get(methodName);
-		if (method == null) {
-			
-			method = Util.findMethod(javaBean, methodName);
-			methodMap.put(method.getName(), method);
-			
-		}
-		return method;
-		
-	}
-	
-	/**
-	 * You can use this method to avoid creating a new object every time
-	 * @param javaBean New instance to get values
-	 */
-	public void setJavaBean(T javaBean) {
-		logger.trace("Updating java bean");
-		this.javaBean = javaBean;
-	}
-
-	@Override
-	public String toString() {
-		return "JavaBeanValueSource [javaBean=" + javaBean + ", useAccessorMethods=" 
-				+ useAccessorMethods + ", fieldMap=" + fieldMap
-				+ ", methodMap=" + methodMap + "]";
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.source;
+
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class uses fields (including if they're private) or accessor methods to get java bean values.
+ * Properties may be nested, like "address.city", and accessor methods may be "is" getters of booleans.
+ * To export many beans, this instance should be reused for best performance. 
+ * 
+ * Fields and methods are read through {@link BeanAccessor}s, which are bound once per class and property and
+ * shared by all instances.
+ * As an {@link IndexedValueSource}, each property resolves to a slot shared by all instances, 
+ * and int, long and double properties are read without boxing. Primitive getters unbox other values, which must be numbers.
+ * The accessor of each slot is kept per class, so beans of another class can be set and new instances don't resolve properties again.
+ * @param <T> Bean type
+ */
+public class JavaBeanValueSource<T> implements IndexedValueSource {
+	
+	//properties resolved to slots, shared by all instances
+	private static final SlotTable propertySlots = new SlotTable();
+	
+	//accessors of the slots by class, for fields and for accessor methods
+	private static final ClassValue<ClassAccessors[]> classAccessors = new ClassValue<ClassAccessors[]>() {
+		@Override
+		protected ClassAccessors[] computeValue(Class<?> type) {
+			return new ClassAccessors[] { new ClassAccessors(type, false), new ClassAccessors(type, true) };
+		}
+	};
+	
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	protected Object javaBean;
+	protected boolean useAccessorMethods;
+	
+	//accessors of the class of the current bean
+	protected ClassAccessors slotAccessors;
+	
+	public JavaBeanValueSource(T javaBean, boolean useAccessorMethods) {
+		
+		if (javaBean == null) {
+			throw new IllegalArgumentException("Java Bean cannot be null!");
+		}
+		this.javaBean = javaBean;
+		this.useAccessorMethods = useAccessorMethods;
+		logger.debug(getClass().getSimpleName() + " instantiated for bean of type " + javaBean.getClass().getSimpleName() + ", useAccessorMethods = " + useAccessorMethods);
+		
+	}
+	
+	@Override
+	public Object calculateValue(String columnValue) {
+		
+		if (logger.isTraceEnabled()) {
+			logger.trace("Reading property " + columnValue + "...");
+		}
+		return BeanAccessor.forProperty(javaBean.getClass(), columnValue, useAccessorMethods).get(javaBean);
+		
+	}
+	
+	public int resolveSlot(String columnValue) {
+		
+		int slot = propertySlots.resolve(columnValue);
+		//validates the property right away
+		getAccessor(slot);
+		return slot;
+		
+	}
+	
+	public Object getSlotKey() {
+		return propertySlots;
+	}
+	
+	public SlotType getSlotType(int slot) {
+		return getAccessor(slot).getType();
+	}
+	
+	public Object getObject(int slot) {
+		return getAccessor(slot).get(javaBean);
+	}
+	
+	public int getInt(int slot) {
+		return getAccessor(slot).getInt(javaBean);
+	}
+	
+	public long getLong(int slot) {
+		return getAccessor(slot).getLong(javaBean);
+	}
+	
+	public double getDouble(int slot) {
+		return getAccessor(slot).getDouble(javaBean);
+	}
+	
+	/**
+	 * Returns the accessor of the slot for the class of the current bean
+	 */
+	protected BeanAccessor getAccessor(int slot) {
+		
+		ClassAccessors accessors = slotAccessors;
+		if (accessors == null || accessors.beanClass != javaBean.getClass()) {
+			accessors = classAccessors.get(javaBean.getClass())[useAccessorMethods ? 1 : 0];
+			slotAccessors = accessors;
+		}
+		return accessors.get(slot);
+		
+	}
+	
+	/**
+	 * You can use this method to avoid creating a new object every time
+	 * @param javaBean New instance to get values
+	 */
+	public void setJavaBean(T javaBean) {
+		logger.trace("Updating java bean");
+		this.javaBean = javaBean;
+	}
+
+	@Override
+	public String toString() {
+		return "JavaBeanValueSource [javaBean=" + javaBean + ", useAccessorMethods=" 
+				+ useAccessorMethods + "]";
+	}
+	
+	/**
+	 * Accessors of the slots for a class, found at the first use of each slot. 
+	 * They are added under a lock and read without one.
+	 */
+	protected static class ClassAccessors {
+		
+		final Class<?> beanClass;
+		final boolean useAccessorMethods;
+		volatile BeanAccessor[] accessors = new BeanAccessor[0];
+		
+		ClassAccessors(Class<?> beanClass, boolean useAccessorMethods) {
+			this.beanClass = beanClass;
+			this.useAccessorMethods = useAccessorMethods;
+		}
+		
+		BeanAccessor get(int slot) {
+			
+			BeanAccessor[] current = accessors;
+			BeanAccessor accessor = slot < current.length ? current[slot] : null;
+			return accessor != null ? accessor : resolve(slot);
+			
+		}
+		
+		synchronized BeanAccessor resolve(int slot) {
+			
+			BeanAccessor accessor = BeanAccessor.forProperty(beanClass, propertySlots.getName(slot), useAccessorMethods);
+			BeanAccessor[] resolved = Arrays.copyOf(accessors, Math.max(accessors.length, propertySlots.size()));
+			resolved[slot] = accessor;
+			accessors = resolved;
+			return accessor;
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.source;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Names (e.g. map keys or bean properties) resolved to slots through a hash map, shared by value sources 
+ * whose slots must match (see {@link IndexedValueSource#getSlotKey()}). The slot of a name never changes. 
+ * Names are added under a lock and read without one, so a table can be shared by many threads.
+ */
+public class SlotTable {
+
+	private final Map<String, Integer> slots = new HashMap<String, Integer>();
+	private volatile String[] names = new String[0];
+	
+	/**
+	 * Returns the slot of the name, adding it at the end if it is new
+	 */
+	public synchronized int resolve(String name) {
+		
+		Integer slot = slots.get(name);
+		if (slot == null) {
+			slot = names.length;
+			String[] newNames = Arrays.copyOf(names, slot + 1);
+			newNames[slot] = name;
+			slots.put(name, slot);
+			names = newNames;
+		}
+		return slot;
+		
+	}
+	
+	public String getName(int slot) {
+		return names[slot];
+	}
+	
+	public int size() {
+		return names.length;
+	}
+	
+	@Override
+	public String toString() {
+		return "SlotTable [names=" + Arrays.toString(names) + "]";
+	}
+	
+}
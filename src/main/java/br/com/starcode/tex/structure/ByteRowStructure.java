@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.structure;
+
+import br.com.starcode.tex.SingleByteEncoder;
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.column.RowDataSet;
+
+
+/**
+ * Row structure that can write rows directly as bytes of a single byte charset, 
+ * skipping the conversion of a text line by a charset encoder
+ */
+public interface ByteRowStructure extends RowStructure {
+
+	/**
+	 * Maximum number of bytes {@link #writeLine(RowDataSet, Appender, byte[], int, SingleByteEncoder)} will write for the row
+	 */
+	int getLineLength(RowDataSet rowDataSet);
+	
+	/**
+	 * Writes the encoded row into the output
+	 * @return Position after the last byte written
+	 */
+	int writeLine(RowDataSet rowDataSet, Appender appender, byte[] output, int offset, SingleByteEncoder encoder);
+	
+}
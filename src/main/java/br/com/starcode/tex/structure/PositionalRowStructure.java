@@ -1,75 +1,200 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.structure;
-
-import java.util.List;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.Util;
-import br.com.starcode.tex.appender.Appender;
-import br.com.starcode.tex.column.Column;
-import br.com.starcode.tex.column.RowDataSet;
-
-
-/**
- * Print values in the specified position (in characters) 
- */
-public class PositionalRowStructure implements RowStructure {
-
-	final Logger logger = LoggerFactory.getLogger(getClass());
-	
-	public PositionalRowStructure() {
-		logger.debug("Instantiated: " + getClass().getSimpleName());
-	}
-	
-	public String createLine(RowDataSet rowDataSet, Appender appender) {
-		
-		logger.trace("Formatting positional row");
-		
-		int rowWidth = rowDataSet.getLayout().getLayoutWidth();
-		StringBuffer sb = new StringBuffer(rowWidth);
-		
-		List<Column> columnList = rowDataSet.getDataSet();
-		for (int i = 0; i < columnList.size(); i++) {
-			
-			Column column = columnList.get(i);
-			String formattedData = column.getFormattedData();
-			int startPosition = column.getDefinition().getPosition();
-			int width = column.getDefinition().getWidth();
-			int endPosition = startPosition + width;
-			
-			if (formattedData.length() > width) {
-				throw new RuntimeException("Value of column " + (i + 1) + " ('" + formattedData + "') bigger than column width (" + width + ")! Check this value or layout '" + rowDataSet.getLayout().getLabel() + "'.");
-			}
-			
-			String content = Util.alignContent(formattedData, column.getDefinition());
-			logger.trace("Column " + (i + 1) + " has value: '" + content + "'");
-			sb.replace(startPosition, endPosition, content);
-			
-		}
-		return sb.toString();
-		
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.structure;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.SingleByteEncoder;
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.layout.Layout;
+
+
+/**
+ * Print values in the specified position (in characters).
+ * Rows are rendered from a {@link PositionalRowTemplate} of each layout, created with the first row.
+ */
+public class PositionalRowStructure implements ByteRowStructure {
+
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	private Map<Layout, PositionalRowTemplate> templateMap;
+	private volatile PositionalRowTemplate lastTemplate;
+	private ThreadLocal<char[]> rowBuffer;
+	
+	public PositionalRowStructure() {
+		templateMap = new ConcurrentHashMap<Layout, PositionalRowTemplate>();
+		rowBuffer = new ThreadLocal<char[]>();
+		logger.debug("Instantiated: " + getClass().getSimpleName());
+	}
+	
+	public String createLine(RowDataSet rowDataSet, Appender appender) {
+		
+		logger.trace("Formatting positional row");
+		
+		PositionalRowTemplate template = getTemplate(rowDataSet);
+		if (template == null) {
+			return replaceColumns(rowDataSet);
+		}
+		char[] row = getRowBuffer(template.getLength());
+		template.render(rowDataSet, row, 0);
+		return new String(row, 0, template.getLength());
+		
+	}
+	
+	public void writeLine(RowDataSet rowDataSet, Appender appender, Appendable output) throws IOException {
+		
+		logger.trace("Writing positional row");
+		
+		PositionalRowTemplate template = getTemplate(rowDataSet);
+		if (template == null) {
+			output.append(replaceColumns(rowDataSet));
+			return;
+		}
+		char[] row = getRowBuffer(template.getLength());
+		template.render(rowDataSet, row, 0);
+		Util.write(output, row, 0, template.getLength());
+		
+	}
+	
+	public int getLineLength(RowDataSet rowDataSet) {
+		
+		int length = rowDataSet.getLayout().getLayoutWidth();
+		List<Column> columnList = rowDataSet.getDataSet();
+		for (int i = 0; i < columnList.size(); i++) {
+			
+			ColumnDefinition definition = columnList.get(i).getDefinition();
+			length = Math.max(length, definition.getPosition() + definition.getWidth());
+			
+		}
+		return length;
+		
+	}
+	
+	public int writeLine(RowDataSet rowDataSet, Appender appender, byte[] output, int offset, SingleByteEncoder encoder) {
+		
+		logger.trace("Encoding positional row");
+		
+		PositionalRowTemplate template = getTemplate(rowDataSet);
+		if (template == null) {
+			String line = replaceColumns(rowDataSet);
+			return encoder.encode(line, 0, line.length(), output, offset);
+		}
+		return template.render(rowDataSet, output, offset, encoder);
+		
+	}
+	
+	/**
+	 * Template of the layout of the data set, or null if its columns are not in ascending position order
+	 */
+	protected PositionalRowTemplate getTemplate(RowDataSet rowDataSet) {
+		
+		Layout layout = rowDataSet.getLayout();
+		PositionalRowTemplate template = lastTemplate;
+		if (template != null && template.getLayout() == layout) {
+			return template;
+		}
+		
+		template = templateMap.get(layout);
+		if (template == null) {
+			
+			if (!isSequential(rowDataSet.getDataSet())) {
+				return null;
+			}
+			template = new PositionalRowTemplate(rowDataSet);
+			templateMap.put(layout, template);
+			logger.debug("Created " + template);
+			
+		}
+		lastTemplate = template;
+		return template;
+		
+	}
+	
+	protected char[] getRowBuffer(int length) {
+		
+		char[] row = rowBuffer.get();
+		if (row == null || row.length < length) {
+			row = new char[length];
+			rowBuffer.set(row);
+		}
+		return row;
+		
+	}
+	
+	/**
+	 * Replaces each column in its position, for layouts whose columns are not in ascending position order 
+	 */
+	protected String replaceColumns(RowDataSet rowDataSet) {
+		
+		int rowWidth = rowDataSet.getLayout().getLayoutWidth();
+		StringBuffer sb = new StringBuffer(rowWidth);
+		
+		List<Column> columnList = rowDataSet.getDataSet();
+		for (int i = 0; i < columnList.size(); i++) {
+			
+			Column column = columnList.get(i);
+			Util.checkCharacterColumn(rowDataSet, i, column);
+			String formattedData = column.getFormattedData();
+			if (formattedData == null) {
+				formattedData = "";
+			}
+			int startPosition = column.getDefinition().getPosition();
+			int width = column.getDefinition().getWidth();
+			int endPosition = startPosition + width;
+			
+			if (formattedData.length() > width) {
+				throw new RuntimeException("Value of column " + (i + 1) + " ('" + formattedData + "') bigger than column width (" + width + ")! Check this value or layout '" + rowDataSet.getLayout().getLabel() + "'.");
+			}
+			
+			String content = Util.alignContent(formattedData, column.getDefinition());
+			if (logger.isTraceEnabled()) {
+				logger.trace("Column " + (i + 1) + " has value: '" + content + "'");
+			}
+			sb.replace(startPosition, endPosition, content);
+			
+		}
+		return sb.toString();
+		
+	}
+	
+	protected boolean isSequential(List<Column> columnList) {
+		
+		for (int i = 1; i < columnList.size(); i++) {
+			if (columnList.get(i).getDefinition().getPosition() < columnList.get(i - 1).getDefinition().getPosition()) {
+				return false;
+			}
+		}
+		return true;
+		
+	}
+	
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.structure;
+
+import java.util.Arrays;
+import java.util.List;
+
+import br.com.starcode.tex.SingleByteEncoder;
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.column.Alignment;
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.format.BinaryFormatter;
+import br.com.starcode.tex.layout.Layout;
+
+
+/**
+ * Preformatted line of a positional layout. 
+ * Column offsets never change and constant columns (fixed and param) have the same value in every row, 
+ * so they are written once in the template. Each row is a copy of the template plus the variable columns padded in place.
+ * Instances are immutable after creation, except by the lazily encoded byte template.
+ * 
+ * In the byte template and rows, columns of a {@link BinaryFormatter} are copied without encoding.
+ */
+public class PositionalRowTemplate {
+
+	private Layout layout;
+	private char[] chars;
+	private int[] variableColumns;
+	private int[] startPositions;
+	private int[] visibleWidths;
+	private boolean[] binaryColumns;
+	private String[] binaryConstants;
+	private int binaryColumnIndex = -1;
+	private ColumnDefinition[] definitions;
+	private volatile EncodedTemplate encodedTemplate;
+	
+	/**
+	 * Creates the template of the layout of the data set, whose columns must be in ascending position order. 
+	 * Constant columns are taken from this data set.
+	 */
+	public PositionalRowTemplate(RowDataSet rowDataSet) {
+		
+		this.layout = rowDataSet.getLayout();
+		List<Column> columnList = rowDataSet.getDataSet();
+		int size = columnList.size();
+		
+		startPositions = new int[size];
+		visibleWidths = new int[size];
+		binaryColumns = new boolean[size];
+		binaryConstants = new String[size];
+		definitions = new ColumnDefinition[size];
+		int length = 0;
+		int variableCount = 0;
+		for (int i = 0; i < size; i++) {
+			
+			ColumnDefinition definition = columnList.get(i).getDefinition();
+			int startPosition = definition.getPosition();
+			int endPosition = startPosition + definition.getWidth();
+			length = endPosition;
+			
+			//when a column is wider than the space until the next one, the next column overwrites its last characters
+			if (i < size - 1) {
+				endPosition = Math.min(endPosition, columnList.get(i + 1).getDefinition().getPosition());
+			}
+			startPositions[i] = startPosition;
+			visibleWidths[i] = endPosition - startPosition;
+			binaryColumns[i] = columnList.get(i).getFormatter() instanceof BinaryFormatter;
+			if (binaryColumns[i] && binaryColumnIndex < 0) {
+				binaryColumnIndex = i;
+			}
+			definitions[i] = definition;
+			if (!definition.isConstant()) {
+				variableCount++;
+			}
+			
+		}
+		
+		//space not covered by any column
+		chars = new char[length];
+		Arrays.fill(chars, ' ');
+		
+		variableColumns = new int[variableCount];
+		variableCount = 0;
+		for (int i = 0; i < size; i++) {
+			
+			Column column = columnList.get(i);
+			if (column.getDefinition().isConstant()) {
+				writeColumn(rowDataSet, i, column, chars, startPositions[i]);
+				if (binaryColumns[i]) {
+					binaryConstants[i] = getFormattedData(rowDataSet, i, column);
+				}
+			} else {
+				variableColumns[variableCount++] = i;
+			}
+			
+		}
+		
+	}
+	
+	public Layout getLayout() {
+		return layout;
+	}
+	
+	public int getLength() {
+		return chars.length;
+	}
+	
+	/**
+	 * Writes the row into the destination, which must have at least {@link #getLength()} characters after offset.
+	 * Layouts with binary columns are rejected, since characters do not keep their bytes.
+	 */
+	public void render(RowDataSet rowDataSet, char[] destination, int offset) {
+		
+		if (binaryColumnIndex >= 0) {
+			Util.checkCharacterColumn(rowDataSet, binaryColumnIndex, rowDataSet.getDataSet().get(binaryColumnIndex));
+		}
+		System.arraycopy(chars, 0, destination, offset, chars.length);
+		List<Column> columnList = rowDataSet.getDataSet();
+		for (int i = 0; i < variableColumns.length; i++) {
+			
+			int index = variableColumns[i];
+			writeColumn(rowDataSet, index, columnList.get(index), destination, offset + startPositions[index]);
+			
+		}
+		
+	}
+	
+	/**
+	 * Writes the row encoded into the destination, which must have at least {@link #getLength()} bytes after offset
+	 * @return Position after the last byte written
+	 */
+	public int render(RowDataSet rowDataSet, byte[] destination, int offset, SingleByteEncoder encoder) {
+		
+		EncodedTemplate encoded = encodedTemplate;
+		if (encoded == null || encoded.encoder != encoder) {
+			encoded = new EncodedTemplate(encoder, encodeTemplate(encoder));
+			encodedTemplate = encoded;
+		}
+		
+		System.arraycopy(encoded.bytes, 0, destination, offset, encoded.bytes.length);
+		List<Column> columnList = rowDataSet.getDataSet();
+		for (int i = 0; i < variableColumns.length; i++) {
+			
+			int index = variableColumns[i];
+			encodeColumn(getFormattedData(rowDataSet, index, columnList.get(index)), index, encoder, destination, offset);
+			
+		}
+		return offset + encoded.bytes.length;
+		
+	}
+	
+	/**
+	 * Encodes the template, then rewrites constant binary columns without encoding
+	 */
+	protected byte[] encodeTemplate(SingleByteEncoder encoder) {
+		
+		byte[] bytes = encoder.encode(new String(chars));
+		for (int i = 0; i < binaryConstants.length; i++) {
+			if (binaryConstants[i] != null) {
+				encodeColumn(binaryConstants[i], i, encoder, bytes, 0);
+			}
+		}
+		return bytes;
+		
+	}
+	
+	protected void encodeColumn(String formattedData, int index, SingleByteEncoder encoder, byte[] destination, int offset) {
+		
+		ColumnDefinition definition = definitions[index];
+		encoder.encodeAligned(
+				formattedData, 
+				definition.getWidth(), 
+				visibleWidths[index], 
+				definition.getFill(), 
+				definition.getAlignmentType() == Alignment.RIGHT, 
+				binaryColumns[index], 
+				destination, 
+				offset + startPositions[index]);
+		
+	}
+	
+	protected void writeColumn(RowDataSet rowDataSet, int index, Column column, char[] destination, int offset) {
+		
+		Util.writeAligned(getFormattedData(rowDataSet, index, column), column.getDefinition(), visibleWidths[index], destination, offset);
+		
+	}
+	
+	protected String getFormattedData(RowDataSet rowDataSet, int index, Column column) {
+		
+		String formattedData = column.getFormattedData();
+		if (formattedData == null) {
+			return "";
+		}
+		int width = column.getDefinition().getWidth();
+		if (formattedData.length() > width) {
+			throw new RuntimeException("Value of column " + (index + 1) + " ('" + formattedData + "') bigger than column width (" + width + ")! Check this value or layout '" + rowDataSet.getLayout().getLabel() + "'.");
+		}
+		return formattedData;
+		
+	}
+
+	@Override
+	public String toString() {
+		return "PositionalRowTemplate [layout=" + layout + ", length=" + chars.length + ", variableColumns=" + variableColumns.length + "]";
+	}
+	
+	/**
+	 * Template encoded with a single byte charset
+	 */
+	private static class EncodedTemplate {
+		
+		final SingleByteEncoder encoder;
+		final byte[] bytes;
+		
+		EncodedTemplate(SingleByteEncoder encoder, byte[] bytes) {
+			this.encoder = encoder;
+			this.bytes = bytes;
+		}
+		
+	}
+	
+}
@@ -1,86 +1,109 @@
-/**
- * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
- * 
- * Permission is hereby granted, free of charge, to any person obtaining a copy
- * of this software and associated documentation files (the "Software"), to deal
- * in the Software without restriction, including without limitation the rights
- * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
- * copies of the Software, and to permit persons to whom the Software is
- * furnished to do so, subject to the following conditions:
- * 
- * The above copyright notice and this permission notice shall be included in
- * all copies or substantial portions of the Software.
- * 
- * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
- * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
- * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
- * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
- * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
- * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
- * THE SOFTWARE.
- */
-package br.com.starcode.tex.structure;
-
-import java.util.List;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import br.com.starcode.tex.Util;
-import br.com.starcode.tex.appender.Appender;
-import br.com.starcode.tex.column.Column;
-import br.com.starcode.tex.column.RowDataSet;
-
-
-/**
- * Print values separated by some character
- */
-public class SeparatorRowStructure implements RowStructure {
-
-	final Logger logger = LoggerFactory.getLogger(getClass());
-	
-	private String separator;
-	
-	public SeparatorRowStructure(String separator) {
-
-		this.separator = separator;
-		logger.debug("Instantiated: " + getClass().getSimpleName());
-		
-	}
-	
-	public String createLine(RowDataSet rowDataSet, Appender appender) {
-		
-		logger.trace("Formatting row with separators");
-		
-		StringBuffer sb = new StringBuffer();
-		List<Column> columnList = rowDataSet.getDataSet();
-		for (int i = 0; i < columnList.size(); i++) {
-			
-			Column column = columnList.get(i);
-			
-			if (i > 0) {
-				
-				sb.append(separator);
-				
-			}
-			
-			String formattedData = column.getFormattedData();
-			int width = column.getDefinition().getWidth();
-			if (width > 0) {
-				
-				if (formattedData.length() > width) {
-					throw new RuntimeException("Value of column " + (i + 1) + " ('" + formattedData + "') is bigger than column width (" + width + ")! Check this value or layout '" + rowDataSet.getLayout().getLabel() + "'.");
-				}
-				formattedData = Util.alignContent(formattedData, column.getDefinition());
-				
-			}
-			
-			logger.trace("Column " + (i + 1) + " has value: '" + formattedData + "'");
-			sb.append(formattedData);
-			
-		}
-		return sb.toString();
-		
-	}
-	
-}
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex.structure;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.starcode.tex.Util;
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.column.Column;
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+
+
+/**
+ * Print values separated by some character
+ */
+public class SeparatorRowStructure implements RowStructure {
+
+	final Logger logger = LoggerFactory.getLogger(getClass());
+	
+	private String separator;
+	
+	public SeparatorRowStructure(String separator) {
+
+		this.separator = separator;
+		logger.debug("Instantiated: " + getClass().getSimpleName());
+		
+	}
+	
+	public String createLine(RowDataSet rowDataSet, Appender appender) {
+		
+		logger.trace("Formatting row with separators");
+		
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeLine(rowDataSet, appender, sb);
+		} catch (IOException e) {
+			//StringBuilder does not throw it
+			throw new RuntimeException(e);
+		}
+		return sb.toString();
+		
+	}
+	
+	public void writeLine(RowDataSet rowDataSet, Appender appender, Appendable output) throws IOException {
+		
+		List<Column> columnList = rowDataSet.getDataSet();
+		for (int i = 0; i < columnList.size(); i++) {
+			
+			Column column = columnList.get(i);
+			ColumnDefinition definition = column.getDefinition();
+			Util.checkCharacterColumn(rowDataSet, i, column);
+			
+			if (i > 0) {
+				
+				output.append(separator);
+				
+			}
+			
+			String formattedData = column.getFormattedData();
+			if (formattedData == null) {
+				formattedData = "";
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Column " + (i + 1) + " has value: '" + formattedData + "'");
+			}
+			
+			int width = definition.getWidth();
+			if (width > 0) {
+				
+				if (formattedData.length() > width) {
+					throw new RuntimeException("Value of column " + (i + 1) + " ('" + formattedData + "') is bigger than column width (" + width + ")! Check this value or layout '" + rowDataSet.getLayout().getLabel() + "'.");
+				}
+				Util.writeAligned(output, formattedData, definition, width);
+				
+			} else {
+				
+				Util.write(output, formattedData, 0, formattedData.length());
+				
+			}
+			
+		}
+		
+	}
+	
+}
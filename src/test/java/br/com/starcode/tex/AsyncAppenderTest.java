@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.AsyncAppender;
+import br.com.starcode.tex.appender.AsyncAppender.OverflowPolicy;
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.source.MapValueSource;
+import br.com.starcode.tex.source.ValueSource;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+public class AsyncAppenderTest {
+
+	@Test
+	public void orderAndCountersPreserved() throws IOException {
+		
+		List<ValueSource> rows = new ArrayList<ValueSource>();
+		for (int i = 0; i < 500; i++) {
+			rows.add(getRow("row " + i));
+		}
+		
+		Tex e = createTex();
+		AsyncAppender async = e.registerAsyncAppender(new StringBufferAppender(), 2);
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		e.setBlockSize(32);
+		for (int i = 0; i < 100; i++) {
+			e.exportRow("detail", rows.get(i));
+		}
+		e.exportRows("detail", rows.subList(100, 500));
+		e.close();
+		
+		Assert.assertEquals(async.count(), 500);
+		Assert.assertEquals(async.result().toString(), sb.result().toString());
+		
+	}
+	
+	@Test
+	public void delegateFailureSurfaces() throws IOException {
+		
+		Tex e = createTex();
+		e.registerAsyncAppender(new FailingAppender(3), 10);
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		RuntimeException failure = null;
+		try {
+			for (int i = 0; i < 1000; i++) {
+				e.exportRow("detail", getRow("row " + i));
+				Thread.sleep(1);
+			}
+		} catch (RuntimeException ex) {
+			failure = ex;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		Assert.assertNotNull(failure, "Failure of the writer not thrown by append");
+		Assert.assertEquals(failure.getCause().getMessage(), "Row 3 failed");
+		
+		//close still closes the other appenders, then throws the failure
+		try {
+			e.close();
+			Assert.fail("Failure of the writer not thrown by close");
+		} catch (RuntimeException ex) {
+			Assert.assertEquals(ex.getCause().getMessage(), "Row 3 failed");
+		}
+		Assert.assertTrue(sb.result().toString().contains("row 3"));
+		
+	}
+	
+	@Test
+	public void failWhenQueueIsFull() throws IOException {
+		
+		CountDownLatch release = new CountDownLatch(1);
+		BlockedAppender blocked = new BlockedAppender(release);
+		AsyncAppender async = new AsyncAppender(blocked, 1).setOverflowPolicy(OverflowPolicy.FAIL, 0);
+		Tex e = createTex();
+		e.registerAppender(async);
+		
+		//the first row keeps the writer busy, the second fills the queue
+		e.exportRow("detail", getRow("row 0"));
+		blocked.awaitStarted();
+		e.exportRow("detail", getRow("row 1"));
+		try {
+			e.exportRow("detail", getRow("row 2"));
+			Assert.fail("Full queue accepted a row");
+		} catch (RuntimeException ex) {
+			Assert.assertTrue(ex.getMessage().contains("is full"), ex.getMessage());
+		}
+		
+		release.countDown();
+		e.close();
+		Assert.assertEquals(blocked.count(), 2);
+		
+	}
+	
+	@Test
+	public void timeoutWhenQueueIsFull() throws IOException {
+		
+		CountDownLatch release = new CountDownLatch(1);
+		BlockedAppender blocked = new BlockedAppender(release);
+		AsyncAppender async = new AsyncAppender(blocked, 1).setOverflowPolicy(OverflowPolicy.TIMEOUT, 50);
+		Tex e = createTex();
+		e.registerAppender(async);
+		
+		e.exportRow("detail", getRow("row 0"));
+		blocked.awaitStarted();
+		e.exportRow("detail", getRow("row 1"));
+		long start = System.nanoTime();
+		try {
+			e.exportRow("detail", getRow("row 2"));
+			Assert.fail("Full queue accepted a row");
+		} catch (RuntimeException ex) {
+			Assert.assertTrue(ex.getMessage().contains("after 50ms"), ex.getMessage());
+		}
+		Assert.assertTrue(System.nanoTime() - start >= 40000000L);
+		
+		release.countDown();
+		e.close();
+		
+	}
+	
+	Tex createTex() throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerLayout(getClass(), "layout-01.xml");
+		return e;
+		
+	}
+	
+	ValueSource getRow(String value) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("LINHAARQUIVO", value);
+		return new MapValueSource(map);
+		
+	}
+	
+	/**
+	 * Fails on the row with the given index
+	 */
+	static class FailingAppender extends StringBufferAppender {
+		
+		final int failingRow;
+		
+		FailingAppender(int failingRow) {
+			this.failingRow = failingRow;
+		}
+		
+		@Override
+		public void append(RowDataSet data, RowStructure rowStructure) {
+			if (count() == failingRow) {
+				throw new IllegalStateException("Row " + failingRow + " failed");
+			}
+			super.append(data, rowStructure);
+		}
+		
+	}
+	
+	/**
+	 * Waits for the latch before appending each row
+	 */
+	static class BlockedAppender implements Appender {
+		
+		final CountDownLatch release;
+		final CountDownLatch started = new CountDownLatch(1);
+		volatile int rowCount;
+		
+		BlockedAppender(CountDownLatch release) {
+			this.release = release;
+		}
+		
+		public void append(RowDataSet data, RowStructure rowStructure) {
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			rowCount++;
+		}
+		
+		void awaitStarted() {
+			try {
+				started.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		
+		public int count() {
+			return rowCount;
+		}
+		
+		public void close() {
+		}
+		
+		public Object result() {
+			return null;
+		}
+		
+	}
+	
+}
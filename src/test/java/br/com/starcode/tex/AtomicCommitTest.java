@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.FileAppender;
+import br.com.starcode.tex.appender.PartitionedAppender;
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+public class AtomicCommitTest {
+
+	static final int ROWS = 10;
+	
+	@Test
+	public void visibleOnlyWhenClosed() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-atomic").toFile();
+		File file = new File(directory, "file.txt");
+		File channelFile = new File(directory, "channel.txt");
+		
+		Tex e = createTex();
+		e.setAtomicCommit(true);
+		e.registerFileAppender(file, false);
+		e.registerChannelAppender(channelFile, false, Fixtures.UTF_8);
+		PartitionedAppender partitioned = new PartitionedAppender(directory, "part-{0}.txt").setMaxRows(4).setAtomicCommit(true);
+		e.registerAppender(partitioned);
+		export(e);
+		Assert.assertFalse(file.exists());
+		Assert.assertFalse(channelFile.exists());
+		//full parts are committed as soon as they are closed
+		Assert.assertTrue(new File(directory, "part-1.txt").exists());
+		Assert.assertFalse(new File(directory, "part-3.txt").exists());
+		e.close();
+		
+		String expected = exportToString();
+		Assert.assertEquals(read(file), expected);
+		Assert.assertEquals(read(channelFile), expected);
+		Assert.assertTrue(new File(directory, "part-3.txt").exists());
+		Assert.assertEquals(directory.list().length, 5);
+		
+	}
+	
+	@Test
+	public void abortDiscardsOutput() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-atomic").toFile();
+		File file = new File(directory, "file.txt");
+		Files.write(file.toPath(), "previous".getBytes());
+		
+		Tex e = createTex();
+		e.setAtomicCommit(true);
+		e.registerFileAppender(file, true);
+		e.registerChannelAppender(new File(directory, "channel.txt"), false, Fixtures.UTF_8);
+		export(e);
+		e.abort();
+		
+		Assert.assertEquals(read(file), "previous");
+		Assert.assertEquals(directory.list().length, 1);
+		
+	}
+	
+	@Test
+	public void outputKeptWithoutAtomicCommit() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-atomic").toFile();
+		
+		Tex e = createTex();
+		e.registerAppender(new FailingAppender());
+		File file = new File(directory, "file.txt");
+		e.registerFileAppender(file, false);
+		File channelFile = new File(directory, "channel.txt");
+		e.registerChannelAppender(channelFile, false, Fixtures.UTF_8);
+		File mappedFile = new File(directory, "mapped.txt");
+		e.registerChannelAppender(mappedFile, false, Charset.forName("ISO-8859-1")).setMappedSize(1 << 20);
+		File asyncFile = new File(directory, "async.txt");
+		e.registerAsyncAppender(new FileAppender(asyncFile, false).setFlushOnCloseOnly(), 100);
+		export(e);
+		assertCloseFails(e);
+		
+		String expected = exportToString();
+		Assert.assertEquals(read(file), expected);
+		Assert.assertEquals(read(channelFile), expected);
+		Assert.assertEquals(read(mappedFile), expected);
+		Assert.assertEquals(read(asyncFile), expected);
+		
+	}
+	
+	@Test
+	public void outputDiscardedWithAtomicCommit() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-atomic").toFile();
+		File file = new File(directory, "file.txt");
+		File channelFile = new File(directory, "channel.txt");
+		Files.write(file.toPath(), "previous".getBytes());
+		Files.write(channelFile.toPath(), "previous".getBytes());
+		
+		Tex e = createTex();
+		e.setAtomicCommit(true);
+		e.registerAppender(new FailingAppender());
+		e.registerFileAppender(file, false);
+		e.registerChannelAppender(channelFile, false, Fixtures.UTF_8);
+		export(e);
+		assertCloseFails(e);
+		
+		Assert.assertEquals(read(file), "previous");
+		Assert.assertEquals(read(channelFile), "previous");
+		Assert.assertEquals(directory.list().length, 2);
+		
+	}
+	
+	@Test
+	public void interruptedOutputDiscarded() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-atomic").toFile();
+		File file = new File(directory, "file.txt");
+		
+		Tex e = createTex();
+		e.registerFileAppender(file, false);
+		exportAlternative(e, "A1", "A2");
+		e.close();
+		
+		//temporary file left by an interrupted export, not resumed
+		Tex interrupted = createTex();
+		interrupted.setAtomicCommit(true);
+		FileAppender appender = interrupted.registerFileAppender(file, true);
+		exportAlternative(interrupted, "X1", "X2");
+		appender.flush();
+		
+		e = createTex();
+		e.setAtomicCommit(true);
+		e.registerFileAppender(file, true);
+		exportAlternative(e, "B1");
+		e.close();
+		
+		Tex expected = createTex();
+		StringBufferAppender sb = new StringBufferAppender();
+		expected.registerAppender(sb);
+		exportAlternative(expected, "A1", "A2", "B1");
+		expected.close();
+		Assert.assertEquals(read(file), sb.result().toString());
+		
+	}
+	
+	Tex createTex() throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerLayout(getClass(), "layout-01.xml");
+		return e;
+		
+	}
+	
+	void export(Tex e) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = 0; i < ROWS; i++) {
+			map.put("LINHAARQUIVO", "row " + i);
+			e.exportDetail(map);
+		}
+		
+	}
+	
+	void exportAlternative(Tex e, String... values) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = 0; i < values.length; i++) {
+			map.put("LINHAARQUIVO", values[i]);
+			e.exportRow("alternativa", map);
+		}
+		
+	}
+	
+	/**
+	 * Baseline output of the rows
+	 */
+	String exportToString() throws IOException {
+		
+		Tex e = createTex();
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		export(e);
+		e.close();
+		return sb.result().toString();
+		
+	}
+	
+	void assertCloseFails(Tex e) {
+		
+		try {
+			e.close();
+			Assert.fail("Failure on close not thrown");
+		} catch (IllegalStateException ex) {
+			//expected
+		}
+		
+	}
+	
+	String read(File file) throws IOException {
+		return Fixtures.read(file, Fixtures.UTF_8);
+	}
+	
+	/**
+	 * Appender failing on close, before the other ones are closed
+	 */
+	static class FailingAppender implements Appender {
+		
+		int rowCount;
+		
+		public void append(RowDataSet data, RowStructure rowStructure) {
+			rowCount++;
+		}
+		
+		public int count() {
+			return rowCount;
+		}
+		
+		public void close() {
+			throw new IllegalStateException("Close failed");
+		}
+		
+		public Object result() {
+			return null;
+		}
+		
+	}
+	
+}
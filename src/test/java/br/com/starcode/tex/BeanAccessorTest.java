@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.math.BigDecimal;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.source.BeanAccessor;
+import br.com.starcode.tex.source.JavaBeanValueSource;
+import br.com.starcode.tex.source.SlotType;
+
+
+public class BeanAccessorTest {
+
+	@Test
+	public void getters() {
+		
+		Person person = new Person();
+		Assert.assertEquals(BeanAccessor.forProperty(Person.class, "name", true).get(person), "getter João");
+		BeanAccessor age = BeanAccessor.forProperty(Person.class, "age", true);
+		Assert.assertEquals(age.getType(), SlotType.INT);
+		Assert.assertEquals(age.getInt(person), 31);
+		Assert.assertEquals(age.get(person), 31);
+		
+	}
+	
+	@Test
+	public void booleanIsGetters() {
+		
+		Person person = new Person();
+		Assert.assertEquals(BeanAccessor.forProperty(Person.class, "active", true).get(person), Boolean.TRUE);
+		Assert.assertEquals(BeanAccessor.forProperty(Person.class, "retired", true).get(person), Boolean.FALSE);
+		
+		//"is" is only accepted for booleans
+		try {
+			BeanAccessor.forProperty(Person.class, "code", true);
+			Assert.fail("isCode() returns a string");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("getCode()"), e.getMessage());
+		}
+		
+	}
+	
+	@Test
+	public void privateFields() {
+		
+		Person person = new Person();
+		Assert.assertEquals(BeanAccessor.forProperty(Person.class, "name", false).get(person), "João");
+		BeanAccessor age = BeanAccessor.forProperty(Person.class, "age", false);
+		Assert.assertEquals(age.getType(), SlotType.INT);
+		Assert.assertEquals(age.getInt(person), 30);
+		
+		//fields declared in superclasses
+		Employee employee = new Employee();
+		Assert.assertEquals(BeanAccessor.forProperty(Employee.class, "name", false).get(employee), "João");
+		Assert.assertEquals(BeanAccessor.forProperty(Employee.class, "salary", false).get(employee), new BigDecimal("1000.50"));
+		
+		try {
+			BeanAccessor.forProperty(Person.class, "missing", false);
+			Assert.fail("field does not exist");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("'missing'"), e.getMessage());
+		}
+		
+	}
+	
+	@Test
+	public void nestedPaths() {
+		
+		Person person = new Person();
+		BeanAccessor city = BeanAccessor.forProperty(Person.class, "address.city", true);
+		Assert.assertEquals(city.get(person), "Curitiba");
+		Assert.assertEquals(BeanAccessor.forProperty(Person.class, "address.city", false).get(person), "Curitiba");
+		
+		//nested primitives are boxed, since the path may be null
+		BeanAccessor number = BeanAccessor.forProperty(Person.class, "address.number", true);
+		Assert.assertEquals(number.getType(), SlotType.OBJECT);
+		Assert.assertEquals(number.getInt(person), 100);
+		
+		person.address = null;
+		Assert.assertNull(city.get(person));
+		
+	}
+	
+	@Test
+	public void nestedPathsOfRuntimeClass() {
+		
+		//properties of a subclass, not of the declared type
+		Person person = new Person();
+		person.address = new ForeignAddress();
+		for (boolean useAccessorMethods : new boolean[] { false, true }) {
+			BeanAccessor country = BeanAccessor.forProperty(Person.class, "address.country", useAccessorMethods);
+			Assert.assertEquals(country.get(person), "Portugal");
+			BeanAccessor city = BeanAccessor.forProperty(Person.class, "address.city", useAccessorMethods);
+			Assert.assertEquals(city.get(person), "Lisboa");
+		}
+		
+		//values declared as Object and classes changing between rows
+		Contact contact = new Contact();
+		BeanAccessor city = BeanAccessor.forProperty(Contact.class, "location.city", false);
+		Assert.assertEquals(city.get(contact), "Curitiba");
+		contact.location = new ForeignAddress();
+		Assert.assertEquals(city.get(contact), "Lisboa");
+		contact.location = new Address();
+		Assert.assertEquals(city.get(contact), "Curitiba");
+		
+		contact.location = "no city";
+		try {
+			city.get(contact);
+			Assert.fail("String has no city");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage().contains("'city'"), e.getMessage());
+		}
+		
+	}
+	
+	@Test
+	public void cachedPerClassAndMode() {
+		
+		Assert.assertSame(BeanAccessor.forProperty(Person.class, "name", true), BeanAccessor.forProperty(Person.class, "name", true));
+		Assert.assertNotSame(BeanAccessor.forProperty(Person.class, "name", true), BeanAccessor.forProperty(Person.class, "name", false));
+		
+	}
+	
+	@Test
+	public void valueSourceFollowsBeanClass() {
+		
+		JavaBeanValueSource<Object> source = new JavaBeanValueSource<Object>(new Person(), false);
+		int slot = source.resolveSlot("name");
+		Assert.assertEquals(source.getObject(slot), "João");
+		Assert.assertEquals(source.calculateValue("address.city"), "Curitiba");
+		
+		source.setJavaBean(new Address());
+		Assert.assertEquals(source.getObject(source.resolveSlot("city")), "Curitiba");
+		
+	}
+	
+	static class Person {
+		
+		private String name = "João";
+		private int age = 30;
+		private boolean active = true;
+		private Boolean retired = Boolean.FALSE;
+		private Address address = new Address();
+		
+		String getName() {
+			return "getter " + name;
+		}
+		
+		public int getAge() {
+			return age + 1;
+		}
+		
+		public boolean isActive() {
+			return active;
+		}
+		
+		public Boolean isRetired() {
+			return retired;
+		}
+		
+		public String isCode() {
+			return "code";
+		}
+		
+		public Address getAddress() {
+			return address;
+		}
+		
+	}
+	
+	static class Employee extends Person {
+		
+		private BigDecimal salary = new BigDecimal("1000.50");
+		
+	}
+	
+	static class Address {
+		
+		private String city;
+		private int number = 100;
+		
+		Address() {
+			this("Curitiba");
+		}
+		
+		Address(String city) {
+			this.city = city;
+		}
+		
+		public String getCity() {
+			return city;
+		}
+		
+		public int getNumber() {
+			return number;
+		}
+		
+	}
+	
+	static class ForeignAddress extends Address {
+		
+		private String country = "Portugal";
+		
+		ForeignAddress() {
+			super("Lisboa");
+		}
+		
+		public String getCountry() {
+			return country;
+		}
+		
+	}
+	
+	static class Contact {
+		
+		private Object location = new Address();
+		
+	}
+	
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.ChannelAppender;
+import br.com.starcode.tex.appender.StringBufferAppender;
+
+
+public class BinaryColumnTest {
+
+	@Test
+	public void byteOutput() throws IOException {
+		
+		File file = File.createTempFile("tex-binary", ".txt");
+		Tex e = createTex();
+		e.registerChannelAppender(file, false, Charset.forName("Cp037"));
+		e.registerChannelAppender(File.createTempFile("tex-binary", ".txt"), false, Charset.forName("Cp037"));
+		e.registerLayout(getClass(), "layout-binary.xml");
+		e.exportDetail(getDataMap());
+		e.close();
+		
+		Assert.assertEquals(toHex(Files.readAllBytes(file.toPath())), "f0f0f1f2f3f4c50012346d123ff0f0f000000012345c0d15");
+		
+	}
+	
+	@Test
+	public void characterOutputs() throws IOException {
+		
+		Tex e = createTex();
+		e.registerFileAppender(File.createTempFile("tex-binary", ".txt"), false);
+		assertRejected(e);
+		
+		e = createTex();
+		e.registerAppender(new StringBufferAppender());
+		assertRejected(e);
+		
+		e = createTex();
+		e.registerAppender(new ChannelAppender(File.createTempFile("tex-binary", ".txt"), false, Charset.forName("Cp037")).setSingleByteEncoding(false));
+		assertRejected(e);
+		
+	}
+	
+	void assertRejected(Tex e) throws IOException {
+		
+		e.registerLayout(getClass(), "layout-binary.xml");
+		try {
+			e.exportDetail(getDataMap());
+			Assert.fail("Binary column written as characters");
+		} catch (RuntimeException ex) {
+			Assert.assertTrue(String.valueOf(ex.getMessage()).contains("binary formatter"), ex.getMessage());
+		}
+		e.abort();
+		
+	}
+	
+	Tex createTex() {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("p", 123);
+		return new Tex(params);
+		
+	}
+	
+	Map<String, Object> getDataMap() {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("a", new BigDecimal("123.45"));
+		map.put("b", new BigDecimal("-123.456"));
+		map.put("c", 7);
+		map.put("d", 12345L);
+		return map;
+		
+	}
+	
+	static String toHex(byte[] bytes) {
+		
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < bytes.length; i++) {
+			sb.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16)).append(Character.forDigit(bytes[i] & 0xf, 16));
+		}
+		return sb.toString();
+		
+	}
+	
+}
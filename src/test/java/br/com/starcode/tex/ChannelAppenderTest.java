@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.ChannelAppender;
+import br.com.starcode.tex.appender.StringBufferAppender;
+
+
+public class ChannelAppenderTest {
+
+	@Test
+	public void explicitCharset() throws IOException {
+		
+		String expected = exportToString(0, 2);
+		for (String name : new String[] { "UTF-8", "ISO-8859-1", "Cp037" }) {
+			Charset charset = Charset.forName(name);
+			File file = File.createTempFile("tex-channel", ".txt");
+			Tex e = createTex(new ChannelAppender(file, false, charset));
+			export(e, 0, 2);
+			e.close();
+			Assert.assertEquals(Files.readAllBytes(file.toPath()), expected.getBytes(charset), name);
+		}
+		
+	}
+	
+	@Test
+	public void mappedFileTruncatedOnClose() throws IOException {
+		
+		File file = File.createTempFile("tex-channel", ".txt");
+		Tex e = createTex(new ChannelAppender(file, false, Fixtures.UTF_8).setMappedSize(100000));
+		export(e, 0, 3);
+		e.close();
+		Assert.assertEquals(Fixtures.read(file, Fixtures.UTF_8), exportToString(0, 3));
+		
+	}
+	
+	@Test
+	public void appendCountsExistingRows() throws IOException {
+		
+		for (String name : new String[] { "UTF-8", "Cp037" }) {
+			Charset charset = Charset.forName(name);
+			File file = File.createTempFile("tex-channel", ".txt");
+			Tex e = createTex(new ChannelAppender(file, false, charset));
+			export(e, 0, 3);
+			e.close();
+			
+			ChannelAppender appender = new ChannelAppender(file, true, charset);
+			Assert.assertEquals(appender.count(), 3, name);
+			e = createTex(appender);
+			export(e, 3, 5);
+			e.close();
+			Assert.assertEquals(appender.count(), 5, name);
+			Assert.assertEquals(Fixtures.read(file, charset), exportToString(0, 5), name);
+		}
+		
+	}
+	
+	@Test
+	public void appendCountsRowsWithOtherSeparator() throws IOException {
+		
+		for (String name : new String[] { "UTF-8", "Cp037" }) {
+			Charset charset = Charset.forName(name);
+			File file = File.createTempFile("tex-channel", ".txt");
+			Tex e = createTex(new ChannelAppender(file, false, charset).setLineSeparator("\n"));
+			export(e, 0, 3);
+			e.close();
+			
+			ChannelAppender appender = new ChannelAppender(file, true, charset).setLineSeparator("\n");
+			Assert.assertEquals(appender.count(), 3, name);
+			e = createTex(appender);
+			export(e, 3, 5);
+			e.close();
+			Assert.assertEquals(appender.count(), 5, name);
+			Assert.assertEquals(Fixtures.read(file, charset), exportToString(0, 5).replace("\r\n", "\n"), name);
+		}
+		
+	}
+	
+	@Test
+	public void singleByteEncodingMatchesEncoder() throws IOException {
+		
+		for (String name : new String[] { "ISO-8859-1", "Cp037", "Cp1252", "US-ASCII" }) {
+			Charset charset = Charset.forName(name);
+			File bytes = File.createTempFile("tex-channel", ".txt");
+			File chars = File.createTempFile("tex-channel", ".txt");
+			Tex e = createTex(new ChannelAppender(bytes, false, charset));
+			e.registerAppender(new ChannelAppender(chars, false, charset).setSingleByteEncoding(false));
+			Map<String, Object> map = Fixtures.getDataMap();
+			e.exportHeader(map);
+			//unmappable characters in most charsets
+			map.put("LINHAARQUIVO", "ação € ✓ ü");
+			e.exportRow("alternativa", map);
+			e.exportRow("separado", map);
+			e.exportDetail(map);
+			e.close();
+			Assert.assertEquals(Files.readAllBytes(bytes.toPath()), Files.readAllBytes(chars.toPath()), name);
+		}
+		
+	}
+	
+	Tex createTex(ChannelAppender appender) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-01.xml");
+		return e;
+		
+	}
+	
+	/**
+	 * Exports rows from start (inclusive) to end (exclusive), with non-ASCII characters
+	 */
+	void export(Tex e, int start, int end) {
+		
+		Map<String, Object> map = Fixtures.getDataMap();
+		for (int i = start; i < end; i++) {
+			map.put("LINHAARQUIVO", "ação " + i);
+			e.exportRow("alternativa", map);
+		}
+		
+	}
+	
+	String exportToString(int start, int end) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		e.registerLayout(getClass(), "layout-01.xml");
+		export(e, start, end);
+		e.close();
+		return sb.result().toString();
+		
+	}
+	
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.ChannelAppender;
+import br.com.starcode.tex.appender.CompressedFileAppender;
+import br.com.starcode.tex.appender.FileAppender;
+import br.com.starcode.tex.appender.PartitionedAppender;
+import br.com.starcode.tex.checkpoint.CheckpointJournal;
+import br.com.starcode.tex.checkpoint.ResumeTokenProvider;
+import br.com.starcode.tex.compress.GzipCodec;
+import br.com.starcode.tex.source.MapValueSource;
+import br.com.starcode.tex.source.ValueSource;
+
+
+public class CheckpointTest {
+
+	static final int ROWS = 100;
+	
+	@Test
+	public void resumeAfterInterruption() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-checkpoint").toFile();
+		File journal = new File(directory, "export.journal");
+		
+		//baseline: export without interruption
+		Tex e = createTex(null, new File(directory, "expected"), false);
+		export(e, 0, ROWS);
+		e.close();
+		
+		//interrupted after 57 rows, without closing
+		e = createTex(journal, new File(directory, "resumed"), false);
+		export(e, 0, 57);
+		
+		//resumed from the last checkpoint
+		e = new Tex(Fixtures.getParams());
+		e.setCheckpointJournal(journal, 10);
+		String token = e.resume();
+		Assert.assertEquals(token, "49");
+		register(e, new File(directory, "resumed"), true);
+		for (int i = 0; i < e.getAppenderList().size(); i++) {
+			Assert.assertEquals(e.getAppenderList().get(i).count(), 50);
+		}
+		export(e, Integer.parseInt(token) + 1, ROWS);
+		e.close();
+		
+		for (String name : new String[] { "-file.txt", "-channel.txt" }) {
+			Assert.assertEquals(read(new File(directory, "resumed" + name)), read(new File(directory, "expected" + name)), name);
+		}
+		Assert.assertEquals(readCompressed(new File(directory, "resumed.txt.gz")), readCompressed(new File(directory, "expected.txt.gz")));
+		
+	}
+	
+	@Test
+	public void resumeWithAtomicCommit() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-checkpoint").toFile();
+		File journal = new File(directory, "export.journal");
+		
+		Tex e = createTex(null, new File(directory, "expected"), false);
+		export(e, 0, ROWS);
+		e.close();
+		
+		//interrupted after 57 rows, only temporary files written
+		e = new Tex(Fixtures.getParams());
+		e.setCheckpointJournal(journal, 10).setAtomicCommit(true);
+		e.registerFileAppender(new File(directory, "resumed-file.txt"), false);
+		e.registerChannelAppender(new File(directory, "resumed-channel.txt"), false, Fixtures.UTF_8);
+		e.registerLayout(getClass(), "layout-01.xml");
+		export(e, 0, 57);
+		Assert.assertFalse(new File(directory, "resumed-file.txt").exists());
+		
+		e = new Tex(Fixtures.getParams());
+		e.setCheckpointJournal(journal, 10).setAtomicCommit(true);
+		String token = e.resume();
+		e.registerFileAppender(new File(directory, "resumed-file.txt"), true);
+		e.registerChannelAppender(new File(directory, "resumed-channel.txt"), true, Fixtures.UTF_8);
+		e.registerLayout(getClass(), "layout-01.xml");
+		export(e, Integer.parseInt(token) + 1, ROWS);
+		e.close();
+		
+		for (String name : new String[] { "-file.txt", "-channel.txt" }) {
+			Assert.assertEquals(read(new File(directory, "resumed" + name)), read(new File(directory, "expected" + name)), name);
+		}
+		
+	}
+	
+	@Test
+	public void checkpointsInsideExportRows() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-checkpoint").toFile();
+		File journal = new File(directory, "export.journal");
+		
+		//baseline: export without interruption
+		Tex e = createTex(null, new File(directory, "expected"), false);
+		e.exportRows("detail", getRows(0, ROWS));
+		e.close();
+		
+		//interrupted after 57 rows of a single call, without closing
+		e = createTex(journal, new File(directory, "resumed"), false);
+		e.setBlockSize(8).setResumeTokenProvider(new RowTokenProvider());
+		e.exportRows("detail", getRows(0, 57));
+		Assert.assertEquals(e.getResumeToken(), "56");
+		
+		//resumed from the last checkpoint, at a block boundary
+		e = new Tex(Fixtures.getParams());
+		e.setCheckpointJournal(journal, 10);
+		String token = e.resume();
+		Assert.assertEquals(token, "47");
+		register(e, new File(directory, "resumed"), true);
+		e.setBlockSize(8).setResumeTokenProvider(new RowTokenProvider());
+		e.exportRows("detail", getRows(Integer.parseInt(token) + 1, ROWS));
+		e.close();
+		
+		for (String name : new String[] { "-file.txt", "-channel.txt" }) {
+			Assert.assertEquals(read(new File(directory, "resumed" + name)), read(new File(directory, "expected" + name)), name);
+		}
+		Assert.assertEquals(readCompressed(new File(directory, "resumed.txt.gz")), readCompressed(new File(directory, "expected.txt.gz")));
+		
+	}
+	
+	@Test
+	public void sameOutputWithoutSeparatorLastLine() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-checkpoint").toFile();
+		
+		Tex e = createTex(null, new File(directory, "expected"), false);
+		withoutSeparatorLastLine(e);
+		export(e, 0, ROWS);
+		e.close();
+		
+		//checkpoints don't change the output, even after the last row
+		e = createTex(new File(directory, "journaled.journal"), new File(directory, "journaled"), false);
+		withoutSeparatorLastLine(e);
+		export(e, 0, ROWS);
+		e.checkpoint();
+		e.close();
+		
+		//neither does resuming after the last row of a checkpoint, whose separator was not written yet
+		File journal = new File(directory, "resumed.journal");
+		e = createTex(journal, new File(directory, "resumed"), false);
+		withoutSeparatorLastLine(e);
+		export(e, 0, 57);
+		e = new Tex(Fixtures.getParams());
+		e.setCheckpointJournal(journal, 10);
+		String token = e.resume();
+		register(e, new File(directory, "resumed"), true);
+		withoutSeparatorLastLine(e);
+		export(e, Integer.parseInt(token) + 1, ROWS);
+		e.close();
+		
+		for (String prefix : new String[] { "journaled", "resumed" }) {
+			for (String name : new String[] { "-file.txt", "-channel.txt" }) {
+				Assert.assertEquals(
+						Files.readAllBytes(new File(directory, prefix + name).toPath()), 
+						Files.readAllBytes(new File(directory, "expected" + name).toPath()), 
+						prefix + name);
+			}
+			Assert.assertEquals(readCompressed(new File(directory, prefix + ".txt.gz")), readCompressed(new File(directory, "expected.txt.gz")));
+		}
+		Assert.assertFalse(read(new File(directory, "expected-file.txt")).endsWith("\r\n"));
+		
+	}
+	
+	@Test
+	public void tornCheckpointIgnored() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-checkpoint").toFile();
+		File journal = new File(directory, "export.journal");
+		Tex e = createTex(journal, new File(directory, "resumed"), false);
+		export(e, 0, 57);
+		Assert.assertEquals(CheckpointJournal.readLast(journal).getToken(), "49");
+		
+		//a crash while writing the last line leaves it incomplete
+		RandomAccessFile output = new RandomAccessFile(journal, "rw");
+		try {
+			output.setLength(journal.length() - 3);
+		} finally {
+			output.close();
+		}
+		Assert.assertEquals(CheckpointJournal.readLast(journal).getToken(), "39");
+		
+	}
+	
+	@Test
+	public void appendersNotCheckpointable() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-checkpoint").toFile();
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.setCheckpointJournal(new File(directory, "export.journal"), 10);
+		try {
+			e.registerAsyncAppender(new FileAppender(new File(directory, "async.txt"), false), 10);
+			Assert.fail("Asynchronous appender registered with checkpoints");
+		} catch (IllegalArgumentException ex) {
+			//expected
+		}
+		
+		e = new Tex(Fixtures.getParams());
+		e.registerAppender(new PartitionedAppender(directory, "part-{0}.txt"));
+		try {
+			e.setCheckpointJournal(new File(directory, "export.journal"), 10);
+			Assert.fail("Checkpoints enabled with a partitioned appender");
+		} catch (IllegalArgumentException ex) {
+			//expected
+		}
+		
+	}
+	
+	Tex createTex(File journal, File prefix, boolean append) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		if (journal != null) {
+			e.setCheckpointJournal(journal, 10);
+		}
+		register(e, prefix, append);
+		return e;
+		
+	}
+	
+	void register(Tex e, File prefix, boolean append) throws IOException {
+		
+		e.registerFileAppender(new File(prefix + "-file.txt"), append);
+		e.registerChannelAppender(new File(prefix + "-channel.txt"), append, Fixtures.UTF_8);
+		e.registerAppender(new CompressedFileAppender(new File(prefix + ".txt.gz"), append, new GzipCodec()));
+		e.registerLayout(getClass(), "layout-01.xml");
+		
+	}
+	
+	void withoutSeparatorLastLine(Tex e) {
+		
+		for (Appender appender : e.getAppenderList()) {
+			if (appender instanceof FileAppender) {
+				((FileAppender) appender).setSeparatorLastLine(false);
+			} else {
+				((ChannelAppender) appender).setSeparatorLastLine(false);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Exports rows from start (inclusive) to end (exclusive), setting the resume token after each one
+	 */
+	void export(Tex e, int start, int end) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = start; i < end; i++) {
+			map.put("LINHAARQUIVO", "row " + i);
+			e.exportRow(i % 2 == 0 ? "detail" : "alternativa", map);
+			e.setResumeToken(Integer.toString(i));
+		}
+		
+	}
+	
+	List<ValueSource> getRows(int start, int end) {
+		
+		List<ValueSource> rows = new ArrayList<ValueSource>();
+		for (int i = start; i < end; i++) {
+			Map<String, Object> map = new HashMap<String, Object>();
+			map.put("LINHAARQUIVO", "row " + i);
+			map.put("id", i);
+			rows.add(new MapValueSource(map));
+		}
+		return rows;
+		
+	}
+	
+	static class RowTokenProvider implements ResumeTokenProvider {
+		
+		public String getResumeToken(ValueSource lastRow) {
+			return lastRow.calculateValue("id").toString();
+		}
+		
+	}
+	
+	String read(File file) throws IOException {
+		return Fixtures.read(file, Fixtures.UTF_8);
+	}
+	
+	String readCompressed(File file) throws IOException {
+		return Fixtures.readCompressed(file, new GzipCodec(), Fixtures.UTF_8);
+	}
+	
+}
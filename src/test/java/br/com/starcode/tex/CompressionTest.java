@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.CompressedFileAppender;
+import br.com.starcode.tex.compress.CompressionCodec;
+import br.com.starcode.tex.compress.GzipCodec;
+import br.com.starcode.tex.compress.ParallelGzipCodec;
+
+
+public class CompressionTest {
+
+	@Test
+	public void parallelGzipRoundTrip() throws IOException {
+		
+		Random random = new Random(42);
+		byte[] content = new byte[100000];
+		for (int i = 0; i < content.length; i++) {
+			//compressible, but not trivially
+			content[i] = (byte) ('a' + random.nextInt(8));
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			OutputStream output = new ParallelGzipCodec(executor, 1000, 4, Deflater.DEFAULT_COMPRESSION).compress(compressed);
+			int offset = 0;
+			while (offset < content.length) {
+				int length = Math.min(random.nextInt(3000), content.length - offset);
+				if (length == 1) {
+					output.write(content[offset]);
+				} else {
+					output.write(content, offset, length);
+				}
+				offset += length;
+				if (random.nextInt(10) == 0) {
+					output.flush();
+				}
+			}
+			output.close();
+			
+			//readable as a standard gzip file
+			GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+			Assert.assertEquals(Fixtures.readAll(input), content);
+			Assert.assertTrue(compressed.size() < content.length / 2, "compressed to " + compressed.size());
+			
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	@Test
+	public void appendAddsMember() throws IOException {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (CompressionCodec codec : new CompressionCodec[] { new GzipCodec(1), new ParallelGzipCodec(executor, 50, 2, 1) }) {
+				
+				File file = File.createTempFile("tex-compressed", ".txt.gz");
+				CompressedFileAppender first = new CompressedFileAppender(file, false, codec);
+				export(first, 3);
+				CompressedFileAppender appended = new CompressedFileAppender(file, true, codec);
+				Assert.assertEquals(appended.count(), 3, codec.toString());
+				export(appended, 2);
+				Assert.assertEquals(appended.count(), 5, codec.toString());
+				
+				//counters go on from the rows of the first member
+				String[] lines = Fixtures.readCompressed(file, codec, Fixtures.UTF_8).split("\r\n");
+				Assert.assertEquals(lines.length, 5, codec.toString());
+				for (int i = 0; i < lines.length; i++) {
+					Assert.assertEquals(lines[i].substring(19, 24).trim(), String.valueOf(i), codec.toString());
+				}
+				
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	@Test
+	public void invalidLevel() {
+		
+		try {
+			new GzipCodec(10);
+			Assert.fail("Level 10 accepted");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		
+	}
+	
+	void export(CompressedFileAppender appender, int rows) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = 0; i < rows; i++) {
+			map.put("LINHAARQUIVO", "row " + i);
+			e.exportDetail(map);
+		}
+		e.close();
+		
+	}
+	
+}
@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.ChannelAppender;
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.source.ColumnarValueSource;
+import br.com.starcode.tex.source.MapValueSource;
+import br.com.starcode.tex.source.ValueSource;
+
+
+public class ExportRowsTest {
+
+	static final String TOO_LONG = String.format("%200s", "too long");
+	
+	@Test
+	public void failureInsideBlock() throws IOException {
+		
+		List<ValueSource> rows = getRows(5, 3);
+		
+		Tex e = createTex();
+		File byteFile = File.createTempFile("tex-rows", ".txt");
+		File charFile = File.createTempFile("tex-rows", ".txt");
+		File file = File.createTempFile("tex-rows", ".txt");
+		e.registerAppender(new ChannelAppender(byteFile, false, Charset.forName("ISO-8859-1")));
+		e.registerAppender(new ChannelAppender(charFile, false, Fixtures.UTF_8));
+		e.registerFileAppender(file, false);
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		e.setBlockSize(100);
+		try {
+			e.exportRows("alternativa", rows);
+			Assert.fail("Row wider than the column exported");
+		} catch (RuntimeException ex) {
+			//expected
+		}
+		e.exportRow("alternativa", getRow("after"));
+		e.close();
+		
+		//baseline: rows exported one by one, until the failure
+		Tex expected = createTex();
+		StringBufferAppender expectedSb = new StringBufferAppender();
+		expected.registerAppender(expectedSb);
+		for (int i = 0; i < 3; i++) {
+			expected.exportRow("alternativa", rows.get(i));
+		}
+		expected.exportRow("alternativa", getRow("after"));
+		expected.close();
+		
+		String expectedContent = expectedSb.result().toString();
+		Assert.assertEquals(read(byteFile), expectedContent);
+		Assert.assertEquals(read(charFile), expectedContent);
+		Assert.assertEquals(read(file), expectedContent);
+		Assert.assertEquals(sb.result().toString(), expectedContent);
+		for (int i = 0; i < e.getAppenderList().size(); i++) {
+			Assert.assertEquals(e.getAppenderList().get(i).count(), 4);
+		}
+		
+	}
+	
+	@Test
+	public void blocksMatchRowByRow() throws IOException {
+		
+		List<ValueSource> rows = getRows(1000, -1);
+		String expected = exportOneByOne("detail", rows);
+		for (boolean reuseRowDataSet : new boolean[] { false, true }) {
+			
+			Tex e = createTex();
+			File byteFile = File.createTempFile("tex-rows", ".txt");
+			File charFile = File.createTempFile("tex-rows", ".txt");
+			File file = File.createTempFile("tex-rows", ".txt");
+			e.registerChannelAppender(byteFile, false, Charset.forName("ISO-8859-1"));
+			e.registerChannelAppender(charFile, false, Fixtures.UTF_8);
+			e.registerFileAppender(file, false);
+			StringBufferAppender sb = new StringBufferAppender();
+			e.registerAppender(sb);
+			e.setBlockSize(64).setReuseRowDataSet(reuseRowDataSet);
+			e.exportRows("detail", rows);
+			e.close();
+			
+			String message = "reuseRowDataSet=" + reuseRowDataSet;
+			Assert.assertEquals(read(byteFile), expected, message);
+			Assert.assertEquals(read(charFile), expected, message);
+			Assert.assertEquals(read(file), expected, message);
+			Assert.assertEquals(sb.result().toString(), expected, message);
+			Assert.assertEquals(sb.count(), 1000);
+			
+		}
+		
+	}
+	
+	@Test
+	public void columnarMatchesRowByRow() throws IOException {
+		
+		int count = 300;
+		BigDecimal[] a = new BigDecimal[count];
+		List<BigDecimal> b = new ArrayList<BigDecimal>();
+		int[] c = new int[count];
+		long[] d = new long[count];
+		for (int i = 0; i < count; i++) {
+			a[i] = new BigDecimal(i).movePointLeft(2);
+			b.add(new BigDecimal(-i));
+			c[i] = i % 1000;
+			d[i] = i * 1000003L;
+		}
+		Map<String, Object> columns = new HashMap<String, Object>();
+		columns.put("a", a);
+		columns.put("b", b);
+		columns.put("c", c);
+		columns.put("d", d);
+		
+		File columnarFile = File.createTempFile("tex-rows", ".txt");
+		Tex e = createBinaryTex(columnarFile);
+		e.setBlockSize(64);
+		e.exportRows("detail", columns);
+		e.close();
+		
+		File mapFile = File.createTempFile("tex-rows", ".txt");
+		Tex expected = createBinaryTex(mapFile);
+		for (int i = 0; i < count; i++) {
+			Map<String, Object> map = new HashMap<String, Object>();
+			map.put("a", a[i]);
+			map.put("b", b.get(i));
+			map.put("c", c[i]);
+			map.put("d", d[i]);
+			expected.exportDetail(map);
+		}
+		expected.close();
+		
+		Assert.assertEquals(Files.readAllBytes(columnarFile.toPath()), Files.readAllBytes(mapFile.toPath()));
+		
+	}
+	
+	@Test
+	public void columnsOfDifferentSizes() {
+		
+		Map<String, Object> columns = new HashMap<String, Object>();
+		columns.put("a", new int[2]);
+		columns.put("b", new long[3]);
+		try {
+			new ColumnarValueSource(columns);
+			Assert.fail("Columns of different sizes accepted");
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		
+	}
+	
+	@Test
+	public void parallelExport() throws IOException {
+		
+		List<ValueSource> rows = getRows(1000, -1);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			
+			Tex e = createTex();
+			StringBufferAppender sb = new StringBufferAppender();
+			e.registerAppender(sb);
+			e.setBlockSize(64).setExecutor(executor, 4);
+			e.exportRows("detail", rows);
+			e.close();
+			
+			Assert.assertEquals(sb.result().toString(), exportOneByOne("detail", rows));
+			
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	@Test
+	public void parallelColumnarExport() throws IOException {
+		
+		int count = 1000;
+		String[] values = new String[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = "row " + i;
+		}
+		Map<String, Object> columns = new HashMap<String, Object>();
+		columns.put("LINHAARQUIVO", values);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			
+			Tex e = createTex();
+			StringBufferAppender sb = new StringBufferAppender();
+			e.registerAppender(sb);
+			e.setBlockSize(64).setExecutor(executor, 4);
+			e.exportRows("detail", columns);
+			e.close();
+			
+			Assert.assertEquals(sb.result().toString(), exportOneByOne("detail", getRows(count, -1)));
+			
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	@Test
+	public void failureInParallel() throws IOException {
+		
+		List<ValueSource> rows = getRows(500, 130);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			
+			Tex e = createTex();
+			StringBufferAppender sb = new StringBufferAppender();
+			e.registerAppender(sb);
+			e.setBlockSize(16).setExecutor(executor, 4);
+			try {
+				e.exportRows("alternativa", rows);
+				Assert.fail("Row wider than the column exported");
+			} catch (RuntimeException ex) {
+				//expected
+			}
+			e.close();
+			
+			Assert.assertEquals(sb.count(), 130);
+			Assert.assertEquals(sb.result().toString(), exportOneByOne("alternativa", rows.subList(0, 130)));
+			
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	@Test
+	public void sourceFailureInParallel() throws IOException {
+		
+		final List<ValueSource> rows = getRows(55, -1);
+		Iterable<ValueSource> failingSource = new Iterable<ValueSource>() {
+			public Iterator<ValueSource> iterator() {
+				final Iterator<ValueSource> iterator = rows.iterator();
+				return new Iterator<ValueSource>() {
+					public boolean hasNext() {
+						return true;
+					}
+					public ValueSource next() {
+						if (!iterator.hasNext()) {
+							throw new IllegalStateException("Source failed");
+						}
+						return iterator.next();
+					}
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			
+			Tex e = createTex();
+			StringBufferAppender sb = new StringBufferAppender();
+			e.registerAppender(sb);
+			e.setBlockSize(10).setExecutor(executor, 2);
+			try {
+				e.exportRows("detail", failingSource);
+				Assert.fail("Source failure not thrown");
+			} catch (IllegalStateException ex) {
+				//expected
+			}
+			e.close();
+			
+			Assert.assertEquals(sb.count(), 55);
+			Assert.assertEquals(sb.result().toString(), exportOneByOne("detail", rows));
+			
+		} finally {
+			executor.shutdown();
+		}
+		
+	}
+	
+	/**
+	 * Baseline output: rows exported one by one
+	 */
+	String exportOneByOne(String layoutId, List<ValueSource> rows) throws IOException {
+		
+		Tex e = createTex();
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		for (int i = 0; i < rows.size(); i++) {
+			e.exportRow(layoutId, rows.get(i));
+		}
+		e.close();
+		return sb.result().toString();
+		
+	}
+	
+	Tex createBinaryTex(File file) throws IOException {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("p", 123);
+		Tex e = new Tex(params);
+		e.registerChannelAppender(file, false, Charset.forName("Cp037"));
+		e.registerLayout(getClass(), "layout-binary.xml");
+		return e;
+		
+	}
+	
+	Tex createTex() throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerLayout(getClass(), "layout-01.xml");
+		return e;
+		
+	}
+	
+	/**
+	 * Rows of the layouts "detail" and "alternativa", the one at the given index too wide for the column
+	 */
+	List<ValueSource> getRows(int count, int failingRow) {
+		
+		List<ValueSource> rows = new ArrayList<ValueSource>();
+		for (int i = 0; i < count; i++) {
+			rows.add(getRow(i == failingRow ? TOO_LONG : "row " + i));
+		}
+		return rows;
+		
+	}
+	
+	ValueSource getRow(String value) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("LINHAARQUIVO", value);
+		return new MapValueSource(map);
+		
+	}
+	
+	String read(File file) throws IOException {
+		return Fixtures.read(file, Fixtures.UTF_8);
+	}
+	
+}
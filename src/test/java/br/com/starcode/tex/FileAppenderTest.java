@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.FileAppender;
+
+
+public class FileAppenderTest {
+
+	//"alternativa" rows have 140 characters, and CRLF is written before every row but the first
+	static final int ROW_LENGTH = 140;
+	
+	@Test
+	public void flushEveryRowByDefault() throws IOException {
+		
+		File file = File.createTempFile("tex-file", ".txt");
+		Tex e = createTex(new FileAppender(file, false));
+		exportRows(e, 1);
+		Assert.assertEquals(file.length(), length(1));
+		e.close();
+		
+	}
+	
+	@Test
+	public void flushEveryRows() throws IOException {
+		
+		File file = File.createTempFile("tex-file", ".txt");
+		Tex e = createTex(new FileAppender(file, false).setFlushEveryRows(3));
+		exportRows(e, 2);
+		Assert.assertEquals(file.length(), 0);
+		exportRows(e, 1);
+		Assert.assertEquals(file.length(), length(3));
+		e.close();
+		
+	}
+	
+	@Test
+	public void flushEveryChars() throws IOException {
+		
+		File file = File.createTempFile("tex-file", ".txt");
+		Tex e = createTex(new FileAppender(file, false).setFlushEveryRows(0).setFlushEveryChars(200));
+		exportRows(e, 1);
+		Assert.assertEquals(file.length(), 0);
+		exportRows(e, 1);
+		Assert.assertEquals(file.length(), length(2));
+		e.close();
+		
+	}
+	
+	@Test
+	public void flushOnCloseOnly() throws IOException {
+		
+		File file = File.createTempFile("tex-file", ".txt");
+		Tex e = createTex(new FileAppender(file, false, (int) length(4)).setFlushOnCloseOnly());
+		exportRows(e, 3);
+		Assert.assertEquals(file.length(), 0);
+		e.close();
+		//the last line separator is written on close
+		Assert.assertEquals(file.length(), length(3) + 2);
+		
+	}
+	
+	long length(int rows) {
+		return rows * (ROW_LENGTH + 2) - 2;
+	}
+	
+	Tex createTex(FileAppender appender) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-01.xml");
+		return e;
+		
+	}
+	
+	void exportRows(Tex e, int rows) {
+		
+		Map<String, Object> map = Fixtures.getDataMap();
+		for (int i = 0; i < rows; i++) {
+			map.put("LINHAARQUIVO", "row " + i);
+			e.exportRow("alternativa", map);
+		}
+		
+	}
+	
+}
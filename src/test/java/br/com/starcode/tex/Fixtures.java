@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import br.com.starcode.tex.compress.CompressionCodec;
+
+/**
+ * Parameters, rows and file reading shared by the tests
+ */
+public final class Fixtures {
+
+	public static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	private Fixtures() {
+	}
+	
+	public static Map<String, Object> getParams() {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("name", "João Batista");
+		params.put("age", 30);
+		return params;
+		
+	}
+	
+	/**
+	 * Same row of TexTest
+	 */
+	public static Map<String, Object> getDataMap() {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("LINHAARQUIVO", "LINHA0123456789LINHA0123456789LINHA0123456789LINHA0123456789LINHA0123456789LINHA0123456789LINHA0123456789");
+		map.put("dataNascimento", getDate());
+		map.put("saldoConta", new BigDecimal("7899087.5145"));
+		map.put("saldoConta2", new BigDecimal("-234.51"));
+		return map;
+		
+	}
+	
+	public static Date getDate() {
+		
+		Calendar c = Calendar.getInstance();
+		c.set(2013, 2, 28);
+		return c.getTime();
+		
+	}
+	
+	public static String read(File file, Charset charset) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), charset);
+	}
+	
+	/**
+	 * Reads a file written through the codec
+	 */
+	public static String readCompressed(File file, CompressionCodec codec, Charset charset) throws IOException {
+		
+		InputStream input = codec.decompress(new FileInputStream(file));
+		try {
+			return new String(readAll(input), charset);
+		} finally {
+			input.close();
+		}
+		
+	}
+	
+	/**
+	 * Reads an entry of a zip file, like a part of an XLSX workbook
+	 */
+	public static String readEntry(File file, String name) throws IOException {
+		
+		ZipFile zip = new ZipFile(file);
+		try {
+			return new String(readAll(zip.getInputStream(zip.getEntry(name))), UTF_8);
+		} finally {
+			zip.close();
+		}
+		
+	}
+	
+	/**
+	 * Reads a resource next to this class
+	 */
+	public static String readResource(String name) throws IOException {
+		
+		InputStream input = Fixtures.class.getResourceAsStream(name);
+		try {
+			return new String(readAll(input), UTF_8);
+		} finally {
+			input.close();
+		}
+		
+	}
+	
+	/**
+	 * The text as read back from a file written with the charset, with unmappable characters replaced
+	 */
+	public static String encoded(String text, Charset charset) {
+		return new String(text.getBytes(charset), charset);
+	}
+	
+	public static byte[] readAll(InputStream input) throws IOException {
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int count;
+		while ((count = input.read(buffer)) > 0) {
+			output.write(buffer, 0, count);
+		}
+		return output.toByteArray();
+		
+	}
+	
+}
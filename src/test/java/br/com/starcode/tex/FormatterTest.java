@@ -0,0 +1,315 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.ColumnDefinitionImpl;
+import br.com.starcode.tex.format.BigDecimalFormatter;
+import br.com.starcode.tex.format.ColumnFormatter;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.format.DataFormatterBinding;
+import br.com.starcode.tex.format.DateFormatter;
+import br.com.starcode.tex.format.IntegerFormatter;
+import br.com.starcode.tex.format.OnlyDecimalFormatter;
+import br.com.starcode.tex.format.PackedDecimalFormatter;
+import br.com.starcode.tex.format.StringFormatter;
+import br.com.starcode.tex.format.ZonedDecimalFormatter;
+
+
+public class FormatterTest {
+
+	static final String[] DATE_FORMATS = { 
+		"yyyyMMdd", "ddMMyyyy", "dd/MM/yyyy HH:mm", "yyyy-MM-dd'T'HH:mm:ss.SSS", "HHmmss", "dd MMM yyyy", "EEE, d MMM yy" 
+	};
+	
+	@Test
+	public void datePatternsAsSimpleDateFormat() {
+		
+		DateFormatter formatter = new DateFormatter();
+		for (String format : DATE_FORMATS) {
+			for (Date date : getDates()) {
+				String expected = new SimpleDateFormat(format).format(date);
+				Assert.assertEquals(formatter.format(date, column(format, 30)), expected, format);
+				Calendar c = Calendar.getInstance();
+				c.setTime(date);
+				Assert.assertEquals(formatter.format(c, column(format, 30)), expected, format);
+			}
+		}
+		Assert.assertEquals(formatter.format(getDate(), column(null, 8)), new SimpleDateFormat("yyyyMMdd").format(getDate()));
+		Assert.assertNull(formatter.format(null, column("dd/MM/yyyy", 10)));
+		
+	}
+	
+	@Test
+	public void javaTimeValues() throws Exception {
+		
+		//java.time is created by reflection, tests compile for Java 7 too
+		Class<?> localDate = Class.forName("java.time.LocalDate");
+		Class<?> localDateTime = Class.forName("java.time.LocalDateTime");
+		Object date = localDate.getMethod("of", int.class, int.class, int.class).invoke(null, 2001, 1, 2);
+		Object dateTime = localDateTime.getMethod("of", int.class, int.class, int.class, int.class, int.class, int.class, int.class)
+				.invoke(null, 1969, 12, 31, 23, 59, 58, 6000000);
+		
+		Date now = getDate();
+		DateFormatter formatter = new DateFormatter();
+		String format = "yyyy-MM-dd'T'HH:mm:ss.SSS";
+		Assert.assertEquals(formatter.format(date, column(format, 30)), "2001-01-02T00:00:00.000");
+		Assert.assertEquals(formatter.format(dateTime, column(format, 30)), "1969-12-31T23:59:58.006");
+		Assert.assertEquals(formatter.format(now, column(format, 30)), new SimpleDateFormat(format).format(now));
+		Assert.assertNull(formatter.format(null, column(format, 30)));
+		
+		ColumnFormatter bound = DataFormatterBinding.bind(formatter, column("dd/MM/yyyy HH:mm", 20));
+		Assert.assertEquals(bound.format(date), "02/01/2001 00:00");
+		Assert.assertEquals(bound.format(dateTime), "31/12/1969 23:59");
+		Assert.assertEquals(bound.format(now), "28/03/2013 13:45");
+		Assert.assertNull(bound.format(null));
+		
+	}
+	
+	@Test
+	public void dateFormatterSharedByThreads() throws InterruptedException {
+		
+		final DateFormatter formatter = new DateFormatter();
+		final ColumnDefinition definition = column("dd/MM/yyyy HH:mm:ss", 20);
+		final Date[] dates = new Date[50];
+		final String[] expected = new String[dates.length];
+		Calendar c = Calendar.getInstance();
+		for (int i = 0; i < dates.length; i++) {
+			c.set(2000 + i, i % 12, 1 + i % 28, i % 24, i, i);
+			dates[i] = c.getTime();
+			expected[i] = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(dates[i]);
+		}
+		
+		final String[] failure = new String[1];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int n = 0; n < 200; n++) {
+						for (int i = 0; i < dates.length; i++) {
+							String formatted = formatter.format(dates[i], definition);
+							if (!expected[i].equals(formatted)) {
+								failure[0] = formatted + " instead of " + expected[i];
+							}
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < threads.length; t++) {
+			threads[t].join();
+		}
+		Assert.assertNull(failure[0]);
+		
+	}
+	
+	@Test
+	public void numberPatternsAsDecimalFormat() {
+		
+		ColumnDefinition[] columns = {
+			column(null, 30),
+			column("#,#00.000##", 30),
+			column("0000000000.000", 30),
+			column("#,#00.000000", 30),
+			column(".0", 30),
+			column("#", 30),
+			column("#,##0", 30),
+			column("000.00", 30),
+			new ColumnDefinitionImpl("", "column", 0, "value", "#,#0.000##", null, 30, null, "@", ";")
+		};
+		BigDecimalFormatter bigDecimalFormatter = new BigDecimalFormatter();
+		IntegerFormatter integerFormatter = new IntegerFormatter();
+		Random random = new Random(42);
+		for (ColumnDefinition column : columns) {
+			NumberFormat expected = Util.createNumberFormat(column);
+			for (int i = 0; i < 500; i++) {
+				BigDecimal value = BigDecimal.valueOf(random.nextLong() % 10000000000L, random.nextInt(7));
+				Assert.assertEquals(bigDecimalFormatter.format(value, column), expected.format(value), column.getFormat() + " " + value);
+				int intValue = random.nextInt() / (1 << random.nextInt(31));
+				//integers without format are not grouped
+				String expectedInt = column.getFormat() == null ? Integer.toString(intValue) : expected.format(intValue);
+				Assert.assertEquals(integerFormatter.format(intValue, column), expectedInt, column.getFormat() + " " + intValue);
+			}
+			for (BigDecimal value : new BigDecimal[] { BigDecimal.ZERO, new BigDecimal("-0.0004"), new BigDecimal("0.5"), new BigDecimal("12345678.995"), new BigDecimal("-2.5E+3") }) {
+				Assert.assertEquals(bigDecimalFormatter.format(value, column), expected.format(value), column.getFormat() + " " + value);
+			}
+		}
+		
+	}
+	
+	@Test
+	public void onlyDecimalColumnsIndependent() {
+		
+		OnlyDecimalFormatter formatter = new OnlyDecimalFormatter();
+		ColumnDefinition narrow = column("0.00", 2);
+		ColumnDefinition wide = column("0.0000", 4);
+		BigDecimal value = new BigDecimal("-234.515678");
+		for (int i = 0; i < 3; i++) {
+			Assert.assertEquals(formatter.format(value, narrow), "52");
+			Assert.assertEquals(formatter.format(value, wide), "5157");
+		}
+		Assert.assertNull(formatter.format(null, wide));
+		
+	}
+	
+	@Test
+	public void zonedDecimal() {
+		
+		ZonedDecimalFormatter formatter = new ZonedDecimalFormatter();
+		Assert.assertEquals(formatter.format(new BigDecimal("123.45"), column("S9(5)V99", 7)), "001234E");
+		Assert.assertEquals(formatter.format(new BigDecimal("-123.45"), column("S9(5)V99", 7)), "001234N");
+		Assert.assertEquals(formatter.format(new BigDecimal("-123.4"), column("S9(5)V99", 7)), "001234}");
+		Assert.assertEquals(formatter.format(7, column("9(3)", 3)), "007");
+		//without format, a signed picture as wide as the column
+		Assert.assertEquals(formatter.format(7L, column(null, 4)), "000G");
+		assertInvalid(formatter, 1234, column("9(3)", 3));
+		assertInvalid(formatter, -1, column("9(3)", 3));
+		
+	}
+	
+	@Test
+	public void bindingOfBuiltInFormatters() {
+		
+		assertBinding(new BigDecimalFormatter(), column("#,#00.000##", 20), new BigDecimal("7899087.5145"));
+		assertBinding(new IntegerFormatter(), column("#,#00.0#", 20), 30);
+		assertBinding(new IntegerFormatter(), column(null, 20), 30);
+		assertBinding(new OnlyDecimalFormatter(), column(null, 4), new BigDecimal("-234.51"));
+		assertBinding(new DateFormatter(), column("dd/MM/yyyy HH:mm", 20), getDate());
+		assertBinding(new StringFormatter(), column(null, 20), "value");
+		assertBinding(new ZonedDecimalFormatter(), column("S9(5)V99", 7), new BigDecimal("-123.45"));
+		assertBinding(new PackedDecimalFormatter(), column("S9(5)V99", 4), new BigDecimal("-123.45"));
+		
+		ColumnFormatter integer = DataFormatterBinding.bind(new IntegerFormatter(), column("#,#00.0#", 20));
+		Assert.assertEquals(integer.formatInt(1234), integer.format(1234));
+		ColumnFormatter decimal = DataFormatterBinding.bind(new BigDecimalFormatter(), column("#,#00.000##", 20));
+		Assert.assertEquals(decimal.formatDecimal(new BigDecimal("-0.0004")), decimal.format(new BigDecimal("-0.0004")));
+		ColumnFormatter date = DataFormatterBinding.bind(new DateFormatter(), column("dd/MM/yyyy", 10));
+		Assert.assertEquals(date.formatDate(getDate()), date.format(getDate()));
+		
+	}
+	
+	@Test
+	public void bindingOfOverriddenFormatters() {
+		
+		assertOverridden(new BigDecimalFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "custom";
+			}
+		}, new BigDecimal("1.5"));
+		assertOverridden(new IntegerFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "custom";
+			}
+		}, 1);
+		assertOverridden(new OnlyDecimalFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "custom";
+			}
+		}, new BigDecimal("1.5"));
+		assertOverridden(new DateFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "custom";
+			}
+		}, getDate());
+		assertOverridden(new StringFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "custom";
+			}
+		}, "value");
+		assertOverridden(new ZonedDecimalFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "custom";
+			}
+		}, 1);
+		
+	}
+	
+	void assertBinding(DataFormatter formatter, ColumnDefinition definition, Object data) {
+		
+		Assert.assertEquals(DataFormatterBinding.bind(formatter, definition).format(data), formatter.format(data, definition));
+		Assert.assertEquals(DataFormatterBinding.bind(formatter, definition).format(null), formatter.format(null, definition));
+		
+	}
+	
+	void assertOverridden(DataFormatter formatter, Object data) {
+		
+		Assert.assertEquals(DataFormatterBinding.bind(formatter, column(null, 10)).format(data), "custom");
+		
+	}
+	
+	void assertInvalid(DataFormatter formatter, Object data, ColumnDefinition definition) {
+		
+		try {
+			formatter.format(data, definition);
+			Assert.fail(data + " formatted with " + definition.getFormat());
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+		
+	}
+	
+	ColumnDefinition column(String format, int width) {
+		return new ColumnDefinitionImpl("", "column", 0, "value", format, null, width, null, null, null);
+	}
+	
+	Date getDate() {
+		
+		Calendar c = Calendar.getInstance();
+		c.set(2013, 2, 28, 13, 45);
+		return c.getTime();
+		
+	}
+	
+	/**
+	 * Dates with one and two digit fields, before 1970 and with milliseconds
+	 */
+	Date[] getDates() {
+		
+		Calendar c = Calendar.getInstance();
+		c.clear();
+		c.set(1969, 11, 31, 23, 59, 58);
+		Date beforeEpoch = c.getTime();
+		c.set(2001, 0, 2, 3, 4, 5);
+		c.set(Calendar.MILLISECOND, 6);
+		return new Date[] { getDate(), beforeEpoch, c.getTime(), new Date(0) };
+		
+	}
+	
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.ArrayAppender;
+import br.com.starcode.tex.appender.CompressedFileAppender;
+import br.com.starcode.tex.appender.FileAppender;
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.compress.GzipCodec;
+import br.com.starcode.tex.compress.ParallelGzipCodec;
+import br.com.starcode.tex.source.JavaBeanValueSource;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+/**
+ * Compares the output of each appender and option with layout-01-expected.txt, 
+ * written by the original per row path
+ */
+public class OutputPathsTest {
+
+	@Test
+	public void allPathsMatchBaseline() throws IOException {
+		
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(Locale.US);
+		try {
+			String expected = Fixtures.readResource("layout-01-expected.txt");
+			assertPaths(expected, false);
+			assertPaths(expected, true);
+		} finally {
+			Locale.setDefault(locale);
+		}
+		
+	}
+	
+	@Test
+	public void javaBeanMatchesBaseline() throws IOException {
+		
+		Locale locale = Locale.getDefault();
+		Locale.setDefault(Locale.US);
+		try {
+			String expected = Fixtures.readResource("layout-01-expected.txt");
+			for (boolean useAccessorMethods : new boolean[] { false, true }) {
+				Tex e = new Tex(Fixtures.getParams());
+				StringBufferAppender sb = new StringBufferAppender();
+				e.registerAppender(sb);
+				e.registerLayout(getClass(), "layout-01.xml");
+				export(e, new Row(), useAccessorMethods);
+				e.close();
+				Assert.assertEquals(sb.result().toString(), expected, "useAccessorMethods=" + useAccessorMethods);
+			}
+		} finally {
+			Locale.setDefault(locale);
+		}
+		
+	}
+	
+	@Test
+	public void reusedRowDataSet() throws IOException {
+		
+		RowDataSetAppender reused = exportTwice(true);
+		Assert.assertTrue(reused.rows.get(0) == reused.rows.get(1));
+		Assert.assertEquals(reused.lines.get(0), reused.lines.get(1));
+		
+		RowDataSetAppender created = exportTwice(false);
+		Assert.assertTrue(created.rows.get(0) != created.rows.get(1));
+		Assert.assertEquals(created.lines, reused.lines);
+		
+	}
+	
+	RowDataSetAppender exportTwice(boolean reuseRowDataSet) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.setReuseRowDataSet(reuseRowDataSet);
+		RowDataSetAppender appender = new RowDataSetAppender();
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-01.xml");
+		e.exportHeader(Fixtures.getDataMap());
+		e.exportHeader(Fixtures.getDataMap());
+		e.close();
+		return appender;
+		
+	}
+	
+	void assertPaths(String expected, boolean reuseRowDataSet) throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-paths").toFile();
+		String message = "reuseRowDataSet=" + reuseRowDataSet + ", ";
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.setReuseRowDataSet(reuseRowDataSet);
+		e.registerFileAppender(new File(directory, "file.txt"), false);
+		e.registerFileAppender(new File(directory, "small-buffer.txt"), false, 16).setFlushEveryRows(0).setFlushEveryChars(100);
+		e.registerChannelAppender(new File(directory, "channel.txt"), false, Fixtures.UTF_8);
+		e.registerChannelAppender(new File(directory, "mapped.txt"), false, Fixtures.UTF_8).setMappedSize(1000);
+		e.registerChannelAppender(new File(directory, "single-byte.txt"), false, Charset.forName("ISO-8859-1"));
+		e.registerAsyncAppender(new FileAppender(new File(directory, "async.txt"), false), 2);
+		GzipCodec gzip = new GzipCodec();
+		e.registerAppender(new CompressedFileAppender(new File(directory, "file.txt.gz"), false, gzip));
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		ParallelGzipCodec parallelGzip = new ParallelGzipCodec(executor, 100, 3, Deflater.BEST_SPEED);
+		e.registerAppender(new CompressedFileAppender(new File(directory, "parallel.txt.gz"), false, parallelGzip));
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		ArrayAppender array = new ArrayAppender();
+		e.registerAppender(array);
+		e.registerLayout(getClass(), "layout-01.xml");
+		try {
+			export(e);
+			e.close();
+		} finally {
+			executor.shutdown();
+		}
+		
+		//FileAppender writes with the platform charset
+		Charset charset = Charset.defaultCharset();
+		for (String name : new String[] { "file.txt", "small-buffer.txt", "async.txt" }) {
+			Assert.assertEquals(Fixtures.read(new File(directory, name), charset), Fixtures.encoded(expected, charset), message + name);
+		}
+		Assert.assertEquals(Fixtures.readCompressed(new File(directory, "file.txt.gz"), gzip, charset), Fixtures.encoded(expected, charset), message + "file.txt.gz");
+		Assert.assertEquals(Fixtures.readCompressed(new File(directory, "parallel.txt.gz"), parallelGzip, charset), Fixtures.encoded(expected, charset), message + "parallel.txt.gz");
+		for (String name : new String[] { "channel.txt", "mapped.txt" }) {
+			Assert.assertEquals(Fixtures.read(new File(directory, name), Fixtures.UTF_8), expected, message + name);
+		}
+		Assert.assertEquals(Fixtures.read(new File(directory, "single-byte.txt"), Charset.forName("ISO-8859-1")), expected, message + "single-byte.txt");
+		Assert.assertEquals(sb.result().toString(), expected, message + "StringBufferAppender");
+		
+		StringBuilder lines = new StringBuilder();
+		for (Object line : (Object[]) array.result()) {
+			lines.append(line).append("\r\n");
+		}
+		Assert.assertEquals(lines.toString(), expected, message + "ArrayAppender");
+		
+	}
+	
+	/**
+	 * Same rows of TexTest, plus headers with rounding and negative values
+	 */
+	void export(Tex e) {
+		
+		Map<String, Object> row = Fixtures.getDataMap();
+		e.exportHeader(row);
+		e.exportHeader(row);
+		e.exportDetail(row);
+		e.exportRow("alternativa", row);
+		e.exportRow("separado", row);
+		e.exportDetail(row);
+		e.exportFooter(row);
+		row.put("saldoConta", new BigDecimal("-0.0004"));
+		row.put("saldoConta2", new BigDecimal("12345678.995"));
+		e.exportHeader(row);
+		row.put("saldoConta", new BigDecimal("0.5"));
+		row.put("saldoConta2", new BigDecimal("-999"));
+		e.exportHeader(row);
+		
+	}
+	
+	/**
+	 * Same rows of {@link #export(Tex)}, read from a bean
+	 */
+	void export(Tex e, Row row, boolean useAccessorMethods) {
+		
+		JavaBeanValueSource<Row> source = new JavaBeanValueSource<Row>(row, useAccessorMethods);
+		e.exportHeader(source);
+		e.exportHeader(source);
+		e.exportDetail(source);
+		e.exportRow("alternativa", source);
+		e.exportRow("separado", source);
+		e.exportDetail(source);
+		e.exportFooter(source);
+		row.saldoConta = new BigDecimal("-0.0004");
+		row.saldoConta2 = new BigDecimal("12345678.995");
+		e.exportHeader(source);
+		row.saldoConta = new BigDecimal("0.5");
+		row.saldoConta2 = new BigDecimal("-999");
+		e.exportHeader(source);
+		
+	}
+	
+	static class Row {
+		
+		private String LINHAARQUIVO = (String) Fixtures.getDataMap().get("LINHAARQUIVO");
+		private Date dataNascimento = Fixtures.getDate();
+		private BigDecimal saldoConta = new BigDecimal("7899087.5145");
+		private BigDecimal saldoConta2 = new BigDecimal("-234.51");
+		
+		public String getLINHAARQUIVO() {
+			return LINHAARQUIVO;
+		}
+		
+		public Date getDataNascimento() {
+			return dataNascimento;
+		}
+		
+		public BigDecimal getSaldoConta() {
+			return saldoConta;
+		}
+		
+		public BigDecimal getSaldoConta2() {
+			return saldoConta2;
+		}
+		
+	}
+	
+	/**
+	 * Keeps the data sets it receives, with the line rendered at the time
+	 */
+	static class RowDataSetAppender implements Appender {
+		
+		List<RowDataSet> rows = new ArrayList<RowDataSet>();
+		List<String> lines = new ArrayList<String>();
+		
+		public void append(RowDataSet data, RowStructure rowStructure) {
+			rows.add(data);
+			lines.add(rowStructure.createLine(data, this));
+		}
+		
+		public int count() {
+			return rows.size();
+		}
+		
+		public void close() {
+		}
+		
+		public Object result() {
+			return lines;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.StringBufferAppender;
+
+
+public class ParamTest {
+
+	@Test
+	public void paramsSetDuringExport() throws IOException {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("name", "first");
+		Tex e = createTex(params);
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		
+		//the footer param is only needed when the footer is exported
+		exportDetail(e);
+		e.setParam("name", "second");
+		exportDetail(e);
+		e.setParam("total", 42);
+		e.exportFooter(new HashMap<String, Object>());
+		e.close();
+		
+		Assert.assertEquals(Arrays.asList(sb.result().toString().split("\r\n")), Arrays.asList("row;first", "row;second", "42"));
+		
+	}
+	
+	@Test
+	public void paramMapLockedAfterStart() throws IOException {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("name", "first");
+		Tex e = createTex(params);
+		e.registerAppender(new StringBufferAppender());
+		e.getParamMap().put("total", 1);
+		exportDetail(e);
+		try {
+			e.getParamMap().put("name", "second");
+			Assert.fail("Param changed through the map after the export started");
+		} catch (UnsupportedOperationException ex) {
+			//expected
+		}
+		
+	}
+	
+	@Test
+	public void missingParamOfExportedLayout() throws IOException {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("name", "first");
+		Tex e = createTex(params);
+		e.registerAppender(new StringBufferAppender());
+		exportDetail(e);
+		try {
+			e.exportFooter(new HashMap<String, Object>());
+			Assert.fail("Footer exported without its param");
+		} catch (RuntimeException ex) {
+			Assert.assertTrue(ex.getMessage().contains("'total' not defined"), ex.getMessage());
+		}
+		
+	}
+	
+	Tex createTex(Map<String, Object> params) throws IOException {
+		
+		Tex e = new Tex(params);
+		e.registerLayout(getClass(), "layout-params.xml");
+		return e;
+		
+	}
+	
+	void exportDetail(Tex e) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("LINHAARQUIVO", "row");
+		e.exportDetail(map);
+		
+	}
+	
+}
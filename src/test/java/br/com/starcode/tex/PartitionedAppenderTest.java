@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.FileAppender;
+import br.com.starcode.tex.appender.PartitionedAppender;
+
+
+public class PartitionedAppenderTest {
+
+	@Test
+	public void fullPartsReopenedForFooter() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-parts").toFile();
+		final File keptOpenDirectory = Files.createTempDirectory("tex-parts").toFile();
+		
+		//parts created by file name pattern are closed when full and reopened for the footer
+		PartitionedAppender partitioned = new PartitionedAppender(directory, "part-{0}.txt").setMaxRows(10);
+		export(partitioned, 35);
+		
+		//parts of other factories stay open until the footer
+		final List<File> keptOpenFiles = new ArrayList<File>();
+		PartitionedAppender keptOpen = new PartitionedAppender(new PartitionedAppender.PartFactory() {
+			public Appender createPart(int number, String key) throws IOException {
+				File file = new File(keptOpenDirectory, "part-" + number + ".txt");
+				keptOpenFiles.add(file);
+				return new FileAppender(file, false);
+			}
+		}).setMaxRows(10);
+		export(keptOpen, 35);
+		
+		Assert.assertEquals(partitioned.getPartCount(), 4);
+		for (int i = 0; i < 4; i++) {
+			File file = partitioned.getFiles().get(i);
+			Assert.assertEquals(file.getName(), "part-" + (i + 1) + ".txt");
+			Assert.assertEquals(read(file), read(keptOpenFiles.get(i)));
+			Assert.assertTrue(read(file).endsWith("footer"), read(file));
+		}
+		
+	}
+	
+	@Test
+	public void partNumberWithoutGrouping() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-parts").toFile();
+		PartitionedAppender partitioned = new PartitionedAppender(directory, "part-{0}.txt").setMaxRows(1);
+		export(partitioned, 1000);
+		
+		Assert.assertEquals(partitioned.getPartCount(), 1000);
+		Assert.assertEquals(partitioned.getFiles().get(999).getName(), "part-1000.txt");
+		Assert.assertTrue(new File(directory, "part-1000.txt").exists());
+		
+	}
+	
+	@Test
+	public void partsByKey() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-parts").toFile();
+		PartitionedAppender partitioned = new PartitionedAppender(directory, "part-{1}.txt").setKeyColumn("LINHAARQUIVO");
+		String[] keys = { "a", "b", "a", "c/d", "b", "a" };
+		export(partitioned, keys);
+		
+		//each part has the header, its rows numbered from the header on and the footer, like a separate export
+		Assert.assertEquals(partitioned.getPartCount(), 3);
+		Assert.assertEquals(read(new File(directory, "part-a.txt")), exportSingle("a", "a", "a"));
+		Assert.assertEquals(read(new File(directory, "part-b.txt")), exportSingle("b", "b"));
+		Assert.assertEquals(read(new File(directory, "part-c_d.txt")), exportSingle("c/d"));
+		
+	}
+	
+	@Test
+	public void openPartsLimited() throws IOException {
+		
+		final File directory = Files.createTempDirectory("tex-parts").toFile();
+		final int[] open = new int[2];
+		PartitionedAppender partitioned = new PartitionedAppender(new PartitionedAppender.ReopenablePartFactory() {
+			public Appender createPart(int number, String key) throws IOException {
+				return reopenPart(number, key);
+			}
+			public Appender reopenPart(int number, String key) throws IOException {
+				open[0]++;
+				open[1] = Math.max(open[1], open[0]);
+				return new FileAppender(new File(directory, "part-" + key + ".txt"), true) {
+					public void close() {
+						super.close();
+						open[0]--;
+					}
+				};
+			}
+		}).setKeyColumn("LINHAARQUIVO").setMaxOpenParts(2);
+		
+		//six keys, more than the open parts, coming back again and again
+		String[] keys = new String[24];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "k" + (i % 6);
+		}
+		export(partitioned, keys);
+		
+		Assert.assertEquals(partitioned.getPartCount(), 6);
+		Assert.assertEquals(open[0], 0);
+		Assert.assertEquals(open[1], 2);
+		for (int i = 0; i < 6; i++) {
+			String key = "k" + i;
+			Assert.assertEquals(read(new File(directory, "part-" + key + ".txt")), exportSingle(key, key, key, key), key);
+		}
+		
+		//parts of other factories can't be closed before they are complete
+		try {
+			new PartitionedAppender(new PartitionedAppender.PartFactory() {
+				public Appender createPart(int number, String key) throws IOException {
+					return new FileAppender(new File(directory, "other-" + number + ".txt"), false);
+				}
+			}).setMaxOpenParts(2);
+			Assert.fail("Open parts limited without reopening them");
+		} catch (IllegalStateException ex) {
+			//expected
+		}
+		
+	}
+	
+	@Test
+	public void openPartsLimitedBySize() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-parts").toFile();
+		File limitedDirectory = Files.createTempDirectory("tex-parts").toFile();
+		String[] keys = new String[40];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "k" + (i % 4);
+		}
+		
+		//suspended parts keep their size, so they are split at the same rows
+		PartitionedAppender partitioned = new PartitionedAppender(directory, "part-{1}-{0}.txt").setKeyColumn("LINHAARQUIVO").setMaxSize(5000);
+		export(partitioned, keys);
+		PartitionedAppender limited = new PartitionedAppender(limitedDirectory, "part-{1}-{0}.txt").setKeyColumn("LINHAARQUIVO").setMaxSize(5000)
+				.setMaxOpenParts(3);
+		export(limited, keys);
+		
+		Assert.assertEquals(limited.getPartCount(), partitioned.getPartCount());
+		Assert.assertTrue(partitioned.getPartCount() > 4);
+		for (int i = 0; i < partitioned.getPartCount(); i++) {
+			File file = partitioned.getFiles().get(i);
+			Assert.assertEquals(read(limited.getFiles().get(i)), read(file), file.getName());
+		}
+		
+	}
+	
+	@Test
+	public void partsBySize() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-parts").toFile();
+		PartitionedAppender partitioned = new PartitionedAppender(directory, "part-{0}.txt").setMaxSize(5000).setFooterLayoutId(null);
+		export(partitioned, 20);
+		
+		//header (650 chars) and 6 detail rows of 652 chars (with the line separator) fit in 5000 chars
+		Assert.assertEquals(partitioned.getPartCount(), 4);
+		for (int i = 0; i < 4; i++) {
+			File file = partitioned.getFiles().get(i);
+			Assert.assertTrue(file.length() <= 5000, file.getName() + " has " + file.length());
+		}
+		//without a footer layout, the footer row is a detail row of the last part
+		Assert.assertEquals(partitioned.count(), 22);
+		
+	}
+	
+	/**
+	 * Rows of a part exported on their own
+	 */
+	String exportSingle(String... keys) throws IOException {
+		
+		File file = File.createTempFile("tex-parts", ".txt");
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerFileAppender(file, false);
+		e.registerLayout(getClass(), "layout-01.xml");
+		exportRows(e, keys);
+		e.close();
+		return read(file);
+		
+	}
+	
+	void export(PartitionedAppender partitioned, String[] keys) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(partitioned);
+		e.registerLayout(getClass(), "layout-01.xml");
+		exportRows(e, keys);
+		e.close();
+		
+	}
+	
+	void exportRows(Tex e, String[] keys) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("LINHAARQUIVO", "header");
+		map.put("dataNascimento", new Date(0));
+		e.exportHeader(map);
+		for (int i = 0; i < keys.length; i++) {
+			map.put("LINHAARQUIVO", keys[i]);
+			e.exportDetail(map);
+		}
+		map.put("LINHAARQUIVO", "footer");
+		e.exportFooter(map);
+		
+	}
+	
+	void export(PartitionedAppender partitioned, int rows) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(partitioned);
+		e.registerLayout(getClass(), "layout-01.xml");
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("LINHAARQUIVO", "header");
+		map.put("dataNascimento", new Date(0));
+		e.exportHeader(map);
+		for (int i = 0; i < rows; i++) {
+			map.put("LINHAARQUIVO", "row " + i);
+			e.exportDetail(map);
+		}
+		map.put("LINHAARQUIVO", "footer");
+		e.exportFooter(map);
+		e.close();
+		
+	}
+	
+	String read(File file) throws IOException {
+		return Fixtures.read(file, Fixtures.UTF_8).trim();
+	}
+	
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.ChannelAppender;
+import br.com.starcode.tex.appender.FileAppender;
+import br.com.starcode.tex.appender.RowCounter;
+
+
+public class RowCounterTest {
+
+	@Test
+	public void countsLikeReadLine() throws IOException {
+		
+		String[] pieces = { "a", "bc", "\n", "\r", "\r\n", "\n\r", "12345678" };
+		Random random = new Random(42);
+		File file = File.createTempFile("tex-count", ".txt");
+		for (int i = 0; i < 500; i++) {
+			
+			StringBuilder content = new StringBuilder();
+			int count = random.nextInt(40);
+			for (int j = 0; j < count; j++) {
+				content.append(pieces[random.nextInt(pieces.length)]);
+			}
+			byte[] bytes = content.toString().getBytes(Fixtures.UTF_8);
+			Files.write(file.toPath(), bytes);
+			
+			int expected = readLines(content.toString());
+			Assert.assertEquals(RowCounter.countLines(file), expected, content.toString());
+			Assert.assertEquals(RowCounter.countLines(new ByteArrayInputStream(bytes)), expected, content.toString());
+			
+		}
+		
+	}
+	
+	@Test
+	public void metadataTrustedWhileFileMatches() throws IOException {
+		
+		File file = File.createTempFile("tex-count", ".txt");
+		FileAppender first = new FileAppender(file, false).setRowCountMetadata(true);
+		export(first, 3);
+		Assert.assertEquals(RowCounter.readMetadata(file), 3);
+		
+		//the metadata is removed while the file is being written
+		FileAppender appended = new FileAppender(file, true).setRowCountMetadata(true);
+		Assert.assertEquals(appended.count(), 3);
+		Assert.assertFalse(RowCounter.getMetadataFile(file).exists());
+		export(appended, 2);
+		Assert.assertEquals(RowCounter.readMetadata(file), 5);
+		
+		//changed files are counted again
+		RandomAccessFile output = new RandomAccessFile(file, "rw");
+		try {
+			output.seek(file.length() - 10);
+			output.write('x');
+		} finally {
+			output.close();
+		}
+		Assert.assertEquals(RowCounter.readMetadata(file), -1);
+		Assert.assertEquals(new FileAppender(file, true).count(), 5);
+		
+	}
+	
+	@Test
+	public void channelAppenderMetadata() throws IOException {
+		
+		File file = File.createTempFile("tex-count", ".txt");
+		export(new ChannelAppender(file, false, Fixtures.UTF_8).setRowCountMetadata(true), 4);
+		Assert.assertEquals(RowCounter.readMetadata(file), 4);
+		
+		ChannelAppender appended = new ChannelAppender(file, true, Fixtures.UTF_8);
+		Assert.assertEquals(appended.count(), 4);
+		export(appended, 1);
+		Assert.assertFalse(RowCounter.getMetadataFile(file).exists());
+		Assert.assertEquals(RowCounter.countLines(file), 5);
+		
+	}
+	
+	int readLines(String content) throws IOException {
+		
+		BufferedReader reader = new BufferedReader(new StringReader(content));
+		int count = 0;
+		while (reader.readLine() != null) {
+			count++;
+		}
+		return count;
+		
+	}
+	
+	void export(Appender appender, int rows) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = 0; i < rows; i++) {
+			map.put("LINHAARQUIVO", "row " + i);
+			e.exportRow("alternativa", map);
+		}
+		e.close();
+		
+	}
+	
+}
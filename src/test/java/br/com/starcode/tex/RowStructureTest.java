@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.column.ColumnDefinition;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.format.DataFormatter;
+import br.com.starcode.tex.format.StringFormatter;
+import br.com.starcode.tex.structure.RowStructure;
+
+
+public class RowStructureTest {
+
+	@Test
+	public void writeLineMatchesCreateLine() throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		RowAppender appender = new RowAppender();
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> row = Fixtures.getDataMap();
+		e.exportHeader(row);
+		e.exportDetail(row);
+		e.exportRow("alternativa", row);
+		e.exportRow("separado", row);
+		e.exportFooter(row);
+		e.close();
+		
+		for (int i = 0; i < appender.rows.size(); i++) {
+			StringBuilder sb = new StringBuilder("prefix:");
+			appender.structures.get(i).writeLine(appender.rows.get(i), appender, sb);
+			Assert.assertEquals(sb.toString(), "prefix:" + appender.lines.get(i));
+		}
+		
+	}
+	
+	@Test
+	public void nullFormattedValueBlank() throws IOException {
+		
+		Map<String, Object> row = Fixtures.getDataMap();
+		row.put("LINHAARQUIVO", "");
+		StringBufferAppender expected = export(null, row);
+		
+		//null for the column, fixed values as usual
+		StringBufferAppender actual = export(new StringFormatter() {
+			@Override
+			public String format(Object data, ColumnDefinition columnDefinition) {
+				return "LINHAARQUIVO".equals(columnDefinition.getValue()) ? null : super.format(data, columnDefinition);
+			}
+		}, Fixtures.getDataMap());
+		Assert.assertEquals(actual.result().toString(), expected.result().toString());
+		
+	}
+	
+	@Test
+	public void templateOverwrittenByEachRow() throws IOException {
+		
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 120; i++) {
+			value.append((char) ('a' + i % 26));
+		}
+		
+		Tex e = new Tex(Fixtures.getParams());
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		File file = File.createTempFile("tex-structure", ".txt");
+		e.registerChannelAppender(file, false, Charset.forName("ISO-8859-1"));
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> row = Fixtures.getDataMap();
+		row.put("LINHAARQUIVO", value.toString());
+		e.exportRow("alternativa", row);
+		row.put("LINHAARQUIVO", "short");
+		e.exportRow("alternativa", row);
+		e.close();
+		
+		//the fixed column at position 120 overwrites the last character of the wider one, as before templates
+		String expected = value.substring(0, 119) + "4560000000********123\r\n" 
+				+ String.format("%-119s", "short") + "4560000000********123\r\n";
+		Assert.assertEquals(sb.result().toString(), expected);
+		Assert.assertEquals(Fixtures.read(file, Charset.forName("ISO-8859-1")), expected);
+		
+	}
+	
+	StringBufferAppender export(DataFormatter stringFormatter, Map<String, Object> row) throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		if (stringFormatter != null) {
+			e.registerFormatter("String", stringFormatter);
+		}
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		e.registerLayout(getClass(), "layout-01.xml");
+		e.exportRow("alternativa", row);
+		e.close();
+		return sb;
+		
+	}
+	
+	/**
+	 * Keeps each row with its structure and the line created by it
+	 */
+	static class RowAppender extends StringBufferAppender {
+		
+		List<RowDataSet> rows = new ArrayList<RowDataSet>();
+		List<RowStructure> structures = new ArrayList<RowStructure>();
+		List<String> lines = new ArrayList<String>();
+		
+		@Override
+		public void append(RowDataSet data, RowStructure rowStructure) {
+			rows.add(data);
+			structures.add(rowStructure);
+			lines.add(rowStructure.createLine(data, this));
+		}
+		
+	}
+	
+}
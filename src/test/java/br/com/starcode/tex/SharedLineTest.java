@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.Appender;
+import br.com.starcode.tex.appender.ArrayAppender;
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.column.RowDataSet;
+import br.com.starcode.tex.structure.PositionalRowStructure;
+
+
+public class SharedLineTest {
+
+	@Test
+	public void renderedOncePerRow() throws IOException {
+		
+		CountingFactory factory = new CountingFactory();
+		Tex e = new Tex(Fixtures.getParams(), factory);
+		File file = File.createTempFile("tex-shared", ".txt");
+		File channelFile = File.createTempFile("tex-shared", ".txt");
+		e.registerFileAppender(file, false);
+		e.registerChannelAppender(channelFile, false, Fixtures.UTF_8);
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		ArrayAppender array = new ArrayAppender();
+		e.registerAppender(array);
+		e.registerLayout(getClass(), "layout-01.xml");
+		export(e, "alternativa", 10);
+		export(e, "detail", 10);
+		e.close();
+		
+		//counters have the same value for all appenders
+		Assert.assertEquals(factory.rowStructure.renders, 20);
+		
+		String expected = exportAlone();
+		Assert.assertEquals(sb.result().toString(), expected);
+		Assert.assertEquals(Fixtures.read(file, Fixtures.UTF_8), expected);
+		Assert.assertEquals(Fixtures.read(channelFile, Fixtures.UTF_8), expected);
+		StringBuilder lines = new StringBuilder();
+		for (Object line : (Object[]) array.result()) {
+			lines.append(line).append("\r\n");
+		}
+		Assert.assertEquals(lines.toString(), expected);
+		
+	}
+	
+	@Test
+	public void renderedAgainForOtherCounters() throws IOException {
+		
+		//the file already has 2 rows, so its counters differ from the string buffer ones
+		File file = File.createTempFile("tex-shared", ".txt");
+		Tex existing = new Tex(Fixtures.getParams());
+		existing.registerFileAppender(file, false);
+		existing.registerLayout(getClass(), "layout-01.xml");
+		export(existing, "detail", 2);
+		existing.close();
+		
+		CountingFactory factory = new CountingFactory();
+		Tex e = new Tex(Fixtures.getParams(), factory);
+		e.registerFileAppender(file, true);
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		ArrayAppender array = new ArrayAppender();
+		e.registerAppender(array);
+		e.registerLayout(getClass(), "layout-01.xml");
+		export(e, "alternativa", 5);
+		Assert.assertEquals(factory.rowStructure.renders, 5);
+		export(e, "detail", 5);
+		Assert.assertEquals(factory.rowStructure.renders, 15);
+		e.close();
+		
+		String[] fileLines = Fixtures.read(file, Fixtures.UTF_8).split("\r\n");
+		Assert.assertEquals(fileLines.length, 12);
+		Assert.assertEquals(fileLines[11].substring(19, 24).trim(), "11");
+		Object[] arrayLines = (Object[]) array.result();
+		Assert.assertEquals(((String) arrayLines[9]).substring(19, 24).trim(), "9");
+		
+	}
+	
+	/**
+	 * Same rows exported to a single appender, which renders them by itself
+	 */
+	String exportAlone() throws IOException {
+		
+		Tex e = new Tex(Fixtures.getParams());
+		StringBufferAppender sb = new StringBufferAppender();
+		e.registerAppender(sb);
+		e.registerLayout(getClass(), "layout-01.xml");
+		export(e, "alternativa", 10);
+		export(e, "detail", 10);
+		e.close();
+		return sb.result().toString();
+		
+	}
+	
+	void export(Tex e, String layoutId, int rows) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = 0; i < rows; i++) {
+			map.put("LINHAARQUIVO", layoutId + " " + i);
+			e.exportRow(layoutId, map);
+		}
+		
+	}
+	
+	static class CountingFactory extends TexComponentFactoryImpl {
+		
+		final CountingRowStructure rowStructure = new CountingRowStructure();
+		
+		@Override
+		public PositionalRowStructure createPositionalRowStructure() {
+			return rowStructure;
+		}
+		
+	}
+	
+	/**
+	 * Counts the rows rendered as characters
+	 */
+	static class CountingRowStructure extends PositionalRowStructure {
+		
+		int renders;
+		
+		@Override
+		public String createLine(RowDataSet rowDataSet, Appender appender) {
+			renders++;
+			return super.createLine(rowDataSet, appender);
+		}
+		
+		@Override
+		public void writeLine(RowDataSet rowDataSet, Appender appender, Appendable output) throws IOException {
+			renders++;
+			super.writeLine(rowDataSet, appender, output);
+		}
+		
+	}
+	
+}
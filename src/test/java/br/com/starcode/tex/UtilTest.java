@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class UtilTest {
+
+	@Test
+	public void fill() {
+		
+		Assert.assertEquals(Util.fill("ab", 5, '*', true), "***ab");
+		Assert.assertEquals(Util.fill("ab", 5, '*', false), "ab***");
+		Assert.assertEquals(Util.fill(null, 3, '0', true), "000");
+		Assert.assertEquals(Util.fill("abcdef", 5, '*', true), "abcdef");
+		Assert.assertEquals(Util.fill("x", 300, ' ', false), "x" + repeat(' ', 299));
+		Assert.assertEquals(Util.fill("x", 200, 'ç', true), repeat('ç', 199) + "x");
+		
+	}
+	
+	@Test
+	public void fillRunsShared() {
+		
+		for (char fillChar : new char[] { ' ', '0', 'ç' }) {
+			String run = Util.getFillRun(fillChar, 10);
+			Assert.assertTrue(run.length() >= 10);
+			Assert.assertEquals(run, repeat(fillChar, run.length()));
+			Assert.assertSame(Util.getFillRun(fillChar, 5), run);
+			Assert.assertTrue(Util.getFillRun(fillChar, run.length() + 1).length() > run.length());
+		}
+		
+	}
+	
+	@Test
+	public void writeAlignedAsAlignContent() throws IOException {
+		
+		for (String data : new String[] { "", "abc" }) {
+			for (int width = 0; width <= 6; width++) {
+				for (int visibleWidth = 0; visibleWidth <= width; visibleWidth++) {
+					for (boolean right : new boolean[] { false, true }) {
+						
+						String aligned = Util.fill(data, width, '_', right);
+						String expected = aligned.substring(0, Math.min(visibleWidth, aligned.length()));
+						String message = "'" + data + "' width=" + width + " visible=" + visibleWidth + " right=" + right;
+						
+						StringBuilder sb = new StringBuilder();
+						Util.writeAligned(sb, data, width, visibleWidth, '_', right);
+						Assert.assertEquals(sb.toString(), expected, message);
+						
+						char[] chars = new char[8];
+						Arrays.fill(chars, '#');
+						int end = Util.writeAligned(data, width, visibleWidth, '_', right, chars, 1);
+						Assert.assertEquals(new String(chars, 1, end - 1), expected, message);
+						Assert.assertEquals(chars[end], '#');
+						
+					}
+				}
+			}
+		}
+		
+	}
+	
+	String repeat(char c, int count) {
+		
+		char[] chars = new char[count];
+		Arrays.fill(chars, c);
+		return new String(chars);
+		
+	}
+	
+}
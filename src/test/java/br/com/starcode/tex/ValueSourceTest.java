@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.StringBufferAppender;
+import br.com.starcode.tex.layout.LayoutPlan;
+import br.com.starcode.tex.source.JavaBeanValueSource;
+import br.com.starcode.tex.source.MapValueSource;
+import br.com.starcode.tex.source.SlotType;
+import br.com.starcode.tex.source.ValueSource;
+
+
+public class ValueSourceTest {
+
+	@Test
+	public void mapSlots() {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("a", 1);
+		map.put("b", "x");
+		MapValueSource source = new MapValueSource(map);
+		int a = source.resolveSlot("a");
+		int b = source.resolveSlot("b");
+		Assert.assertEquals(source.resolveSlot("a"), a);
+		Assert.assertEquals(source.getSlotType(a), SlotType.OBJECT);
+		Assert.assertEquals(source.getInt(a), 1);
+		Assert.assertEquals(source.getObject(b), "x");
+		
+		//slots stay valid for the next map
+		Map<String, Object> next = new HashMap<String, Object>();
+		next.put("b", "y");
+		next.put("a", 2L);
+		source.setMap(next);
+		Assert.assertEquals(source.getLong(a), 2L);
+		Assert.assertEquals(source.getObject(b), "y");
+		
+	}
+	
+	@Test
+	public void javaBeanPrimitiveSlots() {
+		
+		Row row = new Row();
+		JavaBeanValueSource<Row> source = new JavaBeanValueSource<Row>(row, false);
+		int a = source.resolveSlot("a");
+		int c = source.resolveSlot("c");
+		int d = source.resolveSlot("d");
+		int e = source.resolveSlot("e");
+		Assert.assertEquals(source.getSlotType(a), SlotType.OBJECT);
+		Assert.assertEquals(source.getSlotType(c), SlotType.INT);
+		Assert.assertEquals(source.getSlotType(d), SlotType.LONG);
+		Assert.assertEquals(source.getSlotType(e), SlotType.DOUBLE);
+		Assert.assertEquals(source.getObject(a), row.a);
+		Assert.assertEquals(source.getInt(c), 7);
+		Assert.assertEquals(source.getLong(d), 12345L);
+		Assert.assertEquals(source.getDouble(e), 0.5, 0);
+		Assert.assertEquals(source.getObject(c), 7);
+		
+		Row next = new Row();
+		next.c = 8;
+		source.setJavaBean(next);
+		Assert.assertEquals(source.getInt(c), 8);
+		
+	}
+	
+	@Test
+	public void slotsSharedByNewSources() throws IOException {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("a", 1);
+		MapValueSource first = new MapValueSource(map);
+		MapValueSource second = new MapValueSource(new HashMap<String, Object>(map));
+		Assert.assertSame(first.getSlotKey(), second.getSlotKey());
+		Assert.assertEquals(second.resolveSlot("a"), first.resolveSlot("a"));
+		
+		//bean slots are the same for every class, with accessors of the current one
+		JavaBeanValueSource<Object> bean = new JavaBeanValueSource<Object>(new Row(), false);
+		JavaBeanValueSource<Object> other = new JavaBeanValueSource<Object>(new Row(), false);
+		Assert.assertSame(bean.getSlotKey(), other.getSlotKey());
+		int c = bean.resolveSlot("c");
+		Assert.assertEquals(other.resolveSlot("c"), c);
+		bean.setJavaBean(new OtherRow());
+		Assert.assertEquals(bean.getSlotType(c), SlotType.OBJECT);
+		Assert.assertEquals(bean.getObject(c), "other");
+		bean.setJavaBean(new Row());
+		Assert.assertEquals(bean.getInt(c), 7);
+		
+		//layouts bind their columns once for sources created for each row
+		Tex e = new Tex(Fixtures.getParams());
+		e.registerAppender(new StringBufferAppender());
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> data = Fixtures.getDataMap();
+		e.exportDetail(new MapValueSource(data));
+		LayoutPlan plan = e.getLayoutPlan("detail");
+		int[] slots = plan.getRowSourceSlots(new MapValueSource(data));
+		e.exportDetail(new MapValueSource(data));
+		Assert.assertSame(plan.getRowSourceSlots(new MapValueSource(data)), slots);
+		e.close();
+		
+	}
+	
+	@Test
+	public void primitiveColumnsAsMapColumns() throws IOException {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		Row row = new Row();
+		map.put("a", row.a);
+		map.put("b", row.b);
+		map.put("c", row.c);
+		map.put("d", row.d);
+		
+		File beanFile = File.createTempFile("tex-source", ".txt");
+		File mapFile = File.createTempFile("tex-source", ".txt");
+		export(new JavaBeanValueSource<Row>(row, false), beanFile);
+		export(new MapValueSource(map), mapFile);
+		Assert.assertEquals(Files.readAllBytes(beanFile.toPath()), Files.readAllBytes(mapFile.toPath()));
+		
+	}
+	
+	void export(ValueSource source, File file) throws IOException {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("p", 123);
+		Tex e = new Tex(params);
+		e.registerChannelAppender(file, false, Charset.forName("Cp037"));
+		e.registerLayout(getClass(), "layout-binary.xml");
+		e.exportDetail(source);
+		e.exportDetail(source);
+		e.close();
+		
+	}
+	
+	public static class OtherRow {
+		
+		public String c = "other";
+		
+	}
+	
+	public static class Row {
+		
+		public BigDecimal a = new BigDecimal("123.45");
+		public BigDecimal b = new BigDecimal("-123.456");
+		public int c = 7;
+		public long d = 12345L;
+		public double e = 0.5;
+		
+	}
+	
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2013 Luiz Ricardo, http://luizricardo.eti.br, http://starcode.com.br
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package br.com.starcode.tex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import br.com.starcode.tex.appender.XlsAppender;
+
+
+public class XlsAppenderTest {
+
+	static final String SHEET = "xl/worksheets/sheet1.xml";
+	
+	@Test
+	public void inlineAndSharedStrings() throws IOException {
+		
+		File directory = Files.createTempDirectory("tex-xls").toFile();
+		File inline = new File(directory, "inline.xlsx");
+		File shared = new File(directory, "shared.xlsx");
+		
+		Tex e = createTex();
+		e.registerAppender(new XlsAppender(inline, false));
+		e.registerAppender(new XlsAppender(shared, false).setSharedStrings(true));
+		e.registerLayout(getClass(), "layout-01.xml");
+		exportRows(e, "row ", 3);
+		Assert.assertEquals(e.getAppenderList().get(0).count(), 3);
+		e.close();
+		
+		String sheet = Fixtures.readEntry(inline, SHEET);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(sheet.contains("<t>row " + i + "</t>"), sheet);
+		}
+		Assert.assertFalse(new File(directory, "inline.xlsx.tmp").exists());
+		
+		//repeated values are shared
+		String strings = Fixtures.readEntry(shared, "xl/sharedStrings.xml");
+		Assert.assertTrue(strings.contains("<t>row 2</t>"), strings);
+		Assert.assertEquals(strings.split("<t>456").length - 1, 1, strings);
+		
+	}
+	
+	@Test
+	public void typedCells() throws IOException {
+		
+		File file = File.createTempFile("tex-xls", ".xlsx");
+		Tex e = createTex();
+		e.registerAppender(new XlsAppender(file, false).setTimeZone(TimeZone.getTimeZone("UTC")));
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> map = Fixtures.getDataMap();
+		e.exportHeader(map);
+		
+		//2013-03-28 is the day 41361 of Excel
+		map.put("dataNascimento", new Date(1364428800000L));
+		e.exportRow("separado", map);
+		map.put("dataNascimento", new Date(1364428800000L + 12 * 3600000L));
+		e.exportRow("separado", map);
+		e.close();
+		
+		String sheet = Fixtures.readEntry(file, SHEET);
+		Assert.assertTrue(sheet.contains("<v>7899087.5145</v>"), sheet);
+		Assert.assertTrue(sheet.contains("<v>30</v>"), sheet);
+		Assert.assertTrue(sheet.contains("<v>41361</v>"), sheet);
+		Assert.assertTrue(sheet.contains("<v>41361.5</v>"), sheet);
+		
+	}
+	
+	@Test
+	public void datesBefore1970() throws IOException {
+		
+		File file = File.createTempFile("tex-xls", ".xlsx");
+		Tex e = createTex();
+		e.registerAppender(new XlsAppender(file, false).setTimeZone(TimeZone.getTimeZone("UTC")));
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> map = Fixtures.getDataMap();
+		
+		//1969-12-31 is the day 25568 of Excel, without time
+		map.put("dataNascimento", new Date(-86400000L));
+		e.exportRow("separado", map);
+		map.put("dataNascimento", new Date(-86400000L + 6 * 3600000L));
+		e.exportRow("separado", map);
+		e.close();
+		
+		String sheet = Fixtures.readEntry(file, SHEET);
+		Assert.assertTrue(sheet.contains("s=\"1\"><v>25568</v>"), sheet);
+		Assert.assertTrue(sheet.contains("<v>25568.25</v>"), sheet);
+		
+	}
+	
+	@Test
+	public void fullWorksheet() throws IOException {
+		
+		//a worksheet with its last row but one, instead of writing a million rows
+		File file = File.createTempFile("tex-xls", ".xlsx");
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+		try {
+			zip.putNextEntry(new ZipEntry(SHEET));
+			zip.write(("<worksheet><sheetData><row r=\"" + (XlsAppender.MAX_ROWS - 1) + "\"></row></sheetData></worksheet>").getBytes(Fixtures.UTF_8));
+			zip.closeEntry();
+		} finally {
+			zip.close();
+		}
+		
+		Tex e = createTex();
+		e.registerAppender(new XlsAppender(file, true));
+		e.registerLayout(getClass(), "layout-01.xml");
+		exportRows(e, "last ", 1);
+		try {
+			exportRows(e, "beyond ", 1);
+			Assert.fail("Row written beyond the worksheet limit");
+		} catch (IllegalStateException ex) {
+			Assert.assertTrue(ex.getMessage().contains("is full"), ex.getMessage());
+		}
+		e.close();
+		
+		String sheet = Fixtures.readEntry(file, SHEET);
+		Assert.assertTrue(sheet.contains("<row r=\"" + XlsAppender.MAX_ROWS + "\">"), sheet);
+		Assert.assertFalse(sheet.contains("beyond"), sheet);
+		
+	}
+	
+	@Test
+	public void textCells() throws IOException {
+		
+		File file = File.createTempFile("tex-xls", ".xlsx");
+		Tex e = createTex();
+		e.registerAppender(new XlsAppender(file, false).setTypedCells(false));
+		e.registerLayout(getClass(), "layout-01.xml");
+		Map<String, Object> map = Fixtures.getDataMap();
+		map.put("LINHAARQUIVO", "<a & b>");
+		e.exportHeader(map);
+		e.close();
+		
+		String sheet = Fixtures.readEntry(file, SHEET);
+		Assert.assertFalse(sheet.contains("<v>7899087.5145</v>"), sheet);
+		Assert.assertTrue(sheet.contains("<t>&lt;a &amp; b&gt;</t>"), sheet);
+		
+	}
+	
+	@Test
+	public void appendContinuesRows() throws IOException {
+		
+		File file = File.createTempFile("tex-xls", ".xlsx");
+		Tex e = createTex();
+		e.registerAppender(new XlsAppender(file, false));
+		e.registerLayout(getClass(), "layout-01.xml");
+		exportRows(e, "first ", 3);
+		e.close();
+		
+		Tex appended = createTex();
+		XlsAppender appender = new XlsAppender(file, true);
+		Assert.assertEquals(appender.count(), 3);
+		appended.registerAppender(appender);
+		appended.registerLayout(getClass(), "layout-01.xml");
+		exportRows(appended, "second ", 2);
+		appended.close();
+		
+		Assert.assertEquals(appender.count(), 5);
+		String sheet = Fixtures.readEntry(file, SHEET);
+		Assert.assertTrue(sheet.contains("<t>first 0</t>"), sheet);
+		Assert.assertTrue(sheet.contains("<row r=\"5\">"), sheet);
+		Assert.assertTrue(sheet.indexOf("<t>first 2</t>") < sheet.indexOf("<t>second 0</t>"), sheet);
+		
+	}
+	
+	@Test
+	public void binaryColumnsOnlyAsNumbers() throws IOException {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("a", new BigDecimal("123.45"));
+		map.put("b", new BigDecimal("-123.45"));
+		map.put("c", 7);
+		map.put("d", 12345L);
+		
+		//packed decimals are numbers in typed cells
+		Tex typed = createBinaryTex(new XlsAppender(File.createTempFile("tex-xls", ".xlsx"), false));
+		typed.exportDetail(map);
+		typed.close();
+		
+		//but can't be written as text
+		Tex text = createBinaryTex(new XlsAppender(File.createTempFile("tex-xls", ".xlsx"), false).setTypedCells(false));
+		try {
+			text.exportDetail(map);
+			Assert.fail("Packed decimal written as text");
+		} catch (RuntimeException ex) {
+			Assert.assertTrue(ex.getMessage().contains("binary formatter"), ex.getMessage());
+		}
+		
+	}
+	
+	Tex createTex() {
+		return new Tex(Fixtures.getParams());
+	}
+	
+	Tex createBinaryTex(XlsAppender appender) throws IOException {
+		
+		Map<String, Object> params = new HashMap<String, Object>();
+		params.put("p", 123);
+		Tex e = new Tex(params);
+		e.registerAppender(appender);
+		e.registerLayout(getClass(), "layout-binary.xml");
+		return e;
+		
+	}
+	
+	void exportRows(Tex e, String prefix, int rows) {
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		for (int i = 0; i < rows; i++) {
+			map.put("LINHAARQUIVO", prefix + i);
+			e.exportRow("alternativa", map);
+		}
+		
+	}
+	
+}